@@ -0,0 +1,191 @@
+package org.vay.sampleapp;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ai.vay.client.api.Analyser;
+import ai.vay.client.api.Listener;
+import ai.vay.client.api.events.ErrorEvent;
+import ai.vay.client.api.events.FeedbackEvent;
+import ai.vay.client.api.events.PoseEvent;
+import ai.vay.client.api.events.ReadyEvent;
+import ai.vay.client.api.events.RepetitionEvent;
+import ai.vay.client.api.events.SessionQualityChangedEvent;
+import ai.vay.client.api.events.SessionStateChangedEvent;
+import ai.vay.client.impl.AnalyserFactory;
+
+/** Hands out streaming analysers whose connection was opened ahead of time.
+ *
+ * <p>An analyser is bound to its exercise and listener when it is created, which includes the
+ * network handshake. The provider creates analysers for the exercises to come in the background,
+ * e.g. at app start, with a listener that only forwards events once a session has taken the
+ * analyser. A session starting or switching to a prewarmed exercise thus begins streaming right
+ * away. See {@link WarmConnectionPool}. **/
+public final class AnalyserProvider {
+
+	/** Receives the outcome of {@link #acquire}, on a background thread, or on the calling
+	 * thread once the provider has been closed. **/
+	public interface Callback {
+		void onConnected(Connection connection);
+
+		void onFailed(Exception e);
+	}
+
+	// Connects, and closes spares, off the calling threads. Connections are opened in parallel.
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final WarmConnectionPool<Connection> pool;
+	private boolean isClosed = false;
+
+	public AnalyserProvider(String url, String apiKey) {
+		pool = new WarmConnectionPool<>(new WarmConnectionPool.Connector<Connection>() {
+			@Override
+			public Connection connect(int exerciseKey) throws IOException {
+				ForwardingListener listener = new ForwardingListener();
+				return new Connection(AnalyserFactory.createStreamingAnalyser(url, apiKey,
+						exerciseKey, listener), listener, exerciseKey);
+			}
+
+			@Override
+			public void close(Connection connection) {
+				connection.analyser.stop();
+			}
+		}, executor);
+	}
+
+	/** Starts connecting an analyser for the exercise in the background, unless one is ready. **/
+	public void prewarm(int exerciseKey) {
+		pool.prewarm(exerciseKey);
+	}
+
+	/** Takes the prewarmed analyser for the exercise, waiting for it if it is still connecting, or
+	 * connects a new one, in the background. Its events go to the listener from then on. Another
+	 * analyser for the exercise is prewarmed for the next session. Fails with an
+	 * {@link IllegalStateException} once the provider has been closed. **/
+	public synchronized void acquire(int exerciseKey, Listener listener, Callback callback) {
+		if (isClosed) {
+			callback.onFailed(new IllegalStateException("The analyser provider has been closed"));
+			return;
+		}
+		executor.execute(() -> {
+			Connection connection;
+			try {
+				connection = pool.acquire(exerciseKey);
+			} catch (IOException | RuntimeException e) {
+				callback.onFailed(e);
+				return;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				callback.onFailed(e);
+				return;
+			}
+			connection.listener.target = listener;
+			callback.onConnected(connection);
+		});
+	}
+
+	/** Stops the prewarmed analysers. Analysers that were handed out are closed by their
+	 * sessions. **/
+	public synchronized void close() {
+		isClosed = true;
+		pool.close();
+		executor.shutdown();
+	}
+
+	/** An analyser handed out to a session. **/
+	public static final class Connection {
+		private final Analyser analyser;
+		private final ForwardingListener listener;
+		private final int exerciseKey;
+
+		private Connection(Analyser analyser, ForwardingListener listener, int exerciseKey) {
+			this.analyser = analyser;
+			this.listener = listener;
+			this.exerciseKey = exerciseKey;
+		}
+
+		public int getExerciseKey() {
+			return exerciseKey;
+		}
+
+		/** Enqueues an encoded frame into the analyser. **/
+		public void enqueueInput(byte[] encodedFrame) {
+			analyser.enqueueInput(AnalyserFactory.createInput(encodedFrame));
+		}
+
+		/** Stops forwarding events and closes the analyser. **/
+		public void close() {
+			listener.target = null;
+			new Thread(analyser::stop).start();
+		}
+	}
+
+	/** Forwards the events of an analyser to the session that took it, dropping those before. **/
+	private static final class ForwardingListener implements Listener {
+		volatile Listener target;
+
+		@Override
+		public void onReady(ReadyEvent event) {
+			Listener listener = target;
+			if (listener != null) {
+				listener.onReady(event);
+			}
+		}
+
+		@Override
+		public void onPose(PoseEvent event) {
+			Listener listener = target;
+			if (listener != null) {
+				listener.onPose(event);
+			}
+		}
+
+		@Override
+		public void onFeedback(FeedbackEvent event) {
+			Listener listener = target;
+			if (listener != null) {
+				listener.onFeedback(event);
+			}
+		}
+
+		@Override
+		public void onRepetition(RepetitionEvent event) {
+			Listener listener = target;
+			if (listener != null) {
+				listener.onRepetition(event);
+			}
+		}
+
+		@Override
+		public void onStop() {
+			Listener listener = target;
+			if (listener != null) {
+				listener.onStop();
+			}
+		}
+
+		@Override
+		public void onError(ErrorEvent event) {
+			Listener listener = target;
+			if (listener != null) {
+				listener.onError(event);
+			}
+		}
+
+		@Override
+		public void onSessionStateChanged(SessionStateChangedEvent event) {
+			Listener listener = target;
+			if (listener != null) {
+				listener.onSessionStateChanged(event);
+			}
+		}
+
+		@Override
+		public void onSessionQualityChanged(SessionQualityChangedEvent event) {
+			Listener listener = target;
+			if (listener != null) {
+				listener.onSessionQualityChanged(event);
+			}
+		}
+	}
+}
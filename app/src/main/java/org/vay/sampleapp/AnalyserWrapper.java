@@ -1,15 +1,21 @@
 package org.vay.sampleapp;
 
+import android.annotation.SuppressLint;
+import android.media.Image.Plane;
+import android.os.Debug;
 import android.util.Log;
 
 import androidx.camera.core.ImageProxy;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
-import ai.vay.client.api.Analyser;
-import ai.vay.client.api.AnalyserInput;
 import ai.vay.client.api.Listener;
 import ai.vay.client.api.SessionState;
 import ai.vay.client.api.events.ErrorEvent;
@@ -21,26 +27,185 @@ import ai.vay.client.api.events.SessionQualityChangedEvent;
 import ai.vay.client.api.events.SessionStateChangedEvent;
 import ai.vay.client.api.SessionQuality.Quality;
 import ai.vay.client.api.SessionQuality.Subject;
-import ai.vay.client.impl.AnalyserFactory;
 import ai.vay.client.model.human.BodyPointType;
 import ai.vay.client.model.human.Point;
 import ai.vay.client.model.motion.Feedback;
 
 /** Analyser wrapper class responsible for creating and closing the analyser,
- * as well as enqueueing the current image. **/
+ * as well as enqueueing the current image. Each wrapper is one session of an
+ * {@link AnalysisSessionManager}, whose encoder threads and frame buffers it shares with the other
+ * sessions. **/
 public class AnalyserWrapper {
+	public static final int DEFAULT_TARGET_LONG_EDGE = FrameStreamer.DEFAULT_TARGET_LONG_EDGE;
+	public static final int DEFAULT_MAX_IN_FLIGHT = FrameStreamer.DEFAULT_MAX_IN_FLIGHT;
+	// Longer camera delays are taken as a sensor clock in another time base.
+	private static final long MAX_CAMERA_DELAY_NANOS = 1_000_000_000L;
+	private static final long METRICS_LOG_INTERVAL_SECONDS = 10;
+	private static final long HUD_INTERVAL_MILLIS = 500;
 	private final String TAG = this.getClass().getSimpleName();
-	private final Analyser analyser;
-	private GraphicOverlay overlay;
-	private final MainActivity activity;
-	private boolean isShutdown = false;
-	private final String apiKey = "DUMMY-ANDROID-API-KEY";
-
-	public AnalyserWrapper(String url, GraphicOverlay overlay, MainActivity activity, int exerciseKey)
-			throws IOException {
+	private final AnalyserProvider analysers;
+	// The analyser frames are enqueued into, null until the first one is connected and while
+	// reconnecting.
+	private volatile AnalyserProvider.Connection connection;
+	// Whether camera images are captured, from the first connection on, also while reconnecting.
+	private volatile boolean isStreaming = false;
+	// Identifies the latest connection requested, so connections arriving late are closed.
+	private long connectionSequence = 0;
+	// The exercise of the session and the listener of the latest connection requested.
+	private int exerciseKey;
+	private AnalyserListener listener;
+	// Whether the connection was lost and the session is to be resumed on the next one.
+	private boolean isReconnecting = false;
+	// The exercise of the last connection frames were sent to.
+	private int streamedExerciseKey;
+	private volatile boolean flushOnReconnect = false;
+	private final ReconnectBackoff backoff = new ReconnectBackoff();
+	private boolean isClosed = false;
+	// Time from requesting an analyser to its first pose of the last connection, 0 until then.
+	private volatile double firstPoseMillis = 0;
+	private volatile GraphicOverlay overlay;
+	// The skeleton graphic shown for this session and its overlay, guarded by the graphic lock.
+	// Other sessions may draw on the same overlay.
+	private final Object poseGraphicLock = new Object();
+	private PoseGraphic shownPoseGraphic;
+	private GraphicOverlay shownPoseGraphicOverlay;
+	private final SessionEventListener events;
+	private final AnalysisSessionManager sessionManager;
+	// Governs, encodes and sends frames, enqueueing them into the analyser.
+	private final FrameStreamer streamer;
+	// Converts camera images on the analyzer thread, probing their plane layout once.
+	private final Yuv420StreamConverter streamConverter = new Yuv420StreamConverter();
+	// Dumps the camera images to a file for replay, if recording, writing on a thread of its own.
+	// Only used on the analyzer thread.
+	private BackgroundFrameRecorder recorder;
+	// Samples the metrics for the log and the debug HUD, off the analyzer and UI threads, and
+	// schedules reconnects.
+	private final ScheduledExecutorService scheduler =
+			Executors.newSingleThreadScheduledExecutor();
+	private ScheduledFuture<?> hudTask;
+
+	/**
+	 * Opens a session on the given manager and starts it on an analyser for the exercise from the
+	 * provider, prewarmed if possible. Returns without waiting for the analyser; camera images are
+	 * not sent until it is connected.
+	 *
+	 * @param maxFps highest frame rate of the session, if the manager's budget allows
+	 */
+	public AnalyserWrapper(AnalysisSessionManager sessionManager, AnalyserProvider analysers,
+			int exerciseKey, float maxFps, GraphicOverlay overlay, SessionEventListener events) {
 		this.overlay = overlay;
-		this.activity = activity;
-		this.analyser = AnalyserFactory.createStreamingAnalyser(url, apiKey, exerciseKey, listener);
+		this.events = events;
+		this.sessionManager = sessionManager;
+		this.analysers = analysers;
+		this.streamer = sessionManager.openSession(this::enqueueFrame, maxFps);
+		MetricsRegistry metrics = streamer.getMetrics();
+		metrics.counter("gc", AnalyserWrapper::gcCount);
+		metrics.gauge("first_pose_ms", () -> firstPoseMillis);
+		MetricsRegistry.Sampler logSampler = metrics.newSampler(System.nanoTime());
+		// One JSON line per interval, to be pulled from field devices with logcat.
+		scheduler.scheduleAtFixedRate(
+				() -> Log.i(TAG, "metrics " + logSampler.sample(System.nanoTime()).toJson()),
+				METRICS_LOG_INTERVAL_SECONDS, METRICS_LOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
+		switchExercise(exerciseKey);
+	}
+
+	/** Continues the session with another exercise, on an analyser prewarmed for it if there is
+	 * one, otherwise once a new one is connected. Frames are sent to the current analyser until
+	 * then. Keep an analyser for the next exercise warm with {@link AnalyserProvider#prewarm}. **/
+	public synchronized void switchExercise(int exerciseKey) {
+		if (isClosed) {
+			return;
+		}
+		this.exerciseKey = exerciseKey;
+		connect(new AnalyserListener(System.nanoTime(), null));
+	}
+
+	/** Sets whether the frames buffered while reconnecting are all sent once reconnected, e.g. so
+	 * a repetition performed meanwhile is still counted, or only the newest one. Off by default,
+	 * as flushing delays the live frames by the buffered ones. **/
+	public void setFlushOnReconnect(boolean flushOnReconnect) {
+		this.flushOnReconnect = flushOnReconnect;
+	}
+
+	/** Requests an analyser for the current exercise, whose events go to the given listener. **/
+	private synchronized void connect(AnalyserListener next) {
+		long sequence = ++connectionSequence;
+		listener = next;
+		int key = exerciseKey;
+		analysers.acquire(key, next, new AnalyserProvider.Callback() {
+			@Override
+			public void onConnected(AnalyserProvider.Connection connection) {
+				useConnection(sequence, connection);
+			}
+
+			@Override
+			public void onFailed(Exception e) {
+				Log.e(TAG, "Connecting the analyser for exercise " + key + " failed", e);
+				scheduleReconnect(sequence);
+			}
+		});
+	}
+
+	/** Starts sending to a new connection, unless a newer one has been requested since. **/
+	private synchronized void useConnection(long sequence, AnalyserProvider.Connection next) {
+		if (isClosed || sequence != connectionSequence) {
+			next.close();
+			return;
+		}
+		AnalyserProvider.Connection previous = connection;
+		connection = next;
+		isStreaming = true;
+		boolean switched = next.getExerciseKey() != streamedExerciseKey;
+		streamedExerciseKey = next.getExerciseKey();
+		if (isReconnecting) {
+			isReconnecting = false;
+			if (switched) {
+				// The exercise was switched while reconnecting, the frames buffered meanwhile
+				// mean nothing to this analyser.
+				streamer.clearInFlight();
+			}
+			streamer.onReconnected(System.nanoTime(), flushOnReconnect);
+			Log.i(TAG, "Reconnected after " + backoff.getAttempts() + " attempts");
+		} else {
+			// Frames sent to the previous analyser will not be answered by this one.
+			streamer.clearInFlight();
+		}
+		if (previous != null) {
+			previous.close();
+		}
+	}
+
+	/** Called when the analyser of the given listener failed. Unless a newer analyser has been
+	 * requested since, buffers the frames from now on and reconnects. **/
+	private synchronized void onConnectionLost(AnalyserListener lost) {
+		if (isClosed || lost != listener || connection == null) {
+			return;
+		}
+		isReconnecting = true;
+		streamer.onDisconnected(System.nanoTime());
+		connection.close();
+		connection = null;
+		scheduleReconnect(connectionSequence);
+	}
+
+	/** Requests a new analyser after the next backoff delay, unless a newer one has been requested
+	 * meanwhile, e.g. by switching the exercise. **/
+	private synchronized void scheduleReconnect(long sequence) {
+		if (isClosed) {
+			return;
+		}
+		long delayMillis = backoff.nextDelayMillis();
+		Log.w(TAG, "Reconnecting in " + delayMillis + " ms");
+		scheduler.schedule(() -> reconnect(sequence), delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized void reconnect(long sequence) {
+		if (isClosed || sequence != connectionSequence) {
+			return;
+		}
+		// The new analyser starts a new server session; the client's state of the lost one,
+		// e.g. the repetitions counted so far, carries over.
+		connect(new AnalyserListener(System.nanoTime(), listener));
 	}
 
 	/** Used to set a new GraphicOverlay in case configurations change. **/
@@ -48,29 +213,222 @@ public class AnalyserWrapper {
 		this.overlay = overlay;
 	}
 
+	/** Selects how frames are encoded before they are sent, e.g. to trade upload size against
+	 * accuracy per exercise. Takes effect from the next frame on. **/
+	public void setFrameEncoder(FrameEncoder frameEncoder) {
+		streamer.setFrameEncoder(frameEncoder);
+	}
+
+	/** Sets the maximal length of the longer edge of sent frames. Larger frames are downscaled
+	 * before encoding, 0 sends them at camera resolution. **/
+	public void setTargetLongEdge(int targetLongEdge) {
+		streamer.setTargetLongEdge(targetLongEdge);
+	}
+
+	public int getTargetLongEdge() {
+		return streamer.getTargetLongEdge();
+	}
+
+	/** Enables cropping frames around the person while exercising, which shrinks uploads as the
+	 * person usually covers a fraction of the frame. Received keypoints are mapped back to full
+	 * frame coordinates. **/
+	public void setRoiEnabled(boolean roiEnabled) {
+		streamer.setRoiEnabled(roiEnabled);
+	}
+
+	public boolean isRoiEnabled() {
+		return streamer.isRoiEnabled();
+	}
+
+	/** Enables sending only keep-alive frames while nothing moves in front of the camera, e.g.
+	 * before the user arrives or between sets. Enabled by default. **/
+	public void setMotionGatingEnabled(boolean motionGatingEnabled) {
+		streamer.setMotionGatingEnabled(motionGatingEnabled);
+	}
+
+	/** Returns the governor adapting frame rate, quality and resolution to the round trip time,
+	 * e.g. to display its current decisions. **/
+	public SendRateGovernor getSendRateGovernor() {
+		return streamer.getSendRateGovernor();
+	}
+
+	/** Sets how many sent frames may await their pose at once. While the window is full, only the
+	 * newest frame is kept and sent once a pose arrives. **/
+	public void setMaxInFlight(int maxInFlight) {
+		streamer.setMaxInFlight(maxInFlight);
+	}
+
+	/** Returns the counters of captured, encoded, sent, dropped and acknowledged frames. **/
+	public FrameCounters getFrameCounters() {
+		return streamer.getFrameCounters();
+	}
+
+	/** Returns the tracer recording per-frame stage durations from the camera to the drawn
+	 * skeleton, e.g. to log its percentiles or export a Chrome trace. **/
+	public FrameTracer getFrameTracer() {
+		return streamer.getTracer();
+	}
+
+	/** Shows the current metrics as a debug HUD on top of the overlay, refreshed twice a second,
+	 * or hides it. **/
+	public synchronized void setDebugHudEnabled(boolean enabled) {
+		if (enabled == (hudTask != null)) {
+			return;
+		}
+		if (enabled) {
+			MetricsRegistry.Sampler hudSampler = streamer.getMetrics().newSampler(System.nanoTime());
+			hudTask = scheduler.scheduleAtFixedRate(
+					() -> overlay.setHudLines(hudSampler.sample(System.nanoTime()).toLines()),
+					HUD_INTERVAL_MILLIS, HUD_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		} else {
+			hudTask.cancel(false);
+			hudTask = null;
+			scheduler.execute(() -> overlay.setHudLines(null));
+		}
+	}
+
+	/** Starts dumping every camera image, before rate governing, to the given file, so the session
+	 * can be replayed with a {@link FrameReplaySource} without a phone or server. Images arriving
+	 * while the disk falls behind are left out. Must be called from the analyzer thread, like
+	 * {@link #setPendingImage(ImageProxy)}. **/
+	public void startRecording(File file) throws IOException {
+		stopRecording();
+		recorder = new BackgroundFrameRecorder(file);
+	}
+
+	/** Stops recording, if recording, waiting for the queued images to be written. Must be called
+	 * from the analyzer thread. **/
+	public void stopRecording() {
+		if (recorder == null) {
+			return;
+		}
+		try {
+			recorder.close();
+		} catch (IOException e) {
+			Log.w(TAG, "Recording frames failed", e);
+		}
+		if (recorder.getDroppedCount() > 0) {
+			Log.w(TAG, "Left " + recorder.getDroppedCount() + " frames out of the recording");
+		}
+		recorder = null;
+	}
+
+	/** Adds a skeleton graphic to the overlay in place of the one shown for this session before,
+	 * e.g. by the listener of a lost analyser, leaving those of other sessions alone. **/
+	private void showPoseGraphic(GraphicOverlay target, PoseGraphic graphic) {
+		synchronized (poseGraphicLock) {
+			if (shownPoseGraphic != null) {
+				shownPoseGraphicOverlay.remove(shownPoseGraphic);
+			}
+			shownPoseGraphic = graphic;
+			shownPoseGraphicOverlay = target;
+			target.add(graphic);
+		}
+	}
+
 	/** Closes the analyser and prevents sending further images. **/
-	public void close() {
-		new Thread(analyser::stop).start();
-		isShutdown = true;
+	public synchronized void close() {
+		isClosed = true;
+		sessionManager.closeSession(streamer);
+		scheduler.shutdownNow();
+		if (connection != null) {
+			connection.close();
+			connection = null;
+		}
 	}
 
-	/** Prepares and enqueues the current image. Converts the imageProxy (received by the cameraX
-	 * analyser function) to byte array, rotating it upright if needed. **/
+	/** Prepares and enqueues the current image. Copies the imageProxy (received by the cameraX
+	 * analyser function) into a pooled NV21 frame and hands it to the encoding pipeline, so the
+	 * imageProxy can be closed right after this returns. Frames exceeding the frame rate allowed
+	 * by the send rate governor are skipped. **/
 	public void setPendingImage(ImageProxy imageProxy) {
-		if (isShutdown) {
+		if (streamer.isShutdown()) {
+			return;
+		}
+		long now = System.nanoTime();
+		if (recorder != null) {
+			record(imageProxy, now);
+		}
+		if (!isStreaming || !streamer.shouldCapture(now)) {
+			// Not connected yet, or exceeding the frame rate.
 			return;
 		}
-		byte[] bytes = ImageConverter.getByteArrayFromImageProxy(imageProxy);
-		AnalyserInput input = AnalyserFactory.createInput(bytes);
-		analyser.enqueueInput(input);
+		FrameTracer tracer = streamer.getTracer();
+		long sensorNanos = imageProxy.getImageInfo().getTimestamp();
+		// The sensor clock is monotonic like System.nanoTime() on most devices, skip it otherwise.
+		if (sensorNanos > 0 && sensorNanos <= now && now - sensorNanos < MAX_CAMERA_DELAY_NANOS) {
+			tracer.record(FrameTracer.Stage.CAMERA, now, sensorNanos, now);
+		}
+		Nv21Frame frame = ImageConverter.copyToNv21Frame(imageProxy, now, streamConverter,
+				sessionManager.getBufferPool());
+		tracer.record(FrameTracer.Stage.CONVERT, now, now, System.nanoTime());
+		streamer.submit(frame);
+	}
+
+	@SuppressLint("UnsafeOptInUsageError")
+	private void record(ImageProxy imageProxy, long captureNanos) {
+		Plane[] planes = imageProxy.getImage().getPlanes();
+		// Only copies the planes, the file is written on the recorder's thread.
+		recorder.offer(captureNanos, imageProxy.getWidth(), imageProxy.getHeight(),
+				imageProxy.getImageInfo().getRotationDegrees(), planes[0].getBuffer(),
+				planes[0].getRowStride(), planes[1].getBuffer(), planes[2].getBuffer(),
+				planes[1].getRowStride(), planes[1].getPixelStride());
+		if (recorder.getFailure() != null) {
+			// Logged by stopRecording().
+			stopRecording();
+		}
+	}
+
+	/** Returns the number of garbage collections of the runtime so far, 0 if not available. **/
+	private static long gcCount() {
+		String count = Debug.getRuntimeStat("art.gc.gc-count");
+		try {
+			return count != null ? Long.parseLong(count) : 0;
+		} catch (NumberFormatException e) {
+			return 0;
+		}
 	}
 
-	/** Anonymous inner listener class where custom behaviour upon various events can be defined. **/
-	private final Listener listener = new Listener() {
+	/** Enqueues an encoded frame into the analyser, called by the streamer on an encoder worker.
+	 * The Vay client takes no frame ID. **/
+	private void enqueueFrame(long frameId, byte[] encodedFrame) {
+		AnalyserProvider.Connection current = connection;
+		if (current != null) {
+			current.enqueueInput(encodedFrame);
+		}
+	}
+
+	/** Inner listener class where custom behaviour upon various events can be defined. A new one
+	 * listens to each analyser, starting from a fresh exercise state, or from the state of the
+	 * lost one when reconnecting. **/
+	private final class AnalyserListener implements Listener {
 		private final String TAG = this.getClass().getSimpleName();
-		private SessionState sessionState = SessionState.NO_HUMAN;
-		private int correctRepetitions = 0;
-		private final Object lock = new Object();
+		// When the analyser was requested, to measure the time to the first pose.
+		private final long requestedNanos;
+		private boolean hadPose = false;
+		// Written on the analyser's thread, read by the listener resuming the session on the
+		// reconnect thread.
+		private volatile SessionState sessionState = SessionState.NO_HUMAN;
+		private volatile int correctRepetitions = 0;
+		// The skeleton graphic, created once per overlay and updated in place for every pose.
+		private PoseGraphic poseGraphic;
+		private GraphicOverlay poseGraphicOverlay;
+		// Keypoints of the current pose in overlay image coordinates, reused for every pose.
+		private final float[] poseCoordinates = new float[2 * PoseGraphic.pointCount()];
+		// The sent frame the current pose belongs to, reused for every pose.
+		private final FrameStreamer.PoseOrigin poseOrigin = new FrameStreamer.PoseOrigin();
+
+		/**
+		 * @param requestedNanos when the analyser was requested
+		 * @param resumed the listener of the lost analyser whose session is resumed, or null
+		 */
+		AnalyserListener(long requestedNanos, AnalyserListener resumed) {
+			this.requestedNanos = requestedNanos;
+			if (resumed != null) {
+				sessionState = resumed.sessionState;
+				correctRepetitions = resumed.correctRepetitions;
+			}
+		}
 
 		/** Gets called after the connection has been established. **/
 		@Override
@@ -81,8 +439,30 @@ public class AnalyserWrapper {
 		 *  If you visualize the points, they should be updated here. **/
 		@Override
 		public void onPose(PoseEvent event) {
+			long now = System.nanoTime();
+			if (!hadPose) {
+				hadPose = true;
+				firstPoseMillis = (now - requestedNanos) / 1e6;
+				Log.i(TAG, "Time to first pose: " + Math.round(firstPoseMillis) + " ms");
+				// The connection works, so a later loss starts over with short delays.
+				backoff.reset();
+			}
+			// The Vay client does not answer with frame IDs, poses are matched in send order.
+			streamer.onPose(now, poseOrigin);
+			if (poseOrigin.rateAdapted) {
+				Log.d(TAG, "Send rate adapted: " + streamer.getSendRateGovernor().describe());
+			}
+			if (!poseOrigin.matched) {
+				// Its frame timed out or was forgotten, so its crop and scale are unknown.
+				return;
+			}
 			Map<BodyPointType, Point> points = event.getPose().getPoints();
-			updateGraphic(points); // Redraws the skeleton.
+			long mask = PoseGraphic.toCoordinates(points, poseOrigin.scaleX, poseOrigin.scaleY,
+					poseOrigin.offsetX, poseOrigin.offsetY, poseCoordinates);
+			streamer.onPoseCoordinates(poseCoordinates, mask);
+			updateGraphic(mask, poseOrigin.captureNanos, now); // Redraws the skeleton.
+			streamer.getTracer().record(FrameTracer.Stage.POSE, poseOrigin.captureNanos, now,
+					System.nanoTime());
 		}
 
 		/** Here real time feedback is received. During exercising, this event is called anytime
@@ -93,7 +473,7 @@ public class AnalyserWrapper {
 		public void onFeedback(FeedbackEvent event) {
 			if (sessionState != SessionState.EXERCISING) {
 				// In our simplified sample app, we only display the first feedback.
-				activity.displayPositioningGuidance(event.getFeedbacks().get(0).getMessages().get(0));
+				events.onPositioningGuidance(event.getFeedbacks().get(0).getMessages().get(0));
 			}
 		}
 
@@ -107,24 +487,27 @@ public class AnalyserWrapper {
 			// If no feedback was generated, this means the repetition was performed correctly.
 			if (feedback.isEmpty()) {
 				correctRepetitions++;
-				activity.setRepetitionsText(correctRepetitions);
-				activity.displayPositiveMessage();
+				events.onCorrectRepetition(correctRepetitions);
 			} else {
 				// Here we simply display the first correction from the list of feedback.
-				activity.displayCorrection(feedback.get(0).getMessages().get(0));
+				events.onCorrection(feedback.get(0).getMessages().get(0));
 			}
 		}
 
-		/** Gets called when the analyser has been closed. **/
+		/** Gets called when the analyser has been closed. Analysers closed by the wrapper no longer
+		 * call their listener, so this one stopped on its own and is replaced. **/
 		@Override
 		public void onStop() {
+			onConnectionLost(this);
 		}
 
-		/** Gets called when an error occurs. **/
+		/** Gets called when an error occurs, e.g. the connection dropped. The analyser is replaced
+		 * and the session resumed on the new one. **/
 		@Override
 		public void onError(ErrorEvent event) {
 			Log.d(TAG, "Error type: " + event.getErrorType().name() + " Error message: " +
 					event.getErrorText());
+			onConnectionLost(this);
 		}
 
 		/** Gets called when the session state changes. There are three states: NO_HUMAN, POSITIONING
@@ -133,11 +516,12 @@ public class AnalyserWrapper {
 		public void onSessionStateChanged(SessionStateChangedEvent event) {
 			SessionState previousSessionState = sessionState;
 			sessionState = event.getSessionState();
-			activity.setCurrentStateText(sessionState.name());
-			activity.setStateIndicationColor(sessionState);
+			events.onSessionStateChanged(sessionState);
+			streamer.onSessionStateChanged(sessionState == SessionState.EXERCISING,
+					System.nanoTime());
 			if (previousSessionState == SessionState.POSITIONING &&
 				sessionState == SessionState.EXERCISING) {
-				activity.displayPositioningGuidance("Positioning successful");
+				events.onPositioningGuidance("Positioning successful");
 			}
 		}
 
@@ -148,25 +532,36 @@ public class AnalyserWrapper {
 		 * 	POOR - The quality is poor but still good enough to perform the movement analysis,
 		 * 		the accuracy might be affected.
 		 * 	GOOD - The quality is optimal.
-		 * 	In this sample we only show a warning, if either quality is poor.	**/
+		 * 	In this sample we show a warning, if either quality is poor. A poor or bad latency also
+		 * 	makes the send rate governor back off immediately.	**/
 		@Override
 		public void onSessionQualityChanged(SessionQualityChangedEvent event) {
 			Quality latency = event.getSessionQuality().getQuality().get(Subject.LATENCY);
 			Quality environment = event.getSessionQuality().getQuality().get(Subject.ENVIRONMENT);
+			if ((latency == Quality.POOR || latency == Quality.BAD)
+					&& streamer.onCongestion(System.nanoTime())) {
+				Log.d(TAG, "Send rate adapted: " + streamer.getSendRateGovernor().describe());
+			}
 			if (latency == Quality.POOR || environment == Quality.POOR) {
-				activity.setConnectivityWarningText("POOR SESSION QUALITY DETECTED!");
+				events.onConnectivityWarning("POOR SESSION QUALITY DETECTED! ("
+						+ streamer.getSendRateGovernor().describe() + ")");
 			} else {
-				activity.setConnectivityWarningText("");
+				events.onConnectivityWarning("");
 			}
 		}
 
-		/** Clears the old graphic and sets a new one. Used to redraw the skeleton. **/
-		private void updateGraphic(Map<BodyPointType, Point> points) {
-			synchronized (lock) {
-				overlay.clear();
-				overlay.add(new PoseGraphic(overlay, points));
-				overlay.postInvalidate();
+		/** Updates the skeleton graphic with the current pose, adding it to the overlay on first use or
+		 * after the overlay changed. Used to redraw the skeleton. Only called from the listener
+		 * thread, which is the single writer of the graphic's pose snapshots. **/
+		private void updateGraphic(long mask, long captureNanos, long nowNanos) {
+			GraphicOverlay currentOverlay = overlay;
+			if (poseGraphicOverlay != currentOverlay) {
+				poseGraphic = new PoseGraphic(currentOverlay, streamer.getTracer());
+				poseGraphicOverlay = currentOverlay;
+				showPoseGraphic(currentOverlay, poseGraphic);
 			}
+			poseGraphic.update(poseCoordinates, mask, captureNanos, nowNanos);
+			currentOverlay.postInvalidate();
 		}
-	};
+	}
 }
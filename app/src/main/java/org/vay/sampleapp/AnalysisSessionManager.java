@@ -0,0 +1,118 @@
+package org.vay.sampleapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Hosts concurrent analysis sessions, e.g. two exercises or two cameras side by side on a kiosk,
+ * on shared resources.
+ *
+ * <p>All sessions encode on one bounded pool of encoder threads, where they take turns frame by
+ * frame (see {@link FramePipeline}), so a session with a heavy encoder cannot starve the others.
+ * Their frames come from one {@link FrameBufferPool}. The frame rates of the sessions are bounded
+ * by a total budget, divided evenly: each session sends at most its own maximum or its share of
+ * the budget, whichever is lower, re-divided whenever a session is opened or closed. Within that,
+ * each session's {@link SendRateGovernor} still adapts to its own round trip. **/
+public final class AnalysisSessionManager {
+	/** Total frame rate of all sessions by default, two sessions at full camera rate. **/
+	public static final float DEFAULT_TOTAL_MAX_FPS = 60f;
+
+	private final ExecutorService encoderExecutor;
+	private final int encoderThreads;
+	private final int workersPerSession;
+	private final float totalMaxFps;
+	private final FrameBufferPool bufferPool;
+	private final List<FrameStreamer> sessions = new ArrayList<>();
+	// The maximum frame rate each session was opened with, by index in sessions.
+	private final List<Float> requestedMaxFps = new ArrayList<>();
+	private boolean isShutdown = false;
+
+	/** Creates a manager with an encoder thread per core but one, which is left to the camera and
+	 * the UI, and the default frame rate budget. **/
+	public AnalysisSessionManager() {
+		this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), DEFAULT_TOTAL_MAX_FPS);
+	}
+
+	/**
+	 * @param encoderThreads number of threads encoding the frames of all sessions
+	 * @param totalMaxFps highest frame rate of all sessions together
+	 */
+	public AnalysisSessionManager(int encoderThreads, float totalMaxFps) {
+		if (encoderThreads < 1) {
+			throw new IllegalArgumentException("encoderThreads must be positive");
+		}
+		this.encoderThreads = encoderThreads;
+		this.totalMaxFps = totalMaxFps;
+		encoderExecutor = Executors.newFixedThreadPool(encoderThreads);
+		workersPerSession = Math.min(encoderThreads, FramePipeline.defaultWorkerCount());
+		// Frames being encoded and their scratch buffers are bounded by the encoder threads, the
+		// frames waiting for one by the sessions, which come and go.
+		bufferPool = new FrameBufferPool(FrameBufferPool.DEFAULT_MAX_IDLE_PER_SIZE * encoderThreads);
+	}
+
+	/** Returns the pool the frames of all sessions are to be taken from. **/
+	public FrameBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	public int getEncoderThreads() {
+		return encoderThreads;
+	}
+
+	/**
+	 * Opens a session, whose encoded frames leave through the given sink. Close it with
+	 * {@link #closeSession(FrameStreamer)} rather than shutting it down directly, so its share of
+	 * the frame rate budget goes to the remaining sessions.
+	 *
+	 * @param maxFps highest frame rate of the session, if the budget allows
+	 */
+	public synchronized FrameStreamer openSession(FrameStreamer.FrameSink sink, float maxFps) {
+		if (isShutdown) {
+			throw new IllegalStateException("The session manager has been shut down");
+		}
+		FrameStreamer session = new FrameStreamer(sink, encoderExecutor, workersPerSession, maxFps);
+		sessions.add(session);
+		requestedMaxFps.add(maxFps);
+		divideBudget();
+		return session;
+	}
+
+	/** Shuts a session down and divides the frame rate budget among the remaining ones. **/
+	public synchronized void closeSession(FrameStreamer session) {
+		int index = sessions.indexOf(session);
+		if (index < 0) {
+			return;
+		}
+		sessions.remove(index);
+		requestedMaxFps.remove(index);
+		session.shutdown();
+		divideBudget();
+	}
+
+	public synchronized int getSessionCount() {
+		return sessions.size();
+	}
+
+	/** Closes all sessions and stops the encoder threads once the frames being encoded are done. **/
+	public synchronized void shutdown() {
+		isShutdown = true;
+		for (FrameStreamer session : sessions) {
+			session.shutdown();
+		}
+		sessions.clear();
+		requestedMaxFps.clear();
+		encoderExecutor.shutdown();
+	}
+
+	private void divideBudget() {
+		if (sessions.isEmpty()) {
+			return;
+		}
+		float share = totalMaxFps / sessions.size();
+		for (int i = 0; i < sessions.size(); i++) {
+			sessions.get(i).getSendRateGovernor().setMaxFps(Math.min(requestedMaxFps.get(i),
+					share));
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package org.vay.sampleapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/** Records camera images with a {@link FrameRecorder} on a writer thread of its own, so the
+ * capturing thread only copies the planes and never waits for the disk.
+ *
+ * <p>The planes are copied into one of a fixed number of preallocated slots, whose buffers are
+ * reused once written. When the writer falls behind and no slot is free, the image is dropped
+ * instead of queueing without bound. Images are offered from a single thread. **/
+public final class BackgroundFrameRecorder implements Closeable {
+	/** Default number of images waiting for the writer at most. **/
+	public static final int DEFAULT_QUEUE_SIZE = 4;
+
+	/** The planes and header of one image. The planes are stored one after another. **/
+	private static final class Slot {
+		byte[] data = new byte[0];
+		long captureNanos;
+		int width;
+		int height;
+		int rotationDegrees;
+		int yRowStride;
+		int uvRowStride;
+		int uvPixelStride;
+		int yLength;
+		int uLength;
+		int vLength;
+	}
+
+	// Queued after the last image to stop the writer.
+	private static final Slot END = new Slot();
+
+	private final FrameRecorder recorder;
+	private final BlockingQueue<Slot> freeSlots;
+	private final BlockingQueue<Slot> queue;
+	private final Thread writerThread;
+	private volatile IOException failure;
+	private volatile int droppedCount = 0;
+	private boolean isClosed = false;
+
+	public BackgroundFrameRecorder(File file) throws IOException {
+		this(file, DEFAULT_QUEUE_SIZE);
+	}
+
+	/**
+	 * @param queueSize number of images waiting for the writer at most
+	 */
+	public BackgroundFrameRecorder(File file, int queueSize) throws IOException {
+		if (queueSize < 1) {
+			throw new IllegalArgumentException("queueSize must be positive");
+		}
+		recorder = new FrameRecorder(file);
+		freeSlots = new ArrayBlockingQueue<>(queueSize);
+		// One more for the end marker.
+		queue = new ArrayBlockingQueue<>(queueSize + 1);
+		for (int i = 0; i < queueSize; i++) {
+			freeSlots.add(new Slot());
+		}
+		writerThread = new Thread(this::writeAll, "FrameRecorder");
+		writerThread.start();
+	}
+
+	/**
+	 * Copies the planes of an image and queues them for the writer. The buffers are read from
+	 * their position to their limit, which is left unchanged, and can be released once this
+	 * returns. Returns false if the image was dropped, as the writer fell behind or failed, see
+	 * {@link #getFailure()}.
+	 *
+	 * @param captureNanos capture time, replays keep the intervals between frames
+	 * @param rotationDegrees clockwise rotation to display the image upright
+	 */
+	public boolean offer(long captureNanos, int width, int height, int rotationDegrees,
+			ByteBuffer yBuffer, int yRowStride, ByteBuffer uBuffer, ByteBuffer vBuffer,
+			int uvRowStride, int uvPixelStride) {
+		if (isClosed || failure != null) {
+			return false;
+		}
+		Slot slot = freeSlots.poll();
+		if (slot == null) {
+			droppedCount++;
+			return false;
+		}
+		slot.captureNanos = captureNanos;
+		slot.width = width;
+		slot.height = height;
+		slot.rotationDegrees = rotationDegrees;
+		slot.yRowStride = yRowStride;
+		slot.uvRowStride = uvRowStride;
+		slot.uvPixelStride = uvPixelStride;
+		slot.yLength = yBuffer.remaining();
+		slot.uLength = uBuffer.remaining();
+		slot.vLength = vBuffer.remaining();
+		int size = slot.yLength + slot.uLength + slot.vLength;
+		if (slot.data.length < size) {
+			slot.data = new byte[size];
+		}
+		yBuffer.duplicate().get(slot.data, 0, slot.yLength);
+		uBuffer.duplicate().get(slot.data, slot.yLength, slot.uLength);
+		vBuffer.duplicate().get(slot.data, slot.yLength + slot.uLength, slot.vLength);
+		queue.add(slot);
+		return true;
+	}
+
+	/** Returns the number of images dropped because the writer fell behind. **/
+	public int getDroppedCount() {
+		return droppedCount;
+	}
+
+	/** Returns the error that stopped the writer, or null. **/
+	public IOException getFailure() {
+		return failure;
+	}
+
+	/** Writes the queued images, stops the writer and closes the file. Called from the thread
+	 * offering the images. Throws the error that stopped the writer, if any. **/
+	@Override
+	public void close() throws IOException {
+		if (isClosed) {
+			return;
+		}
+		isClosed = true;
+		queue.add(END);
+		boolean interrupted = false;
+		while (writerThread.isAlive()) {
+			try {
+				writerThread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			recorder.close();
+		} catch (IOException e) {
+			if (failure == null) {
+				failure = e;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/** Writer loop, writing queued images until the end marker. After a failure, the images are
+	 * only taken off the queue. **/
+	private void writeAll() {
+		while (true) {
+			Slot slot;
+			try {
+				slot = queue.take();
+			} catch (InterruptedException e) {
+				// Only close() stops the writer.
+				continue;
+			}
+			if (slot == END) {
+				return;
+			}
+			if (failure == null) {
+				try {
+					int uOffset = slot.yLength;
+					int vOffset = uOffset + slot.uLength;
+					recorder.write(slot.captureNanos, slot.width, slot.height,
+							slot.rotationDegrees, ByteBuffer.wrap(slot.data, 0, slot.yLength),
+							slot.yRowStride, ByteBuffer.wrap(slot.data, uOffset, slot.uLength),
+							ByteBuffer.wrap(slot.data, vOffset, slot.vLength), slot.uvRowStride,
+							slot.uvPixelStride);
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+			freeSlots.add(slot);
+		}
+	}
+}
@@ -0,0 +1,351 @@
+package org.vay.sampleapp;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/** Analyses every frame of a recording, e.g. a workout video or a directory of frame dumps,
+ * offline, and writes the poses and repetitions to a {@link PoseColumnWriter}.
+ *
+ * <p>Unlike a live session, no frame is skipped or replaced: frames are decoded on the calling
+ * thread, encoded on a pool of encoder threads and sent in order on a sender thread, the stages
+ * overlapping and each waiting for the next rather than dropping. The sender keeps up to
+ * maxInFlight frames awaiting their pose, so frames go out as fast as the analyser answers.
+ * Frames are converted and encoded like camera frames, see {@link ImageConverter}.
+ *
+ * <p>The analyser's answers are reported with {@link #onPose} and {@link #onRepetition}, from a
+ * single listener thread, and its failure with {@link #fail(Exception)}. **/
+public final class BatchAnalysis {
+	// Longest wait for a pose before the analyser is taken to have stopped answering.
+	private static final long POSE_TIMEOUT_NANOS = 10_000_000_000L;
+	// A repetition is reported right after the pose of its last frame, so events are still
+	// written for this long after the last pose.
+	private static final long TRAILING_EVENTS_MILLIS = 200;
+
+	/** Counts of a finished batch analysis. **/
+	public static final class Result {
+		private final int frames;
+		private final int sent;
+		private final int poses;
+		private final int lost;
+		private final int failedEncodes;
+		private final long elapsedNanos;
+
+		Result(int frames, int sent, int poses, int lost, int failedEncodes, long elapsedNanos) {
+			this.frames = frames;
+			this.sent = sent;
+			this.poses = poses;
+			this.lost = lost;
+			this.failedEncodes = failedEncodes;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		/** Returns the number of frames read from the source. **/
+		public int getFrames() {
+			return frames;
+		}
+
+		public int getSent() {
+			return sent;
+		}
+
+		public int getPoses() {
+			return poses;
+		}
+
+		/** Returns the number of sent frames that were not answered with a pose. **/
+		public int getLost() {
+			return lost;
+		}
+
+		public int getFailedEncodes() {
+			return failedEncodes;
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		/** Returns the frames read per second of the whole analysis. **/
+		public double getFramesPerSecond() {
+			return elapsedNanos > 0 ? frames * 1e9 / elapsedNanos : 0;
+		}
+
+		@Override
+		public String toString() {
+			return "frames=" + frames + " sent=" + sent + " poses=" + poses + " lost=" + lost
+					+ " failedEncodes=" + failedEncodes + " fps=" + Math.round(getFramesPerSecond());
+		}
+	}
+
+	/** A frame handed to the encoder threads, by its index in the source. **/
+	private static final class PendingFrame {
+		// Marks the end of the source for the sender.
+		static final PendingFrame END = new PendingFrame(-1, null);
+
+		final int index;
+		final Future<EncodedFrame> encoding;
+
+		PendingFrame(int index, Future<EncodedFrame> encoding) {
+			this.index = index;
+			this.encoding = encoding;
+		}
+	}
+
+	/** A sent frame awaiting its pose. **/
+	private static final class SentFrame {
+		final int index;
+		final long captureNanos;
+		final float scaleX;
+		final float scaleY;
+
+		SentFrame(int index, long captureNanos, float scaleX, float scaleY) {
+			this.index = index;
+			this.captureNanos = captureNanos;
+			this.scaleX = scaleX;
+			this.scaleY = scaleY;
+		}
+	}
+
+	private final YuvFrameSource source;
+	private final FrameEncoder encoder;
+	private final int targetLongEdge;
+	private final FrameStreamer.FrameSink sink;
+	private final PoseColumnWriter output;
+	private final int encoderThreads;
+	private final int maxInFlight;
+	private final FrameBufferPool pool;
+	// A permit per frame that may be sent before the oldest one is answered.
+	private final Semaphore window;
+	// Sent frames awaiting their pose, oldest first. Guarded by this, like the fields below.
+	private final ArrayDeque<SentFrame> inFlight = new ArrayDeque<>();
+	// The pose in source image coordinates, reused for every pose.
+	private float[] scaledCoordinates = new float[0];
+	private int lastPoseFrame = -1;
+	private int poses = 0;
+	private boolean isFinished = false;
+	private Exception failure;
+	// Written by the decoding thread before the first frame is queued for the sender.
+	private volatile long firstCaptureNanos;
+	// Only used on the sender thread until it has been joined.
+	private int sent = 0;
+	private int failedEncodes = 0;
+
+	/**
+	 * @param encoder encodes the frames, like the encoder of a live session
+	 * @param targetLongEdge longer edge of the sent frames, 0 sends them at source resolution
+	 * @param sink sends the encoded frames to the analyser, in source order, with the index of the
+	 *     frame in the source as frame ID
+	 * @param output receives the poses in source image coordinates and the repetitions
+	 * @param encoderThreads number of frames encoded at once
+	 * @param maxInFlight number of sent frames that may await their pose at once
+	 */
+	public BatchAnalysis(YuvFrameSource source, FrameEncoder encoder, int targetLongEdge,
+			FrameStreamer.FrameSink sink, PoseColumnWriter output, int encoderThreads,
+			int maxInFlight) {
+		if (encoderThreads < 1 || maxInFlight < 1) {
+			throw new IllegalArgumentException("encoderThreads and maxInFlight must be positive");
+		}
+		this.source = source;
+		this.encoder = encoder;
+		this.targetLongEdge = targetLongEdge;
+		this.sink = sink;
+		this.output = output;
+		this.encoderThreads = encoderThreads;
+		this.maxInFlight = maxInFlight;
+		window = new Semaphore(maxInFlight);
+		// Frames being encoded or waiting for the sender are bounded by the queue below.
+		pool = new FrameBufferPool(4 * encoderThreads);
+	}
+
+	/**
+	 * Analyses the whole source on the calling thread and returns once every sent frame has been
+	 * answered, or has not been answered in time. The source and the output are not closed.
+	 *
+	 * @throws IOException if the source could not be read, or the analysis failed
+	 */
+	public Result run() throws IOException, InterruptedException {
+		long startNanos = System.nanoTime();
+		ExecutorService encoders = Executors.newFixedThreadPool(encoderThreads);
+		// Keeps every encoder thread busy while the sender waits for the oldest frame.
+		BlockingQueue<PendingFrame> queue = new ArrayBlockingQueue<>(2 * encoderThreads);
+		Thread sender = new Thread(() -> sendAll(queue), "BatchAnalysisSender");
+		sender.start();
+		Yuv420StreamConverter converter = new Yuv420StreamConverter();
+		int frames = 0;
+		boolean isQueued = false;
+		try {
+			try {
+				while (!hasFailed() && source.next()) {
+					if (frames == 0) {
+						firstCaptureNanos = source.getCaptureNanos();
+					}
+					Nv21Frame frame = new Nv21Frame(pool, source.getWidth(), source.getHeight(),
+							source.getRotationDegrees(), source.getCaptureNanos());
+					converter.toNv21(source.getYBuffer(), source.getYRowStride(),
+							source.getUBuffer(), source.getVBuffer(), source.getUvRowStride(),
+							source.getUvPixelStride(), source.getWidth(), source.getHeight(),
+							frame.getData());
+					queue.put(new PendingFrame(frames++, encoders.submit(() -> encode(frame))));
+				}
+				queue.put(PendingFrame.END);
+				isQueued = true;
+				sender.join();
+			} finally {
+				if (!isQueued) {
+					sender.interrupt();
+				}
+				encoders.shutdownNow();
+			}
+			// Waits for the poses of the last frames sent, and the repetitions they complete.
+			if (window.tryAcquire(maxInFlight, POSE_TIMEOUT_NANOS, TimeUnit.NANOSECONDS)
+					&& !hasFailed()) {
+				Thread.sleep(TRAILING_EVENTS_MILLIS);
+			}
+			synchronized (this) {
+				isFinished = true;
+				if (failure != null) {
+					throw new IOException("Batch analysis failed", failure);
+				}
+				return new Result(frames, sent, poses, inFlight.size(), failedEncodes,
+						System.nanoTime() - startNanos);
+			}
+		} finally {
+			// Late answers are not written, the caller closes the output.
+			synchronized (this) {
+				isFinished = true;
+			}
+		}
+	}
+
+	/** Reports the keypoints of a received pose, which belongs to the oldest sent frame awaiting
+	 * one. The coordinates are in sent image coordinates, see {@link PoseGraphic#toCoordinates}
+	 * with a scale of 1, and are written in source image coordinates. **/
+	public synchronized void onPose(float[] coordinates, long mask) {
+		if (isFinished) {
+			return;
+		}
+		SentFrame frame = inFlight.poll();
+		if (frame == null) {
+			// Not an answer to a sent frame.
+			return;
+		}
+		window.release();
+		if (scaledCoordinates.length != coordinates.length) {
+			scaledCoordinates = new float[coordinates.length];
+		}
+		for (int i = 0; i + 1 < coordinates.length; i += 2) {
+			scaledCoordinates[i] = coordinates[i] * frame.scaleX;
+			scaledCoordinates[i + 1] = coordinates[i + 1] * frame.scaleY;
+		}
+		lastPoseFrame = frame.index;
+		poses++;
+		try {
+			output.writePose(frame.index, (frame.captureNanos - firstCaptureNanos) / 1000,
+					scaledCoordinates, mask);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/** Reports a repetition, which is written with the frame index of the last pose. **/
+	public synchronized void onRepetition(boolean correct, String feedback) {
+		if (isFinished) {
+			return;
+		}
+		try {
+			output.writeRepetition(lastPoseFrame, correct, feedback);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/** Stops the analysis, e.g. on an analyser error. {@link #run()} throws with the first
+	 * failure once the frames in its pipeline are done. **/
+	public synchronized void fail(Exception e) {
+		if (failure != null || isFinished) {
+			return;
+		}
+		failure = e;
+		// Unblocks the sender and the wait for the last poses.
+		window.release(maxInFlight);
+	}
+
+	private synchronized boolean hasFailed() {
+		return failure != null;
+	}
+
+	/** Encodes a frame on an encoder thread and releases it. Returns null if encoding failed. **/
+	private EncodedFrame encode(Nv21Frame frame) {
+		try {
+			byte[] bytes = ImageConverter.encodeFrame(frame, encoder, targetLongEdge);
+			if (bytes == null) {
+				return null;
+			}
+			int uprightWidth = frame.getUprightWidth();
+			int uprightHeight = frame.getUprightHeight();
+			// Per axis, as the sent size is rounded to even values.
+			float scaleX = (float) uprightWidth
+					/ Nv21Scaler.scaledWidth(uprightWidth, uprightHeight, targetLongEdge);
+			float scaleY = (float) uprightHeight
+					/ Nv21Scaler.scaledHeight(uprightWidth, uprightHeight, targetLongEdge);
+			return new EncodedFrame(bytes, frame.getCaptureNanos(), scaleX, scaleY, 0f, 0f);
+		} finally {
+			frame.release();
+		}
+	}
+
+	/** Sends the encoded frames in source order, waiting for room in the window, until the end of
+	 * the source. After a failure, the remaining frames are only taken off the queue. **/
+	private void sendAll(BlockingQueue<PendingFrame> queue) {
+		try {
+			while (true) {
+				PendingFrame pending = queue.take();
+				if (pending == PendingFrame.END) {
+					return;
+				}
+				EncodedFrame frame;
+				try {
+					frame = pending.encoding.get();
+				} catch (ExecutionException e) {
+					fail(e);
+					continue;
+				}
+				if (frame == null) {
+					failedEncodes++;
+					continue;
+				}
+				if (hasFailed()) {
+					continue;
+				}
+				if (!window.tryAcquire(POSE_TIMEOUT_NANOS, TimeUnit.NANOSECONDS)) {
+					fail(new IOException("The analyser stopped answering"));
+					continue;
+				}
+				synchronized (this) {
+					if (failure != null) {
+						continue;
+					}
+					inFlight.add(new SentFrame(pending.index, frame.getCaptureNanos(),
+							frame.getScaleX(), frame.getScaleY()));
+				}
+				try {
+					sink.send(pending.index, frame.getBytes());
+				} catch (RuntimeException e) {
+					fail(e);
+					continue;
+				}
+				sent++;
+			}
+		} catch (InterruptedException e) {
+			// The source failed, run() does not wait for the remaining frames.
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package org.vay.sampleapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/** Schedules tasks for the next display frame on the main thread, e.g. for a
+ * {@link UiEventDispatcher}. The {@link Choreographer} is per looper, so requests from other
+ * threads first hop to the main thread. The callbacks are allocated once, as a frame is scheduled
+ * for every batch of session events; they run the task stored by the latest request, of which
+ * there is one at a time. **/
+public final class ChoreographerFrameScheduler implements UiEventDispatcher.FrameScheduler {
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+	private volatile Runnable frame;
+	private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> frame.run();
+	private final Runnable postFrameCallback =
+			() -> Choreographer.getInstance().postFrameCallback(frameCallback);
+
+	@Override
+	public void scheduleFrame(Runnable frame) {
+		this.frame = frame;
+		if (Looper.myLooper() == Looper.getMainLooper()) {
+			postFrameCallback.run();
+		} else {
+			mainHandler.post(postFrameCallback);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package org.vay.sampleapp;
+
+/** An immutable rectangle of an NV21 image with even edges, as the chroma plane requires. **/
+public final class CropRect {
+	// Crops covering more of the frame than this are not worth the extra copy.
+	private static final float MAX_AREA_FRACTION = 0.8f;
+	// Crops are at least this fraction of the frame in each dimension.
+	private static final float MIN_EDGE_FRACTION = 0.25f;
+
+	private final int left;
+	private final int top;
+	private final int width;
+	private final int height;
+
+	public CropRect(int left, int top, int width, int height) {
+		if ((left | top | width | height) % 2 != 0 || width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Crop edges must be even and its size positive: "
+					+ left + ", " + top + ", " + width + "x" + height);
+		}
+		this.left = left;
+		this.top = top;
+		this.width = width;
+		this.height = height;
+	}
+
+	/** Returns a rectangle covering a whole image. **/
+	public static CropRect full(int width, int height) {
+		return new CropRect(0, 0, width, height);
+	}
+
+	/**
+	 * Returns the crop of an upright frame covering a region of interest, or the full frame if
+	 * there is no region or cropping would not save much.
+	 *
+	 * @param region region in overlay image coordinates, or null
+	 * @param overlayScale factor from upright frame to overlay image coordinates
+	 * @param uprightWidth width of the upright frame
+	 * @param uprightHeight height of the upright frame
+	 */
+	public static CropRect fromRegion(RegionOfInterest region, float overlayScale, int uprightWidth,
+			int uprightHeight) {
+		if (region == null) {
+			return full(uprightWidth, uprightHeight);
+		}
+		int[] x = span(region.getLeft() / overlayScale, region.getRight() / overlayScale,
+				uprightWidth);
+		int[] y = span(region.getTop() / overlayScale, region.getBottom() / overlayScale,
+				uprightHeight);
+		int width = x[1] - x[0];
+		int height = y[1] - y[0];
+		if ((float) width * height > MAX_AREA_FRACTION * uprightWidth * uprightHeight) {
+			return full(uprightWidth, uprightHeight);
+		}
+		return new CropRect(x[0], y[0], width, height);
+	}
+
+	public int getLeft() {
+		return left;
+	}
+
+	public int getTop() {
+		return top;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/** Returns whether this rectangle covers a whole image of the given size. **/
+	public boolean isFull(int imageWidth, int imageHeight) {
+		return left == 0 && top == 0 && width == imageWidth && height == imageHeight;
+	}
+
+	/** Returns the target long edge for scaling this crop of an upright frame with the pixel
+	 * density the whole frame would have at {@code targetLongEdge}, or 0 if it is not scaled. **/
+	public int scaledLongEdge(int uprightWidth, int uprightHeight, int targetLongEdge) {
+		int frameLongEdge = Math.max(uprightWidth, uprightHeight);
+		if (targetLongEdge <= 0 || targetLongEdge >= frameLongEdge) {
+			return 0;
+		}
+		return Math.max(2, Math.round((float) Math.max(width, height) * targetLongEdge
+				/ frameLongEdge));
+	}
+
+	/** Maps a crop of an upright frame to the unrotated source image that is rotated clockwise by
+	 * the given degrees to become upright. **/
+	public CropRect toSource(int sourceWidth, int sourceHeight, int rotationDegrees) {
+		switch (rotationDegrees) {
+			case 0:
+				return this;
+			case 90:
+				return new CropRect(top, sourceHeight - left - width, height, width);
+			case 180:
+				return new CropRect(sourceWidth - left - width, sourceHeight - top - height, width,
+						height);
+			case 270:
+				return new CropRect(sourceWidth - top - height, left, height, width);
+			default:
+				throw new IllegalArgumentException("Unsupported rotation: " + rotationDegrees);
+		}
+	}
+
+	/** Returns the even start and end of a crop covering [start, end) within [0, size), at least
+	 * MIN_EDGE_FRACTION of size long. **/
+	private static int[] span(float start, float end, int size) {
+		int minLength = Math.min(size, (int) (MIN_EDGE_FRACTION * size) + 1 & ~1);
+		int from = Math.max(0, (int) Math.floor(start) & ~1);
+		int to = Math.min(size, (int) Math.ceil(end) + 1 & ~1);
+		if (to - from < minLength) {
+			int center = (from + to) / 2;
+			from = Math.max(0, center - minLength / 2 & ~1);
+			to = Math.min(size, from + minLength);
+			from = to - minLength;
+		}
+		return new int[] {from, to};
+	}
+
+	@Override
+	public String toString() {
+		return "CropRect[" + left + ", " + top + ", " + width + "x" + height + "]";
+	}
+}
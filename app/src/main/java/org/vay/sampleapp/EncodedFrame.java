@@ -0,0 +1,55 @@
+package org.vay.sampleapp;
+
+/** The encoded bytes of a frame, ready to be sent, with the information needed to map the
+ * keypoints received for it back to overlay image coordinates. **/
+public final class EncodedFrame {
+	private final byte[] bytes;
+	private final long captureNanos;
+	private final float scaleX;
+	private final float scaleY;
+	private final float offsetX;
+	private final float offsetY;
+
+	public EncodedFrame(byte[] bytes, long captureNanos, float scaleX, float scaleY,
+			float offsetX, float offsetY) {
+		this.bytes = bytes;
+		this.captureNanos = captureNanos;
+		this.scaleX = scaleX;
+		this.scaleY = scaleY;
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+	}
+
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/** Returns the {@link System#nanoTime()} at which the frame was captured. **/
+	public long getCaptureNanos() {
+		return captureNanos;
+	}
+
+	/** Returns the factor mapping keypoint x coordinates of the sent image to overlay image
+	 * coordinates. A keypoint x of the sent image is at {@code getOffsetX() + getScaleX() * x} in
+	 * the overlay. **/
+	public float getScaleX() {
+		return scaleX;
+	}
+
+	/** Returns the factor mapping keypoint y coordinates, see {@link #getScaleX()}. It differs
+	 * slightly from the x factor, as the sent size is rounded to even values. **/
+	public float getScaleY() {
+		return scaleY;
+	}
+
+	/** Returns the overlay image x coordinate of the left edge of the sent image, which is not 0
+	 * if the frame was cropped. **/
+	public float getOffsetX() {
+		return offsetX;
+	}
+
+	/** Returns the overlay image y coordinate of the top edge of the sent image. **/
+	public float getOffsetY() {
+		return offsetY;
+	}
+}
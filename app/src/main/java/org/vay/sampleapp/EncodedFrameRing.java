@@ -0,0 +1,59 @@
+package org.vay.sampleapp;
+
+/** The most recent encoded frames, oldest first, e.g. those encoded while the connection to the
+ * analyser is down. Adding to a full ring replaces its oldest frame. Not thread-safe. **/
+final class EncodedFrameRing {
+	private final EncodedFrame[] frames;
+	private int head = 0;
+	private int size = 0;
+
+	EncodedFrameRing(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		frames = new EncodedFrame[capacity];
+	}
+
+	int capacity() {
+		return frames.length;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** Adds a frame. Returns whether the oldest frame was replaced to make room for it. **/
+	boolean add(EncodedFrame frame) {
+		boolean replaced = size == frames.length;
+		if (replaced) {
+			frames[head] = null;
+			head = (head + 1) % frames.length;
+			size--;
+		}
+		frames[(head + size) % frames.length] = frame;
+		size++;
+		return replaced;
+	}
+
+	/** Removes and returns the oldest frame, or null if the ring is empty. **/
+	EncodedFrame removeOldest() {
+		if (size == 0) {
+			return null;
+		}
+		EncodedFrame frame = frames[head];
+		frames[head] = null;
+		head = (head + 1) % frames.length;
+		size--;
+		return frame;
+	}
+
+	void clear() {
+		while (removeOldest() != null) {
+			// Drops the references, so the bytes can be collected.
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package org.vay.sampleapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Pool of reusable frame buffers, bucketed by their size in bytes. A buffer is taken with
+ * {@link #acquire(int)} and handed back with {@link #release(byte[])} once the frame has been
+ * encoded or sent, so that the steady-state conversion of camera frames allocates nothing.
+ * The number of buffers allocated over the lifetime of the pool is tracked and can be read with
+ * {@link #getAllocationCount()}. **/
+public final class FrameBufferPool {
+	/** Default number of idle buffers kept per size. **/
+	public static final int DEFAULT_MAX_IDLE_PER_SIZE = 4;
+
+	private final int maxIdlePerSize;
+	private final List<Bucket> buckets = new ArrayList<>();
+	private long allocationCount = 0;
+
+	public FrameBufferPool() {
+		this(DEFAULT_MAX_IDLE_PER_SIZE);
+	}
+
+	public FrameBufferPool(int maxIdlePerSize) {
+		if (maxIdlePerSize < 1) {
+			throw new IllegalArgumentException("maxIdlePerSize must be positive");
+		}
+		this.maxIdlePerSize = maxIdlePerSize;
+	}
+
+	/** Returns the number of bytes needed to store an NV21 image of the given size. **/
+	public static int nv21Size(int width, int height) {
+		int imageSize = width * height;
+		return imageSize + 2 * (imageSize / 4);
+	}
+
+	/** Returns a buffer of exactly the given size, reusing an idle one if available. The content of
+	 * a reused buffer is undefined. **/
+	public synchronized byte[] acquire(int size) {
+		Bucket bucket = findBucket(size);
+		if (bucket != null && bucket.count > 0) {
+			byte[] buffer = bucket.idle[--bucket.count];
+			bucket.idle[bucket.count] = null;
+			return buffer;
+		}
+		allocationCount++;
+		return new byte[size];
+	}
+
+	/** Returns a buffer to the pool. Buffers exceeding the idle limit of their size are dropped. **/
+	public synchronized void release(byte[] buffer) {
+		if (buffer == null) {
+			return;
+		}
+		Bucket bucket = findBucket(buffer.length);
+		if (bucket == null) {
+			bucket = new Bucket(buffer.length, maxIdlePerSize);
+			buckets.add(bucket);
+		}
+		if (bucket.count < bucket.idle.length) {
+			bucket.idle[bucket.count++] = buffer;
+		}
+	}
+
+	/** Drops all idle buffers, e.g. after the camera resolution changed. **/
+	public synchronized void clear() {
+		buckets.clear();
+	}
+
+	/** Returns how many buffers have been allocated by this pool so far. **/
+	public synchronized long getAllocationCount() {
+		return allocationCount;
+	}
+
+	private Bucket findBucket(int size) {
+		for (int i = 0; i < buckets.size(); i++) {
+			Bucket bucket = buckets.get(i);
+			if (bucket.size == size) {
+				return bucket;
+			}
+		}
+		return null;
+	}
+
+	/** Idle buffers of a single size, kept as an array-backed stack. **/
+	private static final class Bucket {
+		final int size;
+		final byte[][] idle;
+		int count = 0;
+
+		Bucket(int size, int capacity) {
+			this.size = size;
+			this.idle = new byte[capacity][];
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package org.vay.sampleapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Counts frames along their way to the analyser. Every captured frame ends up either sent,
+ * dropped (skipped by the rate governor or replaced by a newer frame while the in-flight window
+ * was full) or skipped because nothing moved; every sent frame is eventually acknowledged by a
+ * pose or considered lost. **/
+public final class FrameCounters {
+	private final AtomicLong captured = new AtomicLong();
+	private final AtomicLong encoded = new AtomicLong();
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong sentBytes = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+	private final AtomicLong acknowledged = new AtomicLong();
+	private final AtomicLong lost = new AtomicLong();
+
+	void onCaptured() {
+		captured.incrementAndGet();
+	}
+
+	void onEncoded() {
+		encoded.incrementAndGet();
+	}
+
+	void onSent(int bytes) {
+		sent.incrementAndGet();
+		sentBytes.addAndGet(bytes);
+	}
+
+	void onDropped() {
+		dropped.incrementAndGet();
+	}
+
+	void onDropped(int count) {
+		dropped.addAndGet(count);
+	}
+
+	void onSkipped() {
+		skipped.incrementAndGet();
+	}
+
+	void onAcknowledged() {
+		acknowledged.incrementAndGet();
+	}
+
+	void onLost(int count) {
+		lost.addAndGet(count);
+	}
+
+	public long getCaptured() {
+		return captured.get();
+	}
+
+	public long getEncoded() {
+		return encoded.get();
+	}
+
+	public long getSent() {
+		return sent.get();
+	}
+
+	/** Returns the number of bytes of all sent frames. **/
+	public long getSentBytes() {
+		return sentBytes.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/** Returns the number of frames not sent because the scene was static. **/
+	public long getSkipped() {
+		return skipped.get();
+	}
+
+	public long getAcknowledged() {
+		return acknowledged.get();
+	}
+
+	/** Returns the number of sent frames for which no pose arrived in time. **/
+	public long getLost() {
+		return lost.get();
+	}
+
+	@Override
+	public String toString() {
+		return "captured=" + getCaptured() + " encoded=" + getEncoded() + " sent=" + getSent()
+				+ " dropped=" + getDropped() + " skipped=" + getSkipped()
+				+ " acknowledged=" + getAcknowledged() + " lost=" + getLost();
+	}
+}
@@ -0,0 +1,18 @@
+package org.vay.sampleapp;
+
+import java.io.IOException;
+
+/** Encodes an upright NV21 frame into the bytes that are sent to the analyser. Implementations
+ * trade upload size against the accuracy the server can achieve, and can be swapped at runtime
+ * with {@link AnalyserWrapper#setFrameEncoder(FrameEncoder)}. **/
+public interface FrameEncoder {
+	/**
+	 * Encodes the given image. The returned array is owned by the caller, while {@code nv21} is
+	 * only read during the call and may be reused afterwards.
+	 *
+	 * @param nv21 NV21 image of {@link FrameBufferPool#nv21Size(int, int)} bytes
+	 * @param width width of the image
+	 * @param height height of the image
+	 */
+	byte[] encode(byte[] nv21, int width, int height) throws IOException;
+}
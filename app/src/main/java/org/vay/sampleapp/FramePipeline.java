@@ -0,0 +1,228 @@
+package org.vay.sampleapp;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Processes frames on a small pool of worker threads, decoupled from the thread submitting them.
+ *
+ * <p>Only the newest submitted frame waits for a worker: submitting while another frame is
+ * waiting discards the waiting one. Results are delivered in submission order; a result finishing
+ * after a newer one has already been delivered is stale and discarded. Hence the submitting thread
+ * (e.g. the CameraX analyzer) never blocks on processing, and the sink never sees frames out of
+ * order.
+ *
+ * <p>Pipelines can share the threads of one executor, e.g. the encoder threads of several
+ * sessions. A worker of a shared executor then processes a single frame per task and queues a new
+ * task for the next one, so the pipelines take turns in the executor's queue instead of one of them
+ * keeping a thread busy. **/
+public final class FramePipeline<T, R> {
+
+	/** Turns a frame into a result on a worker thread. Returns null if the frame is skipped. **/
+	public interface Processor<T, R> {
+		R process(T frame);
+	}
+
+	/** Receives results in submission order, on a worker thread. **/
+	public interface Sink<R> {
+		void accept(R result);
+	}
+
+	/** Receives frames and results that are not delivered, e.g. to release their buffers. **/
+	public interface Discarder<T> {
+		void discard(T item);
+	}
+
+	private final Executor executor;
+	// Whether the executor was created for this pipeline, so it is shut down with it.
+	private final boolean ownsExecutor;
+	private final int workers;
+	private final Processor<T, R> processor;
+	private final Sink<R> sink;
+	private final Discarder<T> frameDiscarder;
+	private final Discarder<R> resultDiscarder;
+	private final Object lock = new Object();
+	// Serializes delivery, so the order check and the sink call are atomic.
+	private final Object deliveryLock = new Object();
+	private final AtomicInteger discardedCount = new AtomicInteger();
+
+	private T waitingFrame;
+	private long waitingSequence;
+	private long nextSequence = 0;
+	private long lastDeliveredSequence = -1;
+	private int activeWorkers = 0;
+	private boolean isShutdown = false;
+
+	public FramePipeline(int workers, Processor<T, R> processor, Sink<R> sink,
+			Discarder<T> frameDiscarder, Discarder<R> resultDiscarder) {
+		this(Executors.newFixedThreadPool(workers), true, workers, processor, sink, frameDiscarder,
+				resultDiscarder);
+	}
+
+	/**
+	 * Creates a pipeline processing frames on a shared executor, which is not shut down with the
+	 * pipeline.
+	 *
+	 * @param workers number of frames processed at once at most, at most the executor's threads
+	 */
+	public FramePipeline(Executor executor, int workers, Processor<T, R> processor, Sink<R> sink,
+			Discarder<T> frameDiscarder, Discarder<R> resultDiscarder) {
+		this(executor, false, workers, processor, sink, frameDiscarder, resultDiscarder);
+	}
+
+	private FramePipeline(Executor executor, boolean ownsExecutor, int workers,
+			Processor<T, R> processor, Sink<R> sink, Discarder<T> frameDiscarder,
+			Discarder<R> resultDiscarder) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("workers must be positive");
+		}
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+		this.workers = workers;
+		this.processor = processor;
+		this.sink = sink;
+		this.frameDiscarder = frameDiscarder;
+		this.resultDiscarder = resultDiscarder;
+	}
+
+	/** Returns a worker count suited to the device: one, or two on devices with many cores. **/
+	public static int defaultWorkerCount() {
+		return Runtime.getRuntime().availableProcessors() >= 4 ? 2 : 1;
+	}
+
+	/** Hands a frame to the workers without blocking. Replaces the frame waiting for a worker. **/
+	public void submit(T frame) {
+		T replaced;
+		boolean startWorker = false;
+		synchronized (lock) {
+			if (isShutdown) {
+				replaced = frame;
+			} else {
+				replaced = waitingFrame;
+				waitingFrame = frame;
+				waitingSequence = nextSequence++;
+				if (activeWorkers < workers) {
+					activeWorkers++;
+					startWorker = true;
+				}
+			}
+		}
+		if (replaced != null) {
+			discardedCount.incrementAndGet();
+			frameDiscarder.discard(replaced);
+		}
+		if (startWorker) {
+			try {
+				executor.execute(this::drain);
+			} catch (RejectedExecutionException e) {
+				// The pipeline was shut down meanwhile, or its shared executor was, so no frame
+				// would ever be processed again.
+				synchronized (lock) {
+					activeWorkers--;
+				}
+				shutdown();
+			}
+		}
+	}
+
+	/** Returns whether a frame is waiting for a worker, i.e. the next submitted frame would
+	 * replace it. **/
+	public boolean hasWaitingFrame() {
+		synchronized (lock) {
+			return waitingFrame != null;
+		}
+	}
+
+	/** Returns how many frames and results were discarded so far, as stale or as their
+	 * processing failed. **/
+	public int getDiscardedCount() {
+		return discardedCount.get();
+	}
+
+	/** Stops the workers. The waiting frame is discarded; frames being processed are finished. A
+	 * shared executor keeps running. **/
+	public void shutdown() {
+		T waiting;
+		synchronized (lock) {
+			isShutdown = true;
+			waiting = waitingFrame;
+			waitingFrame = null;
+		}
+		if (waiting != null) {
+			frameDiscarder.discard(waiting);
+		}
+		if (ownsExecutor) {
+			((ExecutorService) executor).shutdown();
+		}
+	}
+
+	/** Worker loop, processing waiting frames until there are none left. **/
+	private void drain() {
+		while (true) {
+			T frame;
+			long sequence;
+			synchronized (lock) {
+				if (waitingFrame == null) {
+					activeWorkers--;
+					return;
+				}
+				frame = waitingFrame;
+				sequence = waitingSequence;
+				waitingFrame = null;
+			}
+			R result;
+			try {
+				result = processor.process(frame);
+			} catch (RuntimeException e) {
+				synchronized (lock) {
+					activeWorkers--;
+				}
+				// Not delivered either, e.g. its buffer goes back to the pool.
+				discardedCount.incrementAndGet();
+				frameDiscarder.discard(frame);
+				throw e;
+			}
+			if (result != null) {
+				deliver(sequence, result);
+			}
+			if (!ownsExecutor && requeue()) {
+				return;
+			}
+		}
+	}
+
+	private void deliver(long sequence, R result) {
+		boolean delivered = false;
+		synchronized (deliveryLock) {
+			if (sequence > lastDeliveredSequence) {
+				lastDeliveredSequence = sequence;
+				sink.accept(result);
+				delivered = true;
+			}
+		}
+		if (!delivered) {
+			discardedCount.incrementAndGet();
+			resultDiscarder.discard(result);
+		}
+	}
+
+	/** Hands the next waiting frame to a new task at the end of the shared executor's queue,
+	 * behind the other pipelines' tasks. Returns false if this worker has to go on instead. **/
+	private boolean requeue() {
+		synchronized (lock) {
+			if (waitingFrame == null) {
+				activeWorkers--;
+				return true;
+			}
+		}
+		try {
+			executor.execute(this::drain);
+			return true;
+		} catch (RejectedExecutionException e) {
+			// The shared executor is shutting down, finish on this thread.
+			return false;
+		}
+	}
+}
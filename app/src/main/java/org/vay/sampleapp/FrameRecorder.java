@@ -0,0 +1,79 @@
+package org.vay.sampleapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** Dumps camera images as raw YUV_420_888 planes to a file, to be replayed by a
+ * {@link FrameReplaySource} through the same conversion and encoding as live frames.
+ *
+ * <p>The file starts with {@link #MAGIC} and {@link #VERSION}. Every frame follows as a header of
+ * its capture time, size, rotation and strides, and the Y, U and V planes, each prefixed with its
+ * length. Planes are stored as handed over, including row padding; U and V views of one
+ * interleaved buffer are stored separately, so replays see separate planes. Writes on the calling
+ * thread, see {@link BackgroundFrameRecorder} to record camera images. Not thread safe. **/
+public final class FrameRecorder implements Closeable {
+	static final int MAGIC = 0x56415946; // "VAYF"
+	static final int VERSION = 1;
+	// Capture time, 6 ints of size, rotation and strides and the 3 plane lengths.
+	static final int FRAME_HEADER_SIZE = 8 + 9 * 4;
+
+	private final FileChannel channel;
+	private final ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+	private int frameCount = 0;
+
+	public FrameRecorder(File file) throws IOException {
+		channel = new FileOutputStream(file).getChannel();
+		ByteBuffer fileHeader = ByteBuffer.allocate(8);
+		fileHeader.putInt(MAGIC).putInt(VERSION).flip();
+		writeFully(fileHeader);
+	}
+
+	/**
+	 * Appends a frame. The buffers are read from their position to their limit, which is left
+	 * unchanged.
+	 *
+	 * @param captureNanos capture time, replays keep the intervals between frames
+	 * @param rotationDegrees clockwise rotation to display the image upright
+	 */
+	public void write(long captureNanos, int width, int height, int rotationDegrees,
+			ByteBuffer yBuffer, int yRowStride, ByteBuffer uBuffer, ByteBuffer vBuffer,
+			int uvRowStride, int uvPixelStride) throws IOException {
+		header.clear();
+		header.putLong(captureNanos)
+				.putInt(width)
+				.putInt(height)
+				.putInt(rotationDegrees)
+				.putInt(yRowStride)
+				.putInt(uvRowStride)
+				.putInt(uvPixelStride)
+				.putInt(yBuffer.remaining())
+				.putInt(uBuffer.remaining())
+				.putInt(vBuffer.remaining());
+		header.flip();
+		writeFully(header);
+		writeFully(yBuffer.duplicate());
+		writeFully(uBuffer.duplicate());
+		writeFully(vBuffer.duplicate());
+		frameCount++;
+	}
+
+	/** Returns the number of frames written. **/
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
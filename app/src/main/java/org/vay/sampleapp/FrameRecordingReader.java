@@ -0,0 +1,153 @@
+package org.vay.sampleapp;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** Reads the frames of a {@link FrameRecorder} file one by one. The planes of the current frame
+ * are held in direct buffers, like camera planes, which are reused for the next frame, so reading
+ * allocates only while frames grow. Not thread safe. **/
+public final class FrameRecordingReader implements YuvFrameSource {
+	private final FileChannel channel;
+	private final ByteBuffer header = ByteBuffer.allocate(FrameRecorder.FRAME_HEADER_SIZE);
+	private ByteBuffer yBuffer = ByteBuffer.allocateDirect(0);
+	private ByteBuffer uBuffer = ByteBuffer.allocateDirect(0);
+	private ByteBuffer vBuffer = ByteBuffer.allocateDirect(0);
+	private long captureNanos;
+	private int width;
+	private int height;
+	private int rotationDegrees;
+	private int yRowStride;
+	private int uvRowStride;
+	private int uvPixelStride;
+
+	public FrameRecordingReader(File file) throws IOException {
+		channel = new FileInputStream(file).getChannel();
+		ByteBuffer fileHeader = ByteBuffer.allocate(8);
+		try {
+			if (!readFully(fileHeader)) {
+				throw new EOFException("Frame recording is empty");
+			}
+			int magic = fileHeader.getInt();
+			int version = fileHeader.getInt();
+			if (magic != FrameRecorder.MAGIC) {
+				throw new IOException("Not a frame recording: " + file);
+			}
+			if (version != FrameRecorder.VERSION) {
+				throw new IOException("Unsupported frame recording version " + version);
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/** Advances to the next frame. Returns false at the end of the recording. **/
+	@Override
+	public boolean next() throws IOException {
+		header.clear();
+		if (!readFully(header)) {
+			return false;
+		}
+		captureNanos = header.getLong();
+		width = header.getInt();
+		height = header.getInt();
+		rotationDegrees = header.getInt();
+		yRowStride = header.getInt();
+		uvRowStride = header.getInt();
+		uvPixelStride = header.getInt();
+		yBuffer = readPlane(yBuffer, header.getInt());
+		uBuffer = readPlane(uBuffer, header.getInt());
+		vBuffer = readPlane(vBuffer, header.getInt());
+		return true;
+	}
+
+	@Override
+	public long getCaptureNanos() {
+		return captureNanos;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getRotationDegrees() {
+		return rotationDegrees;
+	}
+
+	/** Returns the Y plane of the current frame, valid until {@link #next()}. **/
+	@Override
+	public ByteBuffer getYBuffer() {
+		return yBuffer;
+	}
+
+	@Override
+	public int getYRowStride() {
+		return yRowStride;
+	}
+
+	/** Returns the U plane of the current frame, valid until {@link #next()}. **/
+	@Override
+	public ByteBuffer getUBuffer() {
+		return uBuffer;
+	}
+
+	/** Returns the V plane of the current frame, valid until {@link #next()}. **/
+	@Override
+	public ByteBuffer getVBuffer() {
+		return vBuffer;
+	}
+
+	@Override
+	public int getUvRowStride() {
+		return uvRowStride;
+	}
+
+	@Override
+	public int getUvPixelStride() {
+		return uvPixelStride;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/** Reads a plane of the given length into the buffer, or a larger one if it is too small. **/
+	private ByteBuffer readPlane(ByteBuffer buffer, int length) throws IOException {
+		if (buffer.capacity() < length) {
+			buffer = ByteBuffer.allocateDirect(length);
+		}
+		buffer.clear();
+		buffer.limit(length);
+		if (!readFully(buffer)) {
+			throw new EOFException("Frame recording is truncated");
+		}
+		return buffer;
+	}
+
+	/** Fills the buffer and flips it. Returns false if the file ended before the first byte. **/
+	private boolean readFully(ByteBuffer buffer) throws IOException {
+		boolean empty = buffer.position() == 0;
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				if (empty && buffer.position() == 0) {
+					return false;
+				}
+				throw new EOFException("Frame recording is truncated");
+			}
+		}
+		buffer.flip();
+		return true;
+	}
+}
@@ -0,0 +1,72 @@
+package org.vay.sampleapp;
+
+import java.io.IOException;
+
+/** Feeds the frames of a {@link FrameRecorder} file, or another {@link YuvFrameSource}, into a
+ * {@link FrameStreamer}, converting them
+ * like {@link AnalyserWrapper} converts camera images, so a recorded session can be replayed
+ * against a stub or a local server on a plain JVM.
+ *
+ * <p>Frames are replayed either at their recorded pace, which reproduces the camera frame rate
+ * the governor and motion gate saw, or as fast as the encoder workers take them, to measure
+ * throughput. Either way they are timed by the replay clock, as the streamer relates capture and
+ * arrival times. **/
+public final class FrameReplaySource {
+	// Polling interval while waiting for the encoder workers in a replay at maximum speed.
+	private static final int BUSY_WAIT_NANOS = 200_000;
+
+	private final YuvFrameSource reader;
+	private final FrameStreamer streamer;
+	private final FrameBufferPool pool;
+	private final Yuv420StreamConverter converter = new Yuv420StreamConverter();
+
+	public FrameReplaySource(YuvFrameSource reader, FrameStreamer streamer,
+			FrameBufferPool pool) {
+		this.reader = reader;
+		this.streamer = streamer;
+		this.pool = pool;
+	}
+
+	/**
+	 * Replays the remaining frames of the recording on the calling thread.
+	 *
+	 * @param realTime whether to keep the recorded intervals between frames, otherwise a frame is
+	 *     replayed as soon as the previous one was taken by an encoder worker
+	 * @return the number of frames read
+	 */
+	public int replay(boolean realTime) throws IOException, InterruptedException {
+		int frames = 0;
+		long firstRecordedNanos = 0;
+		long startNanos = 0;
+		while (!streamer.isShutdown() && reader.next()) {
+			long now = System.nanoTime();
+			if (frames == 0) {
+				firstRecordedNanos = reader.getCaptureNanos();
+				startNanos = now;
+			} else if (realTime) {
+				long delayNanos = startNanos + reader.getCaptureNanos() - firstRecordedNanos - now;
+				if (delayNanos > 0) {
+					Thread.sleep(delayNanos / 1_000_000L, (int) (delayNanos % 1_000_000L));
+					now = System.nanoTime();
+				}
+			} else {
+				while (streamer.isEncoderBusy()) {
+					Thread.sleep(0, BUSY_WAIT_NANOS);
+				}
+				now = System.nanoTime();
+			}
+			frames++;
+			if (!streamer.shouldCapture(now)) {
+				continue;
+			}
+			Nv21Frame frame = new Nv21Frame(pool, reader.getWidth(), reader.getHeight(),
+					reader.getRotationDegrees(), now);
+			converter.toNv21(reader.getYBuffer(), reader.getYRowStride(), reader.getUBuffer(),
+					reader.getVBuffer(), reader.getUvRowStride(), reader.getUvPixelStride(),
+					reader.getWidth(), reader.getHeight(), frame.getData());
+			streamer.getTracer().record(FrameTracer.Stage.CONVERT, now, now, System.nanoTime());
+			streamer.submit(frame);
+		}
+		return frames;
+	}
+}
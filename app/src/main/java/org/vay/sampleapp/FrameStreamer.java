@@ -0,0 +1,609 @@
+package org.vay.sampleapp;
+
+import java.util.concurrent.Executor;
+
+/** The send side of an analysis session, independent of the camera, the Vay client and the UI:
+ * rate governing, motion gating, cropping, encoding on worker threads and the in-flight window.
+ * Encoded frames leave through a {@link FrameSink} with their frame ID, and the caller reports
+ * every received pose with {@link #onPose(long, long, PoseOrigin)}, so the same pipeline runs
+ * against the real analyser in {@link AnalyserWrapper} and against stubs on the JVM. **/
+public final class FrameStreamer {
+	public static final int DEFAULT_TARGET_LONG_EDGE = 640;
+	// Round trip time the send rate governor tries to stay within.
+	private static final long LATENCY_BUDGET_MILLIS = 250;
+	public static final float DEFAULT_MAX_FPS = 30f;
+	public static final int DEFAULT_MAX_IN_FLIGHT = 3;
+	// Upper bound for the in-flight window.
+	private static final int MAX_IN_FLIGHT_FRAMES = 64;
+	// Sent frames without a pose after this time are considered lost and leave the window.
+	private static final long FRAME_TIMEOUT_NANOS = 2_000_000_000L;
+	/** Number of the most recent frames kept while disconnected, about half a second. **/
+	public static final int RECONNECT_BUFFER_FRAMES = 8;
+
+	/** Receives encoded frames to send, in capture order, on an encoder worker thread. Frame IDs
+	 * increase with every sent frame; an analyser answering with the ID lets the pose be matched
+	 * exactly, see {@link #onPose(long, long, PoseOrigin)}. **/
+	public interface FrameSink {
+		void send(long frameId, byte[] encodedFrame);
+	}
+
+	/** Describes the sent frame a received pose belongs to, filled by {@link #onPose}. **/
+	public static final class PoseOrigin {
+		// Whether the pose could be matched to a sent frame. Otherwise the mapping is the identity
+		// and the capture time is the arrival time.
+		public boolean matched;
+		public long captureNanos;
+		public long roundTripNanos;
+		// Maps keypoints of the sent image to overlay image coordinates, see EncodedFrame.
+		public float scaleX;
+		public float scaleY;
+		public float offsetX;
+		public float offsetY;
+		// Whether the round trip made the governor change the send rate.
+		public boolean rateAdapted;
+	}
+
+	/** A JPEG encoder with lowered quality and the selected encoder it was derived from, e.g. so
+	 * another compressor selected meanwhile is not ignored. **/
+	private static final class AdaptedEncoder {
+		final JpegFrameEncoder source;
+		final JpegFrameEncoder encoder;
+
+		AdaptedEncoder(JpegFrameEncoder source, JpegFrameEncoder encoder) {
+			this.source = source;
+			this.encoder = encoder;
+		}
+	}
+
+	private final FrameSink sink;
+	private volatile boolean isShutdown = false;
+	private volatile FrameEncoder frameEncoder = new JpegFrameEncoder();
+	// The pose server does not need full camera resolution, frames are downscaled to this long edge.
+	private volatile int targetLongEdge = DEFAULT_TARGET_LONG_EDGE;
+	private final SendRateGovernor governor;
+	private final FrameCounters frameCounters = new FrameCounters();
+	private final FrameTracer tracer = new FrameTracer();
+	private final MetricsRegistry metrics = new MetricsRegistry();
+	// Skip frames of a static scene, sending keep-alive frames only.
+	private final MotionDetector motionDetector = new MotionDetector();
+	private final MotionGate motionGate = new MotionGate();
+	private volatile boolean motionGatingEnabled = true;
+	// Guards the in-flight window, the outgoing frames and the pending frame, so frames are sent
+	// in ID order. The sink is called outside of it, see flushOutgoing().
+	private final Object windowLock = new Object();
+	private final InFlightFrames inFlightFrames = new InFlightFrames(MAX_IN_FLIGHT_FRAMES);
+	// Frames that took their window slot, waiting to be handed to the sink by the flushing thread.
+	private final OutgoingFrames outgoingFrames = new OutgoingFrames(MAX_IN_FLIGHT_FRAMES);
+	private boolean flushing = false;
+	private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+	private long nextFrameId = 0;
+	// The newest encoded frame waiting for room in the window. Newer frames replace it.
+	private byte[] pendingBytes;
+	private long pendingCaptureNanos;
+	private float pendingScaleX;
+	private float pendingScaleY;
+	private float pendingOffsetX;
+	private float pendingOffsetY;
+	// Whether frames can be sent. While disconnected, encoded frames are kept in the reconnect
+	// buffer instead, the newest replacing the oldest. Once reconnected, the frames left in it
+	// are sent as the window has room, before any newer frame.
+	private boolean connected = true;
+	private long disconnectedAtNanos;
+	private final EncodedFrameRing reconnectBuffer = new EncodedFrameRing(RECONNECT_BUFFER_FRAMES);
+	// How long the connection was down, per reconnect.
+	private final LatencyHistogram reconnectHistogram = new LatencyHistogram();
+	// Crops frames around the person while exercising, if enabled.
+	private final RoiTracker roiTracker = new RoiTracker();
+	private volatile boolean roiEnabled = false;
+	private volatile boolean exercising = false;
+	// The selected JPEG encoder with the quality lowered by the governor, recreated on change.
+	private volatile AdaptedEncoder adaptedEncoder;
+	// Encodes frames off the capturing thread, delivering them in capture order.
+	private final FramePipeline<Nv21Frame, EncodedFrame> encodingPipeline;
+
+	public FrameStreamer(FrameSink sink) {
+		this(sink, FramePipeline.defaultWorkerCount(), DEFAULT_MAX_FPS);
+	}
+
+	/**
+	 * @param sink receives the encoded frames to send
+	 * @param encoderWorkers number of threads encoding frames
+	 * @param maxFps highest frame rate to send at, e.g. raised to measure the throughput of a
+	 *     replay
+	 */
+	public FrameStreamer(FrameSink sink, int encoderWorkers, float maxFps) {
+		this(sink, null, encoderWorkers, maxFps);
+	}
+
+	/**
+	 * Creates a streamer encoding on threads shared with other streamers, see
+	 * {@link AnalysisSessionManager}.
+	 *
+	 * @param sink receives the encoded frames to send
+	 * @param encoderExecutor the shared encoder threads, not shut down with the streamer
+	 * @param encoderWorkers number of frames of this streamer encoded at once at most
+	 * @param maxFps highest frame rate to send at
+	 */
+	public FrameStreamer(FrameSink sink, Executor encoderExecutor, int encoderWorkers,
+			float maxFps) {
+		this.sink = sink;
+		governor = new SendRateGovernor(LATENCY_BUDGET_MILLIS, maxFps,
+				JpegFrameEncoder.DEFAULT_QUALITY, DEFAULT_TARGET_LONG_EDGE);
+		FramePipeline.Discarder<Nv21Frame> frameDiscarder = frame -> {
+			frame.release();
+			frameCounters.onDropped();
+		};
+		FramePipeline.Discarder<EncodedFrame> resultDiscarder =
+				encodedFrame -> frameCounters.onDropped();
+		encodingPipeline = encoderExecutor == null
+				? new FramePipeline<>(encoderWorkers, this::encodeFrame, this::offerEncodedFrame,
+						frameDiscarder, resultDiscarder)
+				: new FramePipeline<>(encoderExecutor, encoderWorkers, this::encodeFrame,
+						this::offerEncodedFrame, frameDiscarder, resultDiscarder);
+		registerMetrics();
+	}
+
+	private void registerMetrics() {
+		metrics.counter("capture", frameCounters::getCaptured);
+		metrics.counter("send", frameCounters::getSent);
+		metrics.counter("pose", frameCounters::getAcknowledged);
+		metrics.counter("upload_bytes", frameCounters::getSentBytes);
+		metrics.counter("dropped", frameCounters::getDropped);
+		metrics.counter("lost", frameCounters::getLost);
+		metrics.counter("reconnects", reconnectHistogram::getCount);
+		metrics.histogram("encode", tracer.getHistogram(FrameTracer.Stage.ENCODE));
+		metrics.histogram("rtt", tracer.getHistogram(FrameTracer.Stage.NETWORK));
+		metrics.histogram("reconnect", reconnectHistogram);
+		metrics.gauge("fps_target", governor::getTargetFps);
+		metrics.gauge("heap_mb", () -> {
+			Runtime runtime = Runtime.getRuntime();
+			return (runtime.totalMemory() - runtime.freeMemory()) / (1024.0 * 1024.0);
+		});
+	}
+
+	/** Selects how frames are encoded before they are sent. Takes effect from the next frame on. **/
+	public void setFrameEncoder(FrameEncoder frameEncoder) {
+		this.frameEncoder = frameEncoder;
+	}
+
+	/** Sets the maximal length of the longer edge of sent frames. Larger frames are downscaled
+	 * before encoding, 0 sends them at camera resolution. **/
+	public void setTargetLongEdge(int targetLongEdge) {
+		this.targetLongEdge = targetLongEdge;
+		governor.setMaxLongEdge(targetLongEdge);
+	}
+
+	public int getTargetLongEdge() {
+		return targetLongEdge;
+	}
+
+	/** Enables cropping frames around the person while exercising. **/
+	public void setRoiEnabled(boolean roiEnabled) {
+		this.roiEnabled = roiEnabled;
+	}
+
+	public boolean isRoiEnabled() {
+		return roiEnabled;
+	}
+
+	/** Enables sending only keep-alive frames while nothing moves. Enabled by default. **/
+	public void setMotionGatingEnabled(boolean motionGatingEnabled) {
+		this.motionGatingEnabled = motionGatingEnabled;
+	}
+
+	public SendRateGovernor getSendRateGovernor() {
+		return governor;
+	}
+
+	/** Sets how many sent frames may await their pose at once. While the window is full, only the
+	 * newest frame is kept and sent once a pose arrives. **/
+	public void setMaxInFlight(int maxInFlight) {
+		if (maxInFlight < 1 || maxInFlight > MAX_IN_FLIGHT_FRAMES) {
+			throw new IllegalArgumentException("maxInFlight must be between 1 and "
+					+ MAX_IN_FLIGHT_FRAMES);
+		}
+		synchronized (windowLock) {
+			this.maxInFlight = maxInFlight;
+		}
+	}
+
+	public FrameCounters getFrameCounters() {
+		return frameCounters;
+	}
+
+	/** Returns the registry of the streamer's metrics: frame rates, upload rate, encode and round
+	 * trip times and heap use. More metrics can be added before sampling starts. **/
+	public MetricsRegistry getMetrics() {
+		return metrics;
+	}
+
+	/** Returns the tracer recording the stages of every frame, shared with the stages outside the
+	 * streamer, which are keyed by the capture time of the frame as well. **/
+	public FrameTracer getTracer() {
+		return tracer;
+	}
+
+	/** Stops accepting frames. Frames being encoded are discarded. **/
+	public void shutdown() {
+		isShutdown = true;
+		encodingPipeline.shutdown();
+	}
+
+	public boolean isShutdown() {
+		return isShutdown;
+	}
+
+	/** Counts a captured frame and returns whether it should be converted and submitted. Frames
+	 * exceeding the frame rate allowed by the send rate governor are dropped. The frame only takes
+	 * its send slot once it has been encoded, so frames skipped by motion gating or failing to
+	 * encode leave the slot to the next frame. **/
+	public boolean shouldCapture(long nowNanos) {
+		if (isShutdown) {
+			return false;
+		}
+		frameCounters.onCaptured();
+		if (!governor.isSendDue(nowNanos)) {
+			frameCounters.onDropped();
+			return false;
+		}
+		return true;
+	}
+
+	/** Hands a frame accepted by {@link #shouldCapture(long)} to the encoder workers, unless the
+	 * scene is static. Takes ownership of the frame. Must be called from a single thread. **/
+	public void submit(Nv21Frame frame) {
+		if (motionGatingEnabled) {
+			// Scored right after the copy, while the frame is still in the cache.
+			float motion = motionDetector.update(frame.getData(), frame.getWidth(),
+					frame.getHeight());
+			if (!motionGate.shouldSend(motion, frame.getCaptureNanos())) {
+				frame.release();
+				frameCounters.onSkipped();
+				return;
+			}
+		}
+		encodingPipeline.submit(frame);
+	}
+
+	/** Returns whether a submitted frame is still waiting for an encoder worker, so the next one
+	 * would replace it. **/
+	public boolean isEncoderBusy() {
+		return encodingPipeline.hasWaitingFrame();
+	}
+
+	/** Reports a received pose of the frame with the given ID. Measures the round trip, frees the
+	 * frame's slot in the window and sends the pending frame if there is one. Frames sent before it
+	 * are not answered anymore and count as lost, as poses arrive in send order. Fills
+	 * {@code origin} with the mapping of the pose; a pose of a frame no longer in flight, e.g. one
+	 * that timed out, is not matched. **/
+	public void onPose(long frameId, long nowNanos, PoseOrigin origin) {
+		synchronized (windowLock) {
+			removeTimedOut(nowNanos);
+			int lost = inFlightFrames.removeBefore(frameId);
+			if (lost > 0) {
+				frameCounters.onLost(lost);
+			}
+			matchOldest(frameId, nowNanos, origin);
+		}
+		flushOutgoing();
+	}
+
+	/** Reports a received pose for an analyser that does not answer with frame IDs, like the Vay
+	 * client. As poses arrive in send order, it belongs to the oldest frame in flight that has not
+	 * timed out. A pose arriving after its frame timed out, or after a frame lost without answer,
+	 * cannot be told apart from the next frame's; the timeout bounds how long such a mismatch
+	 * lasts. See {@link #onPose(long, long, PoseOrigin)}. **/
+	public void onPose(long nowNanos, PoseOrigin origin) {
+		synchronized (windowLock) {
+			removeTimedOut(nowNanos);
+			matchOldest(inFlightFrames.isEmpty() ? -1 : inFlightFrames.oldestFrameId(), nowNanos,
+					origin);
+		}
+		flushOutgoing();
+	}
+
+	/** Matches a pose to the oldest frame in flight if it has the given ID, and sends the waiting
+	 * frames if there is room. Must hold the window lock. **/
+	private void matchOldest(long frameId, long nowNanos, PoseOrigin origin) {
+		origin.matched = false;
+		origin.captureNanos = nowNanos;
+		origin.roundTripNanos = 0;
+		origin.scaleX = 1f;
+		origin.scaleY = 1f;
+		origin.offsetX = 0f;
+		origin.offsetY = 0f;
+		origin.rateAdapted = false;
+		if (!inFlightFrames.isEmpty() && inFlightFrames.oldestFrameId() == frameId) {
+			origin.matched = true;
+			origin.captureNanos = inFlightFrames.oldestCaptureNanos();
+			origin.roundTripNanos = nowNanos - inFlightFrames.oldestSentAtNanos();
+			tracer.record(FrameTracer.Stage.NETWORK, origin.captureNanos,
+					inFlightFrames.oldestSentAtNanos(), nowNanos);
+			origin.scaleX = inFlightFrames.oldestScaleX();
+			origin.scaleY = inFlightFrames.oldestScaleY();
+			origin.offsetX = inFlightFrames.oldestOffsetX();
+			origin.offsetY = inFlightFrames.oldestOffsetY();
+			origin.rateAdapted = governor.onRoundTrip(origin.roundTripNanos, nowNanos);
+			inFlightFrames.removeOldest();
+			frameCounters.onAcknowledged();
+		}
+		sendPendingIfWindowOpen();
+	}
+
+	/** Removes the frames whose pose is overdue from the window, counting them as lost. Must hold
+	 * the window lock. **/
+	private void removeTimedOut(long nowNanos) {
+		int lost = inFlightFrames.removeSentBefore(nowNanos - FRAME_TIMEOUT_NANOS);
+		if (lost > 0) {
+			frameCounters.onLost(lost);
+		}
+	}
+
+	/** Forgets the frames awaiting their pose, those not handed to the sink yet, the pending
+	 * frame and the buffered ones, e.g. after switching to another analyser, which will never
+	 * answer them. **/
+	public void clearInFlight() {
+		synchronized (windowLock) {
+			if (pendingBytes != null) {
+				frameCounters.onDropped();
+				pendingBytes = null;
+			}
+			frameCounters.onDropped(reconnectBuffer.size());
+			reconnectBuffer.clear();
+			frameCounters.onDropped(outgoingFrames.size());
+			outgoingFrames.clear();
+			inFlightFrames.clear();
+		}
+	}
+
+	/** Reports that the connection to the analyser was lost. The frames in flight will not be
+	 * answered and count as lost. Frames encoded from now on are kept in the reconnect buffer
+	 * until {@link #onReconnected(long, boolean)}. **/
+	public void onDisconnected(long nowNanos) {
+		synchronized (windowLock) {
+			if (!connected) {
+				return;
+			}
+			connected = false;
+			disconnectedAtNanos = nowNanos;
+			// Includes the frames not handed to the sink yet, which would go nowhere.
+			frameCounters.onLost(inFlightFrames.size());
+			inFlightFrames.clear();
+			outgoingFrames.clear();
+			if (pendingBytes != null) {
+				bufferFrame(new EncodedFrame(pendingBytes, pendingCaptureNanos, pendingScaleX,
+						pendingScaleY, pendingOffsetX, pendingOffsetY));
+				pendingBytes = null;
+			}
+		}
+	}
+
+	/** Reports that the connection is up again, recording how long it was down. With
+	 * {@code flush} the buffered frames are sent, oldest first, so the analyser sees the movement
+	 * it missed, e.g. a repetition performed meanwhile; otherwise only the newest one is sent.
+	 * Those not fitting into the in-flight window are sent as poses free it up. **/
+	public void onReconnected(long nowNanos, boolean flush) {
+		synchronized (windowLock) {
+			if (connected) {
+				return;
+			}
+			connected = true;
+			reconnectHistogram.record(nowNanos - disconnectedAtNanos);
+			if (!flush) {
+				while (reconnectBuffer.size() > 1) {
+					reconnectBuffer.removeOldest();
+					frameCounters.onDropped();
+				}
+			}
+			sendPendingIfWindowOpen();
+		}
+		flushOutgoing();
+	}
+
+	public boolean isConnected() {
+		synchronized (windowLock) {
+			return connected;
+		}
+	}
+
+	/** Returns the number of encoded frames waiting to be sent, the pending one and those in the
+	 * reconnect buffer. **/
+	int getWaitingFrameCount() {
+		synchronized (windowLock) {
+			return (pendingBytes != null ? 1 : 0) + reconnectBuffer.size();
+		}
+	}
+
+	/** Returns the histogram of how long the connection was down, one count per reconnect. **/
+	public LatencyHistogram getReconnectHistogram() {
+		return reconnectHistogram;
+	}
+
+	/** Reports the keypoints of a received pose in overlay image coordinates, to follow the person
+	 * for cropping. Must be called from a single thread. **/
+	public void onPoseCoordinates(float[] coordinates, long mask) {
+		if (roiEnabled && exercising) {
+			roiTracker.update(coordinates, mask);
+		}
+	}
+
+	/** Reports a session state change. A new state may need frames at once, e.g. to give
+	 * positioning guidance; outside of exercising the person may be anywhere, so full frames are
+	 * sent. **/
+	public void onSessionStateChanged(boolean exercising, long nowNanos) {
+		this.exercising = exercising;
+		motionGate.wake(nowNanos);
+		if (!exercising) {
+			roiTracker.reset();
+		}
+	}
+
+	/** Reports congestion signalled by the server. Returns whether the send rate was lowered. **/
+	public boolean onCongestion(long nowNanos) {
+		return governor.onCongestion(nowNanos);
+	}
+
+	/** Crops, rotates, downscales and encodes a frame on an encoder worker, releasing the frame. **/
+	private EncodedFrame encodeFrame(Nv21Frame frame) {
+		long startNanos = System.nanoTime();
+		try {
+			int uprightWidth = frame.getUprightWidth();
+			int uprightHeight = frame.getUprightHeight();
+			// The overlay expects points in the image size of the configured long edge.
+			float overlayScaleX = (float) Nv21Scaler.scaledWidth(uprightWidth, uprightHeight,
+					targetLongEdge) / uprightWidth;
+			float overlayScaleY = (float) Nv21Scaler.scaledHeight(uprightWidth, uprightHeight,
+					targetLongEdge) / uprightHeight;
+			CropRect crop = CropRect.fromRegion(roiEnabled ? roiTracker.getRegion() : null,
+					overlayScaleX, uprightWidth, uprightHeight);
+			// A crop is sent with the pixel density the whole frame would have.
+			int sentLongEdge = crop.scaledLongEdge(uprightWidth, uprightHeight,
+					governor.getTargetLongEdge());
+			byte[] bytes = ImageConverter.encodeFrame(frame, currentEncoder(), sentLongEdge, crop);
+			tracer.record(FrameTracer.Stage.ENCODE, frame.getCaptureNanos(), startNanos,
+					System.nanoTime());
+			if (bytes == null) {
+				frameCounters.onDropped();
+				return null;
+			}
+			frameCounters.onEncoded();
+			// Per axis, as the sizes are rounded to even values.
+			int sentWidth = Nv21Scaler.scaledWidth(crop.getWidth(), crop.getHeight(), sentLongEdge);
+			int sentHeight = Nv21Scaler.scaledHeight(crop.getWidth(), crop.getHeight(),
+					sentLongEdge);
+			return new EncodedFrame(bytes, frame.getCaptureNanos(),
+					overlayScaleX * crop.getWidth() / sentWidth,
+					overlayScaleY * crop.getHeight() / sentHeight, overlayScaleX * crop.getLeft(),
+					overlayScaleY * crop.getTop());
+		} finally {
+			frame.release();
+		}
+	}
+
+	/** Sends an encoded frame, or keeps it pending if the in-flight window is full. A frame that
+	 * is still pending is replaced, as only the newest frame is worth sending. **/
+	private void offerEncodedFrame(EncodedFrame encodedFrame) {
+		synchronized (windowLock) {
+			// Takes the send slot by capture time, as frames are offered in capture order. Frames
+			// captured while an earlier one was being encoded may find it taken.
+			if (!governor.shouldSend(encodedFrame.getCaptureNanos())) {
+				frameCounters.onDropped();
+				return;
+			}
+			removeTimedOut(System.nanoTime());
+			if (!connected) {
+				bufferFrame(encodedFrame);
+			} else {
+				// Sent after the frames left in the reconnect buffer, if any.
+				if (pendingBytes != null) {
+					// Latest wins: the older pending frame is never sent.
+					frameCounters.onDropped();
+				}
+				pendingBytes = encodedFrame.getBytes();
+				pendingCaptureNanos = encodedFrame.getCaptureNanos();
+				pendingScaleX = encodedFrame.getScaleX();
+				pendingScaleY = encodedFrame.getScaleY();
+				pendingOffsetX = encodedFrame.getOffsetX();
+				pendingOffsetY = encodedFrame.getOffsetY();
+			}
+			sendPendingIfWindowOpen();
+		}
+		flushOutgoing();
+	}
+
+	/** Keeps a frame encoded while disconnected, dropping the oldest kept one if full. **/
+	private void bufferFrame(EncodedFrame encodedFrame) {
+		if (reconnectBuffer.add(encodedFrame)) {
+			frameCounters.onDropped();
+		}
+	}
+
+	/** Sends the frames left in the reconnect buffer, then the pending frame, while the in-flight
+	 * window has room. Must hold the window lock. **/
+	private void sendPendingIfWindowOpen() {
+		while (connected && !reconnectBuffer.isEmpty() && inFlightFrames.size() < maxInFlight) {
+			EncodedFrame frame = reconnectBuffer.removeOldest();
+			send(frame.getBytes(), frame.getCaptureNanos(), frame.getScaleX(), frame.getScaleY(),
+					frame.getOffsetX(), frame.getOffsetY());
+		}
+		if (pendingBytes == null || inFlightFrames.size() >= maxInFlight) {
+			return;
+		}
+		byte[] bytes = pendingBytes;
+		pendingBytes = null;
+		send(bytes, pendingCaptureNanos, pendingScaleX, pendingScaleY, pendingOffsetX,
+				pendingOffsetY);
+	}
+
+	/** Gives a frame the next ID, adds it to the in-flight window and queues it for the sink, see
+	 * {@link #flushOutgoing()}. Must hold the window lock. **/
+	private void send(byte[] bytes, long captureNanos, float scaleX, float scaleY, float offsetX,
+			float offsetY) {
+		long frameId = nextFrameId++;
+		long sentNanos = System.nanoTime();
+		inFlightFrames.add(frameId, sentNanos, captureNanos, scaleX, scaleY, offsetX, offsetY);
+		if (outgoingFrames.add(frameId, bytes, captureNanos, sentNanos)) {
+			// The sink has been blocked for a whole window of frames.
+			frameCounters.onDropped();
+		}
+	}
+
+	/** Hands the queued frames to the sink in ID order, outside of the window lock, so a slow
+	 * sink does not hold up poses. Only one thread calls the sink at a time; a thread finding
+	 * another one flushing leaves its frames to it. Must not hold the window lock. **/
+	private void flushOutgoing() {
+		synchronized (windowLock) {
+			if (flushing || outgoingFrames.isEmpty()) {
+				return;
+			}
+			flushing = true;
+		}
+		try {
+			while (true) {
+				long frameId;
+				byte[] bytes;
+				long captureNanos;
+				long sentNanos;
+				synchronized (windowLock) {
+					if (outgoingFrames.isEmpty()) {
+						flushing = false;
+						return;
+					}
+					frameId = outgoingFrames.oldestFrameId();
+					bytes = outgoingFrames.oldestBytes();
+					captureNanos = outgoingFrames.oldestCaptureNanos();
+					sentNanos = outgoingFrames.oldestReservedNanos();
+					outgoingFrames.removeOldest();
+				}
+				sink.send(frameId, bytes);
+				tracer.record(FrameTracer.Stage.SEND, captureNanos, sentNanos, System.nanoTime());
+				frameCounters.onSent(bytes.length);
+			}
+		} catch (RuntimeException e) {
+			synchronized (windowLock) {
+				flushing = false;
+			}
+			throw e;
+		}
+	}
+
+	/** Returns the selected encoder, with the JPEG quality limited by the governor. **/
+	private FrameEncoder currentEncoder() {
+		FrameEncoder encoder = frameEncoder;
+		if (!(encoder instanceof JpegFrameEncoder)) {
+			return encoder;
+		}
+		JpegFrameEncoder jpegEncoder = (JpegFrameEncoder) encoder;
+		int quality = Math.min(jpegEncoder.getQuality(), governor.getJpegQuality());
+		if (quality == jpegEncoder.getQuality()) {
+			return jpegEncoder;
+		}
+		AdaptedEncoder adapted = adaptedEncoder;
+		if (adapted == null || adapted.source != jpegEncoder
+				|| adapted.encoder.getQuality() != quality) {
+			adapted = new AdaptedEncoder(jpegEncoder, jpegEncoder.withQuality(quality));
+			adaptedEncoder = adapted;
+		}
+		return adapted.encoder;
+	}
+}
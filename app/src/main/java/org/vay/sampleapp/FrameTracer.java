@@ -0,0 +1,198 @@
+package org.vay.sampleapp;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Records how long every frame spends in each stage from the camera to the drawn skeleton.
+ *
+ * <p>Frames are identified by their capture time, which every stage already carries. Each stage
+ * span is written to a preallocated ring buffer, keeping the most recent {@code capacity} spans
+ * for export as Chrome trace JSON, which Perfetto and chrome://tracing open, and counted in a
+ * {@link LatencyHistogram} per stage for live percentiles. Recording is lock-free and does not
+ * allocate, so it can stay enabled in production builds. **/
+public final class FrameTracer {
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/** The stages of a frame, in pipeline order. **/
+	public enum Stage {
+		/** From the sensor timestamp to the image reaching the analyzer. **/
+		CAMERA,
+		/** Copying the camera planes into an NV21 frame. **/
+		CONVERT,
+		/** Cropping, rotating, scaling and compressing on an encoder worker. **/
+		ENCODE,
+		/** Handing the encoded frame to the analyser. **/
+		SEND,
+		/** From sending the frame to receiving its pose. **/
+		NETWORK,
+		/** Mapping the pose and updating the skeleton on the listener thread. **/
+		POSE,
+		/** The first draw of the pose on the UI thread. **/
+		DRAW,
+		/** From capture to the end of the first draw of the pose. **/
+		END_TO_END
+	}
+
+	private static final Stage[] STAGES = Stage.values();
+
+	private final int mask;
+	private final AtomicLong nextSlot = new AtomicLong();
+	// Per slot: the sequence number of the span written last, plus 1, set once the span is
+	// complete, so the export can skip slots being overwritten.
+	private final AtomicLongArray published;
+	private final long[] frameIds;
+	private final long[] startNanos;
+	private final long[] endNanos;
+	private final long[] threadIds;
+	private final byte[] stages;
+	private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+	private volatile boolean enabled = true;
+
+	public FrameTracer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/** @param capacity number of spans kept for export, rounded up to a power of two **/
+	public FrameTracer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		mask = size - 1;
+		published = new AtomicLongArray(size);
+		frameIds = new long[size];
+		startNanos = new long[size];
+		endNanos = new long[size];
+		threadIds = new long[size];
+		stages = new byte[size];
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new LatencyHistogram();
+		}
+	}
+
+	/** Enables recording, enabled by default. While disabled, {@link #record} returns at once. **/
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Records a stage span of a frame on the calling thread.
+	 *
+	 * @param frameId capture time of the frame, {@code System.nanoTime()}
+	 * @param startNanos {@code System.nanoTime()} at which the stage started
+	 * @param endNanos {@code System.nanoTime()} at which the stage ended
+	 */
+	public void record(Stage stage, long frameId, long startNanos, long endNanos) {
+		if (!enabled) {
+			return;
+		}
+		histograms[stage.ordinal()].record(endNanos - startNanos);
+		long sequence = nextSlot.getAndIncrement();
+		int slot = (int) sequence & mask;
+		published.set(slot, 0);
+		frameIds[slot] = frameId;
+		this.startNanos[slot] = startNanos;
+		this.endNanos[slot] = endNanos;
+		threadIds[slot] = Thread.currentThread().getId();
+		stages[slot] = (byte) stage.ordinal();
+		published.set(slot, sequence + 1);
+	}
+
+	/** Returns the histogram of the durations of a stage. **/
+	public LatencyHistogram getHistogram(Stage stage) {
+		return histograms[stage.ordinal()];
+	}
+
+	/** Clears the recorded spans and histograms. **/
+	public void reset() {
+		for (LatencyHistogram histogram : histograms) {
+			histogram.reset();
+		}
+		for (int i = 0; i < published.length(); i++) {
+			published.set(i, 0);
+		}
+	}
+
+	/** Returns one line per stage with its count and p50, p95 and p99 in milliseconds. **/
+	public String describePercentiles() {
+		StringBuilder builder = new StringBuilder();
+		for (Stage stage : STAGES) {
+			LatencyHistogram histogram = getHistogram(stage);
+			if (histogram.getCount() == 0) {
+				continue;
+			}
+			builder.append(stage.name()).append(": n=").append(histogram.getCount())
+					.append(" p50=").append(formatMillis(histogram.percentileNanos(0.50)))
+					.append(" p95=").append(formatMillis(histogram.percentileNanos(0.95)))
+					.append(" p99=").append(formatMillis(histogram.percentileNanos(0.99)))
+					.append(" ms\n");
+		}
+		return builder.toString();
+	}
+
+	/** Writes the kept spans as Chrome trace JSON, one complete event per span on the thread it
+	 * was recorded on, with the frame's capture time in milliseconds as argument. Spans recorded
+	 * during the export may be missing. **/
+	public void writeChromeTrace(Writer out) throws IOException {
+		long end = nextSlot.get();
+		long begin = Math.max(0, end - published.length());
+		long base = Long.MAX_VALUE;
+		for (long sequence = begin; sequence < end; sequence++) {
+			int slot = (int) sequence & mask;
+			if (published.get(slot) == sequence + 1) {
+				base = Math.min(base, startNanos[slot]);
+			}
+		}
+		out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+		boolean first = true;
+		for (long sequence = begin; sequence < end; sequence++) {
+			int slot = (int) sequence & mask;
+			if (published.get(slot) != sequence + 1) {
+				continue;
+			}
+			long frameId = frameIds[slot];
+			long start = startNanos[slot];
+			long duration = endNanos[slot] - start;
+			long threadId = threadIds[slot];
+			Stage stage = STAGES[stages[slot]];
+			if (published.get(slot) != sequence + 1) {
+				// Overwritten while reading.
+				continue;
+			}
+			if (!first) {
+				out.write(',');
+			}
+			first = false;
+			out.write("\n{\"name\":\"");
+			out.write(stage.name());
+			out.write("\",\"cat\":\"frame\",\"ph\":\"X\",\"pid\":1,\"tid\":");
+			out.write(Long.toString(threadId));
+			out.write(",\"ts\":");
+			writeThousandths(out, start - base);
+			out.write(",\"dur\":");
+			writeThousandths(out, Math.max(0, duration));
+			out.write(",\"args\":{\"frame\":");
+			writeThousandths(out, frameId / 1000);
+			out.write("}}");
+		}
+		out.write("\n]}\n");
+	}
+
+	/** Writes a value divided by 1000 with three decimals, e.g. nanoseconds as microseconds,
+	 * independent of the locale. **/
+	private static void writeThousandths(Writer out, long value) throws IOException {
+		long fraction = Math.abs(value % 1000);
+		out.write(Long.toString(value / 1000));
+		out.write('.');
+		out.write((char) ('0' + fraction / 100));
+		out.write((char) ('0' + fraction / 10 % 10));
+		out.write((char) ('0' + fraction % 10));
+	}
+
+	private static String formatMillis(long nanos) {
+		return Long.toString(nanos / 1_000_000) + '.' + (nanos / 100_000 % 10);
+	}
+}
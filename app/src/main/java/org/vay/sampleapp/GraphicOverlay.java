@@ -8,14 +8,19 @@ package org.vay.sampleapp;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Matrix;
+import android.graphics.Paint;
 import android.graphics.Rect;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.View;
 
+import androidx.annotation.Nullable;
 import androidx.core.util.Preconditions;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -38,8 +43,11 @@ import java.util.List;
  * </ol>
  */
 public class GraphicOverlay extends View {
+	private static final float HUD_TEXT_SIZE_DP = 12f;
+	private static final int HUD_BACKGROUND_COLOR = 0x99000000;
 	private final Object lock = new Object();
-	private final List<Graphic> graphics = new ArrayList<>();
+	// Replaced as a whole on every change, so onDraw can iterate it without holding the lock.
+	private volatile Graphic[] graphics = new Graphic[0];
 	// Matrix for transforming from image coordinates to overlay view coordinates.
 	private final Matrix transformationMatrix = new Matrix();
 	// Matrix for rotating around the origin
@@ -58,6 +66,16 @@ public class GraphicOverlay extends View {
 	private float postScaleHeightOffset;
 	private boolean isImageFlipped;
 	private boolean needUpdateTransformation = true;
+	// Redraws on the next display frame while a graphic is animating. UI thread only.
+	private final Choreographer.FrameCallback frameCallback = this::onFrame;
+	private boolean frameCallbackPosted = false;
+	// Vsync time of the frame being drawn, in the System.nanoTime() time base.
+	private long frameTimeNanos;
+	private long pendingFrameTimeNanos = 0;
+	// Lines of the debug HUD drawn on top of the graphics, null while it is hidden.
+	private volatile String[] hudLines;
+	private Paint hudTextPaint;
+	private Paint hudBackgroundPaint;
 
 	/**
 	 * Base class for a custom graphics object to be rendered within the graphic overlay. Subclass
@@ -86,6 +104,18 @@ public class GraphicOverlay extends View {
 		 */
 		public abstract void draw(Canvas canvas);
 
+		/** Returns whether the graphic changes over time by itself, so the overlay should keep
+		 * redrawing on every display frame. Called on the UI thread after drawing. */
+		public boolean isAnimating(long frameTimeNanos) {
+			return false;
+		}
+
+		/** Returns the time of the display frame being drawn, in the {@code System.nanoTime()} time
+		 * base. Animations should be computed for this time. */
+		public long getFrameTimeNanos() {
+			return overlay.frameTimeNanos;
+		}
+
 		/** Adjusts the supplied value from the image scale to the view scale. */
 		public float scale(float imagePixel) {
 			return imagePixel * overlay.scaleFactor;
@@ -140,7 +170,7 @@ public class GraphicOverlay extends View {
 	/** Removes all graphics from the overlay. */
 	public void clear() {
 		synchronized (lock) {
-			graphics.clear();
+			graphics = new Graphic[0];
 		}
 		postInvalidate();
 	}
@@ -148,14 +178,18 @@ public class GraphicOverlay extends View {
 	/** Adds a graphic to the overlay. */
 	public void add(Graphic graphic) {
 		synchronized (lock) {
-			graphics.add(graphic);
+			Graphic[] updated = Arrays.copyOf(graphics, graphics.length + 1);
+			updated[graphics.length] = graphic;
+			graphics = updated;
 		}
 	}
 
 	/** Removes a graphic from the overlay. */
 	public void remove(Graphic graphic) {
 		synchronized (lock) {
-			graphics.remove(graphic);
+			List<Graphic> updated = new ArrayList<>(Arrays.asList(graphics));
+			updated.remove(graphic);
+			graphics = updated.toArray(new Graphic[0]);
 		}
 		postInvalidate();
 	}
@@ -182,6 +216,13 @@ public class GraphicOverlay extends View {
 		postInvalidate();
 	}
 
+	/** Shows the given lines as a debug HUD in the top left corner, on top of the graphics, or
+	 * hides it if null. May be called from any thread. */
+	public void setHudLines(@Nullable String[] lines) {
+		hudLines = lines;
+		postInvalidate();
+	}
+
 	private void setMappingMatrix(Rect cropRect, int rotationDegrees) {
 	}
 
@@ -222,17 +263,71 @@ public class GraphicOverlay extends View {
 		needUpdateTransformation = false;
 	}
 
-	/** Draws the overlay with its associated graphic objects. */
+	/** Draws the overlay with its associated graphic objects. The lock is only held to update the
+	 * transformation, graphics are drawn from the current array without blocking writers. While a
+	 * graphic is animating, the next draw is scheduled for the next display frame. */
 	@Override
 	protected void onDraw(Canvas canvas) {
 		super.onDraw(canvas);
 
 		synchronized (lock) {
 			updateTransformationIfNeeded();
+		}
+		// Draws not triggered by a display frame, e.g. after postInvalidate(), use the current time.
+		frameTimeNanos = pendingFrameTimeNanos != 0 ? pendingFrameTimeNanos : System.nanoTime();
+		pendingFrameTimeNanos = 0;
+		Graphic[] current = graphics;
+		boolean animating = false;
+		for (Graphic graphic : current) {
+			graphic.draw(canvas);
+			animating |= graphic.isAnimating(frameTimeNanos);
+		}
+		drawHud(canvas);
+		if (animating && !frameCallbackPosted) {
+			frameCallbackPosted = true;
+			Choreographer.getInstance().postFrameCallback(frameCallback);
+		}
+	}
 
-			for (Graphic graphic : graphics) {
-				graphic.draw(canvas);
-			}
+	private void drawHud(Canvas canvas) {
+		String[] lines = hudLines;
+		if (lines == null) {
+			return;
+		}
+		if (hudTextPaint == null) {
+			float textSize = HUD_TEXT_SIZE_DP * getResources().getDisplayMetrics().density;
+			hudTextPaint = new Paint();
+			hudTextPaint.setAntiAlias(true);
+			hudTextPaint.setColor(Color.WHITE);
+			hudTextPaint.setTextSize(textSize);
+			hudBackgroundPaint = new Paint();
+			hudBackgroundPaint.setColor(HUD_BACKGROUND_COLOR);
 		}
+		float lineHeight = 1.2f * hudTextPaint.getTextSize();
+		float width = 0;
+		for (String line : lines) {
+			width = Math.max(width, hudTextPaint.measureText(line));
+		}
+		float padding = lineHeight / 2;
+		canvas.drawRect(0, 0, width + 2 * padding, lines.length * lineHeight + padding,
+				hudBackgroundPaint);
+		for (int i = 0; i < lines.length; i++) {
+			canvas.drawText(lines[i], padding, (i + 1) * lineHeight, hudTextPaint);
+		}
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		if (frameCallbackPosted) {
+			frameCallbackPosted = false;
+			Choreographer.getInstance().removeFrameCallback(frameCallback);
+		}
+	}
+
+	private void onFrame(long frameTimeNanos) {
+		frameCallbackPosted = false;
+		pendingFrameTimeNanos = frameTimeNanos;
+		invalidate();
 	}
 }
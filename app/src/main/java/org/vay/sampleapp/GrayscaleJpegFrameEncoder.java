@@ -0,0 +1,39 @@
+package org.vay.sampleapp;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/** Encodes only the luminance (Y plane) of frames as JPEG. The chroma is replaced by the neutral
+ * value 128, which compresses to almost nothing, so only the grayscale image is paid for. **/
+public class GrayscaleJpegFrameEncoder extends JpegFrameEncoder {
+	private static final byte NEUTRAL_CHROMA = (byte) 128;
+	private final FrameBufferPool bufferPool;
+
+	public GrayscaleJpegFrameEncoder(int quality) {
+		this(quality, new YuvImageJpegCompressor(), ImageConverter.getBufferPool());
+	}
+
+	public GrayscaleJpegFrameEncoder(int quality, JpegCompressor compressor,
+			FrameBufferPool bufferPool) {
+		super(quality, compressor);
+		this.bufferPool = bufferPool;
+	}
+
+	@Override
+	public JpegFrameEncoder withQuality(int quality) {
+		return new GrayscaleJpegFrameEncoder(quality, getCompressor(), bufferPool);
+	}
+
+	@Override
+	public byte[] encode(byte[] nv21, int width, int height) throws IOException {
+		int imageSize = width * height;
+		byte[] gray = bufferPool.acquire(FrameBufferPool.nv21Size(width, height));
+		try {
+			System.arraycopy(nv21, 0, gray, 0, imageSize);
+			Arrays.fill(gray, imageSize, gray.length, NEUTRAL_CHROMA);
+			return super.encode(gray, width, height);
+		} finally {
+			bufferPool.release(gray);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package org.vay.sampleapp;
+
+/** Frames that have been sent but whose pose has not been received yet, in send order, which is
+ * the order of their frame IDs. Each entry holds the frame ID, used to match the pose, the send
+ * time, used to measure the round trip, the capture time, used to time the pose, and the scales and
+ * offsets that map the keypoints of the sent frame to overlay image coordinates. Not thread-safe. **/
+final class InFlightFrames {
+	private final long[] frameIds;
+	private final long[] sentAtNanos;
+	private final long[] captureNanos;
+	private final float[] scalesX;
+	private final float[] scalesY;
+	private final float[] offsetsX;
+	private final float[] offsetsY;
+	private int head = 0;
+	private int size = 0;
+
+	InFlightFrames(int capacity) {
+		frameIds = new long[capacity];
+		sentAtNanos = new long[capacity];
+		captureNanos = new long[capacity];
+		scalesX = new float[capacity];
+		scalesY = new float[capacity];
+		offsetsX = new float[capacity];
+		offsetsY = new float[capacity];
+	}
+
+	int capacity() {
+		return frameIds.length;
+	}
+
+	/** Adds a sent frame. If full, the oldest frame is forgotten, as its pose is considered lost. **/
+	void add(long frameId, long sentAtNanos, long captureNanos, float scaleX, float scaleY,
+			float offsetX, float offsetY) {
+		if (size == frameIds.length) {
+			removeOldest();
+		}
+		int index = (head + size) % frameIds.length;
+		frameIds[index] = frameId;
+		this.sentAtNanos[index] = sentAtNanos;
+		this.captureNanos[index] = captureNanos;
+		scalesX[index] = scaleX;
+		scalesY[index] = scaleY;
+		offsetsX[index] = offsetX;
+		offsetsY[index] = offsetY;
+		size++;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/** Returns the ID of the oldest frame. Must not be called when empty. **/
+	long oldestFrameId() {
+		return frameIds[head];
+	}
+
+	/** Returns the send time of the oldest frame. Must not be called when empty. **/
+	long oldestSentAtNanos() {
+		return sentAtNanos[head];
+	}
+
+	/** Returns the capture time of the oldest frame. Must not be called when empty. **/
+	long oldestCaptureNanos() {
+		return captureNanos[head];
+	}
+
+	/** Returns the keypoint x scale of the oldest frame. Must not be called when empty. **/
+	float oldestScaleX() {
+		return scalesX[head];
+	}
+
+	/** Returns the keypoint y scale of the oldest frame. Must not be called when empty. **/
+	float oldestScaleY() {
+		return scalesY[head];
+	}
+
+	/** Returns the keypoint x offset of the oldest frame. Must not be called when empty. **/
+	float oldestOffsetX() {
+		return offsetsX[head];
+	}
+
+	/** Returns the keypoint y offset of the oldest frame. Must not be called when empty. **/
+	float oldestOffsetY() {
+		return offsetsY[head];
+	}
+
+	void removeOldest() {
+		head = (head + 1) % frameIds.length;
+		size--;
+	}
+
+	/** Removes the frames sent before the one with the given ID, whose poses are considered lost
+	 * as poses arrive in send order. Returns the number of removed frames; the given frame is the
+	 * oldest one afterwards, unless it is no longer in flight. **/
+	int removeBefore(long frameId) {
+		int removed = 0;
+		while (size > 0 && frameIds[head] < frameId) {
+			removeOldest();
+			removed++;
+		}
+		return removed;
+	}
+
+	/** Removes the frames sent before the given time, whose poses are considered lost. Returns the
+	 * number of removed frames. **/
+	int removeSentBefore(long cutoffNanos) {
+		int removed = 0;
+		while (size > 0 && sentAtNanos[head] - cutoffNanos < 0) {
+			removeOldest();
+			removed++;
+		}
+		return removed;
+	}
+
+	void clear() {
+		head = 0;
+		size = 0;
+	}
+}
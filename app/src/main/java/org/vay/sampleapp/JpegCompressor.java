@@ -0,0 +1,11 @@
+package org.vay.sampleapp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Compresses an NV21 image to JPEG. Separated from the encoders, so the platform implementation
+ * can be replaced where it is not available, e.g. in JVM benchmarks. **/
+public interface JpegCompressor {
+	void compress(byte[] nv21, int width, int height, int quality, OutputStream out)
+			throws IOException;
+}
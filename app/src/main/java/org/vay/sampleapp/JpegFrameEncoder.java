@@ -0,0 +1,52 @@
+package org.vay.sampleapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/** Encodes frames as color JPEG with a configurable quality. **/
+public class JpegFrameEncoder implements FrameEncoder {
+	/** The quality used by the sample before encoders became configurable. **/
+	public static final int DEFAULT_QUALITY = 80;
+
+	private final int quality;
+	private final JpegCompressor compressor;
+	// Size of the previous output, used to presize the stream and avoid growing it per frame.
+	private volatile int lastOutputSize = 32 * 1024;
+
+	public JpegFrameEncoder() {
+		this(DEFAULT_QUALITY);
+	}
+
+	public JpegFrameEncoder(int quality) {
+		this(quality, new YuvImageJpegCompressor());
+	}
+
+	public JpegFrameEncoder(int quality, JpegCompressor compressor) {
+		if (quality < 0 || quality > 100) {
+			throw new IllegalArgumentException("quality must be between 0 and 100");
+		}
+		this.quality = quality;
+		this.compressor = compressor;
+	}
+
+	public int getQuality() {
+		return quality;
+	}
+
+	/** Returns an encoder of the same kind using another quality. **/
+	public JpegFrameEncoder withQuality(int quality) {
+		return new JpegFrameEncoder(quality, compressor);
+	}
+
+	protected JpegCompressor getCompressor() {
+		return compressor;
+	}
+
+	@Override
+	public byte[] encode(byte[] nv21, int width, int height) throws IOException {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream(lastOutputSize + lastOutputSize / 4);
+		compressor.compress(nv21, width, height, quality, stream);
+		lastOutputSize = stream.size();
+		return stream.toByteArray();
+	}
+}
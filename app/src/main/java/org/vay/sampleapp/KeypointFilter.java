@@ -0,0 +1,79 @@
+package org.vay.sampleapp;
+
+/** One Euro filter for every coordinate of a pose, on primitive arrays. Slow movements are
+ * smoothed strongly to remove jitter, while the cutoff frequency rises with the speed of a
+ * keypoint, so fast movements are followed with little lag. See Casiez et al., "1 Euro Filter:
+ * A Simple Speed-based Low-pass Filter for Noisy Input in Interactive Systems", CHI 2012. **/
+public final class KeypointFilter {
+	/** Cutoff frequency for slow movements, in Hz. **/
+	public static final float DEFAULT_MIN_CUTOFF_HZ = 1.5f;
+	/** Increase of the cutoff frequency per pixel per second of speed. **/
+	public static final float DEFAULT_BETA = 0.02f;
+	/** Cutoff frequency used to smooth the speed, in Hz. **/
+	public static final float DEFAULT_DERIVATIVE_CUTOFF_HZ = 1f;
+
+	private final float minCutoffHz;
+	private final float beta;
+	private final float derivativeCutoffHz;
+	private final float[] values;
+	private final float[] derivatives;
+	// Bit i is set if point i has been filtered before and not been lost since.
+	private long initializedMask = 0;
+	private long lastTimestampNanos;
+
+	public KeypointFilter(int pointCount) {
+		this(pointCount, DEFAULT_MIN_CUTOFF_HZ, DEFAULT_BETA, DEFAULT_DERIVATIVE_CUTOFF_HZ);
+	}
+
+	public KeypointFilter(int pointCount, float minCutoffHz, float beta, float derivativeCutoffHz) {
+		this.minCutoffHz = minCutoffHz;
+		this.beta = beta;
+		this.derivativeCutoffHz = derivativeCutoffHz;
+		values = new float[2 * pointCount];
+		derivatives = new float[2 * pointCount];
+	}
+
+	/**
+	 * Filters a pose in place.
+	 *
+	 * @param coordinates x and y of point i at 2 * i and 2 * i + 1
+	 * @param mask bit i is set if point i is present; absent points restart their filter when
+	 *     they reappear
+	 * @param timestampNanos time the pose refers to
+	 */
+	public void filter(float[] coordinates, long mask, long timestampNanos) {
+		float dt = initializedMask == 0 ? 0 : (timestampNanos - lastTimestampNanos) / 1e9f;
+		lastTimestampNanos = timestampNanos;
+		int pointCount = values.length / 2;
+		for (int point = 0; point < pointCount; point++) {
+			long bit = 1L << point;
+			if ((mask & bit) == 0) {
+				continue;
+			}
+			boolean initialized = (initializedMask & bit) != 0 && dt > 0;
+			for (int i = 2 * point; i < 2 * point + 2; i++) {
+				float value = coordinates[i];
+				if (!initialized) {
+					values[i] = value;
+					derivatives[i] = 0;
+					continue;
+				}
+				float derivative = (value - values[i]) / dt;
+				derivatives[i] += smoothingFactor(derivativeCutoffHz, dt) * (derivative - derivatives[i]);
+				float cutoff = minCutoffHz + beta * Math.abs(derivatives[i]);
+				values[i] += smoothingFactor(cutoff, dt) * (value - values[i]);
+				coordinates[i] = values[i];
+			}
+		}
+		initializedMask = mask;
+	}
+
+	public void reset() {
+		initializedMask = 0;
+	}
+
+	private static float smoothingFactor(float cutoffHz, float dt) {
+		float tau = (float) (1 / (2 * Math.PI * cutoffHz));
+		return 1 / (1 + tau / dt);
+	}
+}
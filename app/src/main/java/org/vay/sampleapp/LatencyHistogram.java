@@ -0,0 +1,132 @@
+package org.vay.sampleapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Histogram of durations with a bounded relative error, in the manner of an HDR histogram:
+ * microsecond values below 128 are counted exactly, larger ones in buckets of 64 per power of two,
+ * so every percentile is within about 1.6% of the recorded value, from 1 us up to
+ * {@link #MAX_NANOS}. The buckets are preallocated; recording is lock-free and allocation free, so
+ * it can be done on any thread for every frame. **/
+public final class LatencyHistogram {
+	private static final long NANOS_PER_MICRO = 1000L;
+	// Values below 2 ^ SUB_BUCKET_BITS us are counted exactly.
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	/** Longer durations are counted as this one. **/
+	public static final long MAX_NANOS = 60_000_000_000L;
+
+	private final AtomicLongArray counts = new AtomicLongArray(bucketIndex(MAX_NANOS
+			/ NANOS_PER_MICRO) + 1);
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/** Counts a duration. Negative durations are counted as 0. **/
+	public void record(long nanos) {
+		long clamped = Math.max(0, Math.min(MAX_NANOS, nanos));
+		counts.incrementAndGet(bucketIndex(clamped / NANOS_PER_MICRO));
+		totalCount.incrementAndGet();
+		long max;
+		while ((max = maxNanos.get()) < clamped && !maxNanos.compareAndSet(max, clamped)) {
+			// Retry until no larger value was recorded concurrently.
+		}
+	}
+
+	public long getCount() {
+		return totalCount.get();
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	/** Returns the duration that the given fraction of the recorded durations does not exceed,
+	 * e.g. 0.99 for the 99th percentile, or 0 if nothing has been recorded. **/
+	public long percentileNanos(double quantile) {
+		long total = totalCount.get();
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		if (rank >= total) {
+			return maxNanos.get();
+		}
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(maxNanos.get(), bucketMidpointMicros(i) * NANOS_PER_MICRO);
+			}
+		}
+		return maxNanos.get();
+	}
+
+	/** Returns the number of buckets, the length of the arrays used by {@link #copyCounts}. **/
+	int bucketCount() {
+		return counts.length();
+	}
+
+	/** Copies the bucket counts into {@code out}, e.g. to compute percentiles of an interval from
+	 * the difference of two copies with {@link #percentileNanos(long[], long[], double)}. **/
+	void copyCounts(long[] out) {
+		for (int i = 0; i < out.length; i++) {
+			out[i] = counts.get(i);
+		}
+	}
+
+	/** Returns the percentile of the durations counted between two copies of the bucket counts,
+	 * or 0 if there are none. Exact values are not kept, so bucket midpoints are returned. **/
+	static long percentileNanos(long[] counts, long[] previousCounts, double quantile) {
+		long total = 0;
+		for (int i = 0; i < counts.length; i++) {
+			total += counts[i] - previousCounts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		int last = 0;
+		for (int i = 0; i < counts.length; i++) {
+			long count = counts[i] - previousCounts[i];
+			if (count == 0) {
+				continue;
+			}
+			seen += count;
+			last = i;
+			if (seen >= rank) {
+				break;
+			}
+		}
+		return bucketMidpointMicros(last) * NANOS_PER_MICRO;
+	}
+
+	/** Clears all counts. Durations recorded concurrently may be kept or lost. **/
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+		totalCount.set(0);
+		maxNanos.set(0);
+	}
+
+	static int bucketIndex(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		// Keeps the top SUB_BUCKET_BITS - 1 bits below the leading one.
+		int shift = 63 - Long.numberOfLeadingZeros(micros) - (SUB_BUCKET_BITS - 1);
+		int top = (int) (micros >> shift);
+		return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + top - HALF_SUB_BUCKETS;
+	}
+
+	static long bucketMidpointMicros(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+		long top = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return (top << shift) + (1L << shift) / 2;
+	}
+}
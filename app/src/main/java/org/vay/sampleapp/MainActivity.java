@@ -24,12 +24,10 @@ import com.google.common.util.concurrent.ListenableFuture;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.io.IOException;
+import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 
-import ai.vay.client.api.SessionState;
-
 public class MainActivity extends AppCompatActivity {
 	private static final String TAG = MainActivity.class.getSimpleName();
 
@@ -50,7 +48,14 @@ public class MainActivity extends AppCompatActivity {
 	// finds the closest supported resolution of the device.
 
 	//Analysis
+	// Encoder threads and frame buffers of the analysis sessions. This screen runs one session.
+	private final AnalysisSessionManager sessionManager = new AnalysisSessionManager();
+	// Connects analysers ahead of the sessions, so they start streaming without a handshake.
+	private AnalyserProvider analyserProvider;
 	private AnalyserWrapper analyserWrapper;
+	// Collects the session events into one view update per display frame.
+	private UiEventDispatcher uiEvents;
+	private final String apiKey = "DUMMY-ANDROID-API-KEY";
 	private final int exerciseKey = 1; // Key 1 = Squat
 	private final String url = "Insert correct server url here!"; // The servers url.
 
@@ -66,8 +71,12 @@ public class MainActivity extends AppCompatActivity {
 		currentStateText = findViewById(R.id.state_info);
 		connectivityWarningText = findViewById(R.id.connectivityWarning);
 
-		// As creating the analyserWrapper contains network operations, it must be done on a separate thread.
-		new Thread(this::createAnalyserWrapper).start();
+		uiEvents = new UiEventDispatcher(getString(R.string.good_job),
+				new ChoreographerFrameScheduler(), this::renderSession);
+		// Connecting happens in the background, so the session is created right away.
+		analyserProvider = new AnalyserProvider(url, apiKey);
+		analyserProvider.prewarm(exerciseKey);
+		createAnalyserWrapper();
 
 		// Check camera permission. If not granted, ask for permission. Handle response in onRequestPermissionsResult.
 		if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
@@ -82,12 +91,10 @@ public class MainActivity extends AppCompatActivity {
 
 	// Instantiates the analyserWrapper.
 	private void createAnalyserWrapper() {
-		try {
-			analyserWrapper = new AnalyserWrapper(url, graphicOverlay, this, exerciseKey);
-		} catch (IOException e) {
-			Log.e(TAG, "Creating AnalyserWrapper failed: " + e.getMessage());
-			e.printStackTrace();
-		}
+		analyserWrapper = new AnalyserWrapper(sessionManager, analyserProvider, exerciseKey,
+				FrameStreamer.DEFAULT_MAX_FPS, graphicOverlay, uiEvents);
+		// Frame rates, upload and latency on top of the camera preview in debug builds.
+		analyserWrapper.setDebugHudEnabled(BuildConfig.DEBUG);
 	}
 
 	// Handles the result of asking for camera permission. If the user accepted the request, the same
@@ -156,16 +163,20 @@ public class MainActivity extends AppCompatActivity {
 				if (needUpdateGraphicOverlayImageSourceInfo) {
 					boolean isImageFlipped = lensFacing == CameraSelector.LENS_FACING_FRONT;
 					int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
-					if (rotationDegrees == 0 || rotationDegrees == 180) {
-						graphicOverlay.setImageSourceInfo(
-								imageProxy.getWidth(), imageProxy.getHeight(), isImageFlipped);
-					} else {
-						graphicOverlay.setImageSourceInfo(
-								imageProxy.getHeight(), imageProxy.getWidth(), isImageFlipped);
-					}
+					int uprightWidth = Nv21Rotator.rotatedWidth(
+							imageProxy.getWidth(), imageProxy.getHeight(), rotationDegrees);
+					int uprightHeight = Nv21Rotator.rotatedHeight(
+							imageProxy.getWidth(), imageProxy.getHeight(), rotationDegrees);
+					// The received points refer to the downscaled image that is sent.
+					int targetLongEdge = analyserWrapper.getTargetLongEdge();
+					graphicOverlay.setImageSourceInfo(
+							Nv21Scaler.scaledWidth(uprightWidth, uprightHeight, targetLongEdge),
+							Nv21Scaler.scaledHeight(uprightWidth, uprightHeight, targetLongEdge),
+							isImageFlipped);
 					analyserWrapper.setOverlay(graphicOverlay);
 					needUpdateGraphicOverlayImageSourceInfo = false;
 				}
+				// Only copies the image, encoding happens on the wrapper's encoder workers.
 				analyserWrapper.setPendingImage(imageProxy); // Passes the image to the analyser.
 			}
 			imageProxy.close();
@@ -180,6 +191,8 @@ public class MainActivity extends AppCompatActivity {
 		if (analyserWrapper != null) {
 			analyserWrapper.close();
 		}
+		analyserProvider.close();
+		sessionManager.shutdown();
 	}
 
 	// Gets called when the device rotates.
@@ -189,54 +202,39 @@ public class MainActivity extends AppCompatActivity {
 		needUpdateGraphicOverlayImageSourceInfo = true;
 	}
 
-	// Functions to update views.
-
-	public void setRepetitionsText(int reps) {
-		setViewText(repetitionsText, String.format(getString(R.string.repetitions_text), reps));
-	}
-
-	public void setCurrentStateText(String text) {
-		setViewText(currentStateText, text);
-	}
-
-	public void displayCorrection(String feedback) {
-		runOnUiThread(()->{
-			feedbackBox.setText(feedback);
-			feedbackBox.setBackgroundColor(Color.rgb(225, 48, 48));
-		});
-	}
-
-	public void displayPositiveMessage() {
-		runOnUiThread(()->{
-			feedbackBox.setText(R.string.good_job);
-			feedbackBox.setBackgroundColor(Color.rgb(105, 255, 115));
-		});
-	}
-
-	public void displayPositioningGuidance(String instructions) {
-		runOnUiThread(()-> feedbackBox.setText(instructions));
+	// Updates the views with a snapshot of the session events, on the UI thread. Only views whose
+	// state changed since the previous snapshot are touched.
+	private void renderSession(SessionViewModel previous, SessionViewModel current) {
+		if (current.getCorrectRepetitions() != previous.getCorrectRepetitions()) {
+			repetitionsText.setText(String.format(getString(R.string.repetitions_text),
+					current.getCorrectRepetitions()));
+		}
+		if (current.getSessionState() != previous.getSessionState()) {
+			currentStateText.setText(current.getSessionState().name());
+		}
+		if (!Objects.equals(current.getFeedback(), previous.getFeedback())) {
+			feedbackBox.setText(current.getFeedback());
+		}
+		if (current.getFeedbackTone() != previous.getFeedbackTone()) {
+			feedbackBox.setBackgroundColor(toneColor(current.getFeedbackTone()));
+		}
+		if (!Objects.equals(current.getConnectivityWarning(), previous.getConnectivityWarning())) {
+			connectivityWarningText.setText(current.getConnectivityWarning());
+		}
 	}
 
-	public void setStateIndicationColor(SessionState sessionState) {
-		runOnUiThread(()->{
-		switch (sessionState) {
+	private static int toneColor(SessionViewModel.Tone tone) {
+		switch (tone) {
+			case CORRECTION:
+				return Color.rgb(225, 48, 48);
+			case POSITIVE:
+				return Color.rgb(105, 255, 115);
 			case NO_HUMAN:
-				feedbackBox.setBackgroundColor(Color.rgb(176, 106, 2));
-				break;
+				return Color.rgb(176, 106, 2);
 			case POSITIONING:
-				feedbackBox.setBackgroundColor(Color.rgb(168, 166, 19));
-				break;
+				return Color.rgb(168, 166, 19);
 			default:
-				feedbackBox.setBackgroundColor(Color.rgb(10, 171, 173));
+				return Color.rgb(10, 171, 173);
 		}
-		});
-	}
-
-	public void setConnectivityWarningText(String warningText) {
-		setViewText(connectivityWarningText, warningText);
-	}
-
-	private void setViewText(TextView view, String text) {
-		runOnUiThread(() -> view.setText(text));
 	}
 }
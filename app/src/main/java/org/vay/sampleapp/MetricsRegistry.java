@@ -0,0 +1,211 @@
+package org.vay.sampleapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/** Named metrics of a session, read periodically for display and logging.
+ *
+ * <p>Metrics are not stored here but read from where they are kept anyway: counters from running
+ * totals such as {@link FrameCounters}, gauges from any current value and histograms from
+ * {@link LatencyHistogram}s such as those of the {@link FrameTracer}. Each consumer reads them
+ * through its own {@link Sampler}, which reports counters as rates and histograms as percentiles
+ * over the interval since its previous sample, so consumers reading at different intervals do not
+ * disturb each other. **/
+public final class MetricsRegistry {
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	/** A running total, e.g. of frames or bytes. **/
+	public interface Counter {
+		long get();
+	}
+
+	/** A current value, e.g. the used heap. **/
+	public interface Gauge {
+		double get();
+	}
+
+	enum Kind {
+		COUNTER, GAUGE, HISTOGRAM
+	}
+
+	private final List<String> names = new ArrayList<>();
+	private final List<Kind> kinds = new ArrayList<>();
+	private final List<Object> sources = new ArrayList<>();
+
+	/** Registers a running total, sampled as its rate per second. **/
+	public synchronized void counter(String name, Counter counter) {
+		add(name, Kind.COUNTER, counter);
+	}
+
+	/** Registers a current value, sampled as is. **/
+	public synchronized void gauge(String name, Gauge gauge) {
+		add(name, Kind.GAUGE, gauge);
+	}
+
+	/** Registers durations, sampled as p50, p95 and p99 in milliseconds. **/
+	public synchronized void histogram(String name, LatencyHistogram histogram) {
+		add(name, Kind.HISTOGRAM, histogram);
+	}
+
+	/** Returns a new sampler of the metrics registered so far, whose first interval starts now. **/
+	public synchronized Sampler newSampler(long nowNanos) {
+		return new Sampler(names.toArray(new String[0]), kinds.toArray(new Kind[0]),
+				sources.toArray(), nowNanos);
+	}
+
+	private void add(String name, Kind kind, Object source) {
+		if (names.contains(name)) {
+			throw new IllegalArgumentException("Metric already registered: " + name);
+		}
+		names.add(name);
+		kinds.add(kind);
+		sources.add(source);
+	}
+
+	/** Reads the metrics of a registry at intervals. Not thread safe. **/
+	public static final class Sampler {
+		private final String[] names;
+		private final Kind[] kinds;
+		private final Object[] sources;
+		private final long[] previousTotals;
+		private final long[][] previousCounts;
+		private final long[][] counts;
+		private long previousNanos;
+
+		private Sampler(String[] names, Kind[] kinds, Object[] sources, long nowNanos) {
+			this.names = names;
+			this.kinds = kinds;
+			this.sources = sources;
+			previousTotals = new long[names.length];
+			previousCounts = new long[names.length][];
+			counts = new long[names.length][];
+			for (int i = 0; i < names.length; i++) {
+				if (kinds[i] == Kind.HISTOGRAM) {
+					LatencyHistogram histogram = (LatencyHistogram) sources[i];
+					previousCounts[i] = new long[histogram.bucketCount()];
+					counts[i] = new long[histogram.bucketCount()];
+				}
+			}
+			read(nowNanos, null);
+		}
+
+		/** Reads all metrics, starting the next interval. **/
+		public Sample sample(long nowNanos) {
+			Sample sample = new Sample(names, kinds, nowNanos);
+			read(nowNanos, sample);
+			return sample;
+		}
+
+		private void read(long nowNanos, Sample out) {
+			double seconds = Math.max(1, nowNanos - previousNanos) / NANOS_PER_SECOND;
+			for (int i = 0; i < names.length; i++) {
+				switch (kinds[i]) {
+					case COUNTER:
+						long total = ((Counter) sources[i]).get();
+						if (out != null) {
+							out.values[i][0] = (total - previousTotals[i]) / seconds;
+							out.values[i][1] = total;
+						}
+						previousTotals[i] = total;
+						break;
+					case GAUGE:
+						if (out != null) {
+							out.values[i][0] = ((Gauge) sources[i]).get();
+						}
+						break;
+					case HISTOGRAM:
+						((LatencyHistogram) sources[i]).copyCounts(counts[i]);
+						if (out != null) {
+							out.values[i][0] = percentileMillis(i, 0.50);
+							out.values[i][1] = percentileMillis(i, 0.95);
+							out.values[i][2] = percentileMillis(i, 0.99);
+						}
+						long[] swap = previousCounts[i];
+						previousCounts[i] = counts[i];
+						counts[i] = swap;
+						break;
+				}
+			}
+			previousNanos = nowNanos;
+		}
+
+		private double percentileMillis(int metric, double quantile) {
+			return LatencyHistogram.percentileNanos(counts[metric], previousCounts[metric],
+					quantile) / 1e6;
+		}
+	}
+
+	/** The metrics read by one {@link Sampler#sample(long)}. **/
+	public static final class Sample {
+		private final String[] names;
+		private final Kind[] kinds;
+		private final long nanos;
+		// Counter: rate and total. Gauge: value. Histogram: p50, p95 and p99 in milliseconds.
+		private final double[][] values;
+
+		private Sample(String[] names, Kind[] kinds, long nanos) {
+			this.names = names;
+			this.kinds = kinds;
+			this.nanos = nanos;
+			values = new double[names.length][3];
+		}
+
+		/** Returns the rate per second of a counter, the value of a gauge or the median of a
+		 * histogram in milliseconds, or NaN if there is no such metric. **/
+		public double get(String name) {
+			for (int i = 0; i < names.length; i++) {
+				if (names[i].equals(name)) {
+					return values[i][0];
+				}
+			}
+			return Double.NaN;
+		}
+
+		/** Formats the sample as one JSON object per line, for logs pulled from devices. Counters
+		 * have a rate and a total, histograms percentiles in milliseconds. **/
+		public String toJson() {
+			StringBuilder builder = new StringBuilder("{\"t\":").append(nanos / 1_000_000);
+			for (int i = 0; i < names.length; i++) {
+				builder.append(",\"").append(names[i]).append("\":");
+				double[] value = values[i];
+				switch (kinds[i]) {
+					case COUNTER:
+						builder.append(String.format(Locale.US, "{\"rate\":%.1f,\"total\":%d}",
+								value[0], (long) value[1]));
+						break;
+					case GAUGE:
+						builder.append(String.format(Locale.US, "%.1f", value[0]));
+						break;
+					case HISTOGRAM:
+						builder.append(String.format(Locale.US,
+								"{\"p50\":%.1f,\"p95\":%.1f,\"p99\":%.1f}", value[0], value[1],
+								value[2]));
+						break;
+				}
+			}
+			return builder.append('}').toString();
+		}
+
+		/** Formats the sample as short lines for an on-screen display. **/
+		public String[] toLines() {
+			String[] lines = new String[names.length];
+			for (int i = 0; i < names.length; i++) {
+				double[] value = values[i];
+				switch (kinds[i]) {
+					case COUNTER:
+						lines[i] = String.format(Locale.US, "%s %.1f/s (%d)", names[i], value[0],
+								(long) value[1]);
+						break;
+					case GAUGE:
+						lines[i] = String.format(Locale.US, "%s %.1f", names[i], value[0]);
+						break;
+					default:
+						lines[i] = String.format(Locale.US, "%s %.1f / %.1f / %.1f ms", names[i],
+								value[0], value[1], value[2]);
+				}
+			}
+			return lines;
+		}
+	}
+}
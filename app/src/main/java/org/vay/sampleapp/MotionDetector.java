@@ -0,0 +1,52 @@
+package org.vay.sampleapp;
+
+/** Cheap change detector for camera frames. Compares the luminance of a coarse grid of 2x2 pixel
+ * blocks of the Y plane with the previous frame and reports the fraction of blocks that changed
+ * by more than sensor noise. About 12,000 bytes are read per frame, whatever the resolution.
+ * Not thread-safe, use one instance per stream on the analyzer thread. **/
+public final class MotionDetector {
+	private static final int GRID_COLUMNS = 64;
+	private static final int GRID_ROWS = 48;
+	/** Luminance change of a block, out of 255, above which it counts as changed. **/
+	public static final int DEFAULT_PIXEL_THRESHOLD = 12;
+
+	private final int pixelThreshold;
+	// Block luminance of the previous frame, times 4.
+	private final int[] previous = new int[GRID_COLUMNS * GRID_ROWS];
+	private int width = 0;
+	private int height = 0;
+
+	public MotionDetector() {
+		this(DEFAULT_PIXEL_THRESHOLD);
+	}
+
+	public MotionDetector(int pixelThreshold) {
+		this.pixelThreshold = pixelThreshold;
+	}
+
+	/** Returns the fraction of blocks whose luminance changed since the previous frame, from 0 to
+	 * 1. The first frame, and the first after a size change, count as fully changed. **/
+	public float update(byte[] nv21, int width, int height) {
+		boolean first = width != this.width || height != this.height;
+		this.width = width;
+		this.height = height;
+		int threshold = 4 * pixelThreshold;
+		int changed = 0;
+		int index = 0;
+		for (int row = 0; row < GRID_ROWS; row++) {
+			// Top row of the block, centered in its grid cell and kept within the image.
+			int y = Math.min(height - 2, (2 * row + 1) * height / (2 * GRID_ROWS));
+			for (int column = 0; column < GRID_COLUMNS; column++) {
+				int x = Math.min(width - 2, (2 * column + 1) * width / (2 * GRID_COLUMNS));
+				int pos = y * width + x;
+				int sum = (nv21[pos] & 0xFF) + (nv21[pos + 1] & 0xFF) + (nv21[pos + width] & 0xFF)
+						+ (nv21[pos + width + 1] & 0xFF);
+				if (Math.abs(sum - previous[index]) > threshold) {
+					changed++;
+				}
+				previous[index++] = sum;
+			}
+		}
+		return first ? 1f : (float) changed / previous.length;
+	}
+}
@@ -0,0 +1,55 @@
+package org.vay.sampleapp;
+
+/** Decides whether to send a frame based on how much the scene moves. While something moves,
+ * every frame passes. Once nothing has moved for a while, only a keep-alive frame passes now and
+ * then, so the session stays alive and a still person keeps their pose. Motion, or a call to
+ * {@link #wake(long)}, e.g. on a session state change, returns to the full rate at once. **/
+public final class MotionGate {
+	/** Fraction of changed blocks, see {@link MotionDetector}, that counts as motion. **/
+	public static final float DEFAULT_MOTION_THRESHOLD = 0.005f;
+	/** Time without motion after which the gate falls back to keep-alive frames. **/
+	public static final long DEFAULT_QUIET_NANOS = 1_000_000_000L;
+	/** Interval between keep-alive frames, 2 fps. **/
+	public static final long DEFAULT_KEEP_ALIVE_NANOS = 500_000_000L;
+
+	private final float motionThreshold;
+	private final long quietNanos;
+	private final long keepAliveNanos;
+	private boolean hasMotion = false;
+	private long lastMotionNanos;
+	private long lastSentNanos;
+
+	public MotionGate() {
+		this(DEFAULT_MOTION_THRESHOLD, DEFAULT_QUIET_NANOS, DEFAULT_KEEP_ALIVE_NANOS);
+	}
+
+	public MotionGate(float motionThreshold, long quietNanos, long keepAliveNanos) {
+		this.motionThreshold = motionThreshold;
+		this.quietNanos = quietNanos;
+		this.keepAliveNanos = keepAliveNanos;
+	}
+
+	/** Returns whether a frame with the given motion score should be sent. **/
+	public synchronized boolean shouldSend(float motionScore, long nowNanos) {
+		if (motionScore >= motionThreshold) {
+			hasMotion = true;
+			lastMotionNanos = nowNanos;
+		}
+		boolean send = !isIdle(nowNanos) || nowNanos - lastSentNanos >= keepAliveNanos;
+		if (send) {
+			lastSentNanos = nowNanos;
+		}
+		return send;
+	}
+
+	/** Returns to the full rate as if motion had been seen now. **/
+	public synchronized void wake(long nowNanos) {
+		hasMotion = true;
+		lastMotionNanos = nowNanos;
+	}
+
+	/** Returns whether only keep-alive frames pass at the given time. **/
+	public synchronized boolean isIdle(long nowNanos) {
+		return !hasMotion || nowNanos - lastMotionNanos >= quietNanos;
+	}
+}
@@ -0,0 +1,39 @@
+package org.vay.sampleapp;
+
+/** Copies a rectangle out of an NV21 image, row by row for the Y plane and the interleaved VU
+ * plane. **/
+public final class Nv21Cropper {
+
+	private Nv21Cropper() {
+	}
+
+	/**
+	 * Copies the given rectangle of the NV21 image in {@code src} into {@code dst}.
+	 *
+	 * @param src NV21 image of the given width and height
+	 * @param width width of the source image
+	 * @param height height of the source image
+	 * @param crop rectangle within the source image
+	 * @param dst array of at least {@link FrameBufferPool#nv21Size(int, int)} bytes for the crop
+	 *     size
+	 */
+	public static void crop(byte[] src, int width, int height, CropRect crop, byte[] dst) {
+		int left = crop.getLeft();
+		int top = crop.getTop();
+		int cropWidth = crop.getWidth();
+		int cropHeight = crop.getHeight();
+		if (left + cropWidth > width || top + cropHeight > height) {
+			throw new IllegalArgumentException(crop + " exceeds " + width + "x" + height);
+		}
+		for (int row = 0; row < cropHeight; row++) {
+			System.arraycopy(src, (top + row) * width + left, dst, row * cropWidth, cropWidth);
+		}
+		// A VU row of the crop spans cropWidth bytes from the even left edge on.
+		int srcChroma = width * height;
+		int dstChroma = cropWidth * cropHeight;
+		for (int row = 0; row < cropHeight / 2; row++) {
+			System.arraycopy(src, srcChroma + (top / 2 + row) * width + left, dst,
+					dstChroma + row * cropWidth, cropWidth);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package org.vay.sampleapp;
+
+/** An NV21 image held in a pooled buffer, as copied from the camera, together with what is needed
+ * to encode it later on another thread. Must be released exactly once, which returns the buffer to
+ * its pool. **/
+public final class Nv21Frame {
+	private final FrameBufferPool pool;
+	private byte[] data;
+	private final int width;
+	private final int height;
+	private final int rotationDegrees;
+	private final long captureNanos;
+
+	public Nv21Frame(FrameBufferPool pool, int width, int height, int rotationDegrees,
+			long captureNanos) {
+		this.pool = pool;
+		this.data = pool.acquire(FrameBufferPool.nv21Size(width, height));
+		this.width = width;
+		this.height = height;
+		this.rotationDegrees = rotationDegrees;
+		this.captureNanos = captureNanos;
+	}
+
+	/** Returns the NV21 bytes. Must not be used after {@link #release()}. **/
+	public byte[] getData() {
+		if (data == null) {
+			throw new IllegalStateException("Frame has already been released");
+		}
+		return data;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/** Returns the clockwise rotation needed to make the image upright. **/
+	public int getRotationDegrees() {
+		return rotationDegrees;
+	}
+
+	/** Returns the width of the image once rotated upright. **/
+	public int getUprightWidth() {
+		return Nv21Rotator.rotatedWidth(width, height, rotationDegrees);
+	}
+
+	/** Returns the height of the image once rotated upright. **/
+	public int getUprightHeight() {
+		return Nv21Rotator.rotatedHeight(width, height, rotationDegrees);
+	}
+
+	/** Returns the {@link System#nanoTime()} at which the frame was captured. **/
+	public long getCaptureNanos() {
+		return captureNanos;
+	}
+
+	/** Returns the pool the frame's buffer belongs to, e.g. to take scratch buffers for encoding
+	 * from the same pool. **/
+	public FrameBufferPool getPool() {
+		return pool;
+	}
+
+	/** Returns the buffer to its pool. **/
+	public void release() {
+		if (data != null) {
+			pool.release(data);
+			data = null;
+		}
+	}
+}
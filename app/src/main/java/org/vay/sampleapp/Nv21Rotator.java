@@ -0,0 +1,149 @@
+package org.vay.sampleapp;
+
+/** Rotates and optionally mirrors NV21 images directly on their Y and interleaved VU planes, so an
+ * upright frame can be JPEG encoded once without a Bitmap round trip.
+ *
+ * <p>Rotations are clockwise, matching {@code ImageInfo#getRotationDegrees()}. Mirroring flips the
+ * rotated image along its vertical axis. Width and height must be even, as the VU plane is
+ * subsampled by a factor of 2 in both dimensions. **/
+public final class Nv21Rotator {
+
+	private Nv21Rotator() {
+	}
+
+	/** Returns the width of the image after rotating it by the given degrees. **/
+	public static int rotatedWidth(int width, int height, int rotationDegrees) {
+		return isTransposed(rotationDegrees) ? height : width;
+	}
+
+	/** Returns the height of the image after rotating it by the given degrees. **/
+	public static int rotatedHeight(int width, int height, int rotationDegrees) {
+		return isTransposed(rotationDegrees) ? width : height;
+	}
+
+	/**
+	 * Rotates the NV21 image in {@code src} by 0, 90, 180 or 270 degrees clockwise into {@code dst}.
+	 *
+	 * @param src NV21 image of the given width and height
+	 * @param width width of the source image
+	 * @param height height of the source image
+	 * @param rotationDegrees clockwise rotation, one of 0, 90, 180 and 270
+	 * @param mirror whether to flip the rotated image horizontally
+	 * @param dst array of at least {@link FrameBufferPool#nv21Size(int, int)} bytes, must not be
+	 *     {@code src}
+	 */
+	public static void rotate(byte[] src, int width, int height, int rotationDegrees, boolean mirror,
+			byte[] dst) {
+		if (src == dst) {
+			throw new IllegalArgumentException("In-place rotation is not supported");
+		}
+		int imageSize = width * height;
+		rotatePlane(src, 0, width, height, 1, rotationDegrees, mirror, dst, 0);
+		rotatePlane(src, imageSize, width / 2, height / 2, 2, rotationDegrees, mirror, dst, imageSize);
+	}
+
+	/** Rotates a plane of {@code width * height} elements of {@code elementSize} bytes each. The
+	 * source element read for every output position is found by stepping linearly from an origin,
+	 * so the inner loop needs no multiplications. **/
+	private static void rotatePlane(byte[] src, int srcOffset, int width, int height, int elementSize,
+			int rotationDegrees, boolean mirror, byte[] dst, int dstOffset) {
+		int outWidth = rotatedWidth(width, height, rotationDegrees);
+		int outHeight = rotatedHeight(width, height, rotationDegrees);
+		int origin = origin(width, height, rotationDegrees, mirror);
+		int stepX = stepX(width, rotationDegrees, mirror);
+		int stepY = stepY(width, rotationDegrees);
+
+		int outPos = dstOffset;
+		int rowStart = origin;
+		if (elementSize == 1) {
+			for (int y = 0; y < outHeight; y++) {
+				int inPos = srcOffset + rowStart;
+				for (int x = 0; x < outWidth; x++) {
+					dst[outPos++] = src[inPos];
+					inPos += stepX;
+				}
+				rowStart += stepY;
+			}
+		} else {
+			stepX *= 2;
+			for (int y = 0; y < outHeight; y++) {
+				int inPos = srcOffset + 2 * rowStart;
+				for (int x = 0; x < outWidth; x++) {
+					dst[outPos++] = src[inPos];
+					dst[outPos++] = src[inPos + 1];
+					inPos += stepX;
+				}
+				rowStart += stepY;
+			}
+		}
+	}
+
+	/** Returns the source element index of the top left output element of a rotated plane. Moving
+	 * one output element right adds {@link #stepX}, moving one output row down adds
+	 * {@link #stepY}. **/
+	static int origin(int width, int height, int rotationDegrees, boolean mirror) {
+		int origin;
+		switch (rotationDegrees) {
+			case 0:
+				origin = 0;
+				break;
+			case 90:
+				origin = (height - 1) * width;
+				break;
+			case 180:
+				origin = (height - 1) * width + width - 1;
+				break;
+			case 270:
+				origin = width - 1;
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported rotation: " + rotationDegrees);
+		}
+		if (mirror) {
+			origin += (rotatedWidth(width, height, rotationDegrees) - 1) * unmirroredStepX(width,
+					rotationDegrees);
+		}
+		return origin;
+	}
+
+	/** Returns the source index step for one output element to the right. **/
+	static int stepX(int width, int rotationDegrees, boolean mirror) {
+		int stepX = unmirroredStepX(width, rotationDegrees);
+		return mirror ? -stepX : stepX;
+	}
+
+	/** Returns the source index step for one output row down. **/
+	static int stepY(int width, int rotationDegrees) {
+		switch (rotationDegrees) {
+			case 0:
+				return width;
+			case 90:
+				return 1;
+			case 180:
+				return -width;
+			case 270:
+				return -1;
+			default:
+				throw new IllegalArgumentException("Unsupported rotation: " + rotationDegrees);
+		}
+	}
+
+	private static int unmirroredStepX(int width, int rotationDegrees) {
+		switch (rotationDegrees) {
+			case 0:
+				return 1;
+			case 90:
+				return -width;
+			case 180:
+				return -1;
+			case 270:
+				return width;
+			default:
+				throw new IllegalArgumentException("Unsupported rotation: " + rotationDegrees);
+		}
+	}
+
+	private static boolean isTransposed(int rotationDegrees) {
+		return rotationDegrees == 90 || rotationDegrees == 270;
+	}
+}
@@ -0,0 +1,112 @@
+package org.vay.sampleapp;
+
+/** Downscales NV21 images with a box filter, fused with the rotation (and mirroring) done by
+ * {@link Nv21Rotator}, so an upright, smaller frame is produced in a single pass over the source.
+ *
+ * <p>The output size is chosen so that its longer edge is at most a target length, keeping the
+ * aspect ratio. Every output pixel is the average of the source pixels its footprint covers; the Y
+ * plane and the interleaved V and U values are averaged separately. **/
+public final class Nv21Scaler {
+
+	private Nv21Scaler() {
+	}
+
+	/** Returns the output width for an upright image of the given size, or its own width if the
+	 * image already fits. A {@code targetLongEdge} of 0 or less disables scaling. The result is
+	 * kept even, as NV21 requires. **/
+	public static int scaledWidth(int width, int height, int targetLongEdge) {
+		return scaleEdge(width, Math.max(width, height), targetLongEdge);
+	}
+
+	/** Returns the output height, see {@link #scaledWidth(int, int, int)}. **/
+	public static int scaledHeight(int width, int height, int targetLongEdge) {
+		return scaleEdge(height, Math.max(width, height), targetLongEdge);
+	}
+
+	/** Returns whether an upright image of the given size would be scaled down. **/
+	public static boolean needsScaling(int width, int height, int targetLongEdge) {
+		return targetLongEdge > 0 && Math.max(width, height) > targetLongEdge;
+	}
+
+	/**
+	 * Rotates the NV21 image in {@code src} and downscales it to {@code dstWidth x dstHeight}.
+	 *
+	 * @param src NV21 image of the given width and height
+	 * @param width width of the source image
+	 * @param height height of the source image
+	 * @param rotationDegrees clockwise rotation, one of 0, 90, 180 and 270
+	 * @param mirror whether to flip the rotated image horizontally
+	 * @param dst array of at least {@link FrameBufferPool#nv21Size(int, int)} bytes for the output
+	 *     size, must not be {@code src}
+	 * @param dstWidth even output width, at most the rotated source width
+	 * @param dstHeight even output height, at most the rotated source height
+	 */
+	public static void rotateAndScale(byte[] src, int width, int height, int rotationDegrees,
+			boolean mirror, byte[] dst, int dstWidth, int dstHeight) {
+		if (src == dst) {
+			throw new IllegalArgumentException("In-place scaling is not supported");
+		}
+		int imageSize = width * height;
+		scalePlane(src, 0, width, height, 1, rotationDegrees, mirror, dst, 0, dstWidth, dstHeight);
+		scalePlane(src, imageSize, width / 2, height / 2, 2, rotationDegrees, mirror,
+				dst, dstWidth * dstHeight, dstWidth / 2, dstHeight / 2);
+	}
+
+	private static void scalePlane(byte[] src, int srcOffset, int width, int height, int elementSize,
+			int rotationDegrees, boolean mirror, byte[] dst, int dstOffset, int dstWidth,
+			int dstHeight) {
+		// Size of the plane after rotation, in which the output footprints are laid out.
+		int rotatedWidth = Nv21Rotator.rotatedWidth(width, height, rotationDegrees);
+		int rotatedHeight = Nv21Rotator.rotatedHeight(width, height, rotationDegrees);
+		int origin = Nv21Rotator.origin(width, height, rotationDegrees, mirror);
+		int stepX = Nv21Rotator.stepX(width, rotationDegrees, mirror);
+		int stepY = Nv21Rotator.stepY(width, rotationDegrees);
+
+		int outPos = dstOffset;
+		int y1 = 0;
+		for (int y = 0; y < dstHeight; y++) {
+			int y0 = y1;
+			y1 = Math.max(y0 + 1, (y + 1) * rotatedHeight / dstHeight);
+			int x1 = 0;
+			for (int x = 0; x < dstWidth; x++) {
+				int x0 = x1;
+				x1 = Math.max(x0 + 1, (x + 1) * rotatedWidth / dstWidth);
+				int count = (x1 - x0) * (y1 - y0);
+				int rowStart = origin + x0 * stepX + y0 * stepY;
+				if (elementSize == 1) {
+					int sum = 0;
+					for (int ry = y0; ry < y1; ry++) {
+						int pos = srcOffset + rowStart;
+						for (int rx = x0; rx < x1; rx++) {
+							sum += src[pos] & 0xFF;
+							pos += stepX;
+						}
+						rowStart += stepY;
+					}
+					dst[outPos++] = (byte) ((sum + count / 2) / count);
+				} else {
+					int sumV = 0;
+					int sumU = 0;
+					for (int ry = y0; ry < y1; ry++) {
+						int pos = srcOffset + 2 * rowStart;
+						for (int rx = x0; rx < x1; rx++) {
+							sumV += src[pos] & 0xFF;
+							sumU += src[pos + 1] & 0xFF;
+							pos += 2 * stepX;
+						}
+						rowStart += stepY;
+					}
+					dst[outPos++] = (byte) ((sumV + count / 2) / count);
+					dst[outPos++] = (byte) ((sumU + count / 2) / count);
+				}
+			}
+		}
+	}
+
+	private static int scaleEdge(int edge, int longEdge, int targetLongEdge) {
+		if (targetLongEdge <= 0 || longEdge <= targetLongEdge) {
+			return edge;
+		}
+		return Math.max(2, (int) ((long) edge * targetLongEdge / longEdge) & ~1);
+	}
+}
@@ -0,0 +1,154 @@
+package org.vay.sampleapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import ai.vay.client.api.Analyser;
+import ai.vay.client.api.Listener;
+import ai.vay.client.api.events.ErrorEvent;
+import ai.vay.client.api.events.FeedbackEvent;
+import ai.vay.client.api.events.PoseEvent;
+import ai.vay.client.api.events.ReadyEvent;
+import ai.vay.client.api.events.RepetitionEvent;
+import ai.vay.client.api.events.SessionQualityChangedEvent;
+import ai.vay.client.api.events.SessionStateChangedEvent;
+import ai.vay.client.impl.AnalyserFactory;
+import ai.vay.client.model.motion.Feedback;
+
+/** Runs a {@link BatchAnalysis} of a recorded workout against a streaming analyser, e.g. to
+ * review a session later or to compare analyser versions on the same recordings. Blocks the
+ * calling thread until the whole recording is analysed, so call it off the UI thread. **/
+public final class OfflineAnalyser {
+	private final String url;
+	private final String apiKey;
+	private FrameEncoder frameEncoder = new JpegFrameEncoder();
+	private int targetLongEdge = FrameStreamer.DEFAULT_TARGET_LONG_EDGE;
+	// Nothing else encodes, but a core is left to decoding and sending.
+	private int encoderThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+	private int maxInFlight = FrameStreamer.DEFAULT_MAX_IN_FLIGHT;
+
+	public OfflineAnalyser(String url, String apiKey) {
+		this.url = url;
+		this.apiKey = apiKey;
+	}
+
+	/** Selects how frames are encoded, like {@link AnalyserWrapper#setFrameEncoder}. **/
+	public void setFrameEncoder(FrameEncoder frameEncoder) {
+		this.frameEncoder = frameEncoder;
+	}
+
+	/** Sets the maximal length of the longer edge of sent frames, 0 sends them at source
+	 * resolution. **/
+	public void setTargetLongEdge(int targetLongEdge) {
+		this.targetLongEdge = targetLongEdge;
+	}
+
+	public void setEncoderThreads(int encoderThreads) {
+		this.encoderThreads = encoderThreads;
+	}
+
+	/** Sets how many sent frames may await their pose at once. More hide more of the round trip,
+	 * as long as the analyser keeps up. **/
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+
+	/** Opens a recording: a directory of {@link FrameRecorder} files, see
+	 * {@link RecordingDirectorySource}, a single such file, or a video file. **/
+	public static YuvFrameSource openSource(File recording) throws IOException {
+		if (recording.isDirectory()) {
+			return new RecordingDirectorySource(recording);
+		}
+		if (recording.getName().endsWith(RecordingDirectorySource.EXTENSION)) {
+			return new FrameRecordingReader(recording);
+		}
+		return new VideoFrameSource(recording);
+	}
+
+	/**
+	 * Analyses a recording as the given exercise and writes the poses and repetitions to the
+	 * output file, see {@link PoseColumnWriter}.
+	 *
+	 * @throws IOException if the recording could not be read, the output could not be written or
+	 *     the analyser failed
+	 */
+	public BatchAnalysis.Result analyse(File recording, int exerciseKey, File output)
+			throws IOException, InterruptedException {
+		BatchListener listener = new BatchListener();
+		Analyser analyser = AnalyserFactory.createStreamingAnalyser(url, apiKey, exerciseKey,
+				listener);
+		try (YuvFrameSource source = openSource(recording);
+				PoseColumnWriter writer = new PoseColumnWriter(output, PoseGraphic.pointCount())) {
+			BatchAnalysis batch = new BatchAnalysis(source, frameEncoder, targetLongEdge,
+					(frameId, bytes) -> analyser.enqueueInput(AnalyserFactory.createInput(bytes)), writer,
+					encoderThreads, maxInFlight);
+			listener.batch = batch;
+			return batch.run();
+		} finally {
+			analyser.stop();
+		}
+	}
+
+	/** Passes the poses, repetitions and failures of the analyser on to the batch analysis. **/
+	private static final class BatchListener implements Listener {
+		// Set before the first frame is sent, so no answer is missed.
+		volatile BatchAnalysis batch;
+		// Keypoints of the current pose in sent image coordinates, reused for every pose.
+		private final float[] coordinates = new float[2 * PoseGraphic.pointCount()];
+
+		@Override
+		public void onReady(ReadyEvent event) {
+		}
+
+		@Override
+		public void onPose(PoseEvent event) {
+			BatchAnalysis current = batch;
+			if (current != null) {
+				long mask = PoseGraphic.toCoordinates(event.getPose().getPoints(), 1f, 1f, 0f,
+						0f, coordinates);
+				current.onPose(coordinates, mask);
+			}
+		}
+
+		@Override
+		public void onFeedback(FeedbackEvent event) {
+		}
+
+		@Override
+		public void onRepetition(RepetitionEvent event) {
+			BatchAnalysis current = batch;
+			if (current != null) {
+				List<Feedback> feedback = event.getRepetition().getFeedbacks();
+				current.onRepetition(feedback.isEmpty(),
+						feedback.isEmpty() ? null : feedback.get(0).getMessages().get(0));
+			}
+		}
+
+		/** The analyser only stops on its own if the connection broke. **/
+		@Override
+		public void onStop() {
+			BatchAnalysis current = batch;
+			if (current != null) {
+				current.fail(new IOException("The analyser stopped"));
+			}
+		}
+
+		@Override
+		public void onError(ErrorEvent event) {
+			BatchAnalysis current = batch;
+			if (current != null) {
+				current.fail(new IOException(event.getErrorType().name() + ": "
+						+ event.getErrorText()));
+			}
+		}
+
+		@Override
+		public void onSessionStateChanged(SessionStateChangedEvent event) {
+		}
+
+		@Override
+		public void onSessionQualityChanged(SessionQualityChangedEvent event) {
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package org.vay.sampleapp;
+
+/** Frames that have taken their slot in the in-flight window but have not been handed to the
+ * sink yet, oldest first. Each entry holds the frame ID, the encoded bytes, the capture time and
+ * when the slot was taken. Adding to a full queue replaces its oldest frame. Not thread-safe. **/
+final class OutgoingFrames {
+	private final long[] frameIds;
+	private final byte[][] bytes;
+	private final long[] captureNanos;
+	private final long[] reservedNanos;
+	private int head = 0;
+	private int size = 0;
+
+	OutgoingFrames(int capacity) {
+		frameIds = new long[capacity];
+		bytes = new byte[capacity][];
+		captureNanos = new long[capacity];
+		reservedNanos = new long[capacity];
+	}
+
+	/** Adds a frame. Returns whether the oldest frame was replaced to make room for it. **/
+	boolean add(long frameId, byte[] frameBytes, long captureNanos, long reservedNanos) {
+		boolean replaced = size == frameIds.length;
+		if (replaced) {
+			removeOldest();
+		}
+		int index = (head + size) % frameIds.length;
+		frameIds[index] = frameId;
+		bytes[index] = frameBytes;
+		this.captureNanos[index] = captureNanos;
+		this.reservedNanos[index] = reservedNanos;
+		size++;
+		return replaced;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/** Returns the ID of the oldest frame. Must not be called when empty. **/
+	long oldestFrameId() {
+		return frameIds[head];
+	}
+
+	/** Returns the bytes of the oldest frame. Must not be called when empty. **/
+	byte[] oldestBytes() {
+		return bytes[head];
+	}
+
+	/** Returns the capture time of the oldest frame. Must not be called when empty. **/
+	long oldestCaptureNanos() {
+		return captureNanos[head];
+	}
+
+	/** Returns when the oldest frame took its window slot. Must not be called when empty. **/
+	long oldestReservedNanos() {
+		return reservedNanos[head];
+	}
+
+	void removeOldest() {
+		// Drops the reference, so the bytes can be collected.
+		bytes[head] = null;
+		head = (head + 1) % frameIds.length;
+		size--;
+	}
+
+	void clear() {
+		while (size > 0) {
+			removeOldest();
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package org.vay.sampleapp;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Reads a file written by a {@link PoseColumnWriter} into memory, column by column, e.g. to
+ * review the poses and repetitions of a batch analysis. **/
+public final class PoseColumnReader {
+	private final int pointCount;
+	private int poseCount = 0;
+	private int[] poseFrames = new int[PoseColumnWriter.ROWS_PER_BLOCK];
+	private long[] poseMicros = new long[PoseColumnWriter.ROWS_PER_BLOCK];
+	private long[] poseMasks = new long[PoseColumnWriter.ROWS_PER_BLOCK];
+	// x and y of point i of pose row r at (r * pointCount + i) * 2, 0 if not accurate.
+	private float[] poseCoordinates;
+	private int repetitionCount = 0;
+	private int[] repetitionFrames = new int[16];
+	private boolean[] repetitionCorrect = new boolean[16];
+	private final List<String> repetitionFeedback = new ArrayList<>();
+
+	public PoseColumnReader(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != PoseColumnWriter.MAGIC) {
+				throw new IOException("Not a pose column file: " + file);
+			}
+			int version = in.readInt();
+			if (version != PoseColumnWriter.VERSION) {
+				throw new IOException("Unsupported pose column file version " + version);
+			}
+			pointCount = in.readInt();
+			poseCoordinates = new float[PoseColumnWriter.ROWS_PER_BLOCK * 2 * pointCount];
+			while (true) {
+				byte kind = in.readByte();
+				if (kind == PoseColumnWriter.BLOCK_END) {
+					break;
+				} else if (kind == PoseColumnWriter.BLOCK_POSES) {
+					readPoses(in, in.readInt());
+				} else if (kind == PoseColumnWriter.BLOCK_REPETITIONS) {
+					readRepetitions(in, in.readInt());
+				} else {
+					throw new IOException("Unknown block kind " + kind);
+				}
+			}
+		}
+	}
+
+	public int getPointCount() {
+		return pointCount;
+	}
+
+	public int getPoseCount() {
+		return poseCount;
+	}
+
+	public int getPoseFrame(int row) {
+		return poseFrames[row];
+	}
+
+	public long getPoseMicros(int row) {
+		return poseMicros[row];
+	}
+
+	/** Returns the mask of the accurate points of a pose, bit i for the point with ordinal i. **/
+	public long getPoseMask(int row) {
+		return poseMasks[row];
+	}
+
+	/** Returns the x coordinate of a point of a pose, 0 if it is not accurate. **/
+	public float getX(int row, int point) {
+		return poseCoordinates[(row * pointCount + point) * 2];
+	}
+
+	/** Returns the y coordinate of a point of a pose, 0 if it is not accurate. **/
+	public float getY(int row, int point) {
+		return poseCoordinates[(row * pointCount + point) * 2 + 1];
+	}
+
+	public int getRepetitionCount() {
+		return repetitionCount;
+	}
+
+	/** Returns the frame index of the last pose before a repetition. **/
+	public int getRepetitionFrame(int row) {
+		return repetitionFrames[row];
+	}
+
+	public boolean isRepetitionCorrect(int row) {
+		return repetitionCorrect[row];
+	}
+
+	/** Returns the first correction of an incorrect repetition, empty for a correct one. **/
+	public String getRepetitionFeedback(int row) {
+		return repetitionFeedback.get(row);
+	}
+
+	private void readPoses(DataInputStream in, int rows) throws IOException {
+		int first = poseCount;
+		int total = first + rows;
+		if (total > poseFrames.length) {
+			int capacity = Math.max(total, 2 * poseFrames.length);
+			poseFrames = Arrays.copyOf(poseFrames, capacity);
+			poseMicros = Arrays.copyOf(poseMicros, capacity);
+			poseMasks = Arrays.copyOf(poseMasks, capacity);
+			poseCoordinates = Arrays.copyOf(poseCoordinates, capacity * 2 * pointCount);
+		}
+		long previous = 0;
+		for (int row = first; row < total; row++) {
+			previous += unzigzag(readVarLong(in));
+			poseFrames[row] = (int) previous;
+		}
+		previous = 0;
+		for (int row = first; row < total; row++) {
+			previous += unzigzag(readVarLong(in));
+			poseMicros[row] = previous;
+		}
+		for (int row = first; row < total; row++) {
+			poseMasks[row] = readVarLong(in);
+		}
+		for (int point = 0; point < pointCount; point++) {
+			long bit = 1L << point;
+			for (int row = first; row < total; row++) {
+				if ((poseMasks[row] & bit) != 0) {
+					int offset = (row * pointCount + point) * 2;
+					poseCoordinates[offset] = in.readFloat();
+					poseCoordinates[offset + 1] = in.readFloat();
+				}
+			}
+		}
+		poseCount = total;
+	}
+
+	private void readRepetitions(DataInputStream in, int rows) throws IOException {
+		int first = repetitionCount;
+		int total = first + rows;
+		if (total > repetitionFrames.length) {
+			int capacity = Math.max(total, 2 * repetitionFrames.length);
+			repetitionFrames = Arrays.copyOf(repetitionFrames, capacity);
+			repetitionCorrect = Arrays.copyOf(repetitionCorrect, capacity);
+		}
+		long previous = 0;
+		for (int row = first; row < total; row++) {
+			previous += unzigzag(readVarLong(in));
+			repetitionFrames[row] = (int) previous;
+		}
+		for (int row = first; row < total; row++) {
+			repetitionCorrect[row] = in.readBoolean();
+		}
+		for (int row = first; row < total; row++) {
+			repetitionFeedback.add(in.readUTF());
+		}
+		repetitionCount = total;
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+}
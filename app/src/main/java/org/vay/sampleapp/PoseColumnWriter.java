@@ -0,0 +1,188 @@
+package org.vay.sampleapp;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Writes the poses and repetitions of an analysed recording to a compact columnar file, to be
+ * read back with a {@link PoseColumnReader}, e.g. to review a batch analysis.
+ *
+ * <p>The file starts with {@link #MAGIC}, {@link #VERSION} and the number of points per pose. The
+ * rows follow in blocks of up to {@link #ROWS_PER_BLOCK}, each a kind byte, its row count and its
+ * columns one after the other; a 0 byte ends the file. A pose block holds the frame indices and
+ * the capture times in microseconds, both as zigzag varint deltas from the previous row, the
+ * masks of accurate points as varints, and then per point the x and y floats of only the rows in
+ * which the point is accurate. A repetition block holds the frame indices of the poses the
+ * repetitions were reported after, as deltas, whether each was correct, and its feedback. Blocks
+ * are independent, deltas start from 0. Not thread safe. **/
+public final class PoseColumnWriter implements Closeable {
+	static final int MAGIC = 0x56415950; // "VAYP"
+	static final int VERSION = 1;
+	static final int ROWS_PER_BLOCK = 1024;
+	static final byte BLOCK_END = 0;
+	static final byte BLOCK_POSES = 1;
+	static final byte BLOCK_REPETITIONS = 2;
+
+	private final DataOutputStream out;
+	private final int pointCount;
+	// The pose rows of the current block, column by column.
+	private final int[] poseFrames = new int[ROWS_PER_BLOCK];
+	private final long[] poseMicros = new long[ROWS_PER_BLOCK];
+	private final long[] poseMasks = new long[ROWS_PER_BLOCK];
+	private final float[] poseCoordinates;
+	private int poseRows = 0;
+	// The repetition rows of the current block.
+	private final int[] repetitionFrames = new int[ROWS_PER_BLOCK];
+	private final boolean[] repetitionCorrect = new boolean[ROWS_PER_BLOCK];
+	private final List<String> repetitionFeedback = new ArrayList<>();
+	private int poseCount = 0;
+	private int repetitionCount = 0;
+
+	/**
+	 * @param pointCount number of points per pose, at most 64 as the mask is a long
+	 */
+	public PoseColumnWriter(File file, int pointCount) throws IOException {
+		if (pointCount < 1 || pointCount > 64) {
+			throw new IllegalArgumentException("pointCount must be in 1..64");
+		}
+		this.pointCount = pointCount;
+		poseCoordinates = new float[ROWS_PER_BLOCK * 2 * pointCount];
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(pointCount);
+	}
+
+	/**
+	 * Appends a pose.
+	 *
+	 * @param frameIndex index of the frame in the recording
+	 * @param timeMicros capture time of the frame
+	 * @param coordinates x and y of the point with ordinal i at 2 * i and 2 * i + 1, see
+	 *     {@link PoseGraphic#toCoordinates}
+	 * @param mask bit i set if the point with ordinal i is accurate, only those are stored
+	 */
+	public void writePose(int frameIndex, long timeMicros, float[] coordinates, long mask)
+			throws IOException {
+		poseFrames[poseRows] = frameIndex;
+		poseMicros[poseRows] = timeMicros;
+		poseMasks[poseRows] = mask;
+		System.arraycopy(coordinates, 0, poseCoordinates, poseRows * 2 * pointCount,
+				2 * pointCount);
+		poseRows++;
+		poseCount++;
+		if (poseRows == ROWS_PER_BLOCK) {
+			flushPoses();
+		}
+	}
+
+	/**
+	 * Appends a repetition.
+	 *
+	 * @param frameIndex index of the frame of the last pose before the repetition
+	 * @param feedback the first correction if the repetition was incorrect, otherwise ignored
+	 */
+	public void writeRepetition(int frameIndex, boolean correct, String feedback)
+			throws IOException {
+		int row = repetitionFeedback.size();
+		repetitionFrames[row] = frameIndex;
+		repetitionCorrect[row] = correct;
+		repetitionFeedback.add(correct || feedback == null ? "" : feedback);
+		repetitionCount++;
+		if (repetitionFeedback.size() == ROWS_PER_BLOCK) {
+			flushRepetitions();
+		}
+	}
+
+	public int getPoseCount() {
+		return poseCount;
+	}
+
+	public int getRepetitionCount() {
+		return repetitionCount;
+	}
+
+	/** Writes the remaining rows and the end of the file. **/
+	@Override
+	public void close() throws IOException {
+		try {
+			flushPoses();
+			flushRepetitions();
+			out.writeByte(BLOCK_END);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void flushPoses() throws IOException {
+		if (poseRows == 0) {
+			return;
+		}
+		out.writeByte(BLOCK_POSES);
+		out.writeInt(poseRows);
+		long previous = 0;
+		for (int row = 0; row < poseRows; row++) {
+			writeVarLong(zigzag(poseFrames[row] - previous));
+			previous = poseFrames[row];
+		}
+		previous = 0;
+		for (int row = 0; row < poseRows; row++) {
+			writeVarLong(zigzag(poseMicros[row] - previous));
+			previous = poseMicros[row];
+		}
+		for (int row = 0; row < poseRows; row++) {
+			writeVarLong(poseMasks[row]);
+		}
+		for (int point = 0; point < pointCount; point++) {
+			long bit = 1L << point;
+			for (int row = 0; row < poseRows; row++) {
+				if ((poseMasks[row] & bit) != 0) {
+					int offset = (row * pointCount + point) * 2;
+					out.writeFloat(poseCoordinates[offset]);
+					out.writeFloat(poseCoordinates[offset + 1]);
+				}
+			}
+		}
+		poseRows = 0;
+	}
+
+	private void flushRepetitions() throws IOException {
+		int rows = repetitionFeedback.size();
+		if (rows == 0) {
+			return;
+		}
+		out.writeByte(BLOCK_REPETITIONS);
+		out.writeInt(rows);
+		long previous = 0;
+		for (int row = 0; row < rows; row++) {
+			writeVarLong(zigzag(repetitionFrames[row] - previous));
+			previous = repetitionFrames[row];
+		}
+		for (int row = 0; row < rows; row++) {
+			out.writeBoolean(repetitionCorrect[row]);
+		}
+		for (String feedback : repetitionFeedback) {
+			out.writeUTF(feedback);
+		}
+		repetitionFeedback.clear();
+	}
+
+	/** Maps signed values to unsigned ones with small magnitudes staying small. **/
+	static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/** Writes 7 bits per byte, low bits first, the high bit set on all but the last byte. **/
+	private void writeVarLong(long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+}
@@ -3,81 +3,169 @@ package org.vay.sampleapp;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.PointF;
 
-import java.util.AbstractMap;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 
 import ai.vay.client.model.human.BodyPointType;
 import ai.vay.client.model.human.Point;
 
-/** Custom Graphic class to visualize and connect the received points, rendering a skeleton. **/
+/** Custom Graphic class to visualize and connect the received points, rendering a skeleton.
+ * A single instance lives as long as its overlay and is updated in place for every pose: the
+ * keypoints are kept in a primitive array with a bitmask of the accurate ones, and bones are
+ * drawn in one batch, so neither updating nor drawing allocates. Poses are handed from the
+ * listener thread to the UI thread through a {@link PoseSnapshotBuffer}, so neither blocks.
+ *
+ * <p>Poses are smoothed by a {@link PoseSmoother} and drawn at display rate: while the skeleton
+ * moves, the overlay redraws on every {@code Choreographer} frame and the positions are
+ * interpolated for the frame time. **/
 public class PoseGraphic extends GraphicOverlay.Graphic {
 	private static final float DOT_RADIUS = 8.0f;
 	private static final float STROKE_WIDTH = 10.0f;
-	private final Paint whitePaint;
-	private final Map<BodyPointType, Point> points;
-	// Defines the connections between the different points to draw the skeleton.
-	private final List<Map.Entry<BodyPointType, BodyPointType>> lineConnections = Arrays.asList(
-			new AbstractMap.SimpleEntry<>(BodyPointType.NOSE, BodyPointType.NECK),
-			new AbstractMap.SimpleEntry<>(BodyPointType.NECK, BodyPointType.LEFT_SHOULDER),
-			new AbstractMap.SimpleEntry<>(BodyPointType.LEFT_SHOULDER, BodyPointType.LEFT_ELBOW),
-			new AbstractMap.SimpleEntry<>(BodyPointType.LEFT_ELBOW, BodyPointType.LEFT_WRIST),
-			new AbstractMap.SimpleEntry<>(BodyPointType.NECK, BodyPointType.RIGHT_SHOULDER),
-			new AbstractMap.SimpleEntry<>(BodyPointType.RIGHT_SHOULDER, BodyPointType.RIGHT_ELBOW),
-			new AbstractMap.SimpleEntry<>(BodyPointType.RIGHT_ELBOW, BodyPointType.RIGHT_WRIST),
-			new AbstractMap.SimpleEntry<>(BodyPointType.NECK, BodyPointType.MID_HIP),
-			new AbstractMap.SimpleEntry<>(BodyPointType.LEFT_HIP, BodyPointType.MID_HIP),
-			new AbstractMap.SimpleEntry<>(BodyPointType.RIGHT_HIP, BodyPointType.MID_HIP),
-			new AbstractMap.SimpleEntry<>(BodyPointType.LEFT_HIP, BodyPointType.LEFT_KNEE),
-			new AbstractMap.SimpleEntry<>(BodyPointType.LEFT_KNEE, BodyPointType.LEFT_ANKLE),
-			new AbstractMap.SimpleEntry<>(BodyPointType.RIGHT_HIP, BodyPointType.RIGHT_KNEE),
-			new AbstractMap.SimpleEntry<>(BodyPointType.RIGHT_KNEE, BodyPointType.RIGHT_ANKLE)
-	);
+	private static final BodyPointType[] POINT_TYPES = BodyPointType.values();
+	// Defines the connections between the different points to draw the skeleton, as pairs of
+	// BodyPointType ordinals.
+	private static final int[] BONES = {
+			BodyPointType.NOSE.ordinal(), BodyPointType.NECK.ordinal(),
+			BodyPointType.NECK.ordinal(), BodyPointType.LEFT_SHOULDER.ordinal(),
+			BodyPointType.LEFT_SHOULDER.ordinal(), BodyPointType.LEFT_ELBOW.ordinal(),
+			BodyPointType.LEFT_ELBOW.ordinal(), BodyPointType.LEFT_WRIST.ordinal(),
+			BodyPointType.NECK.ordinal(), BodyPointType.RIGHT_SHOULDER.ordinal(),
+			BodyPointType.RIGHT_SHOULDER.ordinal(), BodyPointType.RIGHT_ELBOW.ordinal(),
+			BodyPointType.RIGHT_ELBOW.ordinal(), BodyPointType.RIGHT_WRIST.ordinal(),
+			BodyPointType.NECK.ordinal(), BodyPointType.MID_HIP.ordinal(),
+			BodyPointType.LEFT_HIP.ordinal(), BodyPointType.MID_HIP.ordinal(),
+			BodyPointType.RIGHT_HIP.ordinal(), BodyPointType.MID_HIP.ordinal(),
+			BodyPointType.LEFT_HIP.ordinal(), BodyPointType.LEFT_KNEE.ordinal(),
+			BodyPointType.LEFT_KNEE.ordinal(), BodyPointType.LEFT_ANKLE.ordinal(),
+			BodyPointType.RIGHT_HIP.ordinal(), BodyPointType.RIGHT_KNEE.ordinal(),
+			BodyPointType.RIGHT_KNEE.ordinal(), BodyPointType.RIGHT_ANKLE.ordinal()
+	};
 
-	public PoseGraphic(GraphicOverlay overlay,
-					   Map<BodyPointType, Point> pointsMap) {
+	private final Paint linePaint;
+	private final Paint dotPaint;
+	// Snapshots of x and y image coordinates of every point, indexed by 2 * ordinal.
+	private final PoseSnapshotBuffer snapshots = new PoseSnapshotBuffer(POINT_TYPES.length);
+	// Writer side: received coordinates before smoothing, and the smoother.
+	private final float[] received = new float[2 * POINT_TYPES.length];
+	private final PoseSmoother smoother = new PoseSmoother(POINT_TYPES.length);
+	// Reader side: interpolated image coordinates of the current draw.
+	private final float[] positions = new float[2 * POINT_TYPES.length];
+	// View coordinates handed to the canvas, reused for every draw.
+	private final float[] dotBuffer = new float[2 * POINT_TYPES.length];
+	private final float[] lineBuffer = new float[2 * BONES.length];
+	// Records the first draw of every pose, if set. The sequence is only accessed when drawing.
+	private final FrameTracer tracer;
+	private long tracedSequence = 0;
+
+	public PoseGraphic(GraphicOverlay overlay) {
+		this(overlay, null);
+	}
+
+	/** Creates a graphic recording the {@link FrameTracer.Stage#DRAW} and
+	 * {@link FrameTracer.Stage#END_TO_END} stages of every pose to the given tracer. **/
+	public PoseGraphic(GraphicOverlay overlay, FrameTracer tracer) {
 		super(overlay);
-		this.points = pointsMap;
-		whitePaint = new Paint();
-		whitePaint.setStrokeWidth(STROKE_WIDTH);
-		whitePaint.setColor(Color.WHITE);
+		this.tracer = tracer;
+		linePaint = new Paint();
+		linePaint.setStrokeWidth(STROKE_WIDTH);
+		linePaint.setColor(Color.WHITE);
+		dotPaint = new Paint();
+		dotPaint.setStrokeWidth(2 * DOT_RADIUS);
+		dotPaint.setStrokeCap(Paint.Cap.ROUND);
+		dotPaint.setColor(Color.WHITE);
+	}
+
+	/** Returns the number of points of a pose, the length of its coordinate arrays divided by 2. **/
+	public static int pointCount() {
+		return POINT_TYPES.length;
+	}
+
+	/**
+	 * Maps received points to overlay image coordinates.
+	 *
+	 * @param points points of a pose, in coordinates of the sent image
+	 * @param scaleX factor from sent image to overlay image x coordinates
+	 * @param scaleY factor from sent image to overlay image y coordinates
+	 * @param offsetX overlay image x coordinate of the left edge of the sent image
+	 * @param offsetY overlay image y coordinate of the top edge of the sent image
+	 * @param out receives x and y of the point with ordinal i at 2 * i and 2 * i + 1
+	 * @return mask with bit i set if the point with ordinal i is accurate
+	 */
+	public static long toCoordinates(Map<BodyPointType, Point> points, float scaleX,
+			float scaleY, float offsetX, float offsetY, float[] out) {
+		long mask = 0;
+		for (int i = 0; i < POINT_TYPES.length; i++) {
+			Point point = points.get(POINT_TYPES[i]);
+			if (point == null || !point.isAccurate()) {
+				continue;
+			}
+			out[2 * i] = offsetX + scaleX * (float) point.getX();
+			out[2 * i + 1] = offsetY + scaleY * (float) point.getY();
+			mask |= 1L << i;
+		}
+		return mask;
+	}
+
+	/** Publishes a pose in overlay image coordinates, see {@link #toCoordinates}, replacing the
+	 * previous pose. The coordinates are not modified. Must always be called from the same thread.
+	 *
+	 * @param captureNanos capture time of the frame the points were computed from
+	 * @param nowNanos {@code System.nanoTime()} at which the points were received
+	 */
+	public void update(float[] coordinates, long mask, long captureNanos, long nowNanos) {
+		System.arraycopy(coordinates, 0, received, 0, received.length);
+		smoother.update(received, mask, captureNanos, nowNanos, snapshots.beginWrite());
+		snapshots.publish();
 	}
 
 	@Override
 	public void draw(Canvas canvas) {
-		drawPoints(canvas);
-		drawLines(canvas);
+		long startNanos = System.nanoTime();
+		PoseSnapshotBuffer.Snapshot snapshot = snapshots.latest();
+		PoseSmoother.positionsAt(snapshot, getFrameTimeNanos(), positions);
+		drawPoints(canvas, snapshot);
+		drawLines(canvas, snapshot);
+		if (tracer != null && snapshot.sequence != tracedSequence) {
+			tracedSequence = snapshot.sequence;
+			long endNanos = System.nanoTime();
+			tracer.record(FrameTracer.Stage.DRAW, snapshot.captureNanos, startNanos, endNanos);
+			tracer.record(FrameTracer.Stage.END_TO_END, snapshot.captureNanos,
+					snapshot.captureNanos, endNanos);
+		}
+	}
+
+	@Override
+	public boolean isAnimating(long frameTimeNanos) {
+		return PoseSmoother.isMoving(snapshots.latest(), frameTimeNanos);
 	}
 
-	private void drawPoints(Canvas canvas) {
-		for (Point point : points.values()) {
-			if (point.isAccurate()) {
-				// Draw circle needs the coordinates of its center and its radius combined with a paint.
-				canvas.drawCircle(
-						translateX((float) point.getX()), translateY((float) point.getY()),
-						DOT_RADIUS, whitePaint);
+	private void drawPoints(Canvas canvas, PoseSnapshotBuffer.Snapshot snapshot) {
+		float[] coordinates = positions;
+		int count = 0;
+		for (int i = 0; i < POINT_TYPES.length; i++) {
+			if (snapshot.isAccurate(i)) {
+				dotBuffer[count++] = translateX(coordinates[2 * i]);
+				dotBuffer[count++] = translateY(coordinates[2 * i + 1]);
 			}
 		}
+		// Round caps turn the points into dots of DOT_RADIUS.
+		canvas.drawPoints(dotBuffer, 0, count, dotPaint);
 	}
 
-	private void drawLines(Canvas canvas) {
-		for (Map.Entry<BodyPointType, BodyPointType> entry : lineConnections) {
-			Point startPoint = points.get(entry.getKey());
-			Point endPoint = points.get(entry.getValue());
-			if (startPoint == null || endPoint == null ||
-					!startPoint.isAccurate() || !endPoint.isAccurate()) {
+	private void drawLines(Canvas canvas, PoseSnapshotBuffer.Snapshot snapshot) {
+		float[] coordinates = positions;
+		int count = 0;
+		for (int i = 0; i < BONES.length; i += 2) {
+			int start = BONES[i];
+			int end = BONES[i + 1];
+			if (!snapshot.isAccurate(start) || !snapshot.isAccurate(end)) {
 				continue;
 			}
-			PointF start = new PointF(
-					translateX((float) startPoint.getX()),
-					translateY((float) startPoint.getY()));
-			PointF end = new PointF(
-					translateX((float) endPoint.getX()),
-					translateY((float) endPoint.getY()));
-			canvas.drawLine(start.x, start.y, end.x, end.y, whitePaint);
+			lineBuffer[count++] = translateX(coordinates[2 * start]);
+			lineBuffer[count++] = translateY(coordinates[2 * start + 1]);
+			lineBuffer[count++] = translateX(coordinates[2 * end]);
+			lineBuffer[count++] = translateY(coordinates[2 * end + 1]);
 		}
+		canvas.drawLines(lineBuffer, 0, count, linePaint);
 	}
 }
@@ -0,0 +1,103 @@
+package org.vay.sampleapp;
+
+/** Smooths poses arriving at server rate and spreads each change over the time until the next
+ * pose is expected, so the skeleton can be drawn at display rate without stuttering.
+ *
+ * <p>On the writer side, every pose is filtered with a {@link KeypointFilter} and published as a
+ * movement from the currently displayed position to the filtered one, lasting the smoothed
+ * interval between captured frames. On the reader side, {@link #positionsAt} interpolates that
+ * movement for the time of the display frame, continuing it a little beyond its end if the next
+ * pose is late. Both sides work on primitive arrays and do not allocate. **/
+public final class PoseSmoother {
+	private static final long MIN_INTERVAL_NANOS = 16_000_000L;
+	private static final long MAX_INTERVAL_NANOS = 250_000_000L;
+	private static final long DEFAULT_INTERVAL_NANOS = 66_000_000L;
+	// Weight of a new sample in the smoothed pose interval.
+	private static final float INTERVAL_SMOOTHING = 0.2f;
+	// How far a movement is continued beyond its end, as a share of its duration.
+	private static final float MAX_EXTRAPOLATION = 0.5f;
+
+	private final KeypointFilter filter;
+	// Writer-side copy of the last published movement, to know where the skeleton is displayed.
+	private final float[] start;
+	private final float[] target;
+	private long mask = 0;
+	private long startNanos;
+	private long durationNanos = DEFAULT_INTERVAL_NANOS;
+	private long lastCaptureNanos;
+	private boolean hasPose = false;
+
+	public PoseSmoother(int pointCount) {
+		filter = new KeypointFilter(pointCount);
+		start = new float[2 * pointCount];
+		target = new float[2 * pointCount];
+	}
+
+	/**
+	 * Filters a new pose and writes the movement towards it into a snapshot.
+	 *
+	 * @param coordinates x and y of point i at 2 * i and 2 * i + 1, filtered in place
+	 * @param pointMask bit i is set if point i is accurate
+	 * @param captureNanos capture time of the frame the pose was computed from
+	 * @param nowNanos current time, at which the movement starts
+	 * @param out snapshot to fill; its coordinates are the target positions
+	 */
+	public void update(float[] coordinates, long pointMask, long captureNanos, long nowNanos,
+			PoseSnapshotBuffer.Snapshot out) {
+		filter.filter(coordinates, pointMask, captureNanos);
+		if (hasPose) {
+			// Start from where the skeleton is displayed right now, so it never jumps.
+			interpolate(start, target, mask, startNanos, durationNanos, nowNanos, start);
+			long interval = Math.max(MIN_INTERVAL_NANOS,
+					Math.min(MAX_INTERVAL_NANOS, captureNanos - lastCaptureNanos));
+			durationNanos += (long) (INTERVAL_SMOOTHING * (interval - durationNanos));
+		}
+		for (int point = 0; 2 * point < coordinates.length; point++) {
+			long bit = 1L << point;
+			if ((pointMask & bit) != 0 && (!hasPose || (mask & bit) == 0)) {
+				// Newly appearing points start at their target.
+				start[2 * point] = coordinates[2 * point];
+				start[2 * point + 1] = coordinates[2 * point + 1];
+			}
+		}
+		System.arraycopy(coordinates, 0, target, 0, coordinates.length);
+		mask = pointMask;
+		startNanos = nowNanos;
+		lastCaptureNanos = captureNanos;
+		hasPose = true;
+
+		System.arraycopy(start, 0, out.startCoordinates, 0, start.length);
+		System.arraycopy(target, 0, out.coordinates, 0, target.length);
+		out.accurateMask = pointMask;
+		out.captureNanos = captureNanos;
+		out.startNanos = startNanos;
+		out.durationNanos = durationNanos;
+	}
+
+	/** Writes the interpolated positions of a snapshot at the given time into {@code out}. **/
+	public static void positionsAt(PoseSnapshotBuffer.Snapshot snapshot, long nowNanos,
+			float[] out) {
+		interpolate(snapshot.startCoordinates, snapshot.coordinates, snapshot.accurateMask,
+				snapshot.startNanos, snapshot.durationNanos, nowNanos, out);
+	}
+
+	/** Returns whether the snapshot's movement is still in progress at the given time. **/
+	public static boolean isMoving(PoseSnapshotBuffer.Snapshot snapshot, long nowNanos) {
+		return snapshot.sequence > 0 && nowNanos - snapshot.startNanos
+				< (long) ((1 + MAX_EXTRAPOLATION) * snapshot.durationNanos);
+	}
+
+	private static void interpolate(float[] from, float[] to, long mask, long startNanos,
+			long durationNanos, long nowNanos, float[] out) {
+		float progress = durationNanos <= 0 ? 1f : (float) (nowNanos - startNanos) / durationNanos;
+		progress = Math.max(0f, Math.min(1f + MAX_EXTRAPOLATION, progress));
+		for (int point = 0; 2 * point < to.length; point++) {
+			if ((mask & (1L << point)) == 0) {
+				continue;
+			}
+			for (int i = 2 * point; i < 2 * point + 2; i++) {
+				out[i] = from[i] + progress * (to[i] - from[i]);
+			}
+		}
+	}
+}
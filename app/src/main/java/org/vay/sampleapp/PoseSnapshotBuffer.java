@@ -0,0 +1,81 @@
+package org.vay.sampleapp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Lock-free triple buffer handing the latest pose from the thread receiving poses to the thread
+ * drawing them, without either ever blocking or allocating.
+ *
+ * <p>Of the three snapshots, one is owned by the writer, one by the reader and one is the most
+ * recently published. Publishing atomically swaps the writer's snapshot with the published one;
+ * reading swaps the reader's snapshot with the published one if it is newer. Hence the reader
+ * always sees a complete snapshot, never one being written. Supports a single writer thread and
+ * a single reader thread, which matches the analyser listener and the UI thread. **/
+public final class PoseSnapshotBuffer {
+	private static final int INDEX_MASK = 0x3;
+	// Set in the state while the published snapshot has not been taken by the reader yet.
+	private static final int FRESH = 0x4;
+
+	/** A pose as a primitive array of image coordinates plus a bitmask of accurate points, with the
+	 * movement towards it from the previously displayed positions. **/
+	public static final class Snapshot {
+		// x and y of point i at 2 * i and 2 * i + 1.
+		public final float[] coordinates;
+		// Positions the skeleton moves from towards the coordinates, laid out the same way.
+		public final float[] startCoordinates;
+		// Bit i is set if point i is accurate.
+		public long accurateMask;
+		// Capture time of the frame the pose was computed from.
+		public long captureNanos;
+		// System.nanoTime() at which the movement starts, and how long it lasts.
+		public long startNanos;
+		public long durationNanos;
+		// Increases with every published snapshot, 0 before the first one.
+		public long sequence;
+
+		Snapshot(int pointCount) {
+			coordinates = new float[2 * pointCount];
+			startCoordinates = new float[2 * pointCount];
+		}
+
+		public boolean isAccurate(int point) {
+			return (accurateMask & (1L << point)) != 0;
+		}
+	}
+
+	private final Snapshot[] snapshots;
+	// Index of the published snapshot, combined with the FRESH flag.
+	private final AtomicInteger state = new AtomicInteger(1);
+	// Only accessed by the writer thread.
+	private int writeIndex = 0;
+	private long nextSequence = 1;
+	// Only accessed by the reader thread.
+	private int readIndex = 2;
+
+	public PoseSnapshotBuffer(int pointCount) {
+		if (pointCount > Long.SIZE) {
+			throw new IllegalArgumentException("At most " + Long.SIZE + " points are supported");
+		}
+		snapshots = new Snapshot[] {
+				new Snapshot(pointCount), new Snapshot(pointCount), new Snapshot(pointCount)};
+	}
+
+	/** Returns the snapshot to fill with the next pose. Writer thread only. **/
+	public Snapshot beginWrite() {
+		return snapshots[writeIndex];
+	}
+
+	/** Publishes the snapshot returned by {@link #beginWrite()}. Writer thread only. **/
+	public void publish() {
+		snapshots[writeIndex].sequence = nextSequence++;
+		writeIndex = state.getAndSet(writeIndex | FRESH) & INDEX_MASK;
+	}
+
+	/** Returns the most recently published snapshot, which stays valid and unchanged until the
+	 * next call. Its sequence is 0 if nothing has been published yet. Reader thread only. **/
+	public Snapshot latest() {
+		if ((state.get() & FRESH) != 0) {
+			readIndex = state.getAndSet(readIndex) & INDEX_MASK;
+		}
+		return snapshots[readIndex];
+	}
+}
@@ -0,0 +1,77 @@
+package org.vay.sampleapp;
+
+/** Sends frames as uncompressed NV21, downscaled by an integer factor with a box filter. Avoids
+ * any compression artifacts at the cost of upload size; the receiver needs to know the output
+ * dimensions, see {@link #getOutputWidth(int)} and {@link #getOutputHeight(int)}. **/
+public class RawNv21FrameEncoder implements FrameEncoder {
+	private final int downscaleFactor;
+
+	public RawNv21FrameEncoder(int downscaleFactor) {
+		if (downscaleFactor < 1) {
+			throw new IllegalArgumentException("downscaleFactor must be positive");
+		}
+		this.downscaleFactor = downscaleFactor;
+	}
+
+	public int getDownscaleFactor() {
+		return downscaleFactor;
+	}
+
+	/** Returns the width of the encoded image. It is kept even, as NV21 requires. **/
+	public int getOutputWidth(int width) {
+		return (width / downscaleFactor) & ~1;
+	}
+
+	/** Returns the height of the encoded image. It is kept even, as NV21 requires. **/
+	public int getOutputHeight(int height) {
+		return (height / downscaleFactor) & ~1;
+	}
+
+	@Override
+	public byte[] encode(byte[] nv21, int width, int height) {
+		int outWidth = getOutputWidth(width);
+		int outHeight = getOutputHeight(height);
+		byte[] out = new byte[FrameBufferPool.nv21Size(outWidth, outHeight)];
+		if (downscaleFactor == 1) {
+			System.arraycopy(nv21, 0, out, 0, out.length);
+			return out;
+		}
+		int f = downscaleFactor;
+		int area = f * f;
+		// Y plane, averaging f x f boxes.
+		int outPos = 0;
+		for (int y = 0; y < outHeight; y++) {
+			for (int x = 0; x < outWidth; x++) {
+				int sum = 0;
+				int rowStart = y * f * width + x * f;
+				for (int dy = 0; dy < f; dy++) {
+					int pos = rowStart + dy * width;
+					for (int dx = 0; dx < f; dx++) {
+						sum += nv21[pos + dx] & 0xFF;
+					}
+				}
+				out[outPos++] = (byte) (sum / area);
+			}
+		}
+		// Interleaved VU plane, averaging V and U separately.
+		int chromaOffset = width * height;
+		int chromaWidth = width / 2;
+		for (int y = 0; y < outHeight / 2; y++) {
+			for (int x = 0; x < outWidth / 2; x++) {
+				int sumV = 0;
+				int sumU = 0;
+				int rowStart = chromaOffset + 2 * (y * f * chromaWidth + x * f);
+				for (int dy = 0; dy < f; dy++) {
+					int pos = rowStart + 2 * dy * chromaWidth;
+					for (int dx = 0; dx < f; dx++) {
+						sumV += nv21[pos + 2 * dx] & 0xFF;
+						sumU += nv21[pos + 2 * dx + 1] & 0xFF;
+					}
+				}
+				out[outPos++] = (byte) (sumV / area);
+				out[outPos++] = (byte) (sumU / area);
+			}
+		}
+		return out;
+	}
+}
@@ -0,0 +1,51 @@
+package org.vay.sampleapp;
+
+import java.util.Random;
+
+/** Delays between attempts to reconnect, growing exponentially from an initial delay up to a
+ * maximum. Each delay is drawn at random from the upper half of its exponential step, so clients
+ * that lost the connection at the same time, e.g. all phones on a gym's Wi-Fi, do not reconnect
+ * in lockstep, while none retries right away. **/
+public final class ReconnectBackoff {
+	public static final long DEFAULT_INITIAL_DELAY_MILLIS = 250;
+	public static final long DEFAULT_MAX_DELAY_MILLIS = 30_000;
+	// Keeps the shifted delay from overflowing after many attempts.
+	private static final int MAX_DOUBLINGS = 30;
+
+	private final long initialDelayMillis;
+	private final long maxDelayMillis;
+	private final Random random;
+	private int attempts = 0;
+
+	public ReconnectBackoff() {
+		this(DEFAULT_INITIAL_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, new Random());
+	}
+
+	public ReconnectBackoff(long initialDelayMillis, long maxDelayMillis, Random random) {
+		if (initialDelayMillis < 1 || maxDelayMillis < initialDelayMillis) {
+			throw new IllegalArgumentException("delays must be positive and ordered");
+		}
+		this.initialDelayMillis = initialDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+		this.random = random;
+	}
+
+	/** Returns the delay before the next attempt and counts the attempt. **/
+	public synchronized long nextDelayMillis() {
+		long step = Math.min(maxDelayMillis,
+				initialDelayMillis << Math.min(attempts, MAX_DOUBLINGS));
+		attempts++;
+		long half = step / 2;
+		return step - half + (long) (random.nextDouble() * (half + 1));
+	}
+
+	/** Returns the number of attempts since the last {@link #reset()}. **/
+	public synchronized int getAttempts() {
+		return attempts;
+	}
+
+	/** Starts over with the initial delay, once a connection has proven to work. **/
+	public synchronized void reset() {
+		attempts = 0;
+	}
+}
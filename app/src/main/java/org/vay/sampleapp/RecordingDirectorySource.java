@@ -0,0 +1,123 @@
+package org.vay.sampleapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/** Reads the {@link FrameRecorder} files of a directory one after the other, in the order of
+ * their names, as one sequence of frames. Each recording has its own clock, so its capture times
+ * are shifted to continue one camera frame after the last frame of the previous recording. **/
+public final class RecordingDirectorySource implements YuvFrameSource {
+	/** Extension of the recordings read, other files are skipped. **/
+	public static final String EXTENSION = ".rec";
+	// Interval inserted between two recordings, one frame at 30 fps.
+	private static final long GAP_NANOS = 1_000_000_000L / 30;
+
+	private final File[] files;
+	private int fileIndex = 0;
+	private FrameRecordingReader reader;
+	// Added to the capture times of the current recording.
+	private long offsetNanos = 0;
+	private boolean isFirstOfFile;
+	private long lastCaptureNanos;
+	private boolean hasFrame = false;
+
+	public RecordingDirectorySource(File directory) throws IOException {
+		File[] recordings = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+		if (recordings == null) {
+			throw new IOException("Not a directory: " + directory);
+		}
+		Arrays.sort(recordings);
+		files = recordings;
+	}
+
+	/** Returns the number of recordings in the directory. **/
+	public int getRecordingCount() {
+		return files.length;
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		while (true) {
+			if (reader == null) {
+				if (fileIndex == files.length) {
+					return false;
+				}
+				reader = new FrameRecordingReader(files[fileIndex++]);
+				isFirstOfFile = true;
+			}
+			if (reader.next()) {
+				if (isFirstOfFile) {
+					isFirstOfFile = false;
+					offsetNanos = hasFrame
+							? lastCaptureNanos + GAP_NANOS - reader.getCaptureNanos() : 0;
+				}
+				hasFrame = true;
+				lastCaptureNanos = getCaptureNanos();
+				return true;
+			}
+			reader.close();
+			reader = null;
+		}
+	}
+
+	@Override
+	public long getCaptureNanos() {
+		return reader.getCaptureNanos() + offsetNanos;
+	}
+
+	@Override
+	public int getWidth() {
+		return reader.getWidth();
+	}
+
+	@Override
+	public int getHeight() {
+		return reader.getHeight();
+	}
+
+	@Override
+	public int getRotationDegrees() {
+		return reader.getRotationDegrees();
+	}
+
+	@Override
+	public ByteBuffer getYBuffer() {
+		return reader.getYBuffer();
+	}
+
+	@Override
+	public int getYRowStride() {
+		return reader.getYRowStride();
+	}
+
+	@Override
+	public ByteBuffer getUBuffer() {
+		return reader.getUBuffer();
+	}
+
+	@Override
+	public ByteBuffer getVBuffer() {
+		return reader.getVBuffer();
+	}
+
+	@Override
+	public int getUvRowStride() {
+		return reader.getUvRowStride();
+	}
+
+	@Override
+	public int getUvPixelStride() {
+		return reader.getUvPixelStride();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (reader != null) {
+			reader.close();
+			reader = null;
+		}
+		fileIndex = files.length;
+	}
+}
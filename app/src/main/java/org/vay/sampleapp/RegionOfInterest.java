@@ -0,0 +1,62 @@
+package org.vay.sampleapp;
+
+/** An immutable rectangle in overlay image coordinates, i.e. the upright frame scaled to the
+ * configured target long edge, bounding the area of the frame worth sending. **/
+public final class RegionOfInterest {
+	private final float left;
+	private final float top;
+	private final float right;
+	private final float bottom;
+
+	public RegionOfInterest(float left, float top, float right, float bottom) {
+		this.left = left;
+		this.top = top;
+		this.right = right;
+		this.bottom = bottom;
+	}
+
+	public float getLeft() {
+		return left;
+	}
+
+	public float getTop() {
+		return top;
+	}
+
+	public float getRight() {
+		return right;
+	}
+
+	public float getBottom() {
+		return bottom;
+	}
+
+	public float getWidth() {
+		return right - left;
+	}
+
+	public float getHeight() {
+		return bottom - top;
+	}
+
+	public float getArea() {
+		return getWidth() * getHeight();
+	}
+
+	public boolean contains(RegionOfInterest other) {
+		return other.left >= left && other.top >= top && other.right <= right
+				&& other.bottom <= bottom;
+	}
+
+	/** Returns this region grown on every side by the given fraction of its width and height. **/
+	public RegionOfInterest expand(float margin) {
+		float dx = margin * getWidth();
+		float dy = margin * getHeight();
+		return new RegionOfInterest(left - dx, top - dy, right + dx, bottom + dy);
+	}
+
+	@Override
+	public String toString() {
+		return "RegionOfInterest[" + left + ", " + top + ", " + right + ", " + bottom + "]";
+	}
+}
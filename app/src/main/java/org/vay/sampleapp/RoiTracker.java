@@ -0,0 +1,93 @@
+package org.vay.sampleapp;
+
+/** Follows the person through the keypoints of received poses and publishes the region of the
+ * frame to send, so frames can be cropped around the person.
+ *
+ * <p>The region is the bounding box of the accurate keypoints, grown by a margin for the movement
+ * until the next pose. To keep the crop, and with it the keypoint precision, from changing with
+ * every pose, the region grows at once when the person leaves it, but only shrinks after the
+ * person has fitted into a much smaller region for several poses in a row. After a few poses
+ * without enough keypoints the region is dropped and full frames are sent again.
+ *
+ * <p>Updated from the listener thread only; {@link #getRegion()} may be called from any thread. **/
+public final class RoiTracker {
+	/** Fraction of the keypoint bounding box added on every side. **/
+	public static final float DEFAULT_MARGIN = 0.3f;
+	// Fewer accurate keypoints do not describe the extent of the person.
+	private static final int MIN_POINTS = 4;
+	// The region shrinks if it has been this much larger than needed ...
+	private static final float SHRINK_AREA_RATIO = 1.5f;
+	// ... for this many poses in a row.
+	private static final int SHRINK_POSES = 10;
+	// Poses without enough keypoints after which the region is dropped.
+	private static final int LOST_POSES = 3;
+
+	private final float margin;
+	private volatile RegionOfInterest region;
+	private int shrinkCount = 0;
+	private int lostCount = 0;
+
+	public RoiTracker() {
+		this(DEFAULT_MARGIN);
+	}
+
+	public RoiTracker(float margin) {
+		this.margin = margin;
+	}
+
+	/** Returns the region to send, or null to send full frames. **/
+	public RegionOfInterest getRegion() {
+		return region;
+	}
+
+	/**
+	 * Updates the region with the keypoints of a new pose.
+	 *
+	 * @param coordinates x and y of point i in overlay image coordinates at 2 * i and 2 * i + 1
+	 * @param mask bit i is set if point i is accurate
+	 */
+	public void update(float[] coordinates, long mask) {
+		if (Long.bitCount(mask) < MIN_POINTS) {
+			if (++lostCount >= LOST_POSES) {
+				reset();
+			}
+			return;
+		}
+		lostCount = 0;
+		float left = Float.MAX_VALUE;
+		float top = Float.MAX_VALUE;
+		float right = -Float.MAX_VALUE;
+		float bottom = -Float.MAX_VALUE;
+		for (int point = 0; 2 * point < coordinates.length; point++) {
+			if ((mask & (1L << point)) == 0) {
+				continue;
+			}
+			float x = coordinates[2 * point];
+			float y = coordinates[2 * point + 1];
+			left = Math.min(left, x);
+			top = Math.min(top, y);
+			right = Math.max(right, x);
+			bottom = Math.max(bottom, y);
+		}
+		RegionOfInterest target = new RegionOfInterest(left, top, right, bottom).expand(margin);
+		RegionOfInterest current = region;
+		if (current == null || !current.contains(target)) {
+			shrinkCount = 0;
+			region = target;
+		} else if (current.getArea() > SHRINK_AREA_RATIO * target.getArea()) {
+			if (++shrinkCount >= SHRINK_POSES) {
+				shrinkCount = 0;
+				region = target;
+			}
+		} else {
+			shrinkCount = 0;
+		}
+	}
+
+	/** Drops the region, so full frames are sent until the next pose. **/
+	public void reset() {
+		region = null;
+		shrinkCount = 0;
+		lostCount = 0;
+	}
+}
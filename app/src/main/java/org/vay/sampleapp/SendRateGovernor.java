@@ -0,0 +1,174 @@
+package org.vay.sampleapp;
+
+import java.util.Locale;
+
+/** Adapts the outgoing frame rate, JPEG quality and resolution to keep the round trip time of
+ * frames within a latency budget.
+ *
+ * <p>The round trip (frame enqueued until its pose is received) is smoothed with an exponential
+ * moving average. At most once per adjustment interval the decisions are updated AIMD-style: above
+ * the budget the frame rate is reduced multiplicatively, and once it reaches its minimum the
+ * quality and then the resolution are lowered. Well below the budget the resolution and quality
+ * are restored first, then the frame rate is increased additively. Not bound to any thread. **/
+public final class SendRateGovernor {
+	private static final long NANOS_PER_MILLI = 1_000_000L;
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	private static final long ADJUST_INTERVAL_NANOS = 500 * NANOS_PER_MILLI;
+	// Weight of a new sample in the smoothed round trip time.
+	private static final float RTT_SMOOTHING = 0.2f;
+	// Below this share of the budget the decisions are relaxed again.
+	private static final float INCREASE_THRESHOLD = 0.75f;
+	private static final float FPS_DECREASE_FACTOR = 0.7f;
+	private static final float FPS_INCREASE_STEP = 1f;
+	private static final float LONG_EDGE_DECREASE_FACTOR = 0.8f;
+	private static final int LONG_EDGE_INCREASE_STEP = 64;
+	private static final int QUALITY_STEP = 10;
+
+	public static final float MIN_FPS = 2f;
+	public static final int MIN_QUALITY = 40;
+	public static final int MIN_LONG_EDGE = 320;
+
+	private final long latencyBudgetNanos;
+	private float maxFps;
+	private final int maxQuality;
+	private int maxLongEdge;
+
+	private float targetFps;
+	private int jpegQuality;
+	private int targetLongEdge;
+	private float smoothedRttNanos = -1;
+	private boolean hasSent = false;
+	private long nextSendNanos;
+	private long lastAdjustNanos = Long.MIN_VALUE;
+
+	/**
+	 * @param latencyBudgetMillis round trip time to stay within
+	 * @param maxFps highest frame rate to send at
+	 * @param maxQuality highest JPEG quality to use
+	 * @param maxLongEdge highest long edge of sent frames, 0 if frames are not downscaled, in which
+	 *     case the resolution is not adapted
+	 */
+	public SendRateGovernor(long latencyBudgetMillis, float maxFps, int maxQuality,
+			int maxLongEdge) {
+		this.latencyBudgetNanos = latencyBudgetMillis * NANOS_PER_MILLI;
+		this.maxFps = maxFps;
+		this.maxQuality = maxQuality;
+		this.maxLongEdge = maxLongEdge;
+		this.targetFps = maxFps;
+		this.jpegQuality = maxQuality;
+		this.targetLongEdge = maxLongEdge;
+	}
+
+	/** Returns whether a frame captured now should be sent with respect to the target frame rate,
+	 * and if so counts it as sent. Frames are scheduled against a deadline that advances by the
+	 * frame interval, with a small tolerance for camera timing jitter. **/
+	public synchronized boolean shouldSend(long nowNanos) {
+		if (!isSendDue(nowNanos)) {
+			return false;
+		}
+		long interval = (long) (NANOS_PER_SECOND / targetFps);
+		nextSendNanos = hasSent ? Math.max(nextSendNanos + interval, nowNanos) : nowNanos + interval;
+		hasSent = true;
+		return true;
+	}
+
+	/** Returns whether a frame captured now would be sent with respect to the target frame rate,
+	 * without counting it as sent, e.g. to skip capturing frames that cannot be sent anyway. **/
+	public synchronized boolean isSendDue(long nowNanos) {
+		long interval = (long) (NANOS_PER_SECOND / targetFps);
+		return !hasSent || nowNanos >= nextSendNanos - interval / 8;
+	}
+
+	/** Records the round trip time of a frame. Returns whether the decisions changed. **/
+	public synchronized boolean onRoundTrip(long rttNanos, long nowNanos) {
+		smoothedRttNanos = smoothedRttNanos < 0 ? rttNanos
+				: smoothedRttNanos + RTT_SMOOTHING * (rttNanos - smoothedRttNanos);
+		if (lastAdjustNanos != Long.MIN_VALUE && nowNanos - lastAdjustNanos < ADJUST_INTERVAL_NANOS) {
+			return false;
+		}
+		if (smoothedRttNanos > latencyBudgetNanos) {
+			return decrease(nowNanos);
+		} else if (smoothedRttNanos < INCREASE_THRESHOLD * latencyBudgetNanos) {
+			return increase(nowNanos);
+		}
+		return false;
+	}
+
+	/** Reacts to an external congestion signal, e.g. the server rating the latency as poor, by
+	 * backing off immediately. Returns whether the decisions changed. **/
+	public synchronized boolean onCongestion(long nowNanos) {
+		return decrease(nowNanos);
+	}
+
+	/** Changes the highest long edge, e.g. when the configured resolution changes. **/
+	public synchronized void setMaxLongEdge(int maxLongEdge) {
+		this.maxLongEdge = maxLongEdge;
+		if (maxLongEdge <= 0 || targetLongEdge <= 0 || targetLongEdge > maxLongEdge) {
+			targetLongEdge = maxLongEdge;
+		}
+	}
+
+	/** Changes the highest frame rate, e.g. when sessions sharing the device's budget come or go.
+	 * A higher target is lowered at once, a lower one is raised as the round trip allows. **/
+	public synchronized void setMaxFps(float maxFps) {
+		this.maxFps = Math.max(MIN_FPS, maxFps);
+		targetFps = Math.min(targetFps, this.maxFps);
+	}
+
+	public synchronized float getMaxFps() {
+		return maxFps;
+	}
+
+	public synchronized float getTargetFps() {
+		return targetFps;
+	}
+
+	public synchronized int getJpegQuality() {
+		return jpegQuality;
+	}
+
+	/** Returns the long edge to downscale frames to, 0 if frames are not downscaled. **/
+	public synchronized int getTargetLongEdge() {
+		return targetLongEdge;
+	}
+
+	/** Returns the smoothed round trip time, or -1 before the first pose was received. **/
+	public synchronized long getSmoothedRttMillis() {
+		return smoothedRttNanos < 0 ? -1 : (long) smoothedRttNanos / NANOS_PER_MILLI;
+	}
+
+	/** Returns a short description of the current decisions for display and logging. **/
+	public synchronized String describe() {
+		return String.format(Locale.US, "%.1f fps, q%d, %s, rtt %d ms", targetFps, jpegQuality,
+				targetLongEdge > 0 ? targetLongEdge + "px" : "full res", getSmoothedRttMillis());
+	}
+
+	private boolean decrease(long nowNanos) {
+		lastAdjustNanos = nowNanos;
+		if (targetFps > MIN_FPS) {
+			targetFps = Math.max(MIN_FPS, targetFps * FPS_DECREASE_FACTOR);
+		} else if (jpegQuality > MIN_QUALITY) {
+			jpegQuality = Math.max(MIN_QUALITY, jpegQuality - QUALITY_STEP);
+		} else if (maxLongEdge > 0 && targetLongEdge > MIN_LONG_EDGE) {
+			targetLongEdge = Math.max(MIN_LONG_EDGE,
+					(int) (targetLongEdge * LONG_EDGE_DECREASE_FACTOR) & ~1);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	private boolean increase(long nowNanos) {
+		lastAdjustNanos = nowNanos;
+		if (maxLongEdge > 0 && targetLongEdge < maxLongEdge) {
+			targetLongEdge = Math.min(maxLongEdge, targetLongEdge + LONG_EDGE_INCREASE_STEP);
+		} else if (jpegQuality < maxQuality) {
+			jpegQuality = Math.min(maxQuality, jpegQuality + QUALITY_STEP);
+		} else if (targetFps < maxFps) {
+			targetFps = Math.min(maxFps, targetFps + FPS_INCREASE_STEP);
+		} else {
+			return false;
+		}
+		return true;
+	}
+}
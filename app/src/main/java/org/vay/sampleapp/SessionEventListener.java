@@ -0,0 +1,24 @@
+package org.vay.sampleapp;
+
+import ai.vay.client.api.SessionState;
+
+/** Receives the events of an analysis session that are meant for the user, so an
+ * {@link AnalyserWrapper} is not bound to a particular screen, e.g. when several sessions run side
+ * by side. Called on the analyser's listener thread; implementations update views on the UI
+ * thread themselves, e.g. batched by a {@link UiEventDispatcher}. **/
+public interface SessionEventListener {
+
+	/** Instructions on how to get into the exercising state, e.g. to step back. **/
+	void onPositioningGuidance(String message);
+
+	/** A repetition was performed correctly. **/
+	void onCorrectRepetition(int correctRepetitions);
+
+	/** A repetition was performed incorrectly, with the first correction for it. **/
+	void onCorrection(String correction);
+
+	void onSessionStateChanged(SessionState sessionState);
+
+	/** A warning about the session quality, or an empty string once it is good again. **/
+	void onConnectivityWarning(String warning);
+}
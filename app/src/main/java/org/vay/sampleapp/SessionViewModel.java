@@ -0,0 +1,65 @@
+package org.vay.sampleapp;
+
+import ai.vay.client.api.SessionState;
+
+/** An immutable snapshot of everything the session screen shows, published to the UI thread by a
+ * {@link UiEventDispatcher}. Fields without an event yet are null, or 0 for the repetitions. **/
+public final class SessionViewModel {
+
+	/** How the feedback is to be highlighted, e.g. by its background color. Set by the last event
+	 * concerning the feedback: a session state change, a correct or an incorrect repetition. **/
+	public enum Tone {
+		NO_HUMAN, POSITIONING, EXERCISING, POSITIVE, CORRECTION;
+
+		static Tone forState(SessionState sessionState) {
+			switch (sessionState) {
+				case NO_HUMAN:
+					return NO_HUMAN;
+				case POSITIONING:
+					return POSITIONING;
+				default:
+					return EXERCISING;
+			}
+		}
+	}
+
+	/** The state before any event. **/
+	public static final SessionViewModel EMPTY = new SessionViewModel(0, null, null, null, null);
+
+	private final int correctRepetitions;
+	private final SessionState sessionState;
+	private final String feedback;
+	private final Tone feedbackTone;
+	private final String connectivityWarning;
+
+	SessionViewModel(int correctRepetitions, SessionState sessionState, String feedback,
+			Tone feedbackTone, String connectivityWarning) {
+		this.correctRepetitions = correctRepetitions;
+		this.sessionState = sessionState;
+		this.feedback = feedback;
+		this.feedbackTone = feedbackTone;
+		this.connectivityWarning = connectivityWarning;
+	}
+
+	public int getCorrectRepetitions() {
+		return correctRepetitions;
+	}
+
+	public SessionState getSessionState() {
+		return sessionState;
+	}
+
+	/** Returns the latest positioning guidance, correction or praise. **/
+	public String getFeedback() {
+		return feedback;
+	}
+
+	public Tone getFeedbackTone() {
+		return feedbackTone;
+	}
+
+	/** Returns the current connectivity warning, empty if the session quality is good. **/
+	public String getConnectivityWarning() {
+		return connectivityWarning;
+	}
+}
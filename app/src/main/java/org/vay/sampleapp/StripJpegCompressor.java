@@ -0,0 +1,533 @@
+package org.vay.sampleapp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** Baseline JPEG compressor in plain Java that encodes horizontal strips of the image in parallel.
+ *
+ * <p>The platform compressor runs on the calling encoder worker only. Here the image is split into
+ * strips of whole MCU rows, each of which is a restart interval: the DC predictions are reset and
+ * the entropy coded data is byte aligned at every strip boundary, so the strips can be encoded
+ * independently on a {@link ForkJoinPool} and concatenated with restart markers in between. Blocks
+ * are read directly from the NV21 planes, which are already subsampled 4:2:0, and written to strip
+ * buffers that are reused across frames.
+ *
+ * <p>Uses the example quantization and Huffman tables of the JPEG standard, scaled by quality like
+ * libjpeg. Width and height must be even, as for all NV21 frames. **/
+public final class StripJpegCompressor implements JpegCompressor {
+	// Strips per pool thread, so a thread finishing early can take over work of a slower one.
+	private static final int STRIPS_PER_THREAD = 2;
+	private static final int MAX_RESTART_INTERVAL = 0xFFFF;
+	private static final int MCU_SIZE = 16;
+
+	private static final int[] ZIGZAG = {
+			0, 1, 8, 16, 9, 2, 3, 10, 17, 24, 32, 25, 18, 11, 4, 5,
+			12, 19, 26, 33, 40, 48, 41, 34, 27, 20, 13, 6, 7, 14, 21, 28,
+			35, 42, 49, 56, 57, 50, 43, 36, 29, 22, 15, 23, 30, 37, 44, 51,
+			58, 59, 52, 45, 38, 31, 39, 46, 53, 60, 61, 54, 47, 55, 62, 63};
+	private static final int[] LUMA_QUANTIZATION = {
+			16, 11, 10, 16, 24, 40, 51, 61,
+			12, 12, 14, 19, 26, 58, 60, 55,
+			14, 13, 16, 24, 40, 57, 69, 56,
+			14, 17, 22, 29, 51, 87, 80, 62,
+			18, 22, 37, 56, 68, 109, 103, 77,
+			24, 35, 55, 64, 81, 104, 113, 92,
+			49, 64, 78, 87, 103, 121, 120, 101,
+			72, 92, 95, 98, 112, 100, 103, 99};
+	private static final int[] CHROMA_QUANTIZATION = {
+			17, 18, 24, 47, 99, 99, 99, 99,
+			18, 21, 26, 66, 99, 99, 99, 99,
+			24, 26, 56, 99, 99, 99, 99, 99,
+			47, 66, 99, 99, 99, 99, 99, 99,
+			99, 99, 99, 99, 99, 99, 99, 99,
+			99, 99, 99, 99, 99, 99, 99, 99,
+			99, 99, 99, 99, 99, 99, 99, 99,
+			99, 99, 99, 99, 99, 99, 99, 99};
+	// Scale factors of the AAN forward DCT, folded into the quantization divisors.
+	private static final double[] AAN_SCALE = {
+			1.0, 1.387039845, 1.306562965, 1.175875602,
+			1.0, 0.785694958, 0.541196100, 0.275899379};
+
+	static final HuffmanTable LUMA_DC = new HuffmanTable(0x00,
+			new int[] {0, 1, 5, 1, 1, 1, 1, 1, 1, 0, 0, 0, 0, 0, 0, 0},
+			new int[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11});
+	static final HuffmanTable CHROMA_DC = new HuffmanTable(0x01,
+			new int[] {0, 3, 1, 1, 1, 1, 1, 1, 1, 1, 1, 0, 0, 0, 0, 0},
+			new int[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11});
+	static final HuffmanTable LUMA_AC = new HuffmanTable(0x10,
+			new int[] {0, 2, 1, 3, 3, 2, 4, 3, 5, 5, 4, 4, 0, 0, 1, 0x7d},
+			new int[] {
+					0x01, 0x02, 0x03, 0x00, 0x04, 0x11, 0x05, 0x12,
+					0x21, 0x31, 0x41, 0x06, 0x13, 0x51, 0x61, 0x07,
+					0x22, 0x71, 0x14, 0x32, 0x81, 0x91, 0xa1, 0x08,
+					0x23, 0x42, 0xb1, 0xc1, 0x15, 0x52, 0xd1, 0xf0,
+					0x24, 0x33, 0x62, 0x72, 0x82, 0x09, 0x0a, 0x16,
+					0x17, 0x18, 0x19, 0x1a, 0x25, 0x26, 0x27, 0x28,
+					0x29, 0x2a, 0x34, 0x35, 0x36, 0x37, 0x38, 0x39,
+					0x3a, 0x43, 0x44, 0x45, 0x46, 0x47, 0x48, 0x49,
+					0x4a, 0x53, 0x54, 0x55, 0x56, 0x57, 0x58, 0x59,
+					0x5a, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69,
+					0x6a, 0x73, 0x74, 0x75, 0x76, 0x77, 0x78, 0x79,
+					0x7a, 0x83, 0x84, 0x85, 0x86, 0x87, 0x88, 0x89,
+					0x8a, 0x92, 0x93, 0x94, 0x95, 0x96, 0x97, 0x98,
+					0x99, 0x9a, 0xa2, 0xa3, 0xa4, 0xa5, 0xa6, 0xa7,
+					0xa8, 0xa9, 0xaa, 0xb2, 0xb3, 0xb4, 0xb5, 0xb6,
+					0xb7, 0xb8, 0xb9, 0xba, 0xc2, 0xc3, 0xc4, 0xc5,
+					0xc6, 0xc7, 0xc8, 0xc9, 0xca, 0xd2, 0xd3, 0xd4,
+					0xd5, 0xd6, 0xd7, 0xd8, 0xd9, 0xda, 0xe1, 0xe2,
+					0xe3, 0xe4, 0xe5, 0xe6, 0xe7, 0xe8, 0xe9, 0xea,
+					0xf1, 0xf2, 0xf3, 0xf4, 0xf5, 0xf6, 0xf7, 0xf8,
+					0xf9, 0xfa});
+	static final HuffmanTable CHROMA_AC = new HuffmanTable(0x11,
+			new int[] {0, 2, 1, 2, 4, 4, 3, 4, 7, 5, 4, 4, 0, 1, 2, 0x77},
+			new int[] {
+					0x00, 0x01, 0x02, 0x03, 0x11, 0x04, 0x05, 0x21,
+					0x31, 0x06, 0x12, 0x41, 0x51, 0x07, 0x61, 0x71,
+					0x13, 0x22, 0x32, 0x81, 0x08, 0x14, 0x42, 0x91,
+					0xa1, 0xb1, 0xc1, 0x09, 0x23, 0x33, 0x52, 0xf0,
+					0x15, 0x62, 0x72, 0xd1, 0x0a, 0x16, 0x24, 0x34,
+					0xe1, 0x25, 0xf1, 0x17, 0x18, 0x19, 0x1a, 0x26,
+					0x27, 0x28, 0x29, 0x2a, 0x35, 0x36, 0x37, 0x38,
+					0x39, 0x3a, 0x43, 0x44, 0x45, 0x46, 0x47, 0x48,
+					0x49, 0x4a, 0x53, 0x54, 0x55, 0x56, 0x57, 0x58,
+					0x59, 0x5a, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68,
+					0x69, 0x6a, 0x73, 0x74, 0x75, 0x76, 0x77, 0x78,
+					0x79, 0x7a, 0x82, 0x83, 0x84, 0x85, 0x86, 0x87,
+					0x88, 0x89, 0x8a, 0x92, 0x93, 0x94, 0x95, 0x96,
+					0x97, 0x98, 0x99, 0x9a, 0xa2, 0xa3, 0xa4, 0xa5,
+					0xa6, 0xa7, 0xa8, 0xa9, 0xaa, 0xb2, 0xb3, 0xb4,
+					0xb5, 0xb6, 0xb7, 0xb8, 0xb9, 0xba, 0xc2, 0xc3,
+					0xc4, 0xc5, 0xc6, 0xc7, 0xc8, 0xc9, 0xca, 0xd2,
+					0xd3, 0xd4, 0xd5, 0xd6, 0xd7, 0xd8, 0xd9, 0xda,
+					0xe2, 0xe3, 0xe4, 0xe5, 0xe6, 0xe7, 0xe8, 0xe9,
+					0xea, 0xf2, 0xf3, 0xf4, 0xf5, 0xf6, 0xf7, 0xf8,
+					0xf9, 0xfa});
+
+	private final ForkJoinPool pool;
+	private final int maxStrips;
+	// Tables per quality, created on first use. Racy but safe, as they are immutable.
+	private final QuantizationTables[] tables = new QuantizationTables[101];
+	// Strip buffers of finished frames, reused by the next frames.
+	private final ConcurrentLinkedQueue<StripBuffer[]> freeBuffers = new ConcurrentLinkedQueue<>();
+
+	/** Creates a compressor encoding on the common fork/join pool. **/
+	public StripJpegCompressor() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public StripJpegCompressor(ForkJoinPool pool) {
+		this(pool, pool.getParallelism() * STRIPS_PER_THREAD);
+	}
+
+	/**
+	 * @param pool pool encoding the strips
+	 * @param maxStrips number of strips frames are split into at most, 1 to encode on the calling
+	 *     thread without restart intervals
+	 */
+	public StripJpegCompressor(ForkJoinPool pool, int maxStrips) {
+		if (maxStrips < 1) {
+			throw new IllegalArgumentException("maxStrips must be positive");
+		}
+		this.pool = pool;
+		this.maxStrips = maxStrips;
+	}
+
+	@Override
+	public void compress(byte[] nv21, int width, int height, int quality, OutputStream out)
+			throws IOException {
+		if (width <= 0 || height <= 0 || (width & 1) != 0 || (height & 1) != 0) {
+			throw new IllegalArgumentException("NV21 dimensions must be even: " + width + "x"
+					+ height);
+		}
+		QuantizationTables quantization = tablesFor(quality);
+		int mcuColumns = (width + MCU_SIZE - 1) / MCU_SIZE;
+		int mcuRows = (height + MCU_SIZE - 1) / MCU_SIZE;
+		// A strip is one restart interval, whose length in MCUs is limited to 16 bits.
+		int rowsPerStrip = Math.min((mcuRows + maxStrips - 1) / maxStrips,
+				MAX_RESTART_INTERVAL / mcuColumns);
+		int stripCount = (mcuRows + rowsPerStrip - 1) / rowsPerStrip;
+
+		StripBuffer[] strips = acquireStrips(stripCount);
+		try {
+			Frame frame = new Frame(nv21, width, height, mcuColumns, mcuRows, rowsPerStrip,
+					quantization, strips);
+			if (stripCount == 1) {
+				frame.encodeStrip(0);
+			} else {
+				pool.invoke(new StripTask(frame, 0, stripCount));
+			}
+			writeHeaders(out, width, height, quantization,
+					stripCount > 1 ? rowsPerStrip * mcuColumns : 0);
+			for (int i = 0; i < stripCount; i++) {
+				out.write(strips[i].bytes, 0, strips[i].length);
+				if (i < stripCount - 1) {
+					out.write(0xFF);
+					out.write(0xD0 + (i & 7));
+				}
+			}
+			out.write(0xFF);
+			out.write(0xD9);
+		} finally {
+			freeBuffers.offer(strips);
+		}
+	}
+
+	private QuantizationTables tablesFor(int quality) {
+		if (quality < 0 || quality > 100) {
+			throw new IllegalArgumentException("quality must be between 0 and 100");
+		}
+		QuantizationTables quantization = tables[quality];
+		if (quantization == null) {
+			quantization = new QuantizationTables(quality);
+			tables[quality] = quantization;
+		}
+		return quantization;
+	}
+
+	private StripBuffer[] acquireStrips(int count) {
+		StripBuffer[] strips = freeBuffers.poll();
+		if (strips != null && strips.length >= count) {
+			return strips;
+		}
+		StripBuffer[] grown = new StripBuffer[count];
+		for (int i = 0; i < count; i++) {
+			grown[i] = strips != null && i < strips.length ? strips[i] : new StripBuffer();
+		}
+		return grown;
+	}
+
+	private static void writeHeaders(OutputStream out, int width, int height,
+			QuantizationTables quantization, int restartInterval) throws IOException {
+		// SOI and a JFIF APP0 segment without thumbnail.
+		out.write(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 16,
+				'J', 'F', 'I', 'F', 0, 1, 1, 0, 0, 1, 0, 1, 0, 0});
+		writeMarker(out, 0xDB, 2 * 65);
+		out.write(0x00);
+		out.write(quantization.lumaTable);
+		out.write(0x01);
+		out.write(quantization.chromaTable);
+		// SOF0 with a 2x2 subsampled luminance and two chroma components.
+		writeMarker(out, 0xC0, 15);
+		out.write(8);
+		writeShort(out, height);
+		writeShort(out, width);
+		out.write(new byte[] {3, 1, 0x22, 0, 2, 0x11, 1, 3, 0x11, 1});
+		HuffmanTable[] huffmanTables = {LUMA_DC, LUMA_AC, CHROMA_DC, CHROMA_AC};
+		int length = 0;
+		for (HuffmanTable table : huffmanTables) {
+			length += 1 + 16 + table.values.length;
+		}
+		writeMarker(out, 0xC4, length);
+		for (HuffmanTable table : huffmanTables) {
+			out.write(table.classAndId);
+			for (int count : table.counts) {
+				out.write(count);
+			}
+			for (int value : table.values) {
+				out.write(value);
+			}
+		}
+		if (restartInterval > 0) {
+			writeMarker(out, 0xDD, 2);
+			writeShort(out, restartInterval);
+		}
+		writeMarker(out, 0xDA, 10);
+		out.write(new byte[] {3, 1, 0x00, 2, 0x11, 3, 0x11, 0, 63, 0});
+	}
+
+	/** Writes a marker and the length of its segment, excluding the length field. **/
+	private static void writeMarker(OutputStream out, int marker, int length) throws IOException {
+		out.write(0xFF);
+		out.write(marker);
+		writeShort(out, length + 2);
+	}
+
+	private static void writeShort(OutputStream out, int value) throws IOException {
+		out.write(value >> 8);
+		out.write(value);
+	}
+
+	/** Quantization tables of one quality, in zigzag order for the header and as divisors of the
+	 * unscaled DCT output in natural order for the encoder. **/
+	private static final class QuantizationTables {
+		final byte[] lumaTable = new byte[64];
+		final byte[] chromaTable = new byte[64];
+		final float[] lumaDivisors = new float[64];
+		final float[] chromaDivisors = new float[64];
+
+		QuantizationTables(int quality) {
+			// Scaled like libjpeg's jpeg_quality_scaling.
+			int clamped = Math.max(1, quality);
+			int scale = clamped < 50 ? 5000 / clamped : 200 - 2 * clamped;
+			scale(LUMA_QUANTIZATION, scale, lumaTable, lumaDivisors);
+			scale(CHROMA_QUANTIZATION, scale, chromaTable, chromaDivisors);
+		}
+
+		private static void scale(int[] base, int scale, byte[] table, float[] divisors) {
+			for (int k = 0; k < 64; k++) {
+				int natural = ZIGZAG[k];
+				int value = Math.max(1, Math.min(255, (base[natural] * scale + 50) / 100));
+				table[k] = (byte) value;
+				divisors[natural] = (float) (1.0 / (value * AAN_SCALE[natural >> 3]
+						* AAN_SCALE[natural & 7] * 8.0));
+			}
+		}
+	}
+
+	/** A Huffman table of the standard, as written to the header and as codes per symbol. **/
+	static final class HuffmanTable {
+		final int classAndId;
+		final int[] counts;
+		final int[] values;
+		final int[] codes = new int[256];
+		final int[] sizes = new int[256];
+
+		HuffmanTable(int classAndId, int[] counts, int[] values) {
+			this.classAndId = classAndId;
+			this.counts = counts;
+			this.values = values;
+			int code = 0;
+			int k = 0;
+			for (int length = 1; length <= 16; length++) {
+				for (int i = 0; i < counts[length - 1]; i++) {
+					codes[values[k]] = code++;
+					sizes[values[k]] = length;
+					k++;
+				}
+				code <<= 1;
+			}
+		}
+	}
+
+	/** The entropy coded data of one strip, grown as needed and reused across frames. **/
+	private static final class StripBuffer {
+		final float[] block = new float[64];
+		final int[] coefficients = new int[64];
+		byte[] bytes = new byte[16 * 1024];
+		int length;
+		long bitBuffer;
+		int bitCount;
+
+		void reset() {
+			length = 0;
+			bitBuffer = 0;
+			bitCount = 0;
+		}
+
+		void writeBits(int value, int size) {
+			bitBuffer = (bitBuffer << size) | (value & ((1 << size) - 1));
+			bitCount += size;
+			while (bitCount >= 8) {
+				bitCount -= 8;
+				int b = (int) (bitBuffer >> bitCount) & 0xFF;
+				writeByte(b);
+				if (b == 0xFF) {
+					// Stuffed, so the data cannot be mistaken for a marker.
+					writeByte(0);
+				}
+			}
+		}
+
+		/** Pads the last byte with one bits, as required before a restart marker or EOI. **/
+		void flush() {
+			if (bitCount > 0) {
+				writeBits(0x7F, 8 - bitCount);
+			}
+		}
+
+		private void writeByte(int b) {
+			if (length == bytes.length) {
+				byte[] grown = new byte[bytes.length * 2];
+				System.arraycopy(bytes, 0, grown, 0, length);
+				bytes = grown;
+			}
+			bytes[length++] = (byte) b;
+		}
+	}
+
+	/** One frame being encoded, shared by the tasks encoding its strips. **/
+	private static final class Frame {
+		final byte[] nv21;
+		final int width;
+		final int height;
+		final int mcuColumns;
+		final int mcuRows;
+		final int rowsPerStrip;
+		final QuantizationTables quantization;
+		final StripBuffer[] strips;
+
+		Frame(byte[] nv21, int width, int height, int mcuColumns, int mcuRows, int rowsPerStrip,
+				QuantizationTables quantization, StripBuffer[] strips) {
+			this.nv21 = nv21;
+			this.width = width;
+			this.height = height;
+			this.mcuColumns = mcuColumns;
+			this.mcuRows = mcuRows;
+			this.rowsPerStrip = rowsPerStrip;
+			this.quantization = quantization;
+			this.strips = strips;
+		}
+
+		void encodeStrip(int strip) {
+			StripBuffer out = strips[strip];
+			out.reset();
+			int lastY = 0;
+			int lastCb = 0;
+			int lastCr = 0;
+			int imageSize = width * height;
+			int endRow = Math.min(mcuRows, (strip + 1) * rowsPerStrip);
+			for (int mcuRow = strip * rowsPerStrip; mcuRow < endRow; mcuRow++) {
+				for (int mcuColumn = 0; mcuColumn < mcuColumns; mcuColumn++) {
+					int x = mcuColumn * MCU_SIZE;
+					int y = mcuRow * MCU_SIZE;
+					for (int i = 0; i < 4; i++) {
+						loadBlock(out.block, 0, width, 1, x + (i & 1) * 8, y + (i >> 1) * 8,
+								width, height);
+						lastY = encodeBlock(out, quantization.lumaDivisors, lastY, LUMA_DC,
+								LUMA_AC);
+					}
+					// NV21 stores the chroma as interleaved V and U rows at half resolution.
+					loadBlock(out.block, imageSize + 1, width, 2, x / 2, y / 2, width / 2,
+							height / 2);
+					lastCb = encodeBlock(out, quantization.chromaDivisors, lastCb, CHROMA_DC,
+							CHROMA_AC);
+					loadBlock(out.block, imageSize, width, 2, x / 2, y / 2, width / 2, height / 2);
+					lastCr = encodeBlock(out, quantization.chromaDivisors, lastCr, CHROMA_DC,
+							CHROMA_AC);
+				}
+			}
+			out.flush();
+		}
+
+		/** Reads an 8x8 block of a plane, level shifted, repeating the last column and row where it
+		 * extends past the plane. **/
+		private void loadBlock(float[] block, int offset, int rowStride, int pixelStride, int left,
+				int top, int planeWidth, int planeHeight) {
+			boolean inside = left + 8 <= planeWidth && top + 8 <= planeHeight;
+			for (int row = 0; row < 8; row++) {
+				int rowStart = offset + Math.min(top + row, planeHeight - 1) * rowStride;
+				for (int column = 0; column < 8; column++) {
+					int sampleX = inside ? left + column : Math.min(left + column, planeWidth - 1);
+					block[row * 8 + column] = (nv21[rowStart + sampleX * pixelStride] & 0xFF) - 128;
+				}
+			}
+		}
+
+		/** Transforms, quantizes and entropy codes a block, returning its DC value. **/
+		private static int encodeBlock(StripBuffer out, float[] divisors, int lastDc,
+				HuffmanTable dcTable, HuffmanTable acTable) {
+			float[] block = out.block;
+			forwardDct(block);
+			int[] coefficients = out.coefficients;
+			for (int i = 0; i < 64; i++) {
+				// Rounds half up without Math.round, which is slow on older runtimes.
+				coefficients[i] = (int) (block[i] * divisors[i] + 16384.5f) - 16384;
+			}
+			int dc = coefficients[0];
+			writeValue(out, dcTable, 0, dc - lastDc);
+			int run = 0;
+			for (int k = 1; k < 64; k++) {
+				int value = coefficients[ZIGZAG[k]];
+				if (value == 0) {
+					run++;
+					continue;
+				}
+				while (run > 15) {
+					out.writeBits(acTable.codes[0xF0], acTable.sizes[0xF0]);
+					run -= 16;
+				}
+				writeValue(out, acTable, run << 4, value);
+				run = 0;
+			}
+			if (run > 0) {
+				out.writeBits(acTable.codes[0x00], acTable.sizes[0x00]);
+			}
+			return dc;
+		}
+
+		/** Writes the code of a run and the size of a value, followed by the value's bits. **/
+		private static void writeValue(StripBuffer out, HuffmanTable table, int run, int value) {
+			int magnitude = value < 0 ? -value : value;
+			int size = 32 - Integer.numberOfLeadingZeros(magnitude);
+			int symbol = run | size;
+			out.writeBits(table.codes[symbol], table.sizes[symbol]);
+			if (size > 0) {
+				out.writeBits(value < 0 ? value - 1 : value, size);
+			}
+		}
+
+		/** Floating point AAN forward DCT in place, as libjpeg's jfdctflt, leaving the output scaled
+		 * by the factors folded into the quantization divisors. **/
+		private static void forwardDct(float[] data) {
+			for (int i = 0; i < 64; i += 8) {
+				dct8(data, i, 1);
+			}
+			for (int i = 0; i < 8; i++) {
+				dct8(data, i, 8);
+			}
+		}
+
+		private static void dct8(float[] d, int o, int s) {
+			float tmp0 = d[o] + d[o + 7 * s];
+			float tmp7 = d[o] - d[o + 7 * s];
+			float tmp1 = d[o + s] + d[o + 6 * s];
+			float tmp6 = d[o + s] - d[o + 6 * s];
+			float tmp2 = d[o + 2 * s] + d[o + 5 * s];
+			float tmp5 = d[o + 2 * s] - d[o + 5 * s];
+			float tmp3 = d[o + 3 * s] + d[o + 4 * s];
+			float tmp4 = d[o + 3 * s] - d[o + 4 * s];
+
+			float tmp10 = tmp0 + tmp3;
+			float tmp13 = tmp0 - tmp3;
+			float tmp11 = tmp1 + tmp2;
+			float tmp12 = tmp1 - tmp2;
+			d[o] = tmp10 + tmp11;
+			d[o + 4 * s] = tmp10 - tmp11;
+			float z1 = (tmp12 + tmp13) * 0.707106781f;
+			d[o + 2 * s] = tmp13 + z1;
+			d[o + 6 * s] = tmp13 - z1;
+
+			tmp10 = tmp4 + tmp5;
+			tmp11 = tmp5 + tmp6;
+			tmp12 = tmp6 + tmp7;
+			float z5 = (tmp10 - tmp12) * 0.382683433f;
+			float z2 = 0.541196100f * tmp10 + z5;
+			float z4 = 1.306562965f * tmp12 + z5;
+			float z3 = tmp11 * 0.707106781f;
+			float z11 = tmp7 + z3;
+			float z13 = tmp7 - z3;
+			d[o + 5 * s] = z13 + z2;
+			d[o + 3 * s] = z13 - z2;
+			d[o + s] = z11 + z4;
+			d[o + 7 * s] = z11 - z4;
+		}
+	}
+
+	/** Encodes a range of strips, splitting it in halves until single strips remain. **/
+	private static final class StripTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Frame frame;
+		private final int from;
+		private final int to;
+
+		StripTask(Frame frame, int from, int to) {
+			this.frame = frame;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				frame.encodeStrip(from);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new StripTask(frame, from, middle), new StripTask(frame, middle, to));
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package org.vay.sampleapp;
+
+import ai.vay.client.api.SessionState;
+
+/** Collects the session events meant for the user into one {@link SessionViewModel} and hands it
+ * to the UI thread at most once per display frame.
+ *
+ * <p>Events only update the pending state, the last one per field winning, and request a frame
+ * if none is requested yet. When the frame comes, the state is snapshot and rendered once. A burst
+ * of events, e.g. a repetition with its state change and feedback, thus costs the main looper a
+ * single frame callback instead of a message per view update. Independent of Android, so it can
+ * be tested on the JVM; see {@link ChoreographerFrameScheduler} for the app's scheduler. **/
+public final class UiEventDispatcher implements SessionEventListener {
+
+	/** Runs the given task once on the UI thread, e.g. on the next display frame. Called from any
+	 * thread, at most once until the task has run. **/
+	public interface FrameScheduler {
+		void scheduleFrame(Runnable frame);
+	}
+
+	/** Updates the views, on the UI thread. The previous snapshot allows updating only the views
+	 * whose state changed. **/
+	public interface Renderer {
+		void render(SessionViewModel previous, SessionViewModel current);
+	}
+
+	private final String positiveFeedback;
+	private final FrameScheduler scheduler;
+	private final Renderer renderer;
+	private final Runnable frame = this::publish;
+	// The pending state, guarded by this.
+	private int correctRepetitions = 0;
+	private SessionState sessionState;
+	private String feedback;
+	private SessionViewModel.Tone feedbackTone;
+	private String connectivityWarning;
+	private boolean isFrameScheduled = false;
+	private long eventCount = 0;
+	private long publishCount = 0;
+	// The snapshot rendered last, only used on the UI thread.
+	private SessionViewModel published = SessionViewModel.EMPTY;
+
+	/**
+	 * @param positiveFeedback the feedback shown for a correct repetition
+	 * @param scheduler runs the publishing on the UI thread
+	 * @param renderer updates the views with each published snapshot
+	 */
+	public UiEventDispatcher(String positiveFeedback, FrameScheduler scheduler, Renderer renderer) {
+		this.positiveFeedback = positiveFeedback;
+		this.scheduler = scheduler;
+		this.renderer = renderer;
+	}
+
+	@Override
+	public void onPositioningGuidance(String message) {
+		synchronized (this) {
+			feedback = message;
+		}
+		changed();
+	}
+
+	@Override
+	public void onCorrectRepetition(int correctRepetitions) {
+		synchronized (this) {
+			this.correctRepetitions = correctRepetitions;
+			feedback = positiveFeedback;
+			feedbackTone = SessionViewModel.Tone.POSITIVE;
+		}
+		changed();
+	}
+
+	@Override
+	public void onCorrection(String correction) {
+		synchronized (this) {
+			feedback = correction;
+			feedbackTone = SessionViewModel.Tone.CORRECTION;
+		}
+		changed();
+	}
+
+	@Override
+	public void onSessionStateChanged(SessionState sessionState) {
+		synchronized (this) {
+			this.sessionState = sessionState;
+			feedbackTone = SessionViewModel.Tone.forState(sessionState);
+		}
+		changed();
+	}
+
+	@Override
+	public void onConnectivityWarning(String warning) {
+		synchronized (this) {
+			connectivityWarning = warning;
+		}
+		changed();
+	}
+
+	/** Returns the number of events received so far. **/
+	public synchronized long getEventCount() {
+		return eventCount;
+	}
+
+	/** Returns the number of snapshots rendered so far, at most one per frame. **/
+	public synchronized long getPublishCount() {
+		return publishCount;
+	}
+
+	/** Counts an event and requests a frame, unless one is requested already. **/
+	private void changed() {
+		synchronized (this) {
+			eventCount++;
+			if (isFrameScheduled) {
+				return;
+			}
+			isFrameScheduled = true;
+		}
+		scheduler.scheduleFrame(frame);
+	}
+
+	/** Renders the pending state, on the UI thread. Events from now on request the next frame. **/
+	private void publish() {
+		SessionViewModel current;
+		synchronized (this) {
+			isFrameScheduled = false;
+			publishCount++;
+			current = new SessionViewModel(correctRepetitions, sessionState, feedback, feedbackTone,
+					connectivityWarning);
+		}
+		SessionViewModel previous = published;
+		published = current;
+		renderer.render(previous, current);
+	}
+}
@@ -0,0 +1,204 @@
+package org.vay.sampleapp;
+
+import android.graphics.Rect;
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/** Decodes the video track of a file, e.g. a recorded workout, into YUV_420_888 frames with the
+ * platform decoder. Frames are handed out as the decoder's output images and returned to it on
+ * the next frame, so decoding does not copy them. Capture times are the presentation times.
+ *
+ * <p>The planes are handed out starting at the top left corner of the visible part of the decoded
+ * image, its crop rectangle. Its offset and size are rounded to even values within it, as the
+ * chroma planes are subsampled and NV21 needs even sizes. **/
+public final class VideoFrameSource implements YuvFrameSource {
+	// How long to wait for a decoder buffer before feeding or draining the other side.
+	private static final long DEQUEUE_TIMEOUT_MICROS = 10_000;
+	// Attempts to get an output buffer in a row, about 5 s, before the decoder is considered
+	// stuck, e.g. on a corrupt file.
+	private static final int MAX_DEQUEUE_ATTEMPTS = 500;
+
+	private final MediaExtractor extractor = new MediaExtractor();
+	private final MediaCodec decoder;
+	private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+	private final int rotationDegrees;
+	private boolean isInputDone = false;
+	private boolean isOutputDone = false;
+	// The output buffer of the current frame and its image, -1 and null if there is none.
+	private int outputIndex = -1;
+	private Image image;
+	private long captureNanos;
+	private int width;
+	private int height;
+	// Offset of the crop rectangle, in luma pixels.
+	private int left;
+	private int top;
+
+	public VideoFrameSource(File file) throws IOException {
+		MediaFormat format = null;
+		String mime = null;
+		try {
+			extractor.setDataSource(file.getPath());
+			for (int i = 0; i < extractor.getTrackCount() && format == null; i++) {
+				MediaFormat trackFormat = extractor.getTrackFormat(i);
+				String trackMime = trackFormat.getString(MediaFormat.KEY_MIME);
+				if (trackMime != null && trackMime.startsWith("video/")) {
+					extractor.selectTrack(i);
+					format = trackFormat;
+					mime = trackMime;
+				}
+			}
+			if (format == null) {
+				throw new IOException("No video track in " + file);
+			}
+			rotationDegrees = format.containsKey(MediaFormat.KEY_ROTATION)
+					? format.getInteger(MediaFormat.KEY_ROTATION) : 0;
+			format.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+					MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+			decoder = MediaCodec.createDecoderByType(mime);
+		} catch (IOException | RuntimeException e) {
+			extractor.release();
+			throw e;
+		}
+		decoder.configure(format, null, null, 0);
+		decoder.start();
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		releaseFrame();
+		int attempts = 0;
+		while (!isOutputDone) {
+			if (!isInputDone) {
+				queueInput();
+			}
+			int index = decoder.dequeueOutputBuffer(info, DEQUEUE_TIMEOUT_MICROS);
+			if (index < 0) {
+				// No frame yet, or a format or buffer change, which output images don't depend on.
+				if (++attempts >= MAX_DEQUEUE_ATTEMPTS) {
+					throw new IOException("The decoder produced no output for "
+							+ MAX_DEQUEUE_ATTEMPTS * DEQUEUE_TIMEOUT_MICROS / 1000 + " ms");
+				}
+				continue;
+			}
+			attempts = 0;
+			if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+				isOutputDone = true;
+			}
+			Image next = info.size > 0 ? decoder.getOutputImage(index) : null;
+			if (next == null) {
+				decoder.releaseOutputBuffer(index, false);
+				continue;
+			}
+			outputIndex = index;
+			image = next;
+			Rect crop = next.getCropRect();
+			left = (crop.left + 1) & ~1;
+			top = (crop.top + 1) & ~1;
+			width = (crop.right - left) & ~1;
+			height = (crop.bottom - top) & ~1;
+			captureNanos = info.presentationTimeUs * 1000;
+			return true;
+		}
+		return false;
+	}
+
+	/** Feeds the next sample of the track to the decoder, or the end of the stream. **/
+	private void queueInput() {
+		int index = decoder.dequeueInputBuffer(DEQUEUE_TIMEOUT_MICROS);
+		if (index < 0) {
+			return;
+		}
+		int size = extractor.readSampleData(decoder.getInputBuffer(index), 0);
+		if (size < 0) {
+			decoder.queueInputBuffer(index, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+			isInputDone = true;
+		} else {
+			decoder.queueInputBuffer(index, 0, size, extractor.getSampleTime(), 0);
+			extractor.advance();
+		}
+	}
+
+	/** Returns the output buffer of the current frame to the decoder. **/
+	private void releaseFrame() {
+		if (image == null) {
+			return;
+		}
+		image.close();
+		image = null;
+		decoder.releaseOutputBuffer(outputIndex, false);
+		outputIndex = -1;
+	}
+
+	@Override
+	public long getCaptureNanos() {
+		return captureNanos;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getRotationDegrees() {
+		return rotationDegrees;
+	}
+
+	@Override
+	public ByteBuffer getYBuffer() {
+		return cropPlane(image.getPlanes()[0], left, top);
+	}
+
+	@Override
+	public int getYRowStride() {
+		return image.getPlanes()[0].getRowStride();
+	}
+
+	@Override
+	public ByteBuffer getUBuffer() {
+		return cropPlane(image.getPlanes()[1], left / 2, top / 2);
+	}
+
+	@Override
+	public ByteBuffer getVBuffer() {
+		return cropPlane(image.getPlanes()[2], left / 2, top / 2);
+	}
+
+	@Override
+	public int getUvRowStride() {
+		return image.getPlanes()[1].getRowStride();
+	}
+
+	@Override
+	public int getUvPixelStride() {
+		return image.getPlanes()[1].getPixelStride();
+	}
+
+	/** Returns the plane's buffer starting at the given pixel, in the plane's own resolution. **/
+	private static ByteBuffer cropPlane(Image.Plane plane, int x, int y) {
+		ByteBuffer buffer = plane.getBuffer().duplicate();
+		buffer.position(y * plane.getRowStride() + x * plane.getPixelStride());
+		return buffer.slice();
+	}
+
+	@Override
+	public void close() {
+		releaseFrame();
+		decoder.stop();
+		decoder.release();
+		extractor.release();
+	}
+}
@@ -0,0 +1,127 @@
+package org.vay.sampleapp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/** Keeps a connection per key opened ahead of its use, so a session can start on a connection
+ * whose handshake is already done instead of waiting for it.
+ *
+ * <p>A spare connection is opened in the background for a key when it is prewarmed and again
+ * every time its spare is taken, so the next session with the same key, e.g. the next exercise
+ * of the same kind, starts warm as well. Independent of the connection type, so it can be tested
+ * without a server. **/
+public final class WarmConnectionPool<C> {
+
+	/** Opens and closes connections, on the pool's executor or the thread acquiring one. **/
+	public interface Connector<C> {
+		C connect(int key) throws IOException;
+
+		void close(C connection);
+	}
+
+	private final Connector<C> connector;
+	private final Executor executor;
+	// The spare per key, done once its connection is open or failed to open.
+	private final Map<Integer, FutureTask<C>> spares = new HashMap<>();
+	private boolean isClosed = false;
+
+	/**
+	 * @param connector opens and closes the connections
+	 * @param executor opens spares in the background and closes them on {@link #close()}
+	 */
+	public WarmConnectionPool(Connector<C> connector, Executor executor) {
+		this.connector = connector;
+		this.executor = executor;
+	}
+
+	/** Starts opening a spare connection for the key in the background, unless there is one. **/
+	public synchronized void prewarm(int key) {
+		if (isClosed || spares.containsKey(key)) {
+			return;
+		}
+		FutureTask<C> spare = new FutureTask<>(() -> connector.connect(key));
+		spares.put(key, spare);
+		executor.execute(spare);
+	}
+
+	/** Returns whether a spare connection for the key is open and ready to be taken. **/
+	public synchronized boolean isWarm(int key) {
+		FutureTask<C> spare = spares.get(key);
+		if (spare == null || !spare.isDone()) {
+			return false;
+		}
+		try {
+			spare.get();
+			return true;
+		} catch (ExecutionException | InterruptedException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns a connection for the key: the spare, waiting for it if it is still being opened, or
+	 * a new connection opened on the calling thread if there is no spare or it failed to open.
+	 * Either way a new spare is prewarmed for the next session with the key, unless the pool has
+	 * been closed meanwhile. If interrupted while waiting, the spare is closed once it is open.
+	 */
+	public C acquire(int key) throws IOException, InterruptedException {
+		FutureTask<C> spare;
+		synchronized (this) {
+			if (isClosed) {
+				throw new IllegalStateException("The connection pool has been closed");
+			}
+			spare = spares.remove(key);
+		}
+		C connection = null;
+		if (spare != null) {
+			try {
+				connection = spare.get();
+			} catch (ExecutionException e) {
+				// E.g. the network was down while prewarming, try again now.
+			} catch (InterruptedException e) {
+				// Nobody else knows about the spare anymore.
+				closeWhenOpen(spare);
+				Thread.currentThread().interrupt();
+				throw e;
+			}
+		}
+		if (connection == null) {
+			connection = connector.connect(key);
+		}
+		prewarm(key);
+		return connection;
+	}
+
+	/** Closes the spare connections, those still being opened once they are open. Connections
+	 * that were acquired are closed by their users. **/
+	public void close() {
+		List<FutureTask<C>> closing;
+		synchronized (this) {
+			isClosed = true;
+			closing = new ArrayList<>(spares.values());
+			spares.clear();
+		}
+		for (FutureTask<C> spare : closing) {
+			closeWhenOpen(spare);
+		}
+	}
+
+	/** Closes a spare on the executor, waiting for it to be open first. **/
+	private void closeWhenOpen(FutureTask<C> spare) {
+		executor.execute(() -> {
+			try {
+				connector.close(spare.get());
+			} catch (ExecutionException e) {
+				// Never opened, nothing to close.
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+	}
+}
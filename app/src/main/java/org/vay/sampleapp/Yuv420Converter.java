@@ -0,0 +1,140 @@
+package org.vay.sampleapp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/** Converts the planes of a YUV_420_888 image into NV21. The planes are passed as their buffers
+ * and strides rather than as {@code Image.Plane}s, so the conversion does not depend on the
+ * camera and can be tested and benchmarked on the JVM.
+ *
+ * <p>The NV21 format consists of a single byte array containing the Y, U and V values. For an
+ * image of size S, the first S positions of the array contain all the Y values. The remaining
+ * positions contain interleaved V and U values. U and V are subsampled by a factor of 2 in both
+ * dimensions, so there are S/4 U values and S/4 V values. In summary, the NV21 array will contain
+ * S Y values followed by S/4 VU values: YYYYYYYYYYYYYY(...)YVUVUVUVU(...)VU
+ *
+ * <p>YUV_420_888 is a generic format that can describe any YUV image where U and V are subsampled
+ * by a factor of 2 in both dimensions. The Y plane is guaranteed not to be interleaved, so we can
+ * just copy its values into the first part of the NV21 array. The U and V planes may already have
+ * the representation in the NV21 format. This happens if the planes share the same buffer, the V
+ * buffer is one position before the U buffer and the planes have a pixelStride of 2. If this is
+ * case, we can just copy them to the NV21 array. **/
+public final class Yuv420Converter {
+
+	private Yuv420Converter() {
+	}
+
+	/**
+	 * Converts YUV_420_888 planes to NV21.
+	 *
+	 * @param yBuffer buffer of the Y plane, whose pixel stride is always 1
+	 * @param yRowStride row stride of the Y plane
+	 * @param uBuffer buffer of the U plane
+	 * @param vBuffer buffer of the V plane
+	 * @param uvRowStride row stride of the U and V planes
+	 * @param uvPixelStride pixel stride of the U and V planes
+	 * @param width width of the image
+	 * @param height height of the image
+	 * @param out array of at least {@link FrameBufferPool#nv21Size(int, int)} bytes
+	 */
+	public static void toNv21(ByteBuffer yBuffer, int yRowStride, ByteBuffer uBuffer,
+			ByteBuffer vBuffer, int uvRowStride, int uvPixelStride, int width, int height,
+			byte[] out) {
+		int imageSize = width * height;
+
+		// Copy the Y values, row by row if the rows are padded.
+		unpackPlane(yBuffer, yRowStride, 1, width, height, out, 0, 1);
+		if (areUVPlanesNV21(uBuffer, vBuffer, width, height)) {
+			// Get the first V value from the V buffer, since the U buffer does not contain it.
+			vBuffer.get(out, imageSize, 1);
+			// Copy the first U value and the remaining VU values from the U buffer.
+			uBuffer.get(out, imageSize + 1, 2 * imageSize / 4 - 1);
+			vBuffer.rewind();
+			uBuffer.rewind();
+		} else {
+			// Fallback to deinterleaving the U and V values into the VU array.
+			// Unpack U.
+			unpackPlane(uBuffer, uvRowStride, uvPixelStride, width / 2, height / 2, out,
+					imageSize + 1, 2);
+			// Unpack V.
+			unpackPlane(vBuffer, uvRowStride, uvPixelStride, width / 2, height / 2, out,
+					imageSize, 2);
+		}
+	}
+
+	/** Checks if the UV plane buffers of a YUV_420_888 image are in the NV21 format. */
+	static boolean areUVPlanesNV21(ByteBuffer uBuffer, ByteBuffer vBuffer, int width, int height) {
+		int imageSize = width * height;
+
+		// Backup buffer properties.
+		int vBufferPosition = vBuffer.position();
+		int uBufferLimit = uBuffer.limit();
+
+		// Advance the V buffer by 1 byte, since the U buffer will not contain the first V value.
+		vBuffer.position(vBufferPosition + 1);
+		// Chop off the last byte of the U buffer, since the V buffer will not contain the last U value.
+		uBuffer.limit(uBufferLimit - 1);
+
+		// Check that the buffers are equal and have the expected number of elements.
+		boolean areNV21 =
+				(vBuffer.remaining() == (2 * imageSize / 4 - 2)) && (vBuffer.compareTo(uBuffer) == 0);
+
+		// Restore buffers to their initial state.
+		vBuffer.position(vBufferPosition);
+		uBuffer.limit(uBufferLimit);
+
+		return areNV21;
+	}
+
+	/**
+	 * Copies a plane of {@code planeWidth x planeHeight} samples into every
+	 * {@code outPixelStride}-th byte of {@code out}, from {@code offset} on. Rows are located by
+	 * the row stride, so padding at the end of rows, and any rows beyond the plane height, are
+	 * skipped. Whole rows are copied in bulk when both pixel strides are 1; otherwise samples are
+	 * read eight bytes at a time and split with shifts. The buffer is rewound afterwards.
+	 */
+	static void unpackPlane(ByteBuffer buffer, int rowStride, int pixelStride, int planeWidth,
+			int planeHeight, byte[] out, int offset, int outPixelStride) {
+		if (pixelStride == 1 && outPixelStride == 1) {
+			if (rowStride == planeWidth) {
+				buffer.position(0);
+				buffer.get(out, offset, planeWidth * planeHeight);
+			} else {
+				for (int row = 0; row < planeHeight; row++) {
+					buffer.position(row * rowStride);
+					buffer.get(out, offset + row * planeWidth, planeWidth);
+				}
+			}
+			buffer.rewind();
+			return;
+		}
+		// Position of sample k of a long within it, as a shift.
+		boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+		int samplesPerLong = pixelStride <= 8 ? 8 / pixelStride : 0;
+		int limit = buffer.limit();
+		int outputPos = offset;
+		for (int row = 0; row < planeHeight; row++) {
+			int inputPos = row * rowStride;
+			int col = 0;
+			if (samplesPerLong > 0) {
+				// Whole longs within the row and the buffer, which ends after the last sample.
+				while (col + samplesPerLong <= planeWidth && inputPos + 8 <= limit) {
+					long word = buffer.getLong(inputPos);
+					for (int k = 0; k < samplesPerLong; k++) {
+						int shift = bigEndian ? 56 - 8 * k * pixelStride : 8 * k * pixelStride;
+						out[outputPos] = (byte) (word >>> shift);
+						outputPos += outPixelStride;
+					}
+					inputPos += samplesPerLong * pixelStride;
+					col += samplesPerLong;
+				}
+			}
+			for (; col < planeWidth; col++) {
+				out[outputPos] = buffer.get(inputPos);
+				outputPos += outPixelStride;
+				inputPos += pixelStride;
+			}
+		}
+		buffer.rewind();
+	}
+}
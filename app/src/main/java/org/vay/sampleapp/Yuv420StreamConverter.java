@@ -0,0 +1,218 @@
+package org.vay.sampleapp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/** Converts the YUV_420_888 images of one camera stream into NV21, classifying the plane layout
+ * once instead of for every frame. {@link Yuv420Converter} compares the whole chroma planes on
+ * every call to find out whether they already are NV21; the layout of a stream never changes,
+ * though, so this class probes it when the image size or strides change and then uses a copier
+ * specialized for it.
+ *
+ * <p>Camera buffers may be handed out as new {@code ByteBuffer} objects for every image. When the
+ * buffers are not the ones of the previous frame, the cached layout is only verified on a few
+ * sampled positions, which is enough to notice a different layout; the full probe runs only if
+ * that check fails.
+ *
+ * <p>Aliasing is told from the contents, as buffers do not expose their memory address. Uniform
+ * chroma, as in dark or gray frames at camera start, looks aliased both ways; such a probe is
+ * ambiguous, so the image is deinterleaved and the next one probed again until the contents tell
+ * the layout apart. Not thread-safe, use one instance per stream on the analyzer thread. **/
+public final class Yuv420StreamConverter {
+	// Positions compared when verifying the layout of new buffers.
+	private static final int VERIFY_SAMPLES = 16;
+
+	/** Layout of the chroma planes of a stream. **/
+	public enum Layout {
+		/** V and U are views of one interleaved VU buffer, as in NV21. **/
+		NV21_ALIASED,
+		/** U and V are views of one interleaved UV buffer, as in NV12. **/
+		NV12_ALIASED,
+		/** Separate U and V planes with a pixel stride of 1, as in I420. **/
+		PLANAR,
+		/** Any other layout, deinterleaved sample by sample. **/
+		OTHER
+	}
+
+	private int width;
+	private int height;
+	private int yRowStride;
+	private int uvRowStride;
+	private int uvPixelStride;
+	private ByteBuffer lastUBuffer;
+	private ByteBuffer lastVBuffer;
+	private Layout layout;
+	// Whether the last probe could not tell the layout from the chroma contents.
+	private boolean ambiguous;
+	private boolean chromaPadded;
+	private int probeCount = 0;
+
+	/** Returns the layout of the last converted image, or null before the first one. **/
+	public Layout getLayout() {
+		return layout;
+	}
+
+	/** Returns whether the chroma rows of the last converted image are padded. **/
+	public boolean isChromaPadded() {
+		return chromaPadded;
+	}
+
+	/** Returns how often the layout has been probed, for tests and diagnostics. **/
+	public int getProbeCount() {
+		return probeCount;
+	}
+
+	/** Converts YUV_420_888 planes to NV21, see
+	 * {@link Yuv420Converter#toNv21(ByteBuffer, int, ByteBuffer, ByteBuffer, int, int, int, int,
+	 * byte[])}. **/
+	public void toNv21(ByteBuffer yBuffer, int yRowStride, ByteBuffer uBuffer, ByteBuffer vBuffer,
+			int uvRowStride, int uvPixelStride, int width, int height, byte[] out) {
+		if (layout == null || ambiguous || width != this.width || height != this.height
+				|| yRowStride != this.yRowStride || uvRowStride != this.uvRowStride
+				|| uvPixelStride != this.uvPixelStride) {
+			this.width = width;
+			this.height = height;
+			this.yRowStride = yRowStride;
+			this.uvRowStride = uvRowStride;
+			this.uvPixelStride = uvPixelStride;
+			probe(uBuffer, vBuffer);
+		} else if ((uBuffer != lastUBuffer || vBuffer != lastVBuffer) && !verify(uBuffer, vBuffer)) {
+			probe(uBuffer, vBuffer);
+		}
+		lastUBuffer = uBuffer;
+		lastVBuffer = vBuffer;
+
+		int imageSize = width * height;
+		Yuv420Converter.unpackPlane(yBuffer, yRowStride, 1, width, height, out, 0, 1);
+		switch (layout) {
+			case NV21_ALIASED:
+				copyNv21(uBuffer, vBuffer, out, imageSize);
+				break;
+			case NV12_ALIASED:
+				copyNv12(uBuffer, vBuffer, out, imageSize);
+				break;
+			default:
+				Yuv420Converter.unpackPlane(uBuffer, uvRowStride, uvPixelStride, width / 2,
+						height / 2, out, imageSize + 1, 2);
+				Yuv420Converter.unpackPlane(vBuffer, uvRowStride, uvPixelStride, width / 2,
+						height / 2, out, imageSize, 2);
+		}
+	}
+
+	private void probe(ByteBuffer uBuffer, ByteBuffer vBuffer) {
+		probeCount++;
+		chromaPadded = uvRowStride != (width / 2) * uvPixelStride;
+		ambiguous = false;
+		if (uvPixelStride == 1) {
+			layout = Layout.PLANAR;
+			return;
+		}
+		boolean uAhead = uvPixelStride == 2 && isOneAhead(uBuffer, vBuffer);
+		boolean vAhead = uvPixelStride == 2 && isOneAhead(vBuffer, uBuffer);
+		if (uAhead && vAhead) {
+			// Every U and every V sample is the same, separate planes would match as well.
+			// Deinterleaving is right for any layout.
+			ambiguous = true;
+			layout = Layout.OTHER;
+		} else if (uAhead) {
+			layout = Layout.NV21_ALIASED;
+		} else if (vAhead) {
+			layout = Layout.NV12_ALIASED;
+		} else {
+			layout = Layout.OTHER;
+		}
+	}
+
+	/** Checks the cached layout on sampled positions of new buffers. **/
+	private boolean verify(ByteBuffer uBuffer, ByteBuffer vBuffer) {
+		switch (layout) {
+			case NV21_ALIASED:
+				return isSampledOneAhead(uBuffer, vBuffer);
+			case NV12_ALIASED:
+				return isSampledOneAhead(vBuffer, uBuffer);
+			case OTHER:
+				// Interleaved planes that turned into aliased views need a new probe.
+				return uvPixelStride != 2 || (!isSampledOneAhead(uBuffer, vBuffer)
+						&& !isSampledOneAhead(vBuffer, uBuffer));
+			default:
+				return true;
+		}
+	}
+
+	/** Returns whether {@code later} holds the contents of {@code earlier} shifted by one byte, as
+	 * when both are views of the same interleaved buffer. Compares the whole buffers. **/
+	private static boolean isOneAhead(ByteBuffer later, ByteBuffer earlier) {
+		int length = later.limit() - 1;
+		if (earlier.limit() - 1 != length || length <= 0) {
+			return false;
+		}
+		ByteBuffer shifted = earlier.duplicate();
+		shifted.position(1);
+		ByteBuffer head = later.duplicate();
+		head.position(0);
+		head.limit(length);
+		return shifted.compareTo(head) == 0;
+	}
+
+	/** Like {@link #isOneAhead}, but only compares a few evenly spread positions. **/
+	private static boolean isSampledOneAhead(ByteBuffer later, ByteBuffer earlier) {
+		int length = later.limit() - 1;
+		if (earlier.limit() - 1 != length || length <= 0) {
+			return false;
+		}
+		for (int i = 0; i < VERIFY_SAMPLES; i++) {
+			int pos = (int) ((long) i * (length - 1) / (VERIFY_SAMPLES - 1));
+			if (later.get(pos) != earlier.get(pos + 1)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Copies VU rows straight from the V view, whose last byte is only in the U view. **/
+	private void copyNv21(ByteBuffer uBuffer, ByteBuffer vBuffer, byte[] out, int imageSize) {
+		int rowBytes = width;
+		int rows = height / 2;
+		int chromaSize = rowBytes * rows;
+		if (!chromaPadded) {
+			vBuffer.position(0);
+			vBuffer.get(out, imageSize, chromaSize - 1);
+		} else {
+			for (int row = 0; row < rows; row++) {
+				vBuffer.position(row * uvRowStride);
+				vBuffer.get(out, imageSize + row * rowBytes, row < rows - 1 ? rowBytes : rowBytes - 1);
+			}
+		}
+		out[imageSize + chromaSize - 1] = uBuffer.get((rows - 1) * uvRowStride + rowBytes - 2);
+		vBuffer.rewind();
+	}
+
+	/** Copies UV rows from the U view, swapping every pair of bytes eight bytes at a time. **/
+	private void copyNv12(ByteBuffer uBuffer, ByteBuffer vBuffer, byte[] out, int imageSize) {
+		int rowBytes = width;
+		int limit = uBuffer.limit();
+		boolean bigEndian = uBuffer.order() == ByteOrder.BIG_ENDIAN;
+		int outputPos = imageSize;
+		for (int row = 0; row < height / 2; row++) {
+			int inputPos = row * uvRowStride;
+			int col = 0;
+			while (col + 8 <= rowBytes && inputPos + 8 <= limit) {
+				long word = uBuffer.getLong(inputPos);
+				// Pair swapping is independent of the byte order.
+				long swapped = ((word & 0x00FF00FF00FF00FFL) << 8)
+						| ((word >>> 8) & 0x00FF00FF00FF00FFL);
+				for (int k = 0; k < 8; k++) {
+					out[outputPos++] = (byte) (swapped >>> (bigEndian ? 56 - 8 * k : 8 * k));
+				}
+				inputPos += 8;
+				col += 8;
+			}
+			for (; col < rowBytes; col += 2) {
+				// The V view starts one byte after the U view.
+				out[outputPos++] = vBuffer.get(inputPos);
+				out[outputPos++] = uBuffer.get(inputPos);
+				inputPos += 2;
+			}
+		}
+	}
+}
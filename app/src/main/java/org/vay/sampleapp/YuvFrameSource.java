@@ -0,0 +1,36 @@
+package org.vay.sampleapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/** A sequence of YUV_420_888 frames read one by one, e.g. from a {@link FrameRecorder} file or a
+ * decoded video, described like camera images so they convert through the same
+ * {@link Yuv420StreamConverter}. The getters describe the current frame, valid until
+ * {@link #next()}. Not thread safe. **/
+public interface YuvFrameSource extends Closeable {
+
+	/** Advances to the next frame. Returns false at the end of the source. **/
+	boolean next() throws IOException;
+
+	long getCaptureNanos();
+
+	int getWidth();
+
+	int getHeight();
+
+	/** Returns the clockwise rotation to display the frame upright. **/
+	int getRotationDegrees();
+
+	ByteBuffer getYBuffer();
+
+	int getYRowStride();
+
+	ByteBuffer getUBuffer();
+
+	ByteBuffer getVBuffer();
+
+	int getUvRowStride();
+
+	int getUvPixelStride();
+}
@@ -0,0 +1,88 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AnalysisSessionManagerTest {
+	private static final int WIDTH = 64;
+	private static final int HEIGHT = 48;
+
+	@Test
+	public void frameRateBudget_isDividedAmongOpenSessions() {
+		AnalysisSessionManager manager = new AnalysisSessionManager(2, 40f);
+		try {
+			FrameStreamer first = manager.openSession((frameId, bytes) -> { }, 30f);
+			assertEquals(30f, first.getSendRateGovernor().getMaxFps(), 0);
+			FrameStreamer second = manager.openSession((frameId, bytes) -> { }, 30f);
+			assertEquals(20f, first.getSendRateGovernor().getMaxFps(), 0);
+			assertEquals(20f, second.getSendRateGovernor().getMaxFps(), 0);
+			assertTrue(first.getSendRateGovernor().getTargetFps() <= 20f);
+
+			manager.closeSession(first);
+			assertTrue(first.isShutdown());
+			assertEquals(1, manager.getSessionCount());
+			assertEquals(30f, second.getSendRateGovernor().getMaxFps(), 0);
+		} finally {
+			manager.shutdown();
+		}
+	}
+
+	@Test
+	public void sessions_takeTurnsOnSharedEncoderThreads() throws Exception {
+		AnalysisSessionManager manager = new AnalysisSessionManager(1, 2000f);
+		FrameStreamer[] sessions = new FrameStreamer[2];
+		try {
+			for (int i = 0; i < sessions.length; i++) {
+				sessions[i] = manager.openSession((frameId, bytes) -> { }, 1000f);
+				sessions[i].setMotionGatingEnabled(false);
+				sessions[i].setFrameEncoder((nv21, width, height) -> {
+					sleepMillis(2);
+					return new byte[16];
+				});
+			}
+			// Both sessions are fed whenever their previous frame was taken by the encoder thread,
+			// so a session keeping the thread would starve the other one.
+			long deadline = System.nanoTime() + 10_000_000_000L;
+			while (encodedFrames(sessions) < 40) {
+				assertTrue("timed out", System.nanoTime() < deadline);
+				for (FrameStreamer session : sessions) {
+					long now = System.nanoTime();
+					if (!session.isEncoderBusy() && session.shouldCapture(now)) {
+						session.submit(new Nv21Frame(manager.getBufferPool(), WIDTH, HEIGHT, 0, now));
+					}
+				}
+				Thread.yield();
+			}
+		} finally {
+			manager.shutdown();
+		}
+		long first = sessions[0].getFrameCounters().getEncoded();
+		long second = sessions[1].getFrameCounters().getEncoded();
+		assertTrue("encoded " + first + " and " + second,
+				Math.min(first, second) >= 0.35 * (first + second));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void openSession_afterShutdown_throws() {
+		AnalysisSessionManager manager = new AnalysisSessionManager(1, 30f);
+		manager.shutdown();
+		manager.openSession((frameId, bytes) -> { }, 30f);
+	}
+
+	private static long encodedFrames(FrameStreamer[] sessions) {
+		long encoded = 0;
+		for (FrameStreamer session : sessions) {
+			encoded += session.getFrameCounters().getEncoded();
+		}
+		return encoded;
+	}
+
+	private static void sleepMillis(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
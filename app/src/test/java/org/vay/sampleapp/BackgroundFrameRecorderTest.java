@@ -0,0 +1,97 @@
+package org.vay.sampleapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class BackgroundFrameRecorderTest {
+	private static final int WIDTH = 64;
+	private static final int HEIGHT = 48;
+
+	private File file;
+
+	@After
+	public void deleteFile() {
+		if (file != null) {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void planes_areCopiedBeforeOfferReturns() throws IOException {
+		file = File.createTempFile("frames", ".rec");
+		SyntheticPlanes planes = SyntheticPlanes.create(SyntheticPlanes.Layout.NV21_ALIASED, true,
+				WIDTH, HEIGHT);
+		try (BackgroundFrameRecorder recorder = new BackgroundFrameRecorder(file)) {
+			assertTrue(offer(recorder, planes, 1000L));
+			assertEquals(0, planes.yBuffer.position());
+			// The camera reuses its buffers for the next image right away.
+			fill(planes.yBuffer);
+			fill(planes.vBuffer);
+		}
+
+		SyntheticPlanes original = SyntheticPlanes.create(SyntheticPlanes.Layout.NV21_ALIASED,
+				true, WIDTH, HEIGHT);
+		try (FrameRecordingReader reader = new FrameRecordingReader(file)) {
+			assertTrue(reader.next());
+			assertEquals(1000L, reader.getCaptureNanos());
+			byte[] nv21 = new byte[FrameBufferPool.nv21Size(WIDTH, HEIGHT)];
+			Yuv420Converter.toNv21(reader.getYBuffer(), reader.getYRowStride(),
+					reader.getUBuffer(), reader.getVBuffer(), reader.getUvRowStride(),
+					reader.getUvPixelStride(), WIDTH, HEIGHT, nv21);
+			assertArrayEquals(original.expectedNv21, nv21);
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void imagesBeyondTheQueue_areDroppedNotBlocked() throws IOException {
+		file = File.createTempFile("frames", ".rec");
+		SyntheticPlanes planes = SyntheticPlanes.create(SyntheticPlanes.Layout.PLANAR, false,
+				WIDTH, HEIGHT);
+		int offered = 200;
+		int recorded = 0;
+		int dropped;
+		try (BackgroundFrameRecorder recorder = new BackgroundFrameRecorder(file, 1)) {
+			for (int i = 0; i < offered; i++) {
+				if (offer(recorder, planes, i)) {
+					recorded++;
+				}
+			}
+			dropped = recorder.getDroppedCount();
+		}
+		assertEquals(offered, recorded + dropped);
+
+		int read = 0;
+		long lastCaptureNanos = -1;
+		try (FrameRecordingReader reader = new FrameRecordingReader(file)) {
+			while (reader.next()) {
+				assertTrue(reader.getCaptureNanos() > lastCaptureNanos);
+				lastCaptureNanos = reader.getCaptureNanos();
+				read++;
+			}
+		}
+		assertEquals(recorded, read);
+	}
+
+	private static boolean offer(BackgroundFrameRecorder recorder, SyntheticPlanes planes,
+			long captureNanos) {
+		planes.yBuffer.rewind();
+		planes.uBuffer.rewind();
+		planes.vBuffer.rewind();
+		return recorder.offer(captureNanos, planes.width, planes.height, 0, planes.yBuffer,
+				planes.yRowStride, planes.uBuffer, planes.vBuffer, planes.uvRowStride,
+				planes.uvPixelStride);
+	}
+
+	private static void fill(ByteBuffer buffer) {
+		for (int i = 0; i < buffer.limit(); i++) {
+			buffer.put(i, (byte) 7);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/** Analyses a synthetic 720p recording in batch mode against a {@link BatchStubAnalyser} with a
+ * server-like delay, with JPEG encoding. Reports the frames analysed per second per in-flight
+ * window: with one frame in flight the round trip bounds the rate, a wider window overlaps the
+ * round trips until the encoders bound it. **/
+public class BatchAnalysisBenchmark {
+	private static final int WIDTH = 1280;
+	private static final int HEIGHT = 720;
+	private static final int FRAMES = 60;
+	private static final long FRAME_NANOS = 1_000_000_000L / 30;
+	private static final long SERVER_DELAY_MILLIS = 40;
+
+	@Test
+	public void wideWindow_analysesFaster() throws Exception {
+		File recording = File.createTempFile("frames", ".rec");
+		File output = File.createTempFile("poses", ".col");
+		try {
+			record(recording);
+			System.out.println(String.format("%-10s %8s %8s %8s %8s", "in flight", "frames",
+					"poses", "fps", "out kB"));
+			double narrow = analyse(recording, output, 1);
+			analyse(recording, output, 2);
+			double wide = analyse(recording, output, 8);
+			assertTrue("fps " + narrow + " and " + wide, wide > narrow);
+		} finally {
+			recording.delete();
+			output.delete();
+		}
+	}
+
+	private static double analyse(File recording, File output, int maxInFlight)
+			throws Exception {
+		BatchStubAnalyser stub = new BatchStubAnalyser(SERVER_DELAY_MILLIS);
+		BatchAnalysis.Result result;
+		try (FrameRecordingReader source = new FrameRecordingReader(recording);
+				PoseColumnWriter writer = new PoseColumnWriter(output, PoseGraphic.pointCount())) {
+			BatchAnalysis batch = new BatchAnalysis(source,
+					new JpegFrameEncoder(JpegFrameEncoder.DEFAULT_QUALITY,
+							new StripJpegCompressor()),
+					FrameStreamer.DEFAULT_TARGET_LONG_EDGE, stub, writer,
+					Math.max(1, Runtime.getRuntime().availableProcessors() - 1), maxInFlight);
+			stub.attach(batch);
+			result = batch.run();
+		} finally {
+			stub.shutdown();
+		}
+		assertEquals(FRAMES, result.getPoses());
+		System.out.println(String.format("%-10d %8d %8d %8.1f %8.1f", maxInFlight,
+				result.getFrames(), result.getPoses(), result.getFramesPerSecond(),
+				output.length() / 1000.0));
+		return result.getFramesPerSecond();
+	}
+
+	private static void record(File file) throws IOException {
+		try (FrameRecorder recorder = new FrameRecorder(file)) {
+			for (int i = 0; i < FRAMES; i++) {
+				SyntheticPlanes planes = SyntheticPlanes.create(SyntheticPlanes.Layout.NV21_ALIASED,
+						true, WIDTH, HEIGHT, i);
+				recorder.write(i * FRAME_NANOS, WIDTH, HEIGHT, 90, planes.yBuffer,
+						planes.yRowStride, planes.uBuffer, planes.vBuffer, planes.uvRowStride,
+						planes.uvPixelStride);
+			}
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package org.vay.sampleapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BatchAnalysisTest {
+	private static final int WIDTH = 128;
+	private static final int HEIGHT = 96;
+	private static final int FRAMES = 40;
+	private static final long FRAME_NANOS = 1_000_000_000L / 30;
+	// Sends the upright 96x128 frames at 48x64, so poses scale back by 2.
+	private static final int TARGET_LONG_EDGE = 64;
+
+	private File recording;
+	private File output;
+	private BatchStubAnalyser stub;
+
+	@After
+	public void tearDown() {
+		if (stub != null) {
+			stub.shutdown();
+		}
+		if (recording != null) {
+			recording.delete();
+		}
+		if (output != null) {
+			output.delete();
+		}
+	}
+
+	@Test
+	public void everyFrame_isAnalysedInOrder() throws Exception {
+		record();
+		stub = new BatchStubAnalyser(5);
+		BatchAnalysis.Result result = analyse((nv21, width, height) -> new byte[16], 3);
+		assertEquals(FRAMES, result.getFrames());
+		assertEquals(FRAMES, result.getSent());
+		assertEquals(FRAMES, result.getPoses());
+		assertEquals(0, result.getLost());
+		assertEquals(FRAMES, stub.getReceivedFrames());
+		assertTrue("awaiting " + stub.getMaxAwaiting(), stub.getMaxAwaiting() <= 3);
+
+		PoseColumnReader reader = new PoseColumnReader(output);
+		assertEquals(FRAMES, reader.getPoseCount());
+		for (int row = 0; row < FRAMES; row++) {
+			assertEquals(row, reader.getPoseFrame(row));
+			assertEquals(row * FRAME_NANOS / 1000, reader.getPoseMicros(row));
+			assertEquals(stub.getMask(), reader.getPoseMask(row));
+			assertEquals(2 * 10f, reader.getX(row, 0), 1e-4);
+			assertEquals(2 * 21f, reader.getY(row, 1), 1e-4);
+		}
+		assertEquals(FRAMES / BatchStubAnalyser.FRAMES_PER_REPETITION,
+				reader.getRepetitionCount());
+		assertEquals(BatchStubAnalyser.FRAMES_PER_REPETITION - 1, reader.getRepetitionFrame(0));
+		assertTrue(reader.isRepetitionCorrect(0));
+	}
+
+	@Test
+	public void failedEncodes_areSkipped() throws Exception {
+		record();
+		stub = new BatchStubAnalyser(1);
+		// Every other encode fails, whichever frame it is on.
+		AtomicInteger encodes = new AtomicInteger();
+		BatchAnalysis.Result result = analyse((nv21, width, height) ->
+				encodes.getAndIncrement() % 2 == 0 ? new byte[16] : null, 1);
+		assertEquals(FRAMES, result.getFrames());
+		assertEquals(FRAMES / 2, result.getFailedEncodes());
+		assertEquals(FRAMES / 2, result.getPoses());
+		// The poses belong to the frames that were sent, in order.
+		PoseColumnReader reader = new PoseColumnReader(output);
+		for (int row = 1; row < reader.getPoseCount(); row++) {
+			assertTrue(reader.getPoseFrame(row) > reader.getPoseFrame(row - 1));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void analyserFailure_failsRun() throws Exception {
+		record();
+		output = File.createTempFile("poses", ".col");
+		try (FrameRecordingReader source = new FrameRecordingReader(recording);
+				PoseColumnWriter writer = new PoseColumnWriter(output, PoseGraphic.pointCount())) {
+			BatchAnalysis[] batch = new BatchAnalysis[1];
+			batch[0] = new BatchAnalysis(source, (nv21, width, height) -> new byte[16],
+					TARGET_LONG_EDGE,
+					(frameId, bytes) -> batch[0].fail(new IOException("Connection lost")), writer,
+					2, 2);
+			batch[0].run();
+		}
+	}
+
+	private void record() throws IOException {
+		recording = File.createTempFile("frames", ".rec");
+		try (FrameRecorder recorder = new FrameRecorder(recording)) {
+			for (int i = 0; i < FRAMES; i++) {
+				SyntheticPlanes planes = SyntheticPlanes.create(SyntheticPlanes.Layout.PLANAR,
+						false, WIDTH, HEIGHT, i);
+				recorder.write(i * FRAME_NANOS, WIDTH, HEIGHT, 90, planes.yBuffer,
+						planes.yRowStride, planes.uBuffer, planes.vBuffer, planes.uvRowStride,
+						planes.uvPixelStride);
+			}
+		}
+	}
+
+	private BatchAnalysis.Result analyse(FrameEncoder encoder, int maxInFlight) throws Exception {
+		output = File.createTempFile("poses", ".col");
+		try (FrameRecordingReader source = new FrameRecordingReader(recording);
+				PoseColumnWriter writer = new PoseColumnWriter(output, PoseGraphic.pointCount())) {
+			BatchAnalysis batch = new BatchAnalysis(source, encoder, TARGET_LONG_EDGE, stub,
+					writer, 2, maxInFlight);
+			stub.attach(batch);
+			return batch.run();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package org.vay.sampleapp;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Local stand-in for the streaming analyser of a {@link BatchAnalysis}: answers every frame it
+ * receives with a canned pose after a fixed delay, in receive order, on a single listener thread,
+ * and reports a correct repetition after every {@link #FRAMES_PER_REPETITION} poses. **/
+final class BatchStubAnalyser implements FrameStreamer.FrameSink {
+	static final int FRAMES_PER_REPETITION = 10;
+
+	private final long delayNanos;
+	private final ScheduledExecutorService listenerThread =
+			Executors.newSingleThreadScheduledExecutor();
+	// Accessed on the listener thread only.
+	private final float[] coordinates = new float[2 * PoseGraphic.pointCount()];
+	private final long mask;
+	private int poses = 0;
+	private final AtomicInteger received = new AtomicInteger();
+	private final AtomicInteger awaiting = new AtomicInteger();
+	private final AtomicInteger maxAwaiting = new AtomicInteger();
+	private volatile BatchAnalysis batch;
+
+	/**
+	 * @param delayMillis time from receiving a frame to answering with its pose
+	 */
+	BatchStubAnalyser(long delayMillis) {
+		delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+		// Point i at (10 + i, 20 + i) of the sent image, all but the last one accurate.
+		int points = coordinates.length / 2;
+		for (int i = 0; i < points; i++) {
+			coordinates[2 * i] = 10 + i;
+			coordinates[2 * i + 1] = 20 + i;
+		}
+		mask = (1L << (points - 1)) - 1;
+	}
+
+	/** Sets the batch analysis the answers are reported to, before it runs. **/
+	void attach(BatchAnalysis batch) {
+		this.batch = batch;
+	}
+
+	long getMask() {
+		return mask;
+	}
+
+	@Override
+	public void send(long frameId, byte[] encodedFrame) {
+		received.incrementAndGet();
+		int current = awaiting.incrementAndGet();
+		maxAwaiting.accumulateAndGet(current, Math::max);
+		listenerThread.schedule(() -> {
+			awaiting.decrementAndGet();
+			batch.onPose(coordinates, mask);
+			if (++poses % FRAMES_PER_REPETITION == 0) {
+				batch.onRepetition(true, null);
+			}
+		}, delayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	int getReceivedFrames() {
+		return received.get();
+	}
+
+	/** Returns the most frames that awaited their pose at once. **/
+	int getMaxAwaiting() {
+		return maxAwaiting.get();
+	}
+
+	void shutdown() {
+		listenerThread.shutdownNow();
+	}
+}
@@ -0,0 +1,64 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CropRectTest {
+	private static final int WIDTH = 480;
+	private static final int HEIGHT = 640;
+
+	@Test
+	public void noRegion_isFullFrame() {
+		assertTrue(CropRect.fromRegion(null, 1f, WIDTH, HEIGHT).isFull(WIDTH, HEIGHT));
+	}
+
+	@Test
+	public void region_isMappedToEvenFramePixels() {
+		// Overlay image coordinates are half the frame size.
+		CropRect crop = CropRect.fromRegion(new RegionOfInterest(51.5f, 40f, 149f, 250.2f), 0.5f,
+				WIDTH, HEIGHT);
+		assertEquals(102, crop.getLeft());
+		assertEquals(80, crop.getTop());
+		assertEquals(298 - 102, crop.getWidth());
+		assertEquals(502 - 80, crop.getHeight());
+	}
+
+	@Test
+	public void region_isClampedToFrame() {
+		CropRect crop = CropRect.fromRegion(new RegionOfInterest(-50f, 300f, 200f, 900f), 1f,
+				WIDTH, HEIGHT);
+		assertEquals(0, crop.getLeft());
+		assertEquals(HEIGHT, crop.getTop() + crop.getHeight());
+	}
+
+	@Test
+	public void tinyRegion_isGrownToMinimum() {
+		CropRect crop = CropRect.fromRegion(new RegionOfInterest(10f, 10f, 12f, 12f), 1f, WIDTH,
+				HEIGHT);
+		assertEquals(0, crop.getLeft());
+		assertEquals(WIDTH / 4, crop.getWidth());
+		assertEquals(HEIGHT / 4, crop.getHeight());
+	}
+
+	@Test
+	public void regionCoveringMostOfFrame_isFullFrame() {
+		CropRect crop = CropRect.fromRegion(new RegionOfInterest(5f, 5f, WIDTH - 5, HEIGHT - 5),
+				1f, WIDTH, HEIGHT);
+		assertTrue(crop.isFull(WIDTH, HEIGHT));
+	}
+
+	@Test
+	public void scaledLongEdge_keepsPixelDensity() {
+		CropRect crop = new CropRect(0, 0, WIDTH / 2, HEIGHT / 2);
+		assertEquals(160, crop.scaledLongEdge(WIDTH, HEIGHT, 320));
+		assertEquals(320, CropRect.full(WIDTH, HEIGHT).scaledLongEdge(WIDTH, HEIGHT, 320));
+		assertEquals(0, crop.scaledLongEdge(WIDTH, HEIGHT, 0));
+		assertEquals(0, crop.scaledLongEdge(WIDTH, HEIGHT, HEIGHT));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void oddEdges_throw() {
+		new CropRect(1, 0, 4, 4);
+	}
+}
@@ -0,0 +1,50 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EncodedFrameRingTest {
+
+	@Test
+	public void framesLeaveOldestFirst() {
+		EncodedFrameRing ring = new EncodedFrameRing(3);
+		assertFalse(ring.add(frame(1)));
+		assertFalse(ring.add(frame(2)));
+		assertEquals(2, ring.size());
+		assertEquals(1, ring.removeOldest().getCaptureNanos());
+		assertEquals(2, ring.removeOldest().getCaptureNanos());
+		assertTrue(ring.isEmpty());
+		assertNull(ring.removeOldest());
+	}
+
+	@Test
+	public void full_replacesOldest() {
+		EncodedFrameRing ring = new EncodedFrameRing(2);
+		ring.add(frame(1));
+		ring.add(frame(2));
+		assertTrue(ring.add(frame(3)));
+		assertTrue(ring.add(frame(4)));
+		assertEquals(2, ring.size());
+		assertEquals(3, ring.removeOldest().getCaptureNanos());
+		// Wraps around after removing.
+		assertFalse(ring.add(frame(5)));
+		assertEquals(4, ring.removeOldest().getCaptureNanos());
+		assertEquals(5, ring.removeOldest().getCaptureNanos());
+	}
+
+	@Test
+	public void clear_emptiesRing() {
+		EncodedFrameRing ring = new EncodedFrameRing(2);
+		ring.add(frame(1));
+		ring.add(frame(2));
+		ring.clear();
+		assertTrue(ring.isEmpty());
+		assertFalse(ring.add(frame(3)));
+		assertEquals(3, ring.removeOldest().getCaptureNanos());
+	}
+
+	private static EncodedFrame frame(long captureNanos) {
+		return new EncodedFrame(new byte[1], captureNanos, 1f, 1f, 0f, 0f);
+	}
+}
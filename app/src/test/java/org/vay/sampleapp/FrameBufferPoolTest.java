@@ -0,0 +1,58 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameBufferPoolTest {
+	@Test
+	public void steadyState_allocatesNothing() {
+		FrameBufferPool pool = new FrameBufferPool();
+		int size = FrameBufferPool.nv21Size(1920, 1080);
+		// Warm up: the first frame needs one allocation.
+		pool.release(pool.acquire(size));
+		assertEquals(1, pool.getAllocationCount());
+
+		for (int frame = 0; frame < 1000; frame++) {
+			byte[] buffer = pool.acquire(size);
+			assertEquals(size, buffer.length);
+			pool.release(buffer);
+		}
+		assertEquals(1, pool.getAllocationCount());
+	}
+
+	@Test
+	public void buffersAreBucketedBySize() {
+		FrameBufferPool pool = new FrameBufferPool();
+		byte[] small = pool.acquire(FrameBufferPool.nv21Size(640, 480));
+		byte[] large = pool.acquire(FrameBufferPool.nv21Size(1280, 720));
+		pool.release(small);
+		pool.release(large);
+
+		assertSame(small, pool.acquire(small.length));
+		assertSame(large, pool.acquire(large.length));
+		assertEquals(2, pool.getAllocationCount());
+	}
+
+	@Test
+	public void idleBuffersAreBounded() {
+		FrameBufferPool pool = new FrameBufferPool(2);
+		byte[] a = pool.acquire(16);
+		byte[] b = pool.acquire(16);
+		byte[] c = pool.acquire(16);
+		pool.release(a);
+		pool.release(b);
+		pool.release(c); // Dropped, the pool already holds two idle buffers of this size.
+
+		pool.acquire(16);
+		pool.acquire(16);
+		assertEquals(3, pool.getAllocationCount());
+		pool.acquire(16);
+		assertEquals(4, pool.getAllocationCount());
+	}
+
+	@Test
+	public void nv21Size_isOneAndAHalfBytesPerPixel() {
+		assertEquals(640 * 480 * 3 / 2, FrameBufferPool.nv21Size(640, 480));
+	}
+}
@@ -0,0 +1,71 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/** Compares encode time and output size of the frame encoders on the JVM. JPEG encoders use
+ * {@link ImageIoJpegCompressor} in place of the platform compressor. **/
+public class FrameEncoderBenchmark {
+	private static final int WIDTH = 640;
+	private static final int HEIGHT = 480;
+	private static final int FRAMES = 8;
+	private static final int WARMUP_ROUNDS = 2;
+
+	@Test
+	public void compareEncoders() throws IOException {
+		byte[][] frames = new byte[FRAMES][];
+		for (int i = 0; i < FRAMES; i++) {
+			frames[i] = SyntheticFrames.nv21(WIDTH, HEIGHT, i);
+		}
+		JpegCompressor compressor = new ImageIoJpegCompressor();
+		FrameBufferPool pool = new FrameBufferPool();
+		Map<String, FrameEncoder> encoders = new LinkedHashMap<>();
+		encoders.put("jpeg q80", new JpegFrameEncoder(80, compressor));
+		encoders.put("jpeg q50", new JpegFrameEncoder(50, compressor));
+		encoders.put("gray jpeg q80", new GrayscaleJpegFrameEncoder(80, compressor, pool));
+		encoders.put("raw nv21 /1", new RawNv21FrameEncoder(1));
+		encoders.put("raw nv21 /2", new RawNv21FrameEncoder(2));
+		encoders.put("raw nv21 /4", new RawNv21FrameEncoder(4));
+
+		System.out.println(String.format("%-16s %12s %12s", "encoder", "us/frame", "bytes/frame"));
+		for (Map.Entry<String, FrameEncoder> entry : encoders.entrySet()) {
+			FrameEncoder encoder = entry.getValue();
+			for (int round = 0; round < WARMUP_ROUNDS; round++) {
+				for (byte[] frame : frames) {
+					encoder.encode(frame, WIDTH, HEIGHT);
+				}
+			}
+			long bytes = 0;
+			long start = System.nanoTime();
+			for (byte[] frame : frames) {
+				bytes += encoder.encode(frame, WIDTH, HEIGHT).length;
+			}
+			long elapsed = System.nanoTime() - start;
+			assertTrue(bytes > 0);
+			System.out.println(String.format("%-16s %12d %12d",
+					entry.getKey(), elapsed / FRAMES / 1000, bytes / FRAMES));
+		}
+	}
+
+	@Test
+	public void grayscaleJpeg_isSmallerThanColor() throws IOException {
+		JpegCompressor compressor = new ImageIoJpegCompressor();
+		byte[] frame = SyntheticFrames.nv21(WIDTH, HEIGHT, 0);
+		int color = new JpegFrameEncoder(80, compressor).encode(frame, WIDTH, HEIGHT).length;
+		int gray = new GrayscaleJpegFrameEncoder(80, compressor, new FrameBufferPool())
+				.encode(frame, WIDTH, HEIGHT).length;
+		assertTrue(gray < color);
+	}
+
+	@Test
+	public void rawNv21_downscalesByFactor() {
+		RawNv21FrameEncoder encoder = new RawNv21FrameEncoder(4);
+		byte[] out = encoder.encode(SyntheticFrames.nv21(WIDTH, HEIGHT, 0), WIDTH, HEIGHT);
+		assertEquals(FrameBufferPool.nv21Size(WIDTH / 4, HEIGHT / 4), out.length);
+	}
+}
@@ -0,0 +1,155 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FramePipelineTest {
+
+	@Test
+	public void results_areDeliveredInOrderAndEveryFrameIsAccountedFor() throws Exception {
+		int frames = 300;
+		List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+		AtomicInteger discardedFrames = new AtomicInteger();
+		AtomicInteger discardedResults = new AtomicInteger();
+		Random random = new Random(1);
+		FramePipeline<Integer, Integer> pipeline = new FramePipeline<>(3,
+				frame -> {
+					sleepMicros(random.nextInt(300));
+					return frame;
+				},
+				delivered::add, frame -> discardedFrames.incrementAndGet(),
+				result -> discardedResults.incrementAndGet());
+
+		for (int i = 0; i < frames; i++) {
+			pipeline.submit(i);
+			sleepMicros(50);
+		}
+		waitUntil(() -> delivered.size() + discardedFrames.get() + discardedResults.get() == frames);
+		pipeline.shutdown();
+
+		for (int i = 1; i < delivered.size(); i++) {
+			assertTrue("out of order at " + i, delivered.get(i - 1) < delivered.get(i));
+		}
+		assertEquals(frames - 1, (int) delivered.get(delivered.size() - 1));
+		assertEquals(discardedFrames.get() + discardedResults.get(), pipeline.getDiscardedCount());
+	}
+
+	@Test(timeout = 10_000)
+	public void submit_doesNotBlockOnSlowProcessing() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger discarded = new AtomicInteger();
+		List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+		FramePipeline<Integer, Integer> pipeline = new FramePipeline<>(1,
+				frame -> {
+					started.countDown();
+					await(release);
+					return frame;
+				},
+				delivered::add, frame -> discarded.incrementAndGet(), result -> { });
+
+		pipeline.submit(0);
+		// The worker must have taken the first frame, or the next one would replace it.
+		await(started);
+		// The worker is blocked until all frames are submitted, so a blocking submit never returns.
+		for (int i = 1; i < 10; i++) {
+			pipeline.submit(i);
+		}
+		release.countDown();
+		waitUntil(() -> delivered.size() == 2);
+		pipeline.shutdown();
+
+		// The first frame was being processed, only the newest one waited: all others are stale.
+		assertEquals(8, discarded.get());
+		assertEquals(0, (int) delivered.get(0));
+		assertEquals(9, (int) delivered.get(1));
+	}
+
+	@Test
+	public void submit_racingShutdown_discardsTheFrame() throws Exception {
+		for (int run = 0; run < 200; run++) {
+			AtomicInteger accounted = new AtomicInteger();
+			FramePipeline<Integer, Integer> pipeline = new FramePipeline<>(1, frame -> frame,
+					result -> accounted.incrementAndGet(), frame -> accounted.incrementAndGet(),
+					result -> accounted.incrementAndGet());
+			Thread shutdown = new Thread(pipeline::shutdown);
+			shutdown.start();
+			// Must not throw on the submitting thread, whichever comes first.
+			pipeline.submit(run);
+			shutdown.join();
+			waitUntil(() -> accounted.get() == 1);
+		}
+	}
+
+	@Test
+	public void submit_toShutDownSharedExecutor_discardsTheFrame() {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		executor.shutdown();
+		AtomicInteger discarded = new AtomicInteger();
+		FramePipeline<Integer, Integer> pipeline = new FramePipeline<>(executor, 1,
+				frame -> frame, result -> { }, frame -> discarded.incrementAndGet(), result -> { });
+		pipeline.submit(0);
+		pipeline.submit(1);
+		assertEquals(2, discarded.get());
+		assertFalse(pipeline.hasWaitingFrame());
+	}
+
+	@Test
+	public void failedProcessing_discardsTheFrame() throws Exception {
+		AtomicInteger discarded = new AtomicInteger();
+		List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+		FramePipeline<Integer, Integer> pipeline = new FramePipeline<>(1,
+				frame -> {
+					if (frame == 0) {
+						throw new IllegalStateException("processing failed");
+					}
+					return frame;
+				},
+				delivered::add, frame -> discarded.incrementAndGet(), result -> { });
+		pipeline.submit(0);
+		waitUntil(() -> discarded.get() == 1);
+		assertEquals(1, pipeline.getDiscardedCount());
+		// The pipeline goes on with the next frame.
+		pipeline.submit(1);
+		waitUntil(() -> delivered.size() == 1);
+		pipeline.shutdown();
+	}
+
+	private interface Condition {
+		boolean isMet();
+	}
+
+	private static void waitUntil(Condition condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.isMet()) {
+			assertTrue("timed out", System.nanoTime() < deadline);
+			Thread.sleep(1);
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void sleepMicros(int micros) {
+		long end = System.nanoTime() + micros * 1000L;
+		while (System.nanoTime() < end) {
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package org.vay.sampleapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class FrameRecorderTest {
+	private static final int WIDTH = 64;
+	private static final int HEIGHT = 48;
+
+	private File file;
+
+	@After
+	public void deleteFile() {
+		if (file != null) {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void recordedFrames_convertLikeTheOriginals() throws IOException {
+		newFile();
+		SyntheticPlanes.Layout[] layouts = SyntheticPlanes.Layout.values();
+		try (FrameRecorder recorder = new FrameRecorder(file)) {
+			for (int i = 0; i < layouts.length; i++) {
+				write(recorder, SyntheticPlanes.create(layouts[i], i % 2 == 0, WIDTH, HEIGHT, i),
+						1000L * i, 90 * i);
+			}
+			assertEquals(layouts.length, recorder.getFrameCount());
+		}
+
+		try (FrameRecordingReader reader = new FrameRecordingReader(file)) {
+			for (int i = 0; i < layouts.length; i++) {
+				assertTrue(reader.next());
+				SyntheticPlanes planes = SyntheticPlanes.create(layouts[i], i % 2 == 0, WIDTH,
+						HEIGHT, i);
+				assertEquals(1000L * i, reader.getCaptureNanos());
+				assertEquals(90 * i, reader.getRotationDegrees());
+				assertEquals(WIDTH, reader.getWidth());
+				assertEquals(HEIGHT, reader.getHeight());
+				assertEquals(planes.yRowStride, reader.getYRowStride());
+				assertEquals(planes.uvPixelStride, reader.getUvPixelStride());
+				byte[] nv21 = new byte[FrameBufferPool.nv21Size(WIDTH, HEIGHT)];
+				Yuv420Converter.toNv21(reader.getYBuffer(), reader.getYRowStride(),
+						reader.getUBuffer(), reader.getVBuffer(), reader.getUvRowStride(),
+						reader.getUvPixelStride(), WIDTH, HEIGHT, nv21);
+				assertArrayEquals(layouts[i].name(), planes.expectedNv21, nv21);
+			}
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void write_leavesBufferPositionsUnchanged() throws IOException {
+		SyntheticPlanes planes = SyntheticPlanes.create(SyntheticPlanes.Layout.PLANAR, false,
+				WIDTH, HEIGHT);
+		try (FrameRecorder recorder = new FrameRecorder(newFile())) {
+			write(recorder, planes, 0, 0);
+		}
+		assertEquals(0, planes.yBuffer.position());
+		assertEquals(0, planes.uBuffer.position());
+		assertEquals(0, planes.vBuffer.position());
+	}
+
+	@Test(expected = IOException.class)
+	public void otherFile_isRejected() throws IOException {
+		newFile();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+		}
+		new FrameRecordingReader(file).close();
+	}
+
+	@Test(expected = IOException.class)
+	public void truncatedFrame_throws() throws IOException {
+		newFile();
+		try (FrameRecorder recorder = new FrameRecorder(file)) {
+			write(recorder, SyntheticPlanes.create(SyntheticPlanes.Layout.PLANAR, false, WIDTH,
+					HEIGHT), 0, 0);
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(raf.length() - 1);
+		}
+		try (FrameRecordingReader reader = new FrameRecordingReader(file)) {
+			reader.next();
+		}
+	}
+
+	private File newFile() throws IOException {
+		file = File.createTempFile("frames", ".rec");
+		return file;
+	}
+
+	private static void write(FrameRecorder recorder, SyntheticPlanes planes, long captureNanos,
+			int rotation) throws IOException {
+		planes.yBuffer.rewind();
+		planes.uBuffer.rewind();
+		planes.vBuffer.rewind();
+		recorder.write(captureNanos, planes.width, planes.height, rotation, planes.yBuffer,
+				planes.yRowStride, planes.uBuffer, planes.vBuffer, planes.uvRowStride,
+				planes.uvPixelStride);
+	}
+}
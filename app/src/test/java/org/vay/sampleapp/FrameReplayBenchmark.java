@@ -0,0 +1,107 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/** Records a synthetic camera session and replays it end to end, from YUV planes to the pose
+ * arriving back at the streamer, against a {@link StubAnalyser}. Reports sent frame rate, counts
+ * and round trip times, for a replay at the recorded pace and one as fast as frames convert. **/
+public class FrameReplayBenchmark {
+	private static final int WIDTH = 1280;
+	private static final int HEIGHT = 720;
+	private static final int FRAMES = 90;
+	private static final long FRAME_NANOS = 1_000_000_000L / 30;
+	private static final long SERVER_DELAY_MILLIS = 40;
+
+	@Test
+	public void replay_sendsFramesAndReceivesPoses() throws Exception {
+		File recording = File.createTempFile("frames", ".rec");
+		try {
+			replayAtBothSpeeds(record(recording));
+		} finally {
+			recording.delete();
+		}
+	}
+
+	private static void replayAtBothSpeeds(File recording) throws Exception {
+		System.out.println(String.format("%-10s %8s %8s %8s %8s %8s %8s %8s", "replay", "read",
+				"sent", "dropped", "kB", "fps", "rtt p50", "rtt p95"));
+		// At the recorded pace, the governor's 30 fps hold every frame; the motion gate passes them
+		// as the person moves in every frame.
+		FrameCounters paced = replay(recording, true, FrameStreamer.DEFAULT_MAX_FPS, "recorded");
+		assertEquals(FRAMES, paced.getCaptured());
+		assertTrue(paced.getSent() > 0);
+		FrameCounters fast = replay(recording, false, 1000f, "max");
+		assertEquals(FRAMES, fast.getCaptured());
+		assertTrue(fast.getSent() > 0);
+	}
+
+	private static File record(File file) throws IOException {
+		try (FrameRecorder recorder = new FrameRecorder(file)) {
+			for (int i = 0; i < FRAMES; i++) {
+				SyntheticPlanes planes = SyntheticPlanes.create(SyntheticPlanes.Layout.NV21_ALIASED,
+						true, WIDTH, HEIGHT, i);
+				recorder.write(i * FRAME_NANOS, WIDTH, HEIGHT, 90, planes.yBuffer,
+						planes.yRowStride, planes.uBuffer, planes.vBuffer, planes.uvRowStride,
+						planes.uvPixelStride);
+			}
+		}
+		return file;
+	}
+
+	private static FrameCounters replay(File recording, boolean realTime, float maxFps,
+			String name) throws Exception {
+		StubAnalyser stub = new StubAnalyser(SERVER_DELAY_MILLIS, FRAMES);
+		FrameStreamer streamer = new FrameStreamer(stub, FramePipeline.defaultWorkerCount(), maxFps);
+		stub.attach(streamer);
+		streamer.setFrameEncoder(new JpegFrameEncoder(JpegFrameEncoder.DEFAULT_QUALITY,
+				new ImageIoJpegCompressor()));
+		long start = System.nanoTime();
+		int read;
+		try (FrameRecordingReader reader = new FrameRecordingReader(recording)) {
+			read = new FrameReplaySource(reader, streamer, new FrameBufferPool()).replay(realTime);
+		}
+		assertTrue(awaitSettled(streamer, stub, 10_000));
+		long elapsedNanos = System.nanoTime() - start;
+		streamer.shutdown();
+		stub.shutdown();
+
+		FrameCounters counters = streamer.getFrameCounters();
+		long[] rtts = stub.sortedRoundTripNanos();
+		System.out.println(String.format("%-10s %8d %8d %8d %8d %8.1f %8.1f %8.1f", name, read,
+				counters.getSent(), counters.getDropped(), stub.getReceivedBytes() / 1000,
+				counters.getSent() * 1e9 / elapsedNanos, percentileMillis(rtts, 0.5),
+				percentileMillis(rtts, 0.95)));
+		System.out.print(streamer.getTracer().describePercentiles());
+		assertEquals(counters.getSent(), stub.getReceivedFrames());
+		assertEquals(counters.getSent(), counters.getAcknowledged());
+		return counters;
+	}
+
+	/** Waits until every captured frame has been sent, dropped or skipped, and every sent frame
+	 * has been answered. The pending frame, if any, is sent by the last answers. **/
+	private static boolean awaitSettled(FrameStreamer streamer, StubAnalyser stub,
+			long timeoutMillis) throws InterruptedException {
+		FrameCounters counters = streamer.getFrameCounters();
+		long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+		while (counters.getSent() + counters.getDropped() + counters.getSkipped()
+				< counters.getCaptured() || !stub.awaitIdle(0)) {
+			if (System.nanoTime() > deadline) {
+				return false;
+			}
+			Thread.sleep(5);
+		}
+		return true;
+	}
+
+	private static double percentileMillis(long[] sorted, double percentile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return sorted[(int) Math.min(sorted.length - 1, percentile * sorted.length)] / 1e6;
+	}
+}
@@ -0,0 +1,207 @@
+package org.vay.sampleapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FrameStreamerTest {
+	private static final int WIDTH = 64;
+	private static final int HEIGHT = 48;
+	private static final long TIMEOUT_NANOS = 2_000_000_000L;
+	// Capture interval of the submitted frames, above the 1 ms send interval of the streamer.
+	private static final long FRAME_INTERVAL_NANOS = 10_000_000L;
+
+	// The first byte of each sent frame, the number of its submission.
+	private final List<Integer> sent = new ArrayList<>();
+	private final List<Long> sentIds = new ArrayList<>();
+	private final FrameBufferPool pool = new FrameBufferPool();
+	private FrameStreamer streamer;
+	private int submitted = 0;
+
+	@Before
+	public void setUp() {
+		streamer = new FrameStreamer((frameId, bytes) -> {
+			synchronized (sent) {
+				sent.add((int) bytes[0]);
+				sentIds.add(frameId);
+			}
+		}, 1, 1000f);
+		streamer.setMotionGatingEnabled(false);
+		streamer.setFrameEncoder((nv21, width, height) -> new byte[] {nv21[0]});
+	}
+
+	@After
+	public void tearDown() {
+		streamer.shutdown();
+	}
+
+	@Test
+	public void disconnected_buffersNewestFramesAndFlushesThemOnReconnect() throws Exception {
+		streamer.setMaxInFlight(2);
+		submitAndWait(2);
+		assertEquals(2, sentCount());
+
+		streamer.onDisconnected(1_000_000_000L);
+		assertFalse(streamer.isConnected());
+		assertEquals(2, streamer.getFrameCounters().getLost());
+		submitAndWait(FrameStreamer.RECONNECT_BUFFER_FRAMES + 2);
+		assertEquals(2, sentCount());
+		// The two oldest frames did not fit into the buffer.
+		assertEquals(2, streamer.getFrameCounters().getDropped());
+
+		streamer.onReconnected(1_500_000_000L, true);
+		assertTrue(streamer.isConnected());
+		// Only as many as fit into the window, the rest follow as poses arrive.
+		assertEquals(4, sentCount());
+		// Newer frames wait in the pending slot, the latest replacing the others.
+		submitAndWait(3);
+		assertEquals(4, streamer.getFrameCounters().getDropped());
+		FrameStreamer.PoseOrigin origin = new FrameStreamer.PoseOrigin();
+		while (streamer.getWaitingFrameCount() > 0) {
+			int before = sentCount();
+			streamer.onPose(System.nanoTime(), origin);
+			assertTrue(origin.matched);
+			assertEquals(before + 1, sentCount());
+		}
+		synchronized (sent) {
+			assertEquals(2 + FrameStreamer.RECONNECT_BUFFER_FRAMES + 1, sent.size());
+			for (int i = 2; i < sent.size() - 1; i++) {
+				assertEquals(i + 3, (int) sent.get(i));
+			}
+			assertEquals(submitted, (int) sent.get(sent.size() - 1));
+			for (int i = 1; i < sentIds.size(); i++) {
+				assertTrue(sentIds.get(i) > sentIds.get(i - 1));
+			}
+		}
+		LatencyHistogram reconnects = streamer.getReconnectHistogram();
+		assertEquals(1, reconnects.getCount());
+		assertEquals(500_000_000L, reconnects.percentileNanos(0.5), 25_000_000L);
+	}
+
+	@Test
+	public void reconnectWithoutFlush_sendsOnlyNewestFrame() throws Exception {
+		streamer.setMaxInFlight(1);
+		// The second frame waits for the window and is buffered on disconnect.
+		submitAndWait(2);
+		assertEquals(1, sentCount());
+
+		streamer.onDisconnected(0);
+		assertEquals(1, streamer.getFrameCounters().getLost());
+		submitAndWait(3);
+		streamer.onReconnected(100_000_000L, false);
+		synchronized (sent) {
+			assertEquals(2, sent.size());
+			assertEquals(5, (int) sent.get(1));
+		}
+		assertEquals(3, streamer.getFrameCounters().getDropped());
+	}
+
+	@Test
+	public void clearInFlight_dropsBufferedFrames() throws Exception {
+		streamer.onDisconnected(0);
+		submitAndWait(3);
+		// E.g. switched to another exercise while reconnecting.
+		streamer.clearInFlight();
+		assertEquals(3, streamer.getFrameCounters().getDropped());
+		streamer.onReconnected(100_000_000L, true);
+		assertEquals(0, sentCount());
+	}
+
+	@Test
+	public void repeatedDisconnect_isIgnored() {
+		streamer.onDisconnected(0);
+		streamer.onDisconnected(100);
+		streamer.onReconnected(200, true);
+		streamer.onReconnected(300, true);
+		assertEquals(1, streamer.getReconnectHistogram().getCount());
+	}
+
+	@Test
+	public void pose_isMatchedByFrameId() throws Exception {
+		streamer.setMaxInFlight(3);
+		submitAndWait(3);
+		long firstId;
+		long secondId;
+		synchronized (sent) {
+			firstId = sentIds.get(0);
+			secondId = sentIds.get(1);
+		}
+		FrameStreamer.PoseOrigin origin = new FrameStreamer.PoseOrigin();
+		// The first frame was lost, its pose never arrives.
+		streamer.onPose(secondId, System.nanoTime(), origin);
+		assertTrue(origin.matched);
+		assertEquals(1, streamer.getFrameCounters().getLost());
+		assertEquals(1, streamer.getFrameCounters().getAcknowledged());
+
+		// A late pose of a frame no longer in flight is not taken for the next frame's.
+		streamer.onPose(firstId, System.nanoTime(), origin);
+		assertFalse(origin.matched);
+		assertEquals(1, streamer.getFrameCounters().getAcknowledged());
+	}
+
+	@Test(timeout = 10_000)
+	public void blockedSink_doesNotHoldUpPoses() throws Exception {
+		streamer.shutdown();
+		CountDownLatch sinkEntered = new CountDownLatch(1);
+		CountDownLatch releaseSink = new CountDownLatch(1);
+		streamer = new FrameStreamer((frameId, bytes) -> {
+			sinkEntered.countDown();
+			try {
+				releaseSink.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, 1, 1000f);
+		streamer.setMotionGatingEnabled(false);
+		streamer.setFrameEncoder((nv21, width, height) -> new byte[] {nv21[0]});
+		streamer.setMaxInFlight(1);
+		streamer.submit(new Nv21Frame(pool, WIDTH, HEIGHT, 0, System.nanoTime()));
+		assertTrue(sinkEntered.await(2, TimeUnit.SECONDS));
+		try {
+			// The encoder thread is stuck in the sink, the pose must not wait for it.
+			FrameStreamer.PoseOrigin origin = new FrameStreamer.PoseOrigin();
+			streamer.onPose(System.nanoTime(), origin);
+			assertTrue(origin.matched);
+			streamer.clearInFlight();
+		} finally {
+			releaseSink.countDown();
+		}
+	}
+
+	/** Submits frames one at a time, each once the previous one has been offered to the window,
+	 * so none is replaced while waiting for the encoder. **/
+	private void submitAndWait(int count) throws InterruptedException {
+		for (int i = 0; i < count; i++) {
+			long outcomes = offerOutcomes();
+			Nv21Frame frame = new Nv21Frame(pool, WIDTH, HEIGHT, 0,
+					++submitted * FRAME_INTERVAL_NANOS);
+			frame.getData()[0] = (byte) submitted;
+			streamer.submit(frame);
+			long deadline = System.nanoTime() + TIMEOUT_NANOS;
+			while (offerOutcomes() == outcomes) {
+				assertTrue("frame " + submitted + " not offered", System.nanoTime() < deadline);
+				Thread.sleep(1);
+			}
+		}
+	}
+
+	/** Returns the number of frames sent, waiting or dropped, which every offered frame increases
+	 * by one: it is sent, waits, or replaces a waiting frame, which counts as dropped. **/
+	private long offerOutcomes() {
+		return sentCount() + streamer.getWaitingFrameCount()
+				+ streamer.getFrameCounters().getDropped();
+	}
+
+	private int sentCount() {
+		synchronized (sent) {
+			return sent.size();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class FrameTracerTest {
+
+	@Test
+	public void record_countsPerStage() {
+		FrameTracer tracer = new FrameTracer(16);
+		tracer.record(FrameTracer.Stage.ENCODE, 1, 0, 10_000_000);
+		tracer.record(FrameTracer.Stage.ENCODE, 2, 0, 20_000_000);
+		tracer.record(FrameTracer.Stage.NETWORK, 1, 0, 50_000_000);
+		assertEquals(2, tracer.getHistogram(FrameTracer.Stage.ENCODE).getCount());
+		assertEquals(1, tracer.getHistogram(FrameTracer.Stage.NETWORK).getCount());
+		assertEquals(0, tracer.getHistogram(FrameTracer.Stage.DRAW).getCount());
+		String percentiles = tracer.describePercentiles();
+		assertTrue(percentiles, percentiles.contains("ENCODE: n=2"));
+		assertFalse(percentiles, percentiles.contains("DRAW"));
+	}
+
+	@Test
+	public void chromeTrace_containsTheNewestSpans() throws IOException {
+		FrameTracer tracer = new FrameTracer(4);
+		for (int i = 0; i < 6; i++) {
+			tracer.record(FrameTracer.Stage.CONVERT, i * 1_000_000L, 1_000_000L + i * 1500,
+					1_000_000L + i * 1500 + 250);
+		}
+		StringWriter out = new StringWriter();
+		tracer.writeChromeTrace(out);
+		String json = out.toString();
+		assertTrue(json, json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+		assertTrue(json, json.trim().endsWith("]}"));
+		// The ring keeps the last 4 of 6 spans, timed from the oldest kept one.
+		assertEquals(4, count(json, "\"ph\":\"X\""));
+		assertFalse(json, json.contains("\"frame\":1.000}"));
+		assertTrue(json, json.contains("\"frame\":2.000}"));
+		assertTrue(json, json.contains("\"ts\":0.000,\"dur\":0.250"));
+		assertTrue(json, json.contains("\"ts\":4.500,\"dur\":0.250"));
+	}
+
+	@Test
+	public void disabled_recordsNothing() throws IOException {
+		FrameTracer tracer = new FrameTracer();
+		tracer.setEnabled(false);
+		tracer.record(FrameTracer.Stage.SEND, 1, 0, 1000);
+		assertEquals(0, tracer.getHistogram(FrameTracer.Stage.SEND).getCount());
+		StringWriter out = new StringWriter();
+		tracer.writeChromeTrace(out);
+		assertEquals(0, count(out.toString(), "\"ph\""));
+	}
+
+	@Test
+	public void reset_dropsSpans() throws IOException {
+		FrameTracer tracer = new FrameTracer(8);
+		tracer.record(FrameTracer.Stage.POSE, 1, 0, 1000);
+		tracer.reset();
+		StringWriter out = new StringWriter();
+		tracer.writeChromeTrace(out);
+		assertEquals(0, count(out.toString(), "\"ph\""));
+		assertEquals(0, tracer.getHistogram(FrameTracer.Stage.POSE).getCount());
+	}
+
+	private static int count(String text, String part) {
+		int count = 0;
+		for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+			count++;
+		}
+		return count;
+	}
+}
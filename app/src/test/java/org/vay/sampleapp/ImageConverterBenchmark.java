@@ -0,0 +1,148 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+
+/** Measures the YUV_420_888 to NV21 conversion and the rotate, downscale and JPEG path on the JVM,
+ * for every plane layout at 480p, 720p and 1080p. Reports time and bytes allocated per frame; the
+ * allocation count is only available on HotSpot based JVMs and is shown as -1 elsewhere. **/
+public class ImageConverterBenchmark {
+	private static final int[][] SIZES = {{640, 480}, {1280, 720}, {1920, 1080}};
+	private static final int CONVERT_FRAMES = 50;
+	private static final int ENCODE_FRAMES = 5;
+	private static final int WARMUP_ROUNDS = 3;
+
+	@Test
+	public void convertAllLayouts() {
+		System.out.println(String.format("%-26s %12s %12s %12s %12s", "conversion", "ns/frame",
+				"bytes/frame", "cached ns", "cached bytes"));
+		for (int[] size : SIZES) {
+			for (SyntheticPlanes.Layout layout : SyntheticPlanes.Layout.values()) {
+				for (boolean padded : new boolean[] {false, true}) {
+					SyntheticPlanes planes = SyntheticPlanes.create(layout, padded, size[0], size[1]);
+					String name = size[1] + "p " + layout.name().toLowerCase()
+							+ (padded ? " padded" : "");
+					long[] stateless = measureConversion(name, planes, null);
+					long[] cached = measureConversion(name, planes, new Yuv420StreamConverter());
+					System.out.println(String.format("%-26s %12d %12d %12d %12d", name,
+							stateless[0], stateless[1], cached[0], cached[1]));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void encodeUprightJpeg() {
+		JpegFrameEncoder encoder = new JpegFrameEncoder(JpegFrameEncoder.DEFAULT_QUALITY,
+				new ImageIoJpegCompressor());
+		FrameBufferPool pool = new FrameBufferPool();
+		System.out.println(String.format("%-26s %12s %12s", "rotate 90, 640, jpeg", "ns/frame",
+				"bytes/frame"));
+		for (int[] size : SIZES) {
+			SyntheticPlanes planes = SyntheticPlanes.create(SyntheticPlanes.Layout.NV21_ALIASED,
+					false, size[0], size[1]);
+			Yuv420StreamConverter converter = new Yuv420StreamConverter();
+			for (int i = 0; i < WARMUP_ROUNDS * ENCODE_FRAMES; i++) {
+				encode(planes, pool, encoder, converter);
+			}
+			long allocatedBefore = allocatedBytes();
+			long start = System.nanoTime();
+			for (int i = 0; i < ENCODE_FRAMES; i++) {
+				assertNotNull(encode(planes, pool, encoder, converter));
+			}
+			long elapsed = System.nanoTime() - start;
+			long allocated = allocatedBytes() - allocatedBefore;
+			System.out.println(String.format("%-26s %12d %12d", size[1] + "p", elapsed / ENCODE_FRAMES,
+					perFrame(allocatedBefore, allocated, ENCODE_FRAMES)));
+		}
+	}
+
+	@Test
+	public void steadyStateConversion_allocatesNothing() {
+		SyntheticPlanes planes = SyntheticPlanes.create(SyntheticPlanes.Layout.PLANAR, true, 640,
+				480);
+		FrameBufferPool pool = new FrameBufferPool();
+		int size = FrameBufferPool.nv21Size(640, 480);
+		pool.release(pool.acquire(size));
+		Yuv420StreamConverter converter = new Yuv420StreamConverter();
+		planes.toNv21(converter, new byte[size]);
+		long allocatedBefore = allocatedBytes();
+		for (int i = 0; i < CONVERT_FRAMES; i++) {
+			byte[] out = pool.acquire(size);
+			planes.toNv21(out);
+			pool.release(out);
+			out = pool.acquire(size);
+			planes.toNv21(converter, out);
+			pool.release(out);
+		}
+		long allocated = allocatedBytes() - allocatedBefore;
+		if (allocatedBefore >= 0) {
+			// Leaves room for allocations of the measuring itself, far below a single frame.
+			assertTrue("allocated " + allocated, allocated < 4096);
+		}
+		assertEquals(1, pool.getAllocationCount());
+	}
+
+	/** Returns ns and bytes allocated per frame of converting the planes, with the stream
+	 * converter if given, checking the result. **/
+	private static long[] measureConversion(String name, SyntheticPlanes planes,
+			Yuv420StreamConverter converter) {
+		byte[] out = new byte[FrameBufferPool.nv21Size(planes.width, planes.height)];
+		for (int i = 0; i < WARMUP_ROUNDS * CONVERT_FRAMES; i++) {
+			convert(planes, converter, out);
+		}
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < CONVERT_FRAMES; i++) {
+			convert(planes, converter, out);
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocated = allocatedBytes() - allocatedBefore;
+		assertArrayEquals(name, planes.expectedNv21, out);
+		return new long[] {elapsed / CONVERT_FRAMES,
+				perFrame(allocatedBefore, allocated, CONVERT_FRAMES)};
+	}
+
+	private static void convert(SyntheticPlanes planes, Yuv420StreamConverter converter,
+			byte[] out) {
+		if (converter == null) {
+			planes.toNv21(out);
+		} else {
+			planes.toNv21(converter, out);
+		}
+	}
+
+	/** Copies the planes into a pooled frame as the analyzer thread does, then rotates, downscales
+	 * and encodes it as the encoder workers do. **/
+	private static byte[] encode(SyntheticPlanes planes, FrameBufferPool pool, FrameEncoder encoder,
+			Yuv420StreamConverter converter) {
+		Nv21Frame frame = new Nv21Frame(pool, planes.width, planes.height, 90, 0);
+		try {
+			planes.toNv21(converter, frame.getData());
+			return ImageConverter.encodeFrame(frame, encoder,
+					AnalyserWrapper.DEFAULT_TARGET_LONG_EDGE);
+		} finally {
+			frame.release();
+		}
+	}
+
+	/** Returns the bytes allocated by the current thread so far, or -1 if unsupported. **/
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean hotSpotBean = (com.sun.management.ThreadMXBean) bean;
+			if (hotSpotBean.isThreadAllocatedMemorySupported()) {
+				return hotSpotBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	private static long perFrame(long allocatedBefore, long allocated, int frames) {
+		return allocatedBefore < 0 ? -1 : allocated / frames;
+	}
+}
@@ -0,0 +1,49 @@
+package org.vay.sampleapp;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/** JVM stand-in for the platform JPEG compressor, so JPEG based encoders can be benchmarked
+ * without a device. Absolute timings differ from YuvImage, relative sizes are comparable. **/
+class ImageIoJpegCompressor implements JpegCompressor {
+
+	@Override
+	public void compress(byte[] nv21, int width, int height, int quality, OutputStream out)
+			throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		int imageSize = width * height;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int luma = nv21[y * width + x] & 0xFF;
+				int vu = imageSize + (y / 2) * width + (x & ~1);
+				int v = (nv21[vu] & 0xFF) - 128;
+				int u = (nv21[vu + 1] & 0xFF) - 128;
+				int r = clamp(luma + (int) (1.402f * v));
+				int g = clamp(luma - (int) (0.344f * u + 0.714f * v));
+				int b = clamp(luma + (int) (1.772f * u));
+				image.setRGB(x, y, (r << 16) | (g << 8) | b);
+			}
+		}
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ImageWriteParam param = writer.getDefaultWriteParam();
+		param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		param.setCompressionQuality(quality / 100f);
+		try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+			writer.setOutput(stream);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	private static int clamp(int value) {
+		return Math.max(0, Math.min(255, value));
+	}
+}
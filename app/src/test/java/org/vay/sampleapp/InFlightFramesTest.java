@@ -0,0 +1,58 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InFlightFramesTest {
+
+	@Test
+	public void framesLeaveInSendOrder() {
+		InFlightFrames frames = new InFlightFrames(4);
+		frames.add(7, 100, 40, 1f, 1f, 0f, 0f);
+		frames.add(8, 200, 150, 2f, 2.5f, 16f, 24f);
+		assertEquals(7, frames.oldestFrameId());
+		assertEquals(100, frames.oldestSentAtNanos());
+		assertEquals(40, frames.oldestCaptureNanos());
+		frames.removeOldest();
+		assertEquals(8, frames.oldestFrameId());
+		assertEquals(2f, frames.oldestScaleX(), 0);
+		assertEquals(2.5f, frames.oldestScaleY(), 0);
+		assertEquals(16f, frames.oldestOffsetX(), 0);
+		assertEquals(24f, frames.oldestOffsetY(), 0);
+	}
+
+	@Test
+	public void full_forgetsOldest() {
+		InFlightFrames frames = new InFlightFrames(2);
+		frames.add(1, 100, 100, 1f, 1f, 0f, 0f);
+		frames.add(2, 200, 200, 1f, 1f, 0f, 0f);
+		frames.add(3, 300, 300, 1f, 1f, 0f, 0f);
+		assertEquals(2, frames.size());
+		assertEquals(2, frames.oldestFrameId());
+	}
+
+	@Test
+	public void removeBefore_dropsFramesSentBeforeTheAnsweredOne() {
+		InFlightFrames frames = new InFlightFrames(4);
+		frames.add(1, 100, 100, 1f, 1f, 0f, 0f);
+		frames.add(2, 200, 200, 1f, 1f, 0f, 0f);
+		frames.add(4, 300, 300, 1f, 1f, 0f, 0f);
+		assertEquals(1, frames.removeBefore(2));
+		assertEquals(2, frames.oldestFrameId());
+		// Frame 3 was never sent, so it is not in flight afterwards.
+		assertEquals(1, frames.removeBefore(3));
+		assertEquals(4, frames.oldestFrameId());
+	}
+
+	@Test
+	public void removeSentBefore_dropsTimedOutFrames() {
+		InFlightFrames frames = new InFlightFrames(4);
+		frames.add(1, 100, 100, 1f, 1f, 0f, 0f);
+		frames.add(2, 200, 200, 1f, 1f, 0f, 0f);
+		frames.add(3, 300, 300, 1f, 1f, 0f, 0f);
+		assertEquals(2, frames.removeSentBefore(250));
+		assertEquals(3, frames.oldestFrameId());
+		assertEquals(0, frames.removeSentBefore(250));
+	}
+}
@@ -0,0 +1,62 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/** Compares the strip-parallel {@link StripJpegCompressor} with a single strip and on the common
+ * fork/join pool against {@link ImageIoJpegCompressor}, the JVM stand-in for the platform
+ * compressor. The speedup of the parallel variant is bounded by the cores of this machine. **/
+public class JpegCompressorBenchmark {
+	private static final int[][] SIZES = {{640, 480}, {1280, 720}};
+	private static final int QUALITY = 80;
+	private static final int FRAMES = 8;
+	private static final int WARMUP_ROUNDS = 3;
+
+	@Test
+	public void compareCompressors() throws IOException {
+		Map<String, JpegCompressor> compressors = new LinkedHashMap<>();
+		compressors.put("imageio", new ImageIoJpegCompressor());
+		compressors.put("strip 1", new StripJpegCompressor(ForkJoinPool.commonPool(), 1));
+		compressors.put("strip fj" + ForkJoinPool.commonPool().getParallelism(),
+				new StripJpegCompressor());
+
+		System.out.println(String.format("%-12s %-10s %12s %12s", "compressor", "size", "us/frame",
+				"bytes/frame"));
+		for (int[] size : SIZES) {
+			int width = size[0];
+			int height = size[1];
+			byte[][] frames = new byte[FRAMES][];
+			for (int i = 0; i < FRAMES; i++) {
+				frames[i] = SyntheticFrames.nv21(width, height, i);
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+			for (Map.Entry<String, JpegCompressor> entry : compressors.entrySet()) {
+				JpegCompressor compressor = entry.getValue();
+				for (int round = 0; round < WARMUP_ROUNDS; round++) {
+					for (byte[] frame : frames) {
+						out.reset();
+						compressor.compress(frame, width, height, QUALITY, out);
+					}
+				}
+				long bytes = 0;
+				long start = System.nanoTime();
+				for (byte[] frame : frames) {
+					out.reset();
+					compressor.compress(frame, width, height, QUALITY, out);
+					bytes += out.size();
+				}
+				long elapsed = System.nanoTime() - start;
+				assertTrue(bytes > 0);
+				System.out.println(String.format("%-12s %-10s %12d %12d", entry.getKey(),
+						width + "x" + height, elapsed / FRAMES / 1000, bytes / FRAMES));
+			}
+		}
+	}
+}
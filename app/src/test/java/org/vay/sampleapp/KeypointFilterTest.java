@@ -0,0 +1,54 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class KeypointFilterTest {
+	private static final long FRAME_NANOS = 66_000_000L;
+
+	@Test
+	public void firstSample_passesThrough() {
+		KeypointFilter filter = new KeypointFilter(2);
+		float[] coordinates = {10f, 20f, 30f, 40f};
+		filter.filter(coordinates, 0b11, 0);
+		assertArrayEquals(new float[] {10f, 20f, 30f, 40f}, coordinates, 0);
+	}
+
+	@Test
+	public void jitter_isDamped() {
+		KeypointFilter filter = new KeypointFilter(1);
+		float maxDeviation = 0;
+		for (int frame = 0; frame < 100; frame++) {
+			// A still point with +-5 px of noise.
+			float[] coordinates = {frame % 2 == 0 ? 105f : 95f, 100f};
+			filter.filter(coordinates, 1, frame * FRAME_NANOS);
+			if (frame > 10) {
+				maxDeviation = Math.max(maxDeviation, Math.abs(coordinates[0] - 100f));
+			}
+		}
+		assertTrue("deviation " + maxDeviation, maxDeviation < 2.5f);
+	}
+
+	@Test
+	public void fastMovement_isFollowedClosely() {
+		KeypointFilter filter = new KeypointFilter(1);
+		float[] coordinates = new float[2];
+		for (int frame = 0; frame < 30; frame++) {
+			// 600 px per second.
+			coordinates[0] = frame * 40f;
+			filter.filter(coordinates, 1, frame * FRAME_NANOS);
+		}
+		assertEquals(29 * 40f, coordinates[0], 40f);
+	}
+
+	@Test
+	public void reappearingPoint_restarts() {
+		KeypointFilter filter = new KeypointFilter(1);
+		filter.filter(new float[] {0f, 0f}, 1, 0);
+		filter.filter(new float[] {0f, 0f}, 0, FRAME_NANOS);
+		float[] coordinates = {500f, 500f};
+		filter.filter(coordinates, 1, 2 * FRAME_NANOS);
+		assertArrayEquals(new float[] {500f, 500f}, coordinates, 0);
+	}
+}
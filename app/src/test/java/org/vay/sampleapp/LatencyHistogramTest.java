@@ -0,0 +1,67 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void percentiles_areWithinRelativeError() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		// 1 ms to 100 ms in steps of 10 us.
+		for (long micros = 1000; micros <= 100_000; micros += 10) {
+			histogram.record(micros * 1000);
+		}
+		assertEquals(9901, histogram.getCount());
+		assertEquals(100_000_000L, histogram.getMaxNanos());
+		assertWithin(50_500_000L, histogram.percentileNanos(0.50), 0.02);
+		assertWithin(95_050_000L, histogram.percentileNanos(0.95), 0.02);
+		assertWithin(99_010_000L, histogram.percentileNanos(0.99), 0.02);
+		assertEquals(100_000_000L, histogram.percentileNanos(1.0));
+	}
+
+	@Test
+	public void smallValues_areExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(5_000);
+		histogram.record(100_000);
+		assertEquals(5_000, histogram.percentileNanos(0.5));
+		assertEquals(100_000, histogram.percentileNanos(1.0));
+	}
+
+	@Test
+	public void bucketIndex_isMonotonicAndMidpointsLieInTheirBucket() {
+		int previous = -1;
+		for (long micros = 0; micros < 1 << 20; micros += 1 + micros / 97) {
+			int index = LatencyHistogram.bucketIndex(micros);
+			assertTrue(index >= previous);
+			assertEquals(index, LatencyHistogram.bucketIndex(
+					LatencyHistogram.bucketMidpointMicros(index)));
+			previous = index;
+		}
+	}
+
+	@Test
+	public void outOfRangeValues_areClamped() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(0, histogram.percentileNanos(0.5));
+		assertEquals(LatencyHistogram.MAX_NANOS, histogram.getMaxNanos());
+	}
+
+	@Test
+	public void reset_clearsCounts() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1_000_000);
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.percentileNanos(0.99));
+	}
+
+	private static void assertWithin(long expected, long actual, double relativeError) {
+		assertTrue("expected " + expected + " but was " + actual,
+				Math.abs(actual - expected) <= relativeError * expected);
+	}
+}
@@ -0,0 +1,147 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/** Runs growing numbers of simulated clients against a {@link MockAnalysisServer} and reports
+ * round trip percentiles and the sustained pose rate per client. Each client is the send pipeline
+ * of {@link AnalyserWrapper}, a {@link FrameStreamer} with one encoder worker, fed with 30 fps of
+ * synthetic camera frames. All clients and the server share this machine, so the numbers show
+ * where the client pipeline or the server's processing threads saturate, not device timings. **/
+public class LoadDriverBenchmark {
+	private static final int WIDTH = 640;
+	private static final int HEIGHT = 480;
+	private static final int DISTINCT_FRAMES = 30;
+	private static final long FRAME_NANOS = 1_000_000_000L / 30;
+	private static final long DURATION_MILLIS = 2000;
+	private static final long SERVER_DELAY_MILLIS = 30;
+	private static final long SERVER_JITTER_MILLIS = 10;
+	private static final int SERVER_THREADS = 4;
+	private static final int[] CLIENT_COUNTS = {1, 2, 4, 8};
+
+	@Test
+	public void clientsScale_reportRoundTripAndFps() throws Exception {
+		byte[][] frames = new byte[DISTINCT_FRAMES][];
+		for (int i = 0; i < frames.length; i++) {
+			frames[i] = SyntheticFrames.nv21(WIDTH, HEIGHT, i);
+		}
+		System.out.println(String.format("%8s %6s %10s %10s %9s %9s %9s", "clients", "loss",
+				"fps/client", "min fps", "rtt p50", "rtt p95", "rtt p99"));
+		for (int clients : CLIENT_COUNTS) {
+			Result result = run(frames, clients, 0);
+			if (clients == 1) {
+				// A single client is limited by the camera rate and the in-flight window only.
+				assertTrue("fps " + result.meanFps, result.meanFps > 10);
+				assertTrue(result.p50Millis >= SERVER_DELAY_MILLIS - SERVER_JITTER_MILLIS);
+			}
+		}
+		// Lost frames hold their slot in the in-flight window until they time out.
+		run(frames, 4, 0.02);
+	}
+
+	private static Result run(byte[][] frames, int clientCount, double lossRate) throws Exception {
+		float[] pose = new float[2 * PoseGraphic.pointCount()];
+		for (int i = 0; i < pose.length; i++) {
+			pose[i] = 100 + 10 * i;
+		}
+		FrameBufferPool pool = new FrameBufferPool();
+		ScheduledExecutorService cameras = Executors.newScheduledThreadPool(clientCount);
+		List<MockServerClient> clients = new ArrayList<>();
+		List<FrameStreamer> streamers = new ArrayList<>();
+		int[] answersAtEnd = new int[clientCount];
+		try (MockAnalysisServer server = new MockAnalysisServer(SERVER_DELAY_MILLIS,
+				SERVER_JITTER_MILLIS, lossRate, SERVER_THREADS, pose)) {
+			for (int c = 0; c < clientCount; c++) {
+				MockServerClient client = new MockServerClient(server.getPort());
+				FrameStreamer streamer = new FrameStreamer(client, 1, FrameStreamer.DEFAULT_MAX_FPS);
+				streamer.setFrameEncoder(new JpegFrameEncoder(JpegFrameEncoder.DEFAULT_QUALITY,
+						new ImageIoJpegCompressor()));
+				client.attach(streamer);
+				clients.add(client);
+				streamers.add(streamer);
+				// Cameras are staggered, as real clients do not capture in lockstep.
+				cameras.scheduleAtFixedRate(new Camera(streamer, pool, frames, c),
+						c * FRAME_NANOS / clientCount, FRAME_NANOS, TimeUnit.NANOSECONDS);
+			}
+			Thread.sleep(DURATION_MILLIS);
+			cameras.shutdownNow();
+			cameras.awaitTermination(1, TimeUnit.SECONDS);
+			for (int c = 0; c < clientCount; c++) {
+				answersAtEnd[c] = clients.get(c).getAnswers();
+				streamers.get(c).shutdown();
+			}
+			for (MockServerClient client : clients) {
+				client.close();
+			}
+		}
+
+		Result result = new Result();
+		long[] all = new long[0];
+		double minFps = Double.MAX_VALUE;
+		double fpsSum = 0;
+		for (int c = 0; c < clientCount; c++) {
+			double fps = answersAtEnd[c] * 1000.0 / DURATION_MILLIS;
+			fpsSum += fps;
+			minFps = Math.min(minFps, fps);
+			long[] rtts = clients.get(c).sortedRoundTripNanos();
+			int offset = all.length;
+			all = Arrays.copyOf(all, offset + rtts.length);
+			System.arraycopy(rtts, 0, all, offset, rtts.length);
+		}
+		Arrays.sort(all);
+		result.meanFps = fpsSum / clientCount;
+		result.p50Millis = percentileMillis(all, 0.50);
+		System.out.println(String.format("%8d %5.0f%% %10.1f %10.1f %9.1f %9.1f %9.1f",
+				clientCount, 100 * lossRate, result.meanFps, minFps, result.p50Millis,
+				percentileMillis(all, 0.95), percentileMillis(all, 0.99)));
+		return result;
+	}
+
+	/** Emulates the camera analyzer of a client: copies the next frame into a pooled buffer and
+	 * submits it, if the governor lets it through. **/
+	private static final class Camera implements Runnable {
+		private final FrameStreamer streamer;
+		private final FrameBufferPool pool;
+		private final byte[][] frames;
+		private int index;
+
+		Camera(FrameStreamer streamer, FrameBufferPool pool, byte[][] frames, int firstIndex) {
+			this.streamer = streamer;
+			this.pool = pool;
+			this.frames = frames;
+			this.index = firstIndex;
+		}
+
+		@Override
+		public void run() {
+			byte[] nv21 = frames[index++ % frames.length];
+			long now = System.nanoTime();
+			if (!streamer.shouldCapture(now)) {
+				return;
+			}
+			Nv21Frame frame = new Nv21Frame(pool, WIDTH, HEIGHT, 0, now);
+			System.arraycopy(nv21, 0, frame.getData(), 0, nv21.length);
+			streamer.submit(frame);
+		}
+	}
+
+	private static double percentileMillis(long[] sorted, double percentile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return sorted[(int) Math.min(sorted.length - 1, percentile * sorted.length)] / 1e6;
+	}
+
+	private static final class Result {
+		double meanFps;
+		double p50Millis;
+	}
+}
@@ -0,0 +1,86 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+	private static final long SECOND = 1_000_000_000L;
+
+	@Test
+	public void counters_areSampledAsRatesOverTheInterval() {
+		AtomicLong frames = new AtomicLong();
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.counter("send", frames::get);
+		MetricsRegistry.Sampler sampler = registry.newSampler(0);
+		frames.set(60);
+		assertEquals(30.0, sampler.sample(2 * SECOND).get("send"), 1e-9);
+		frames.set(70);
+		assertEquals(10.0, sampler.sample(3 * SECOND).get("send"), 1e-9);
+	}
+
+	@Test
+	public void samplers_haveTheirOwnIntervals() {
+		AtomicLong frames = new AtomicLong();
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.counter("send", frames::get);
+		MetricsRegistry.Sampler often = registry.newSampler(0);
+		MetricsRegistry.Sampler rarely = registry.newSampler(0);
+		frames.set(10);
+		assertEquals(10.0, often.sample(SECOND).get("send"), 1e-9);
+		frames.set(40);
+		assertEquals(30.0, often.sample(2 * SECOND).get("send"), 1e-9);
+		assertEquals(20.0, rarely.sample(2 * SECOND).get("send"), 1e-9);
+	}
+
+	@Test
+	public void histograms_areSampledAsPercentilesOfTheInterval() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.histogram("rtt", histogram);
+		for (int i = 0; i < 100; i++) {
+			histogram.record(200_000_000L);
+		}
+		MetricsRegistry.Sampler sampler = registry.newSampler(0);
+		// Only durations recorded after the previous sample count.
+		for (int i = 0; i < 100; i++) {
+			histogram.record(10_000_000L);
+		}
+		assertEquals(10.0, sampler.sample(SECOND).get("rtt"), 0.2);
+		assertEquals(0.0, sampler.sample(2 * SECOND).get("rtt"), 0);
+	}
+
+	@Test
+	public void gauges_areSampledAsIs() {
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.gauge("heap_mb", () -> 42.5);
+		assertEquals(42.5, registry.newSampler(0).sample(SECOND).get("heap_mb"), 0);
+		assertTrue(Double.isNaN(registry.newSampler(0).sample(SECOND).get("missing")));
+	}
+
+	@Test
+	public void toJson_hasOneEntryPerMetric() {
+		AtomicLong bytes = new AtomicLong();
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.counter("upload_bytes", bytes::get);
+		registry.gauge("fps_target", () -> 15);
+		registry.histogram("encode", new LatencyHistogram());
+		MetricsRegistry.Sampler sampler = registry.newSampler(0);
+		bytes.set(2048);
+		MetricsRegistry.Sample sample = sampler.sample(2 * SECOND);
+		assertEquals("{\"t\":2000,\"upload_bytes\":{\"rate\":1024.0,\"total\":2048},"
+				+ "\"fps_target\":15.0,\"encode\":{\"p50\":0.0,\"p95\":0.0,\"p99\":0.0}}",
+				sample.toJson());
+		assertEquals(3, sample.toLines().length);
+		assertEquals("upload_bytes 1024.0/s (2048)", sample.toLines()[0]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void duplicateName_throws() {
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.gauge("heap_mb", () -> 1);
+		registry.gauge("heap_mb", () -> 2);
+	}
+}
@@ -0,0 +1,173 @@
+package org.vay.sampleapp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Local stand-in for the analysis backend, for load and latency tests of the client pipeline on a
+ * plain JVM. Clients connect over TCP, see {@link MockServerClient}, and stream encoded frames;
+ * every frame is answered with a canned pose after a processing delay.
+ *
+ * <p>Frames are processed on a fixed number of threads shared by all connections, so adding
+ * clients eventually queues frames like an overloaded server. Each processing takes the configured
+ * delay plus uniform jitter; a configurable fraction of frames is lost without answer. Answers of a
+ * connection leave in the order its frames arrived, as with the streaming analyser.
+ *
+ * <p>Wire format, all big endian: a frame is its int ID, int length and bytes; an answer is the
+ * frame's int ID, the long mask of the pose's accurate points, the int count of coordinates and
+ * the float coordinates. **/
+final class MockAnalysisServer implements Closeable {
+	private final long delayNanos;
+	private final long jitterNanos;
+	private final double lossRate;
+	private final float[] poseCoordinates;
+	private final long poseMask;
+	private final ServerSocket serverSocket;
+	private final ExecutorService processors;
+	private final ExecutorService connectionThreads = Executors.newCachedThreadPool();
+	private final List<Socket> sockets = new ArrayList<>();
+	private final AtomicLong receivedFrames = new AtomicLong();
+	private final AtomicLong lostFrames = new AtomicLong();
+	private volatile boolean closed = false;
+
+	/**
+	 * Starts listening on a free local port.
+	 *
+	 * @param delayMillis mean processing time of a frame
+	 * @param jitterMillis largest deviation from the mean processing time, either way
+	 * @param lossRate fraction of frames never answered, from 0 to 1
+	 * @param processingThreads frames processed at once over all connections
+	 * @param poseCoordinates coordinates of the canned pose, x and y of every point
+	 */
+	MockAnalysisServer(long delayMillis, long jitterMillis, double lossRate,
+			int processingThreads, float[] poseCoordinates) throws IOException {
+		this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+		this.jitterNanos = TimeUnit.MILLISECONDS.toNanos(jitterMillis);
+		this.lossRate = lossRate;
+		this.poseCoordinates = poseCoordinates.clone();
+		int points = poseCoordinates.length / 2;
+		this.poseMask = points >= 64 ? -1L : (1L << points) - 1;
+		this.processors = Executors.newFixedThreadPool(processingThreads);
+		this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		connectionThreads.execute(this::accept);
+	}
+
+	int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	long getReceivedFrames() {
+		return receivedFrames.get();
+	}
+
+	long getLostFrames() {
+		return lostFrames.get();
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+		synchronized (sockets) {
+			for (Socket socket : sockets) {
+				socket.close();
+			}
+		}
+		processors.shutdownNow();
+		connectionThreads.shutdownNow();
+	}
+
+	private void accept() {
+		while (!closed) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				synchronized (sockets) {
+					sockets.add(socket);
+				}
+				connectionThreads.execute(new Connection(socket, new Random(sockets.size()))::run);
+			} catch (IOException e) {
+				// Closed.
+				return;
+			}
+		}
+	}
+
+	/** Reads the frames of one client and answers them in arrival order. **/
+	private final class Connection {
+		private final Socket socket;
+		private final Random random;
+		private final DataOutputStream out;
+		// Answers that finished processing before an earlier frame, by their arrival sequence.
+		private final TreeMap<Long, Integer> finished = new TreeMap<>();
+		private long nextSequence = 0;
+		private long nextAnswerSequence = 0;
+
+		Connection(Socket socket, Random random) throws IOException {
+			this.socket = socket;
+			this.random = random;
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		void run() {
+			try {
+				DataInputStream in = new DataInputStream(
+						new BufferedInputStream(socket.getInputStream()));
+				while (!closed) {
+					int frameId = in.readInt();
+					in.readFully(new byte[in.readInt()]);
+					receivedFrames.incrementAndGet();
+					if (random.nextDouble() < lossRate) {
+						lostFrames.incrementAndGet();
+						continue;
+					}
+					long sequence = nextSequence++;
+					long processingNanos = delayNanos
+							+ (long) ((2 * random.nextDouble() - 1) * jitterNanos);
+					processors.execute(() -> process(sequence, frameId, processingNanos));
+				}
+			} catch (IOException e) {
+				// The client disconnected or the server closed.
+			}
+		}
+
+		private void process(long sequence, int frameId, long processingNanos) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(Math.max(0, processingNanos));
+				synchronized (this) {
+					finished.put(sequence, frameId);
+					while (!finished.isEmpty() && finished.firstKey() == nextAnswerSequence) {
+						answer(finished.pollFirstEntry().getValue());
+						nextAnswerSequence++;
+					}
+					out.flush();
+				}
+			} catch (InterruptedException | IOException e) {
+				// Closing.
+			}
+		}
+
+		private void answer(int frameId) throws IOException {
+			out.writeInt(frameId);
+			out.writeLong(poseMask);
+			out.writeInt(poseCoordinates.length);
+			for (float coordinate : poseCoordinates) {
+				out.writeFloat(coordinate);
+			}
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package org.vay.sampleapp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+
+/** Connects a {@link FrameStreamer} to a {@link MockAnalysisServer}, taking the place of the Vay
+ * client: frames from the streamer are sent to the server, and answers are reported back as
+ * poses on a listener thread. Round trip times are measured per frame ID, so they stay exact even
+ * when the server loses frames. **/
+final class MockServerClient implements FrameStreamer.FrameSink, Closeable {
+	// Send times of recent frames, indexed by frame ID modulo the length.
+	private static final int SEND_TIMES = 1024;
+
+	private final Socket socket;
+	private final DataOutputStream out;
+	private final long[] sendNanos = new long[SEND_TIMES];
+	private final Thread listenerThread;
+	private final FrameStreamer.PoseOrigin origin = new FrameStreamer.PoseOrigin();
+	private float[] coordinates = new float[0];
+	private volatile FrameStreamer streamer;
+	// Round trip times of answered frames, written by the listener thread only.
+	private long[] roundTripNanos = new long[256];
+	private volatile int answers = 0;
+
+	MockServerClient(int port) throws IOException {
+		socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		socket.setTcpNoDelay(true);
+		out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		listenerThread = new Thread(this::listen, "MockServerClient");
+		listenerThread.start();
+	}
+
+	/** Attaches the streamer to report poses to, which must send its frames to this client. **/
+	void attach(FrameStreamer streamer) {
+		this.streamer = streamer;
+	}
+
+	@Override
+	public synchronized void send(long frameId, byte[] encodedFrame) {
+		sendNanos[(int) (frameId % SEND_TIMES)] = System.nanoTime();
+		try {
+			// The streamer's IDs, echoed in the answers to match the poses.
+			out.writeInt((int) frameId);
+			out.writeInt(encodedFrame.length);
+			out.write(encodedFrame);
+			out.flush();
+		} catch (IOException e) {
+			// Closed, the frame is lost like on a broken connection.
+		}
+	}
+
+	/** Returns the number of answered frames. **/
+	int getAnswers() {
+		return answers;
+	}
+
+	/** Returns the sorted round trip times of the answered frames. Call after {@link #close()}. **/
+	long[] sortedRoundTripNanos() {
+		long[] sorted = Arrays.copyOf(roundTripNanos, answers);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+		try {
+			listenerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void listen() {
+		try {
+			DataInputStream in = new DataInputStream(
+					new BufferedInputStream(socket.getInputStream()));
+			while (true) {
+				int frameId = in.readInt();
+				long mask = in.readLong();
+				int count = in.readInt();
+				if (coordinates.length != count) {
+					coordinates = new float[count];
+				}
+				for (int i = 0; i < count; i++) {
+					coordinates[i] = in.readFloat();
+				}
+				long now = System.nanoTime();
+				long sentAt;
+				synchronized (this) {
+					sentAt = sendNanos[frameId % SEND_TIMES];
+				}
+				if (answers == roundTripNanos.length) {
+					roundTripNanos = Arrays.copyOf(roundTripNanos, 2 * answers);
+				}
+				roundTripNanos[answers] = now - sentAt;
+				answers++;
+				FrameStreamer streamer = this.streamer;
+				if (streamer != null) {
+					streamer.onPose(frameId, now, origin);
+					streamer.onPoseCoordinates(coordinates, mask);
+				}
+			}
+		} catch (IOException e) {
+			// Closed.
+		}
+	}
+}
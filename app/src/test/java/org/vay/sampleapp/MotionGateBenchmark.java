@@ -0,0 +1,68 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/** Replays a scripted session of synthetic frames through the motion gate and compares upload
+ * size and encoder work with sending every frame. Encoder time stands in for battery use, as
+ * encoding dominates the per-frame work on the device. **/
+public class MotionGateBenchmark {
+	private static final int WIDTH = 640;
+	private static final int HEIGHT = 480;
+	private static final int FPS = 30;
+	private static final long FRAME_NANOS = 1_000_000_000L / FPS;
+	// Seconds of each phase: nobody moving, exercising, resting between sets, exercising.
+	private static final int[] PHASE_SECONDS = {4, 3, 4, 3};
+	private static final boolean[] PHASE_MOVING = {false, true, false, true};
+
+	@Test
+	public void replayedSession_savesBandwidthWhileStatic() throws IOException {
+		JpegFrameEncoder encoder = new JpegFrameEncoder(JpegFrameEncoder.DEFAULT_QUALITY,
+				new ImageIoJpegCompressor());
+		MotionDetector detector = new MotionDetector();
+		MotionGate gate = new MotionGate();
+		long allBytes = 0;
+		long allEncodeNanos = 0;
+		long gatedBytes = 0;
+		long gatedEncodeNanos = 0;
+		int frames = 0;
+		int gatedFrames = 0;
+		int position = 0;
+		long now = 0;
+		for (int phase = 0; phase < PHASE_SECONDS.length; phase++) {
+			for (int i = 0; i < PHASE_SECONDS[phase] * FPS; i++) {
+				if (PHASE_MOVING[phase]) {
+					position++;
+				}
+				byte[] frame = SyntheticFrames.nv21(WIDTH, HEIGHT, position, frames);
+				long start = System.nanoTime();
+				int size = encoder.encode(frame, WIDTH, HEIGHT).length;
+				long encodeNanos = System.nanoTime() - start;
+				allBytes += size;
+				allEncodeNanos += encodeNanos;
+				frames++;
+				if (gate.shouldSend(detector.update(frame, WIDTH, HEIGHT), now)) {
+					gatedBytes += size;
+					gatedEncodeNanos += encodeNanos;
+					gatedFrames++;
+				}
+				now += FRAME_NANOS;
+			}
+		}
+		System.out.println(String.format("%-10s %8s %12s %12s", "", "frames", "kB", "encode ms"));
+		System.out.println(String.format("%-10s %8d %12d %12d", "all", frames, allBytes / 1000,
+				allEncodeNanos / 1_000_000));
+		System.out.println(String.format("%-10s %8d %12d %12d", "gated", gatedFrames,
+				gatedBytes / 1000, gatedEncodeNanos / 1_000_000));
+
+		// Both moving phases pass completely; the static ones after their first second only at
+		// the keep-alive rate.
+		int movingFrames = (PHASE_SECONDS[1] + PHASE_SECONDS[3]) * FPS;
+		assertTrue("sent " + gatedFrames, gatedFrames >= movingFrames);
+		assertTrue("sent " + gatedFrames, gatedFrames < 0.75 * frames);
+		assertTrue(gatedBytes < 0.75 * allBytes);
+	}
+}
@@ -0,0 +1,76 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MotionGateTest {
+	private static final int WIDTH = 320;
+	private static final int HEIGHT = 240;
+	private static final long FRAME_NANOS = 33_000_000L;
+
+	@Test
+	public void detector_ignoresSensorNoise() {
+		MotionDetector detector = new MotionDetector();
+		assertEquals(1f, detector.update(SyntheticFrames.nv21(WIDTH, HEIGHT, 0, 1), WIDTH, HEIGHT), 0);
+		for (int seed = 2; seed < 10; seed++) {
+			assertEquals(0f, detector.update(SyntheticFrames.nv21(WIDTH, HEIGHT, 0, seed), WIDTH,
+					HEIGHT), 0);
+		}
+	}
+
+	@Test
+	public void detector_seesMovingPerson() {
+		MotionDetector detector = new MotionDetector();
+		detector.update(SyntheticFrames.nv21(WIDTH, HEIGHT, 0, 1), WIDTH, HEIGHT);
+		float score = detector.update(SyntheticFrames.nv21(WIDTH, HEIGHT, 1, 2), WIDTH, HEIGHT);
+		assertTrue("score " + score, score >= MotionGate.DEFAULT_MOTION_THRESHOLD);
+	}
+
+	@Test
+	public void detector_resetsOnSizeChange() {
+		MotionDetector detector = new MotionDetector();
+		detector.update(SyntheticFrames.nv21(WIDTH, HEIGHT, 0, 1), WIDTH, HEIGHT);
+		assertEquals(1f, detector.update(SyntheticFrames.nv21(HEIGHT, WIDTH, 0, 1), HEIGHT, WIDTH),
+				0);
+	}
+
+	@Test
+	public void staticScene_fallsBackToKeepAlive() {
+		MotionGate gate = new MotionGate();
+		long now = 0;
+		assertTrue(gate.shouldSend(1f, now));
+		int sent = 0;
+		// Three seconds without motion: one second at full rate, then keep-alive frames.
+		for (int frame = 1; frame <= 90; frame++) {
+			now += FRAME_NANOS;
+			if (gate.shouldSend(0f, now)) {
+				sent++;
+			}
+		}
+		assertTrue(gate.isIdle(now));
+		assertEquals(30 + 4, sent, 1);
+	}
+
+	@Test
+	public void motion_returnsToFullRateAtOnce() {
+		MotionGate gate = new MotionGate();
+		gate.shouldSend(1f, 0);
+		long now = 2_000_000_000L;
+		gate.shouldSend(0f, now);
+		assertTrue(gate.isIdle(now));
+		assertFalse(gate.shouldSend(0f, now + FRAME_NANOS));
+		assertTrue(gate.shouldSend(1f, now + 2 * FRAME_NANOS));
+		assertTrue(gate.shouldSend(0f, now + 3 * FRAME_NANOS));
+	}
+
+	@Test
+	public void wake_returnsToFullRate() {
+		MotionGate gate = new MotionGate();
+		long now = 2_000_000_000L;
+		gate.shouldSend(0f, now);
+		assertFalse(gate.shouldSend(0f, now + FRAME_NANOS));
+		gate.wake(now + FRAME_NANOS);
+		assertTrue(gate.shouldSend(0f, now + 2 * FRAME_NANOS));
+	}
+}
@@ -0,0 +1,47 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class Nv21CropperTest {
+	private static final int WIDTH = 12;
+	private static final int HEIGHT = 8;
+
+	@Test
+	public void fullCrop_copiesImage() {
+		byte[] src = Nv21RotatorTest.createImage(WIDTH, HEIGHT);
+		byte[] dst = new byte[src.length];
+		Nv21Cropper.crop(src, WIDTH, HEIGHT, CropRect.full(WIDTH, HEIGHT), dst);
+		assertArrayEquals(src, dst);
+	}
+
+	@Test
+	public void cropThenRotate_equalsRotateThenCrop() {
+		byte[] src = Nv21RotatorTest.createImage(WIDTH, HEIGHT);
+		for (int rotation = 0; rotation < 360; rotation += 90) {
+			int uprightWidth = Nv21Rotator.rotatedWidth(WIDTH, HEIGHT, rotation);
+			int uprightHeight = Nv21Rotator.rotatedHeight(WIDTH, HEIGHT, rotation);
+			CropRect uprightCrop = new CropRect(2, 4, 4, 2);
+
+			byte[] upright = new byte[src.length];
+			Nv21Rotator.rotate(src, WIDTH, HEIGHT, rotation, false, upright);
+			byte[] expected = new byte[FrameBufferPool.nv21Size(4, 2)];
+			Nv21Cropper.crop(upright, uprightWidth, uprightHeight, uprightCrop, expected);
+
+			CropRect sourceCrop = uprightCrop.toSource(WIDTH, HEIGHT, rotation);
+			byte[] cropped = new byte[expected.length];
+			Nv21Cropper.crop(src, WIDTH, HEIGHT, sourceCrop, cropped);
+			byte[] actual = new byte[expected.length];
+			Nv21Rotator.rotate(cropped, sourceCrop.getWidth(), sourceCrop.getHeight(), rotation,
+					false, actual);
+			assertArrayEquals("rotation " + rotation, expected, actual);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void cropOutsideImage_throws() {
+		byte[] src = Nv21RotatorTest.createImage(WIDTH, HEIGHT);
+		Nv21Cropper.crop(src, WIDTH, HEIGHT, new CropRect(10, 0, 4, 2), new byte[src.length]);
+	}
+}
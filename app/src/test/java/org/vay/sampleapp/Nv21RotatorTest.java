@@ -0,0 +1,128 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class Nv21RotatorTest {
+	private static final int WIDTH = 6;
+	private static final int HEIGHT = 4;
+
+	@Test
+	public void rotate0_copiesImage() {
+		byte[] src = createImage(WIDTH, HEIGHT);
+		byte[] dst = new byte[src.length];
+		Nv21Rotator.rotate(src, WIDTH, HEIGHT, 0, false, dst);
+		assertArrayEquals(src, dst);
+	}
+
+	@Test
+	public void rotate90_movesBottomLeftToTopLeft() {
+		byte[] src = createImage(WIDTH, HEIGHT);
+		byte[] dst = new byte[src.length];
+		Nv21Rotator.rotate(src, WIDTH, HEIGHT, 90, false, dst);
+		// The rotated image is HEIGHT wide. Its top left pixel was the bottom left source pixel.
+		assertEquals(src[(HEIGHT - 1) * WIDTH], dst[0]);
+		// Its top right pixel was the top left source pixel.
+		assertEquals(src[0], dst[HEIGHT - 1]);
+	}
+
+	@Test
+	public void allRotations_matchReference() {
+		byte[] src = createImage(WIDTH, HEIGHT);
+		for (int rotation = 0; rotation < 360; rotation += 90) {
+			for (boolean mirror : new boolean[] {false, true}) {
+				byte[] dst = new byte[src.length];
+				Nv21Rotator.rotate(src, WIDTH, HEIGHT, rotation, mirror, dst);
+				assertArrayEquals("rotation " + rotation + " mirror " + mirror,
+						referenceRotate(src, WIDTH, HEIGHT, rotation, mirror), dst);
+			}
+		}
+	}
+
+	@Test
+	public void rotate90FourTimes_isIdentity() {
+		byte[] src = createImage(WIDTH, HEIGHT);
+		byte[] a = src.clone();
+		byte[] b = new byte[src.length];
+		int width = WIDTH;
+		int height = HEIGHT;
+		for (int i = 0; i < 4; i++) {
+			Nv21Rotator.rotate(a, width, height, 90, false, b);
+			int swap = width;
+			width = height;
+			height = swap;
+			byte[] tmp = a;
+			a = b;
+			b = tmp;
+		}
+		assertArrayEquals(src, a);
+	}
+
+	@Test
+	public void rotatedDimensions() {
+		assertEquals(HEIGHT, Nv21Rotator.rotatedWidth(WIDTH, HEIGHT, 270));
+		assertEquals(WIDTH, Nv21Rotator.rotatedHeight(WIDTH, HEIGHT, 270));
+		assertEquals(WIDTH, Nv21Rotator.rotatedWidth(WIDTH, HEIGHT, 180));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unsupportedRotation_throws() {
+		byte[] src = createImage(WIDTH, HEIGHT);
+		Nv21Rotator.rotate(src, WIDTH, HEIGHT, 45, false, new byte[src.length]);
+	}
+
+	/** Creates an NV21 image where every Y value and VU pair is distinct. **/
+	static byte[] createImage(int width, int height) {
+		byte[] image = new byte[FrameBufferPool.nv21Size(width, height)];
+		for (int i = 0; i < image.length; i++) {
+			image[i] = (byte) i;
+		}
+		return image;
+	}
+
+	/** Straightforward coordinate mapping used as reference. **/
+	private static byte[] referenceRotate(byte[] src, int width, int height, int rotation,
+			boolean mirror) {
+		byte[] out = new byte[src.length];
+		int imageSize = width * height;
+		referencePlane(src, 0, width, height, 1, rotation, mirror, out);
+		referencePlane(src, imageSize, width / 2, height / 2, 2, rotation, mirror, out);
+		return out;
+	}
+
+	private static void referencePlane(byte[] src, int offset, int width, int height, int elementSize,
+			int rotation, boolean mirror, byte[] out) {
+		boolean transposed = rotation == 90 || rotation == 270;
+		int outWidth = transposed ? height : width;
+		int outHeight = transposed ? width : height;
+		for (int y = 0; y < outHeight; y++) {
+			for (int x = 0; x < outWidth; x++) {
+				int rx = mirror ? outWidth - 1 - x : x;
+				int sx;
+				int sy;
+				switch (rotation) {
+					case 0:
+						sx = rx;
+						sy = y;
+						break;
+					case 90:
+						sx = y;
+						sy = height - 1 - rx;
+						break;
+					case 180:
+						sx = width - 1 - rx;
+						sy = height - 1 - y;
+						break;
+					default:
+						sx = width - 1 - y;
+						sy = rx;
+				}
+				for (int b = 0; b < elementSize; b++) {
+					out[offset + (y * outWidth + x) * elementSize + b] =
+							src[offset + (sy * width + sx) * elementSize + b];
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class Nv21ScalerTest {
+
+	@Test
+	public void scaledSize_keepsAspectRatioAndEvenEdges() {
+		assertEquals(640, Nv21Scaler.scaledWidth(1920, 1080, 640));
+		assertEquals(360, Nv21Scaler.scaledHeight(1920, 1080, 640));
+		assertEquals(480, Nv21Scaler.scaledWidth(1080, 1440, 640));
+		assertEquals(640, Nv21Scaler.scaledHeight(1080, 1440, 640));
+		assertEquals(0, Nv21Scaler.scaledWidth(1000, 998, 333) % 2);
+	}
+
+	@Test
+	public void smallImagesAndZeroTarget_areNotScaled() {
+		assertFalse(Nv21Scaler.needsScaling(640, 480, 640));
+		assertFalse(Nv21Scaler.needsScaling(1920, 1080, 0));
+		assertEquals(1920, Nv21Scaler.scaledWidth(1920, 1080, 0));
+	}
+
+	@Test
+	public void withoutScaling_matchesRotator() {
+		int width = 8;
+		int height = 6;
+		byte[] src = Nv21RotatorTest.createImage(width, height);
+		for (int rotation = 0; rotation < 360; rotation += 90) {
+			for (boolean mirror : new boolean[] {false, true}) {
+				byte[] rotated = new byte[src.length];
+				byte[] scaled = new byte[src.length];
+				Nv21Rotator.rotate(src, width, height, rotation, mirror, rotated);
+				Nv21Scaler.rotateAndScale(src, width, height, rotation, mirror, scaled,
+						Nv21Rotator.rotatedWidth(width, height, rotation),
+						Nv21Rotator.rotatedHeight(width, height, rotation));
+				assertArrayEquals("rotation " + rotation + " mirror " + mirror, rotated, scaled);
+			}
+		}
+	}
+
+	@Test
+	public void halving_averagesBoxes() {
+		int width = 4;
+		int height = 4;
+		byte[] src = new byte[FrameBufferPool.nv21Size(width, height)];
+		// Top left 2x2 box of Y values 10, 20, 30, 40.
+		src[0] = 10;
+		src[1] = 20;
+		src[4] = 30;
+		src[5] = 40;
+		// VU plane is 2x2 pairs, set V = 100 and U = 200 everywhere.
+		for (int i = width * height; i < src.length; i += 2) {
+			src[i] = 100;
+			src[i + 1] = (byte) 200;
+		}
+		byte[] dst = new byte[FrameBufferPool.nv21Size(2, 2)];
+		Nv21Scaler.rotateAndScale(src, width, height, 0, false, dst, 2, 2);
+		assertEquals(25, dst[0]);
+		assertEquals(0, dst[3]);
+		assertEquals(100, dst[4]);
+		assertEquals(200, dst[5] & 0xFF);
+	}
+
+	@Test
+	public void rotation_isAppliedBeforeScaling() {
+		int width = 8;
+		int height = 4;
+		byte[] src = new byte[FrameBufferPool.nv21Size(width, height)];
+		// Left half of the landscape image is bright.
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width / 2; x++) {
+				src[y * width + x] = 100;
+			}
+		}
+		byte[] dst = new byte[FrameBufferPool.nv21Size(2, 4)];
+		Nv21Scaler.rotateAndScale(src, width, height, 90, false, dst, 2, 4);
+		// After a clockwise rotation the bright half is at the top.
+		assertEquals(100, dst[0]);
+		assertEquals(100, dst[3]);
+		assertEquals(0, dst[4]);
+		assertEquals(0, dst[7]);
+	}
+}
@@ -0,0 +1,100 @@
+package org.vay.sampleapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class PoseColumnWriterTest {
+	private static final int POINTS = 5;
+
+	private File file;
+
+	@After
+	public void deleteFile() {
+		if (file != null) {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void writtenRows_areReadBackAcrossBlocks() throws IOException {
+		file = File.createTempFile("poses", ".col");
+		int rows = 2 * PoseColumnWriter.ROWS_PER_BLOCK + 17;
+		float[] coordinates = new float[2 * POINTS];
+		try (PoseColumnWriter writer = new PoseColumnWriter(file, POINTS)) {
+			for (int row = 0; row < rows; row++) {
+				fill(coordinates, row);
+				// Frames are skipped now and then, and times jitter backwards.
+				writer.writePose(row + row / 7, row * 33_333L - (row % 3) * 5_000L, coordinates,
+						mask(row));
+				if (row % 100 == 99) {
+					writer.writeRepetition(row, row % 200 == 99, "Go deeper " + row);
+				}
+			}
+			assertEquals(rows, writer.getPoseCount());
+			assertEquals(rows / 100, writer.getRepetitionCount());
+		}
+
+		PoseColumnReader reader = new PoseColumnReader(file);
+		assertEquals(POINTS, reader.getPointCount());
+		assertEquals(rows, reader.getPoseCount());
+		for (int row = 0; row < rows; row++) {
+			fill(coordinates, row);
+			assertEquals(row + row / 7, reader.getPoseFrame(row));
+			assertEquals(row * 33_333L - (row % 3) * 5_000L, reader.getPoseMicros(row));
+			assertEquals(mask(row), reader.getPoseMask(row));
+			for (int point = 0; point < POINTS; point++) {
+				boolean accurate = (mask(row) & (1L << point)) != 0;
+				assertEquals(accurate ? coordinates[2 * point] : 0f, reader.getX(row, point), 0);
+				assertEquals(accurate ? coordinates[2 * point + 1] : 0f, reader.getY(row, point),
+						0);
+			}
+		}
+		assertEquals(rows / 100, reader.getRepetitionCount());
+		assertEquals(99, reader.getRepetitionFrame(0));
+		assertTrue(reader.isRepetitionCorrect(0));
+		assertEquals("", reader.getRepetitionFeedback(0));
+		assertEquals(199, reader.getRepetitionFrame(1));
+		assertFalse(reader.isRepetitionCorrect(1));
+		assertEquals("Go deeper 199", reader.getRepetitionFeedback(1));
+	}
+
+	@Test
+	public void inaccuratePoints_takeNoSpace() throws IOException {
+		file = File.createTempFile("poses", ".col");
+		float[] coordinates = new float[2 * POINTS];
+		try (PoseColumnWriter writer = new PoseColumnWriter(file, POINTS)) {
+			for (int row = 0; row < 100; row++) {
+				writer.writePose(row, row * 33_333L, coordinates, 1L);
+			}
+		}
+		// Header, block header, a byte per frame delta and mask, 3 per time delta, 2 floats.
+		assertEquals(12 + 5 + 100 * (1 + 3 + 1 + 8) + 1, file.length(), 2);
+	}
+
+	@Test(expected = IOException.class)
+	public void otherFile_isRejected() throws IOException {
+		file = File.createTempFile("poses", ".col");
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeInt(FrameRecorder.MAGIC);
+			out.writeInt(1);
+		}
+		new PoseColumnReader(file);
+	}
+
+	private static void fill(float[] coordinates, int row) {
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = row * 0.5f + i;
+		}
+	}
+
+	private static long mask(int row) {
+		return row % (1 << POINTS);
+	}
+}
@@ -0,0 +1,77 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PoseSmootherTest {
+	private static final long FRAME_NANOS = 100_000_000L;
+
+	@Test
+	public void movement_isInterpolatedBetweenPoses() {
+		PoseSmoother smoother = new PoseSmoother(1);
+		PoseSnapshotBuffer buffer = new PoseSnapshotBuffer(1);
+		publish(smoother, buffer, 0f, 0);
+		publish(smoother, buffer, 100f, FRAME_NANOS);
+
+		PoseSnapshotBuffer.Snapshot snapshot = buffer.latest();
+		float[] positions = new float[2];
+		PoseSmoother.positionsAt(snapshot, snapshot.startNanos, positions);
+		float start = positions[0];
+		PoseSmoother.positionsAt(snapshot, snapshot.startNanos + snapshot.durationNanos / 2,
+				positions);
+		float middle = positions[0];
+		PoseSmoother.positionsAt(snapshot, snapshot.startNanos + snapshot.durationNanos, positions);
+		float end = positions[0];
+
+		assertEquals(0f, start, 0);
+		assertEquals(snapshot.coordinates[0], end, 1e-3f);
+		assertEquals((start + end) / 2, middle, 1e-3f);
+	}
+
+	@Test
+	public void latePose_isExtrapolatedALittle() {
+		PoseSmoother smoother = new PoseSmoother(1);
+		PoseSnapshotBuffer buffer = new PoseSnapshotBuffer(1);
+		publish(smoother, buffer, 0f, 0);
+		publish(smoother, buffer, 100f, FRAME_NANOS);
+
+		PoseSnapshotBuffer.Snapshot snapshot = buffer.latest();
+		float[] positions = new float[2];
+		PoseSmoother.positionsAt(snapshot, snapshot.startNanos + 10 * snapshot.durationNanos,
+				positions);
+		assertEquals(1.5f * snapshot.coordinates[0], positions[0], 1e-3f);
+		assertTrue(PoseSmoother.isMoving(snapshot, snapshot.startNanos + snapshot.durationNanos));
+		assertFalse(PoseSmoother.isMoving(snapshot,
+				snapshot.startNanos + 2 * snapshot.durationNanos));
+	}
+
+	@Test
+	public void newPose_startsFromDisplayedPosition() {
+		PoseSmoother smoother = new PoseSmoother(1);
+		PoseSnapshotBuffer buffer = new PoseSnapshotBuffer(1);
+		publish(smoother, buffer, 0f, 0);
+		publish(smoother, buffer, 100f, FRAME_NANOS);
+		PoseSnapshotBuffer.Snapshot previous = buffer.latest();
+		long halfway = previous.startNanos + previous.durationNanos / 2;
+		float[] displayed = new float[2];
+		PoseSmoother.positionsAt(previous, halfway, displayed);
+
+		float[] coordinates = {200f, 0f};
+		smoother.update(coordinates, 1, 2 * FRAME_NANOS, halfway, buffer.beginWrite());
+		buffer.publish();
+		assertEquals(displayed[0], buffer.latest().startCoordinates[0], 1e-3f);
+	}
+
+	@Test
+	public void nothingPublished_isNotMoving() {
+		assertFalse(PoseSmoother.isMoving(new PoseSnapshotBuffer(1).latest(), 0));
+	}
+
+	/** Publishes a pose received right when its frame was captured. **/
+	private static void publish(PoseSmoother smoother, PoseSnapshotBuffer buffer, float x,
+			long nanos) {
+		smoother.update(new float[] {x, 0f}, 1, nanos, nanos, buffer.beginWrite());
+		buffer.publish();
+	}
+}
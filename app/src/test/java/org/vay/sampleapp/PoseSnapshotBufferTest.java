@@ -0,0 +1,85 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class PoseSnapshotBufferTest {
+	private static final int POINTS = 25;
+
+	@Test
+	public void latest_isEmptyBeforeFirstPublish() {
+		PoseSnapshotBuffer buffer = new PoseSnapshotBuffer(POINTS);
+		assertEquals(0, buffer.latest().sequence);
+	}
+
+	@Test
+	public void latest_returnsNewestPublishedSnapshot() {
+		PoseSnapshotBuffer buffer = new PoseSnapshotBuffer(POINTS);
+		fill(buffer.beginWrite(), 1);
+		buffer.publish();
+		fill(buffer.beginWrite(), 2);
+		buffer.publish();
+		PoseSnapshotBuffer.Snapshot snapshot = buffer.latest();
+		assertEquals(2, snapshot.sequence);
+		assertEquals(2f, snapshot.coordinates[0], 0);
+		// Without a new publish the same snapshot is returned.
+		assertSame(snapshot, buffer.latest());
+	}
+
+	@Test
+	public void concurrentWriterAndReader_neverSeeTornSnapshots() throws Exception {
+		for (int round = 0; round < 20; round++) {
+			runStress(20_000);
+		}
+	}
+
+	private static void runStress(int publishes) throws Exception {
+		PoseSnapshotBuffer buffer = new PoseSnapshotBuffer(POINTS);
+		AtomicReference<String> failure = new AtomicReference<>();
+		Thread writer = new Thread(() -> {
+			for (int i = 1; i <= publishes; i++) {
+				fill(buffer.beginWrite(), i);
+				buffer.publish();
+			}
+		});
+		Thread reader = new Thread(() -> {
+			long lastSequence = 0;
+			while (lastSequence < publishes && failure.get() == null) {
+				PoseSnapshotBuffer.Snapshot snapshot = buffer.latest();
+				long sequence = snapshot.sequence;
+				if (sequence < lastSequence) {
+					failure.set("sequence went back from " + lastSequence + " to " + sequence);
+				}
+				if (sequence > 0) {
+					if (snapshot.accurateMask != sequence) {
+						failure.set("mask " + snapshot.accurateMask + " in snapshot " + sequence);
+					}
+					for (float coordinate : snapshot.coordinates) {
+						if (coordinate != sequence) {
+							failure.set("coordinate " + coordinate + " in snapshot " + sequence);
+							break;
+						}
+					}
+				}
+				lastSequence = sequence;
+			}
+		});
+		reader.start();
+		writer.start();
+		writer.join();
+		reader.join(10_000);
+		assertFalse("reader did not see the last snapshot", reader.isAlive());
+		assertNull(failure.get(), failure.get());
+	}
+
+	/** Fills a snapshot with values derived from its expected sequence. **/
+	private static void fill(PoseSnapshotBuffer.Snapshot snapshot, long sequence) {
+		for (int i = 0; i < snapshot.coordinates.length; i++) {
+			snapshot.coordinates[i] = sequence;
+		}
+		snapshot.accurateMask = sequence;
+	}
+}
@@ -0,0 +1,54 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReconnectBackoffTest {
+
+	@Test
+	public void delays_growExponentiallyWithinJitterBounds() {
+		ReconnectBackoff backoff = new ReconnectBackoff(100, 1000, new Random(42));
+		long[] steps = {100, 200, 400, 800, 1000, 1000};
+		for (long step : steps) {
+			long delay = backoff.nextDelayMillis();
+			assertTrue("delay " + delay + " for step " + step,
+					delay >= step / 2 && delay <= step);
+		}
+		assertEquals(steps.length, backoff.getAttempts());
+	}
+
+	@Test
+	public void delays_areJittered() {
+		ReconnectBackoff backoff = new ReconnectBackoff(1000, 1000, new Random(7));
+		long first = backoff.nextDelayMillis();
+		boolean differs = false;
+		for (int i = 0; i < 10 && !differs; i++) {
+			differs = backoff.nextDelayMillis() != first;
+		}
+		assertTrue(differs);
+	}
+
+	@Test
+	public void manyAttempts_stayAtMaximum() {
+		ReconnectBackoff backoff = new ReconnectBackoff(1, 5000, new Random(1));
+		for (int i = 0; i < 100; i++) {
+			long delay = backoff.nextDelayMillis();
+			assertTrue("delay " + delay, delay > 0 && delay <= 5000);
+		}
+		assertTrue(backoff.nextDelayMillis() >= 2500);
+	}
+
+	@Test
+	public void reset_startsOverWithInitialDelay() {
+		ReconnectBackoff backoff = new ReconnectBackoff(100, 10_000, new Random(3));
+		for (int i = 0; i < 5; i++) {
+			backoff.nextDelayMillis();
+		}
+		backoff.reset();
+		assertEquals(0, backoff.getAttempts());
+		assertTrue(backoff.nextDelayMillis() <= 100);
+	}
+}
@@ -0,0 +1,73 @@
+package org.vay.sampleapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class RecordingDirectorySourceTest {
+	private static final int WIDTH = 64;
+	private static final int HEIGHT = 48;
+	private static final long FRAME_NANOS = 1_000_000_000L / 30;
+
+	private File directory;
+
+	@After
+	public void deleteDirectory() {
+		if (directory != null) {
+			File[] files = directory.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					file.delete();
+				}
+			}
+			directory.delete();
+		}
+	}
+
+	@Test
+	public void recordings_areReadInNameOrderOnOneClock() throws IOException {
+		directory = Files.createTempDirectory("recordings").toFile();
+		record(new File(directory, "b.rec"), 5_000_000_000L, 2);
+		record(new File(directory, "a.rec"), 1_000_000_000L, 3);
+		assertTrue(new File(directory, "notes.txt").createNewFile());
+
+		try (RecordingDirectorySource source = new RecordingDirectorySource(directory)) {
+			assertEquals(2, source.getRecordingCount());
+			long[] expected = {1_000_000_000L, 1_000_000_000L + FRAME_NANOS,
+					1_000_000_000L + 2 * FRAME_NANOS, 1_000_000_000L + 3 * FRAME_NANOS,
+					1_000_000_000L + 4 * FRAME_NANOS};
+			for (long captureNanos : expected) {
+				assertTrue(source.next());
+				assertEquals(captureNanos, source.getCaptureNanos());
+				assertEquals(WIDTH, source.getWidth());
+				assertEquals(HEIGHT, source.getHeight());
+			}
+			assertFalse(source.next());
+		}
+	}
+
+	@Test
+	public void emptyDirectory_hasNoFrames() throws IOException {
+		directory = Files.createTempDirectory("recordings").toFile();
+		try (RecordingDirectorySource source = new RecordingDirectorySource(directory)) {
+			assertFalse(source.next());
+		}
+	}
+
+	private static void record(File file, long startNanos, int frames) throws IOException {
+		try (FrameRecorder recorder = new FrameRecorder(file)) {
+			for (int i = 0; i < frames; i++) {
+				SyntheticPlanes planes = SyntheticPlanes.create(SyntheticPlanes.Layout.PLANAR,
+						false, WIDTH, HEIGHT, i);
+				recorder.write(startNanos + i * FRAME_NANOS, WIDTH, HEIGHT, 0, planes.yBuffer,
+						planes.yRowStride, planes.uBuffer, planes.vBuffer, planes.uvRowStride,
+						planes.uvPixelStride);
+			}
+		}
+	}
+}
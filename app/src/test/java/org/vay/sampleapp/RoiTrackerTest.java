@@ -0,0 +1,69 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RoiTrackerTest {
+	private static final long FOUR_POINTS = 0b1111;
+
+	@Test
+	public void region_boundsKeypointsWithMargin() {
+		RoiTracker tracker = new RoiTracker(0.5f);
+		tracker.update(person(100f, 100f, 100f), FOUR_POINTS);
+		RegionOfInterest region = tracker.getRegion();
+		assertEquals(50f, region.getLeft(), 1e-3f);
+		assertEquals(250f, region.getRight(), 1e-3f);
+		assertEquals(50f, region.getTop(), 1e-3f);
+		assertEquals(250f, region.getBottom(), 1e-3f);
+	}
+
+	@Test
+	public void personLeavingRegion_growsItAtOnce() {
+		RoiTracker tracker = new RoiTracker(0.5f);
+		tracker.update(person(100f, 100f, 100f), FOUR_POINTS);
+		tracker.update(person(180f, 100f, 100f), FOUR_POINTS);
+		assertEquals(130f, tracker.getRegion().getLeft(), 1e-3f);
+	}
+
+	@Test
+	public void smallerPerson_shrinksRegionOnlyAfterSeveralPoses() {
+		RoiTracker tracker = new RoiTracker(0.5f);
+		tracker.update(person(100f, 100f, 100f), FOUR_POINTS);
+		RegionOfInterest large = tracker.getRegion();
+		for (int i = 0; i < 9; i++) {
+			tracker.update(person(140f, 140f, 20f), FOUR_POINTS);
+			assertSame(large, tracker.getRegion());
+		}
+		tracker.update(person(140f, 140f, 20f), FOUR_POINTS);
+		assertEquals(40f, tracker.getRegion().getWidth(), 1e-3f);
+	}
+
+	@Test
+	public void jitteringPerson_keepsRegion() {
+		RoiTracker tracker = new RoiTracker(0.5f);
+		tracker.update(person(100f, 100f, 100f), FOUR_POINTS);
+		RegionOfInterest region = tracker.getRegion();
+		for (int i = 0; i < 20; i++) {
+			tracker.update(person(100f + (i % 3), 100f, 95f), FOUR_POINTS);
+		}
+		assertSame(region, tracker.getRegion());
+	}
+
+	@Test
+	public void lostPerson_dropsRegion() {
+		RoiTracker tracker = new RoiTracker();
+		tracker.update(person(100f, 100f, 100f), FOUR_POINTS);
+		tracker.update(person(100f, 100f, 100f), 0b11);
+		tracker.update(person(100f, 100f, 100f), 0b11);
+		assertNotNull(tracker.getRegion());
+		tracker.update(person(100f, 100f, 100f), 0b11);
+		assertNull(tracker.getRegion());
+	}
+
+	/** Returns four points at the corners of a square. **/
+	private static float[] person(float left, float top, float size) {
+		return new float[] {
+				left, top, left + size, top, left, top + size, left + size, top + size};
+	}
+}
@@ -0,0 +1,105 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SendRateGovernorTest {
+	private static final long MILLI = 1_000_000L;
+	private static final long BUDGET_MILLIS = 200;
+
+	@Test
+	public void shouldSend_limitsToTargetFps() {
+		SendRateGovernor governor = new SendRateGovernor(BUDGET_MILLIS, 10f, 80, 640);
+		assertTrue(governor.shouldSend(0));
+		assertFalse(governor.shouldSend(50 * MILLI));
+		assertTrue(governor.shouldSend(100 * MILLI));
+	}
+
+	@Test
+	public void isSendDue_doesNotTakeTheSlot() {
+		SendRateGovernor governor = new SendRateGovernor(BUDGET_MILLIS, 10f, 80, 640);
+		assertTrue(governor.shouldSend(0));
+		assertFalse(governor.isSendDue(50 * MILLI));
+		assertTrue(governor.isSendDue(100 * MILLI));
+		assertTrue(governor.isSendDue(133 * MILLI));
+		assertTrue(governor.shouldSend(133 * MILLI));
+		assertFalse(governor.isSendDue(166 * MILLI));
+	}
+
+	@Test
+	public void shouldSend_keepsCameraRateDespiteJitter() {
+		SendRateGovernor governor = new SendRateGovernor(BUDGET_MILLIS, 30f, 80, 640);
+		int sent = 0;
+		for (int frame = 0; frame < 30; frame++) {
+			// Frames arrive at 30 fps, alternating 1 ms early and late.
+			long jitter = (frame % 2 == 0 ? -1 : 1) * MILLI;
+			if (governor.shouldSend(frame * 33_333_333L + jitter)) {
+				sent++;
+			}
+		}
+		assertEquals(30, sent);
+	}
+
+	@Test
+	public void highLatency_reducesFpsThenQualityThenResolution() {
+		SendRateGovernor governor = new SendRateGovernor(BUDGET_MILLIS, 30f, 80, 640);
+		long now = 0;
+		for (int i = 0; i < 100; i++) {
+			now += 600 * MILLI;
+			governor.onRoundTrip(1000 * MILLI, now);
+		}
+		assertEquals(SendRateGovernor.MIN_FPS, governor.getTargetFps(), 0.001);
+		assertEquals(SendRateGovernor.MIN_QUALITY, governor.getJpegQuality());
+		assertEquals(SendRateGovernor.MIN_LONG_EDGE, governor.getTargetLongEdge());
+	}
+
+	@Test
+	public void firstDecrease_onlyTouchesFps() {
+		SendRateGovernor governor = new SendRateGovernor(BUDGET_MILLIS, 30f, 80, 640);
+		assertTrue(governor.onRoundTrip(1000 * MILLI, 0));
+		assertEquals(21f, governor.getTargetFps(), 0.001);
+		assertEquals(80, governor.getJpegQuality());
+		assertEquals(640, governor.getTargetLongEdge());
+	}
+
+	@Test
+	public void lowLatency_recoversResolutionBeforeFps() {
+		SendRateGovernor governor = new SendRateGovernor(BUDGET_MILLIS, 30f, 80, 640);
+		long now = 0;
+		for (int i = 0; i < 100; i++) {
+			now += 600 * MILLI;
+			governor.onRoundTrip(1000 * MILLI, now);
+		}
+		for (int i = 0; i < 20; i++) {
+			now += 600 * MILLI;
+			governor.onRoundTrip(10 * MILLI, now);
+		}
+		assertEquals(640, governor.getTargetLongEdge());
+		assertTrue(governor.getTargetFps() < 30f);
+		for (int i = 0; i < 200; i++) {
+			now += 600 * MILLI;
+			governor.onRoundTrip(10 * MILLI, now);
+		}
+		assertEquals(80, governor.getJpegQuality());
+		assertEquals(30f, governor.getTargetFps(), 0.001);
+	}
+
+	@Test
+	public void adjustments_areRateLimited() {
+		SendRateGovernor governor = new SendRateGovernor(BUDGET_MILLIS, 30f, 80, 640);
+		assertTrue(governor.onRoundTrip(1000 * MILLI, 0));
+		assertFalse(governor.onRoundTrip(1000 * MILLI, 100 * MILLI));
+	}
+
+	@Test
+	public void disabledDownscaling_isNotAdapted() {
+		SendRateGovernor governor = new SendRateGovernor(BUDGET_MILLIS, 30f, 80, 0);
+		long now = 0;
+		for (int i = 0; i < 100; i++) {
+			now += 600 * MILLI;
+			governor.onRoundTrip(1000 * MILLI, now);
+		}
+		assertEquals(0, governor.getTargetLongEdge());
+	}
+}
@@ -0,0 +1,87 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/** Runs 1 up to as many sessions as this machine has cores on an {@link AnalysisSessionManager}
+ * with an encoder thread per session, each fed with camera frames as fast as it encodes them, and
+ * reports the total encode throughput. Encoding is CPU bound, using the single strip
+ * {@link StripJpegCompressor}, so the throughput grows linearly with the sessions as long as the
+ * cores keep up. **/
+public class SessionScalingBenchmark {
+	private static final int WIDTH = 640;
+	private static final int HEIGHT = 480;
+	private static final int DISTINCT_FRAMES = 8;
+	private static final long DURATION_NANOS = 1_000_000_000L;
+	private static final long WARMUP_NANOS = 300_000_000L;
+	private static final int MAX_SESSIONS = 8;
+	// Share of the linear throughput that must be reached, leaving room for the feeding thread
+	// and other load on the machine.
+	private static final double MIN_SCALING_EFFICIENCY = 0.6;
+
+	@Test
+	public void throughput_scalesLinearlyUpToCoreCount() throws Exception {
+		byte[][] frames = new byte[DISTINCT_FRAMES][];
+		for (int i = 0; i < frames.length; i++) {
+			frames[i] = SyntheticFrames.nv21(WIDTH, HEIGHT, i);
+		}
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println(String.format("%8s %12s %12s %12s", "sessions", "fps total",
+				"fps/session", "efficiency"));
+		run(frames, 1, WARMUP_NANOS);
+		double single = 0;
+		for (int sessions = 1; sessions <= Math.min(cores, MAX_SESSIONS); sessions++) {
+			double fps = run(frames, sessions, DURATION_NANOS);
+			if (sessions == 1) {
+				single = fps;
+			}
+			double efficiency = fps / (sessions * single);
+			System.out.println(String.format("%8d %12.1f %12.1f %11.0f%%", sessions, fps,
+					fps / sessions, 100 * efficiency));
+			assertTrue(sessions + " sessions at " + fps + " fps",
+					efficiency >= MIN_SCALING_EFFICIENCY);
+		}
+	}
+
+	/** Returns the frames encoded per second by all sessions together. **/
+	private static double run(byte[][] frames, int sessionCount, long durationNanos)
+			throws InterruptedException {
+		AnalysisSessionManager manager = new AnalysisSessionManager(sessionCount, Float.MAX_VALUE);
+		FrameStreamer[] sessions = new FrameStreamer[sessionCount];
+		for (int i = 0; i < sessionCount; i++) {
+			sessions[i] = manager.openSession((frameId, bytes) -> { }, 1000f);
+			sessions[i].setMotionGatingEnabled(false);
+			sessions[i].setFrameEncoder(new JpegFrameEncoder(JpegFrameEncoder.DEFAULT_QUALITY,
+					new StripJpegCompressor(ForkJoinPool.commonPool(), 1)));
+		}
+		int index = 0;
+		long start = System.nanoTime();
+		long now = start;
+		while (now - start < durationNanos) {
+			boolean fed = false;
+			for (FrameStreamer session : sessions) {
+				if (!session.isEncoderBusy() && session.shouldCapture(now)) {
+					Nv21Frame frame = new Nv21Frame(manager.getBufferPool(), WIDTH, HEIGHT, 0, now);
+					byte[] nv21 = frames[index++ % frames.length];
+					System.arraycopy(nv21, 0, frame.getData(), 0, nv21.length);
+					session.submit(frame);
+					fed = true;
+				}
+			}
+			if (!fed) {
+				// Leaves the cores to the encoder threads.
+				Thread.sleep(0, 200_000);
+			}
+			now = System.nanoTime();
+		}
+		long encoded = 0;
+		for (FrameStreamer session : sessions) {
+			encoded += session.getFrameCounters().getEncoded();
+		}
+		manager.shutdown();
+		return encoded * 1e9 / (now - start);
+	}
+}
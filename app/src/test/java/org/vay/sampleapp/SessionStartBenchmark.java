@@ -0,0 +1,115 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/** Measures the time to first pose of a session, from requesting an analyser to receiving the
+ * first pose, when the analyser is connected on demand and when it was prewarmed by a
+ * {@link WarmConnectionPool}, as {@link AnalyserProvider} does at app start. Analysers are
+ * {@link StubAnalyser}s behind a simulated handshake, so the numbers show the handshake saved,
+ * not real network timings. **/
+public class SessionStartBenchmark {
+	private static final int WIDTH = 640;
+	private static final int HEIGHT = 480;
+	private static final long CONNECT_MILLIS = 300;
+	private static final long SERVER_DELAY_MILLIS = 40;
+	// Polling interval of the emulated camera, which the governor limits to 30 fps.
+	private static final long CAMERA_POLL_MILLIS = 5;
+	private static final int RUNS = 5;
+	private static final int SQUAT = 1;
+	private static final int LUNGE = 2;
+
+	@Test
+	public void prewarmedAnalyser_startsWithoutHandshake() throws Exception {
+		byte[] nv21 = SyntheticFrames.nv21(WIDTH, HEIGHT, 0);
+		ExecutorService executor = Executors.newCachedThreadPool();
+		WarmConnectionPool.Connector<StubAnalyser> connector =
+				new WarmConnectionPool.Connector<StubAnalyser>() {
+					@Override
+					public StubAnalyser connect(int key) {
+						sleepMillis(CONNECT_MILLIS);
+						return new StubAnalyser(SERVER_DELAY_MILLIS, 16);
+					}
+
+					@Override
+					public void close(StubAnalyser analyser) {
+						analyser.shutdown();
+					}
+				};
+		WarmConnectionPool<StubAnalyser> pool = new WarmConnectionPool<>(connector, executor);
+		long[] cold = new long[RUNS];
+		long[] warm = new long[RUNS];
+		long[] switched = new long[RUNS];
+		try {
+			for (int run = 0; run < RUNS; run++) {
+				// Before: the analyser is connected when the session starts.
+				long start = System.nanoTime();
+				cold[run] = streamUntilFirstPose(connector.connect(SQUAT), nv21, start);
+
+				// After: the analysers were connected at app start, or while exercising.
+				pool.prewarm(SQUAT);
+				pool.prewarm(LUNGE);
+				while (!pool.isWarm(SQUAT) || !pool.isWarm(LUNGE)) {
+					Thread.sleep(5);
+				}
+				start = System.nanoTime();
+				warm[run] = streamUntilFirstPose(pool.acquire(SQUAT), nv21, start);
+				start = System.nanoTime();
+				switched[run] = streamUntilFirstPose(pool.acquire(LUNGE), nv21, start);
+			}
+		} finally {
+			pool.close();
+			executor.shutdown();
+		}
+		Arrays.sort(cold);
+		Arrays.sort(warm);
+		Arrays.sort(switched);
+		System.out.println(String.format("%-22s %12s", "session start", "first pose"));
+		System.out.println(String.format("%-22s %9.1f ms", "connect on demand",
+				cold[RUNS / 2] / 1e6));
+		System.out.println(String.format("%-22s %9.1f ms", "prewarmed", warm[RUNS / 2] / 1e6));
+		System.out.println(String.format("%-22s %9.1f ms", "switch to prewarmed",
+				switched[RUNS / 2] / 1e6));
+		assertTrue(cold[RUNS / 2] >= CONNECT_MILLIS * 1_000_000L);
+		assertTrue(warm[RUNS / 2] < cold[RUNS / 2] - CONNECT_MILLIS * 1_000_000L / 2);
+		assertTrue(switched[RUNS / 2] < cold[RUNS / 2] - CONNECT_MILLIS * 1_000_000L / 2);
+	}
+
+	/** Sends camera frames at 30 fps to the analyser until its first pose arrives, returning the
+	 * time from the start of the session. **/
+	private static long streamUntilFirstPose(StubAnalyser analyser, byte[] nv21, long startNanos)
+			throws InterruptedException {
+		FrameStreamer streamer = new FrameStreamer(analyser, 1, FrameStreamer.DEFAULT_MAX_FPS);
+		streamer.setFrameEncoder(new RawNv21FrameEncoder(4));
+		analyser.attach(streamer);
+		FrameBufferPool bufferPool = new FrameBufferPool();
+		try {
+			while (analyser.getPoses() == 0) {
+				long now = System.nanoTime();
+				if (streamer.shouldCapture(now)) {
+					Nv21Frame frame = new Nv21Frame(bufferPool, WIDTH, HEIGHT, 0, now);
+					System.arraycopy(nv21, 0, frame.getData(), 0, nv21.length);
+					streamer.submit(frame);
+				}
+				Thread.sleep(CAMERA_POLL_MILLIS);
+			}
+			return System.nanoTime() - startNanos;
+		} finally {
+			streamer.shutdown();
+			analyser.shutdown();
+		}
+	}
+
+	private static void sleepMillis(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
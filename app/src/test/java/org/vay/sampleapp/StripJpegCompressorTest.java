@@ -0,0 +1,131 @@
+package org.vay.sampleapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+public class StripJpegCompressorTest {
+	private static final int WIDTH = 640;
+	private static final int HEIGHT = 480;
+
+	private ForkJoinPool pool;
+
+	@After
+	public void shutDownPool() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void output_decodesToTheSourceImage() throws IOException {
+		byte[] nv21 = SyntheticFrames.nv21(WIDTH, HEIGHT, 0);
+		BufferedImage image = decode(compress(new StripJpegCompressor(newPool(4), 8),
+				nv21, WIDTH, HEIGHT, 90));
+		assertEquals(WIDTH, image.getWidth());
+		assertEquals(HEIGHT, image.getHeight());
+		assertTrue(lumaPsnr(nv21, image) > 30);
+	}
+
+	@Test
+	public void strips_areSeparatedByRestartMarkers() throws IOException {
+		byte[] nv21 = SyntheticFrames.nv21(WIDTH, HEIGHT, 0);
+		byte[] jpeg = compress(new StripJpegCompressor(newPool(2), 6), nv21, WIDTH, HEIGHT,
+				80);
+		// 30 MCU rows in 6 strips: a restart interval of 5 rows of 40 MCUs and 5 markers.
+		int dri = indexOf(jpeg, 0xDD);
+		assertEquals(200, ((jpeg[dri + 4] & 0xFF) << 8) | (jpeg[dri + 5] & 0xFF));
+		for (int i = 0; i < 5; i++) {
+			assertTrue(indexOf(jpeg, 0xD0 + i) > 0);
+		}
+		assertEquals(-1, indexOf(jpeg, 0xD5));
+		assertTrue(lumaPsnr(nv21, decode(jpeg)) > 28);
+	}
+
+	@Test
+	public void singleStrip_hasNoRestartInterval() throws IOException {
+		byte[] nv21 = SyntheticFrames.nv21(WIDTH, HEIGHT, 0);
+		byte[] jpeg = compress(new StripJpegCompressor(ForkJoinPool.commonPool(), 1), nv21, WIDTH,
+				HEIGHT, 80);
+		assertEquals(-1, indexOf(jpeg, 0xDD));
+		assertTrue(lumaPsnr(nv21, decode(jpeg)) > 28);
+	}
+
+	@Test
+	public void partialBlocks_areEncoded() throws IOException {
+		byte[] nv21 = SyntheticFrames.nv21(202, 118, 3);
+		BufferedImage image = decode(compress(new StripJpegCompressor(newPool(2), 3),
+				nv21, 202, 118, 90));
+		assertEquals(202, image.getWidth());
+		assertEquals(118, image.getHeight());
+		assertTrue(lumaPsnr(nv21, image) > 30);
+	}
+
+	@Test
+	public void lowerQuality_isSmaller() throws IOException {
+		StripJpegCompressor compressor = new StripJpegCompressor();
+		byte[] nv21 = SyntheticFrames.nv21(WIDTH, HEIGHT, 0);
+		assertTrue(compress(compressor, nv21, WIDTH, HEIGHT, 40).length
+				< compress(compressor, nv21, WIDTH, HEIGHT, 90).length);
+	}
+
+	@Test
+	public void huffmanTables_coverAllSymbols() {
+		assertEquals(12, StripJpegCompressor.LUMA_DC.values.length);
+		assertEquals(12, StripJpegCompressor.CHROMA_DC.values.length);
+		assertEquals(162, StripJpegCompressor.LUMA_AC.values.length);
+		assertEquals(162, StripJpegCompressor.CHROMA_AC.values.length);
+	}
+
+	private ForkJoinPool newPool(int parallelism) {
+		pool = new ForkJoinPool(parallelism);
+		return pool;
+	}
+
+	private static byte[] compress(JpegCompressor compressor, byte[] nv21, int width, int height,
+			int quality) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		compressor.compress(nv21, width, height, quality, out);
+		return out.toByteArray();
+	}
+
+	private static BufferedImage decode(byte[] jpeg) throws IOException {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(jpeg));
+		assertNotNull(image);
+		return image;
+	}
+
+	/** Returns the index of the first marker of the given type after the SOI, or -1. **/
+	private static int indexOf(byte[] jpeg, int marker) {
+		for (int i = 2; i < jpeg.length - 1; i++) {
+			if ((jpeg[i] & 0xFF) == 0xFF && (jpeg[i + 1] & 0xFF) == marker) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static double lumaPsnr(byte[] nv21, BufferedImage image) {
+		double squaredError = 0;
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				int rgb = image.getRGB(x, y);
+				double luma = 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF)
+						+ 0.114 * (rgb & 0xFF);
+				double error = luma - (nv21[y * image.getWidth() + x] & 0xFF);
+				squaredError += error * error;
+			}
+		}
+		double mse = squaredError / (image.getWidth() * image.getHeight());
+		return 10 * Math.log10(255 * 255 / mse);
+	}
+}
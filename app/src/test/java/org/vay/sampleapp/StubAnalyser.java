@@ -0,0 +1,99 @@
+package org.vay.sampleapp;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/** Local stand-in for the streaming analyser: answers every frame it receives with a canned pose
+ * after a fixed delay, in receive order, like the server does. Poses are reported to the attached
+ * {@link FrameStreamer} on a single listener thread, as the Vay client does, so replays exercise
+ * the in-flight window and the governor without a network. **/
+final class StubAnalyser implements FrameStreamer.FrameSink {
+	private final long delayNanos;
+	private final ScheduledExecutorService listenerThread =
+			Executors.newSingleThreadScheduledExecutor();
+	// Accessed on the listener thread only.
+	private final FrameStreamer.PoseOrigin origin = new FrameStreamer.PoseOrigin();
+	private final float[] coordinates = new float[2 * PoseGraphic.pointCount()];
+	private final long mask;
+	private final long[] roundTripNanos;
+	private volatile FrameStreamer streamer;
+	private volatile long receivedFrames;
+	private volatile long receivedBytes;
+	private volatile int poses;
+
+	/**
+	 * @param delayMillis time from receiving a frame to answering with its pose
+	 * @param maxPoses number of round trip times kept
+	 */
+	StubAnalyser(long delayMillis, int maxPoses) {
+		delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+		roundTripNanos = new long[maxPoses];
+		// A standing person in the middle of a 640x480 frame.
+		for (int i = 0; i < coordinates.length / 2; i++) {
+			coordinates[2 * i] = 300 + 4 * i;
+			coordinates[2 * i + 1] = 100 + 12 * i;
+		}
+		mask = (1L << (coordinates.length / 2)) - 1;
+	}
+
+	/** Attaches the streamer to report poses to, which must send its frames to this stub. **/
+	void attach(FrameStreamer streamer) {
+		this.streamer = streamer;
+	}
+
+	@Override
+	public void send(long frameId, byte[] encodedFrame) {
+		synchronized (this) {
+			receivedFrames++;
+			receivedBytes += encodedFrame.length;
+		}
+		listenerThread.schedule(() -> emitPose(frameId), delayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private void emitPose(long frameId) {
+		streamer.onPose(frameId, System.nanoTime(), origin);
+		streamer.onPoseCoordinates(coordinates, mask);
+		if (origin.matched && poses < roundTripNanos.length) {
+			roundTripNanos[poses] = origin.roundTripNanos;
+		}
+		poses++;
+	}
+
+	/** Waits until every received frame has been answered. Returns false on timeout. **/
+	boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (poses < receivedFrames) {
+			if (System.nanoTime() > deadline) {
+				return false;
+			}
+			Thread.sleep(5);
+		}
+		return true;
+	}
+
+	long getReceivedFrames() {
+		return receivedFrames;
+	}
+
+	long getReceivedBytes() {
+		return receivedBytes;
+	}
+
+	int getPoses() {
+		return poses;
+	}
+
+	/** Returns the sorted round trip times of the matched poses, up to the kept number. Call once
+	 * idle. **/
+	long[] sortedRoundTripNanos() {
+		long[] sorted = Arrays.copyOf(roundTripNanos, Math.min(poses, roundTripNanos.length));
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	void shutdown() {
+		listenerThread.shutdownNow();
+	}
+}
@@ -0,0 +1,43 @@
+package org.vay.sampleapp;
+
+import java.util.Random;
+
+/** Deterministic NV21 test frames resembling camera content: smooth gradients, a high contrast
+ * "person" silhouette and sensor noise, so compression ratios are in a realistic range. **/
+final class SyntheticFrames {
+
+	private SyntheticFrames() {
+	}
+
+	/** Creates an NV21 frame. Different indices shift the silhouette, emulating movement. **/
+	static byte[] nv21(int width, int height, int index) {
+		return nv21(width, height, index, index);
+	}
+
+	/** Creates an NV21 frame with the silhouette at the given position and the given sensor
+	 * noise, so a still scene can be emulated by varying only the noise. **/
+	static byte[] nv21(int width, int height, int position, long noiseSeed) {
+		byte[] frame = new byte[FrameBufferPool.nv21Size(width, height)];
+		Random random = new Random(noiseSeed);
+		int personLeft = width / 3 + (position * 7) % (width / 6);
+		int personRight = personLeft + width / 6;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int value = (x * 160 / width + y * 60 / height) + random.nextInt(8);
+				if (x >= personLeft && x < personRight && y > height / 5) {
+					value = 40 + random.nextInt(8);
+				}
+				frame[y * width + x] = (byte) value;
+			}
+		}
+		int imageSize = width * height;
+		for (int y = 0; y < height / 2; y++) {
+			for (int x = 0; x < width / 2; x++) {
+				int pos = imageSize + y * width + 2 * x;
+				frame[pos] = (byte) (128 + x * 40 / width);
+				frame[pos + 1] = (byte) (128 - y * 40 / height);
+			}
+		}
+		return frame;
+	}
+}
@@ -0,0 +1,128 @@
+package org.vay.sampleapp;
+
+import java.nio.ByteBuffer;
+
+/** YUV_420_888 plane fixtures in the layouts camera HALs produce, built from a
+ * {@link SyntheticFrames} image, which is also the expected NV21 conversion result. Like camera
+ * buffers, they are direct and end right after the last pixel of the last row. **/
+final class SyntheticPlanes {
+	/** Row padding added to padded layouts, in bytes. **/
+	static final int ROW_PADDING = 64;
+
+	enum Layout {
+		/** Separate U and V planes with a pixel stride of 1. **/
+		PLANAR,
+		/** U and V views of one interleaved VU buffer, the V view starting one byte earlier. **/
+		NV21_ALIASED,
+		/** U and V views of one interleaved UV buffer, the U view starting one byte earlier. **/
+		NV12_ALIASED
+	}
+
+	final int width;
+	final int height;
+	final ByteBuffer yBuffer;
+	final int yRowStride;
+	final ByteBuffer uBuffer;
+	final ByteBuffer vBuffer;
+	final int uvRowStride;
+	final int uvPixelStride;
+	final byte[] expectedNv21;
+
+	private SyntheticPlanes(int width, int height, ByteBuffer yBuffer, int yRowStride,
+			ByteBuffer uBuffer, ByteBuffer vBuffer, int uvRowStride, int uvPixelStride,
+			byte[] expectedNv21) {
+		this.width = width;
+		this.height = height;
+		this.yBuffer = yBuffer;
+		this.yRowStride = yRowStride;
+		this.uBuffer = uBuffer;
+		this.vBuffer = vBuffer;
+		this.uvRowStride = uvRowStride;
+		this.uvPixelStride = uvPixelStride;
+		this.expectedNv21 = expectedNv21;
+	}
+
+	static SyntheticPlanes create(Layout layout, boolean padded, int width, int height) {
+		return create(layout, padded, width, height, 0);
+	}
+
+	/** Creates planes of the {@link SyntheticFrames} image with the given index. **/
+	static SyntheticPlanes create(Layout layout, boolean padded, int width, int height,
+			int index) {
+		byte[] nv21 = SyntheticFrames.nv21(width, height, index);
+		int imageSize = width * height;
+		int padding = padded ? ROW_PADDING : 0;
+		int yRowStride = width + padding;
+		ByteBuffer y = ByteBuffer.allocateDirect(yRowStride * (height - 1) + width);
+		for (int row = 0; row < height; row++) {
+			y.position(row * yRowStride);
+			y.put(nv21, row * width, width);
+		}
+
+		int chromaHeight = height / 2;
+		int chromaWidth = width / 2;
+		if (layout == Layout.PLANAR) {
+			int rowStride = chromaWidth + padding;
+			int size = rowStride * (chromaHeight - 1) + chromaWidth;
+			ByteBuffer u = ByteBuffer.allocateDirect(size);
+			ByteBuffer v = ByteBuffer.allocateDirect(size);
+			for (int row = 0; row < chromaHeight; row++) {
+				for (int col = 0; col < chromaWidth; col++) {
+					int in = imageSize + row * width + 2 * col;
+					v.put(row * rowStride + col, nv21[in]);
+					u.put(row * rowStride + col, nv21[in + 1]);
+				}
+			}
+			return new SyntheticPlanes(width, height, rewound(y), yRowStride, u, v, rowStride, 1,
+					nv21);
+		}
+
+		int rowStride = width + padding;
+		int size = rowStride * (chromaHeight - 1) + width;
+		ByteBuffer interleaved = ByteBuffer.allocateDirect(size);
+		boolean vFirst = layout == Layout.NV21_ALIASED;
+		for (int row = 0; row < chromaHeight; row++) {
+			for (int col = 0; col < chromaWidth; col++) {
+				int in = imageSize + row * width + 2 * col;
+				int out = row * rowStride + 2 * col;
+				interleaved.put(out, vFirst ? nv21[in] : nv21[in + 1]);
+				interleaved.put(out + 1, vFirst ? nv21[in + 1] : nv21[in]);
+			}
+		}
+		ByteBuffer first = view(interleaved, 0, size - 1);
+		ByteBuffer second = view(interleaved, 1, size - 1);
+		return new SyntheticPlanes(width, height, rewound(y), yRowStride,
+				vFirst ? second : first, vFirst ? first : second, rowStride, 2, nv21);
+	}
+
+	/** Converts the planes with {@link Yuv420Converter}. The buffers are rewound first, as they
+	 * would be for a fresh camera image. **/
+	void toNv21(byte[] out) {
+		yBuffer.rewind();
+		uBuffer.rewind();
+		vBuffer.rewind();
+		Yuv420Converter.toNv21(yBuffer, yRowStride, uBuffer, vBuffer, uvRowStride, uvPixelStride,
+				width, height, out);
+	}
+
+	/** Converts the planes with a stream converter, rewinding them first. **/
+	void toNv21(Yuv420StreamConverter converter, byte[] out) {
+		yBuffer.rewind();
+		uBuffer.rewind();
+		vBuffer.rewind();
+		converter.toNv21(yBuffer, yRowStride, uBuffer, vBuffer, uvRowStride, uvPixelStride, width,
+				height, out);
+	}
+
+	private static ByteBuffer view(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset);
+		view.limit(offset + length);
+		return view.slice();
+	}
+
+	private static ByteBuffer rewound(ByteBuffer buffer) {
+		buffer.rewind();
+		return buffer;
+	}
+}
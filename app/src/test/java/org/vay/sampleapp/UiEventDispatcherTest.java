@@ -0,0 +1,98 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ai.vay.client.api.SessionState;
+
+import static org.junit.Assert.*;
+
+public class UiEventDispatcherTest {
+	private final List<Runnable> frames = new ArrayList<>();
+	private final List<SessionViewModel> rendered = new ArrayList<>();
+	private SessionViewModel lastPrevious;
+	private final UiEventDispatcher dispatcher = new UiEventDispatcher("Good job", frames::add,
+			(previous, current) -> {
+				lastPrevious = previous;
+				rendered.add(current);
+			});
+
+	@Test
+	public void burstOfEvents_isRenderedOnceOnNextFrame() {
+		dispatcher.onSessionStateChanged(SessionState.EXERCISING);
+		dispatcher.onPositioningGuidance("Positioning successful");
+		dispatcher.onCorrectRepetition(1);
+		dispatcher.onConnectivityWarning("");
+		assertEquals(1, frames.size());
+		assertTrue(rendered.isEmpty());
+
+		runFrames();
+		assertEquals(1, rendered.size());
+		SessionViewModel model = rendered.get(0);
+		assertEquals(1, model.getCorrectRepetitions());
+		assertEquals(SessionState.EXERCISING, model.getSessionState());
+		assertEquals("Good job", model.getFeedback());
+		assertEquals(SessionViewModel.Tone.POSITIVE, model.getFeedbackTone());
+		assertEquals("", model.getConnectivityWarning());
+		assertSame(SessionViewModel.EMPTY, lastPrevious);
+		assertEquals(4, dispatcher.getEventCount());
+		assertEquals(1, dispatcher.getPublishCount());
+	}
+
+	@Test
+	public void lastWriterWinsPerField() {
+		dispatcher.onCorrection("Go deeper");
+		dispatcher.onSessionStateChanged(SessionState.POSITIONING);
+		dispatcher.onPositioningGuidance("Step back");
+		runFrames();
+		SessionViewModel model = rendered.get(0);
+		assertEquals("Step back", model.getFeedback());
+		// The state change came after the correction.
+		assertEquals(SessionViewModel.Tone.POSITIONING, model.getFeedbackTone());
+	}
+
+	@Test
+	public void eventsAfterPublish_requestNextFrame() {
+		dispatcher.onCorrectRepetition(1);
+		runFrames();
+		assertTrue(frames.isEmpty());
+		dispatcher.onCorrection("Keep your back straight");
+		assertEquals(1, frames.size());
+		runFrames();
+		assertEquals(2, rendered.size());
+		assertSame(rendered.get(0), lastPrevious);
+		SessionViewModel model = rendered.get(1);
+		// Fields without new events keep their values.
+		assertEquals(1, model.getCorrectRepetitions());
+		assertEquals(SessionViewModel.Tone.CORRECTION, model.getFeedbackTone());
+	}
+
+	@Test
+	public void eventsFromManyThreads_requestOneFrameAtATime() throws Exception {
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			int thread = i;
+			threads[i] = new Thread(() -> {
+				for (int j = 1; j <= 1000; j++) {
+					dispatcher.onCorrectRepetition(thread * 1000 + j);
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(1, frames.size());
+		assertEquals(4000, dispatcher.getEventCount());
+	}
+
+	private void runFrames() {
+		List<Runnable> due = new ArrayList<>(frames);
+		frames.clear();
+		for (Runnable frame : due) {
+			frame.run();
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package org.vay.sampleapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class WarmConnectionPoolTest {
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final FakeConnector connector = new FakeConnector();
+	private final WarmConnectionPool<String> pool = new WarmConnectionPool<>(connector, executor);
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void acquire_takesPrewarmedSpareAndPrewarmsTheNext() throws Exception {
+		pool.prewarm(1);
+		waitUntilWarm(1);
+		Thread caller = Thread.currentThread();
+		assertEquals("1#1", pool.acquire(1));
+		assertFalse(connector.connectThreads.contains(caller));
+		waitUntilWarm(1);
+		assertEquals("1#2", pool.acquire(1));
+	}
+
+	@Test
+	public void acquire_withoutSpare_connectsOnCallingThread() throws Exception {
+		assertEquals("2#1", pool.acquire(2));
+		assertEquals(Thread.currentThread(), connector.connectThreads.get(0));
+	}
+
+	@Test
+	public void spares_areKeptPerKey() throws Exception {
+		pool.prewarm(1);
+		pool.prewarm(1);
+		pool.prewarm(2);
+		waitUntilWarm(1);
+		waitUntilWarm(2);
+		assertEquals(2, connector.connects.get());
+		assertEquals("2#1", pool.acquire(2));
+		assertEquals("1#1", pool.acquire(1));
+	}
+
+	@Test
+	public void failedSpare_isReplacedByNewConnection() throws Exception {
+		connector.failNext = true;
+		pool.prewarm(3);
+		waitUntil(() -> connector.connects.get() == 1);
+		assertFalse(pool.isWarm(3));
+		assertEquals("3#2", pool.acquire(3));
+	}
+
+	@Test
+	public void close_closesSpares() throws Exception {
+		pool.prewarm(1);
+		pool.prewarm(2);
+		pool.close();
+		waitUntil(() -> connector.closed.size() == 2);
+		assertTrue(connector.closed.contains("1#1"));
+		assertTrue(connector.closed.contains("2#1"));
+	}
+
+	@Test
+	public void interruptedAcquire_closesTheSpareOnceOpen() throws Exception {
+		connector.gate = new CountDownLatch(1);
+		pool.prewarm(1);
+		Thread.currentThread().interrupt();
+		try {
+			pool.acquire(1);
+			fail("not interrupted");
+		} catch (InterruptedException e) {
+			assertTrue(Thread.interrupted());
+		}
+		connector.gate.countDown();
+		waitUntil(() -> connector.closed.contains("1#1"));
+	}
+
+	@Test
+	public void closedPool_isNotPrewarmed() throws Exception {
+		pool.close();
+		pool.prewarm(1);
+		assertEquals(0, connector.connects.get());
+		try {
+			pool.acquire(1);
+			fail("acquired from a closed pool");
+		} catch (IllegalStateException e) {
+			// Expected.
+		}
+	}
+
+	private void waitUntilWarm(int key) throws InterruptedException {
+		waitUntil(() -> pool.isWarm(key));
+	}
+
+	private static void waitUntil(Condition condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.isMet()) {
+			assertTrue("timed out", System.nanoTime() < deadline);
+			Thread.sleep(1);
+		}
+	}
+
+	private interface Condition {
+		boolean isMet();
+	}
+
+	/** Names connections by key and the number of connections opened for the key so far. **/
+	private static final class FakeConnector implements WarmConnectionPool.Connector<String> {
+		final AtomicInteger connects = new AtomicInteger();
+		final Map<Integer, AtomicInteger> connectsPerKey = new ConcurrentHashMap<>();
+		final List<Thread> connectThreads = new CopyOnWriteArrayList<>();
+		final List<String> closed = new CopyOnWriteArrayList<>();
+		volatile boolean failNext = false;
+		// Connections wait for it to open, if set.
+		volatile CountDownLatch gate;
+
+		@Override
+		public String connect(int key) throws IOException {
+			connects.incrementAndGet();
+			int count = connectsPerKey.computeIfAbsent(key, k -> new AtomicInteger())
+					.incrementAndGet();
+			connectThreads.add(Thread.currentThread());
+			CountDownLatch gate = this.gate;
+			if (gate != null) {
+				try {
+					gate.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+			if (failNext) {
+				failNext = false;
+				throw new IOException("connection refused");
+			}
+			return key + "#" + count;
+		}
+
+		@Override
+		public void close(String connection) {
+			closed.add(connection);
+		}
+	}
+}
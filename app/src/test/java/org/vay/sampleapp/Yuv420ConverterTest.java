@@ -0,0 +1,88 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class Yuv420ConverterTest {
+	// Widths that are not a multiple of 8 exercise the tail of the word-wide copy.
+	private static final int[][] SIZES = {{6, 4}, {70, 42}, {640, 480}};
+
+	@Test
+	public void allLayouts_matchSourceImage() {
+		for (int[] size : SIZES) {
+			for (SyntheticPlanes.Layout layout : SyntheticPlanes.Layout.values()) {
+				for (boolean padded : new boolean[] {false, true}) {
+					SyntheticPlanes planes = SyntheticPlanes.create(layout, padded, size[0], size[1]);
+					byte[] out = new byte[FrameBufferPool.nv21Size(size[0], size[1])];
+					planes.toNv21(out);
+					assertArrayEquals(size[0] + "x" + size[1] + " " + layout + " padded " + padded,
+							planes.expectedNv21, out);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void unpackPlane_matchesReference() {
+		for (int pixelStride = 1; pixelStride <= 3; pixelStride++) {
+			for (int padding : new int[] {0, 5, 64}) {
+				for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+					int width = 37;
+					int height = 9;
+					int rowStride = width * pixelStride + padding;
+					ByteBuffer buffer = plane(rowStride * (height - 1) + (width - 1) * pixelStride + 1);
+					buffer.order(order);
+					for (int outPixelStride = 1; outPixelStride <= 2; outPixelStride++) {
+						byte[] expected = new byte[width * height * outPixelStride + 1];
+						byte[] actual = new byte[expected.length];
+						referenceUnpack(buffer, rowStride, pixelStride, width, height, expected, 1,
+								outPixelStride);
+						Yuv420Converter.unpackPlane(buffer, rowStride, pixelStride, width, height,
+								actual, 1, outPixelStride);
+						assertArrayEquals("pixel stride " + pixelStride + " padding " + padding
+										+ " " + order + " out stride " + outPixelStride,
+								expected, actual);
+						assertEquals(0, buffer.position());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void unpackPlane_ignoresRowsBeyondPlaneHeight() {
+		// Some camera HALs allocate buffers for an aligned height, e.g. 1088 rows for 1080.
+		int width = 16;
+		int height = 10;
+		ByteBuffer buffer = plane(width * 16);
+		byte[] out = new byte[width * height];
+		Yuv420Converter.unpackPlane(buffer, width, 1, width, height, out, 0, 1);
+		for (int i = 0; i < out.length; i++) {
+			assertEquals(buffer.get(i), out[i]);
+		}
+	}
+
+	/** Creates a direct buffer of distinct values. **/
+	private static ByteBuffer plane(int size) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+		for (int i = 0; i < size; i++) {
+			buffer.put(i, (byte) (i * 7));
+		}
+		return buffer;
+	}
+
+	/** Straightforward per-sample copy used as reference. **/
+	private static void referenceUnpack(ByteBuffer buffer, int rowStride, int pixelStride,
+			int width, int height, byte[] out, int offset, int outPixelStride) {
+		for (int row = 0; row < height; row++) {
+			for (int col = 0; col < width; col++) {
+				out[offset + (row * width + col) * outPixelStride] =
+						buffer.get(row * rowStride + col * pixelStride);
+			}
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package org.vay.sampleapp;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class Yuv420StreamConverterTest {
+	private static final int WIDTH = 70;
+	private static final int HEIGHT = 42;
+
+	@Test
+	public void allLayouts_areClassifiedAndConverted() {
+		for (SyntheticPlanes.Layout layout : SyntheticPlanes.Layout.values()) {
+			for (boolean padded : new boolean[] {false, true}) {
+				SyntheticPlanes planes = SyntheticPlanes.create(layout, padded, WIDTH, HEIGHT);
+				Yuv420StreamConverter converter = new Yuv420StreamConverter();
+				byte[] out = new byte[FrameBufferPool.nv21Size(WIDTH, HEIGHT)];
+				planes.toNv21(converter, out);
+				String name = layout + " padded " + padded;
+				assertArrayEquals(name, planes.expectedNv21, out);
+				assertEquals(name, layout.name(), converter.getLayout().name());
+				assertEquals(name, padded, converter.isChromaPadded());
+			}
+		}
+	}
+
+	@Test
+	public void sameStream_isProbedOnce() {
+		SyntheticPlanes planes = SyntheticPlanes.create(SyntheticPlanes.Layout.NV21_ALIASED, true,
+				WIDTH, HEIGHT);
+		Yuv420StreamConverter converter = new Yuv420StreamConverter();
+		byte[] out = new byte[FrameBufferPool.nv21Size(WIDTH, HEIGHT)];
+		for (int i = 0; i < 10; i++) {
+			planes.toNv21(converter, out);
+		}
+		assertEquals(1, converter.getProbeCount());
+	}
+
+	@Test
+	public void newBuffersOfSameLayout_areOnlyVerified() {
+		Yuv420StreamConverter converter = new Yuv420StreamConverter();
+		byte[] out = new byte[FrameBufferPool.nv21Size(WIDTH, HEIGHT)];
+		for (int i = 0; i < 3; i++) {
+			// A new image comes with new buffers.
+			SyntheticPlanes.create(SyntheticPlanes.Layout.NV12_ALIASED, false, WIDTH, HEIGHT)
+					.toNv21(converter, out);
+		}
+		assertEquals(1, converter.getProbeCount());
+	}
+
+	@Test
+	public void changedLayout_isProbedAgain() {
+		Yuv420StreamConverter converter = new Yuv420StreamConverter();
+		byte[] out = new byte[FrameBufferPool.nv21Size(WIDTH, HEIGHT)];
+		SyntheticPlanes.create(SyntheticPlanes.Layout.NV21_ALIASED, false, WIDTH, HEIGHT)
+				.toNv21(converter, out);
+		SyntheticPlanes nv12 = SyntheticPlanes.create(SyntheticPlanes.Layout.NV12_ALIASED, false,
+				WIDTH, HEIGHT);
+		nv12.toNv21(converter, out);
+		assertEquals(2, converter.getProbeCount());
+		assertEquals(Yuv420StreamConverter.Layout.NV12_ALIASED, converter.getLayout());
+		assertArrayEquals(nv12.expectedNv21, out);
+
+		SyntheticPlanes.create(SyntheticPlanes.Layout.NV12_ALIASED, false, 2 * WIDTH, 2 * HEIGHT)
+				.toNv21(converter, new byte[FrameBufferPool.nv21Size(2 * WIDTH, 2 * HEIGHT)]);
+		assertEquals(3, converter.getProbeCount());
+	}
+
+	@Test
+	public void separateInterleavedPlanes_areDeinterleaved() {
+		SyntheticPlanes nv21 = SyntheticPlanes.create(SyntheticPlanes.Layout.NV21_ALIASED, false,
+				WIDTH, HEIGHT);
+		// Same contents as the aliased views, but in separate buffers.
+		ByteBuffer u = copy(nv21.uBuffer);
+		ByteBuffer v = copy(nv21.vBuffer);
+		u.put(0, (byte) (u.get(0) + 1));
+		Yuv420StreamConverter converter = new Yuv420StreamConverter();
+		byte[] out = new byte[FrameBufferPool.nv21Size(WIDTH, HEIGHT)];
+		converter.toNv21(nv21.yBuffer, nv21.yRowStride, u, v, nv21.uvRowStride, 2, WIDTH, HEIGHT,
+				out);
+		assertEquals(Yuv420StreamConverter.Layout.OTHER, converter.getLayout());
+		assertEquals(u.get(0), out[WIDTH * HEIGHT + 1]);
+	}
+
+	@Test
+	public void uniformChroma_isProbedAgainUntilTheLayoutIsClear() {
+		SyntheticPlanes nv21 = SyntheticPlanes.create(SyntheticPlanes.Layout.NV21_ALIASED, false,
+				WIDTH, HEIGHT);
+		ByteBuffer original = copy(nv21.vBuffer);
+		byte lastU = nv21.uBuffer.get(nv21.uBuffer.limit() - 1);
+		// A gray startup frame: the same buffers later hold the real images.
+		fill(nv21.vBuffer, (byte) 128);
+		nv21.uBuffer.put(nv21.uBuffer.limit() - 1, (byte) 128);
+		Yuv420StreamConverter converter = new Yuv420StreamConverter();
+		byte[] out = new byte[FrameBufferPool.nv21Size(WIDTH, HEIGHT)];
+		nv21.toNv21(converter, out);
+		assertEquals(Yuv420StreamConverter.Layout.OTHER, converter.getLayout());
+		assertEquals((byte) 128, out[out.length - 1]);
+
+		for (int i = 0; i < original.limit(); i++) {
+			nv21.vBuffer.put(i, original.get(i));
+		}
+		nv21.uBuffer.put(nv21.uBuffer.limit() - 1, lastU);
+		nv21.toNv21(converter, out);
+		assertEquals(Yuv420StreamConverter.Layout.NV21_ALIASED, converter.getLayout());
+		assertArrayEquals(nv21.expectedNv21, out);
+		nv21.toNv21(converter, out);
+		assertEquals(2, converter.getProbeCount());
+	}
+
+	@Test
+	public void uniformSeparateInterleavedPlanes_areNotTakenForAliased() {
+		SyntheticPlanes nv21 = SyntheticPlanes.create(SyntheticPlanes.Layout.NV21_ALIASED, false,
+				WIDTH, HEIGHT);
+		ByteBuffer u = copy(nv21.uBuffer);
+		ByteBuffer v = copy(nv21.vBuffer);
+		fill(u, (byte) 128);
+		fill(v, (byte) 128);
+		Yuv420StreamConverter converter = new Yuv420StreamConverter();
+		byte[] out = new byte[FrameBufferPool.nv21Size(WIDTH, HEIGHT)];
+		converter.toNv21(nv21.yBuffer, nv21.yRowStride, u, v, nv21.uvRowStride, 2, WIDTH, HEIGHT,
+				out);
+
+		// The same buffer objects with the colors of the next image.
+		u.put(0, (byte) 30);
+		v.put(0, (byte) 200);
+		converter.toNv21(nv21.yBuffer, nv21.yRowStride, u, v, nv21.uvRowStride, 2, WIDTH, HEIGHT,
+				out);
+		assertEquals(Yuv420StreamConverter.Layout.OTHER, converter.getLayout());
+		assertEquals((byte) 200, out[WIDTH * HEIGHT]);
+		assertEquals((byte) 30, out[WIDTH * HEIGHT + 1]);
+	}
+
+	private static void fill(ByteBuffer buffer, byte value) {
+		for (int i = 0; i < buffer.limit(); i++) {
+			buffer.put(i, value);
+		}
+	}
+
+	private static ByteBuffer copy(ByteBuffer buffer) {
+		ByteBuffer copy = ByteBuffer.allocateDirect(buffer.limit());
+		for (int i = 0; i < buffer.limit(); i++) {
+			copy.put(i, buffer.get(i));
+		}
+		return copy;
+	}
+}